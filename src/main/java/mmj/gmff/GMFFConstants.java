@@ -100,6 +100,30 @@ public class GMFFConstants {
 
     public static final int PROOF_WORKSHEET_BUFFER_SIZE = 8192;
 
+    /**
+     * The number of Proof Worksheets per thread read, loaded and typeset ahead
+     * of the one being written by a parallel export, which bounds the number
+     * of staged export files.
+     */
+    public static final int EXPORTS_QUEUED_PER_THREAD = 4;
+
+    /**
+     * The name of the manifest of the exports written in an Export Folder,
+     * which allows unchanged exports to be skipped (see
+     * {@code GMFFExportManifest}).
+     */
+    public static final String EXPORT_MANIFEST_FILE_NAME = "gmff-manifest.txt";
+
+    /**
+     * The manifest journal is compacted when loaded if it has more than this
+     * many lines per export file.
+     */
+    public static final int EXPORT_MANIFEST_COMPACT_RATIO = 4;
+
+    public static final String EXPORT_HASH_ALGORITHM = "SHA-256";
+
+    public static final String EXPORT_TEMP_FILE_TYPE = ".tmp";
+
     public static final char APPEND_FILE_NAME_ERR_CHAR_1 = '/';
     public static final char APPEND_FILE_NAME_ERR_CHAR_2 = '\\';
     public static final char APPEND_FILE_NAME_ERR_CHAR_3 = ':';
@@ -375,6 +399,10 @@ public class GMFFConstants {
         "I-GM-0116 GMFFParseMetamathTypesetComment input directory: %s, File Name: %s,"
             + " TypesetDefKeyword: %s. Input $t comment follows:\n%s\n%s");
 
+    public static final ErrorCode ERRMSG_EXPORT_INTERRUPTED_ERROR = of(
+        "E-GM-0117 GMFF export interrupted after %d of %d exports."
+            + " The exports already written are kept.");
+
     // ==================================================
     // Messages for GMFFExporter
     // ==================================================
@@ -397,6 +425,9 @@ public class GMFFConstants {
     public static final ErrorCode ERRMSG_EXPORT_CONFIRMATION = of(
         "I-GM-0203 Theorem %s exported to %s");
 
+    public static final ErrorCode ERRMSG_EXPORT_UNCHANGED = of(
+        "I-GM-0204 Theorem %s unchanged, export file not rewritten: %s");
+
     // ==================================================
     // Messages for GMFFInputFile
     // ==================================================
@@ -475,6 +506,11 @@ public class GMFFConstants {
         "E-GM-0508 GMFF export file Charset Encoding blank!"
             + " Export File = %s.");
 
+    public static final ErrorCode ERRMSG_EXPORT_MANIFEST_IO_ERROR = of(
+        "E-GM-0509 Export manifest I/O error!"
+            + " System absolute pathname = %s."
+            + " Detailed system error message = %s");
+
     // ==================================================
     // Messages for TypesetDefCommentParser
     // ==================================================
@@ -0,0 +1,155 @@
+package mmj.gmff;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * {@code GMFFExportBuffer} receives the text of an export as it is built by a
+ * {@code GMFFExporter}.
+ * <p>
+ * A streaming {@code GMFFExportBuffer} holds at most
+ * {@code GMFFConstants.EXPORT_BUFFER_DEFAULT_SIZE} characters, which are
+ * flushed to the {@code Writer} of the export file as the buffer fills up, so
+ * that the memory used by an export does not depend on the size of the proof.
+ * The characters are kept in one array, written as is, so a flush allocates
+ * nothing. An in-memory {@code GMFFExportBuffer} holds the whole text, such
+ * as the rendering of a token.
+ * <p>
+ * Like {@code PrintWriter}, a streaming {@code GMFFExportBuffer} does not
+ * throw I/O errors as the text is appended: the first error is kept, and
+ * reported by {@link #getIOException()} when the export is complete.
+ */
+public class GMFFExportBuffer {
+
+    private static final int SIZE = GMFFConstants.EXPORT_BUFFER_DEFAULT_SIZE;
+
+    private char[] buffer;
+
+    private int count;
+
+    private final Writer writer;
+
+    private IOException ioException;
+
+    /**
+     * Constructor for an in-memory {@code GMFFExportBuffer}.
+     */
+    public GMFFExportBuffer() {
+        this(null);
+    }
+
+    /**
+     * Constructor for a streaming {@code GMFFExportBuffer}.
+     *
+     * @param writer the Writer of the export file, or null for an in-memory
+     *            {@code GMFFExportBuffer}.
+     */
+    public GMFFExportBuffer(final Writer writer) {
+        this.writer = writer;
+        buffer = new char[SIZE];
+    }
+
+    /**
+     * Appends text to the export.
+     *
+     * @param s the text.
+     * @return this {@code GMFFExportBuffer}.
+     */
+    public GMFFExportBuffer append(final String s) {
+        final int length = s.length();
+        if (!reserve(length)) {
+            write(s);
+            return this;
+        }
+        s.getChars(0, length, buffer, count);
+        count += length;
+        return this;
+    }
+
+    /**
+     * Appends text to the export.
+     *
+     * @param s the text.
+     * @return this {@code GMFFExportBuffer}.
+     */
+    public GMFFExportBuffer append(final char[] s) {
+        if (!reserve(s.length)) {
+            write(s);
+            return this;
+        }
+        System.arraycopy(s, 0, buffer, count, s.length);
+        count += s.length;
+        return this;
+    }
+
+    /**
+     * Makes room in the buffer for text to be appended: a streaming
+     * {@code GMFFExportBuffer} is flushed if the text does not fit, and an
+     * in-memory {@code GMFFExportBuffer} grows.
+     *
+     * @param length the length of the text.
+     * @return false if the text is longer than the buffer of a streaming
+     *         {@code GMFFExportBuffer}, and is to be written directly.
+     */
+    private boolean reserve(final int length) {
+        if (count + length <= buffer.length)
+            return true;
+        if (writer == null) {
+            buffer = Arrays.copyOf(buffer,
+                Math.max(2 * buffer.length, count + length));
+            return true;
+        }
+        flush();
+        return length <= buffer.length;
+    }
+
+    /**
+     * Writes the buffered text to the Writer of a streaming
+     * {@code GMFFExportBuffer}.
+     */
+    public void flush() {
+        if (writer != null && count > 0) {
+            if (ioException == null)
+                try {
+                    writer.write(buffer, 0, count);
+                } catch (final IOException e) {
+                    ioException = e;
+                }
+            count = 0;
+        }
+    }
+
+    /**
+     * @return the first I/O error of a streaming {@code GMFFExportBuffer}, or
+     *         null.
+     */
+    public IOException getIOException() {
+        return ioException;
+    }
+
+    private void write(final String s) {
+        if (ioException != null)
+            return;
+        try {
+            writer.write(s);
+        } catch (final IOException e) {
+            ioException = e;
+        }
+    }
+
+    private void write(final char[] s) {
+        if (ioException != null)
+            return;
+        try {
+            writer.write(s);
+        } catch (final IOException e) {
+            ioException = e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, count);
+    }
+}
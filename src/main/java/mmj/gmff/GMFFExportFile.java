@@ -16,6 +16,10 @@
 package mmj.gmff;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 
 /**
  * GMFFExportFile is a little helper class for GMFF to handle the ugly IO
@@ -83,32 +87,212 @@ public class GMFFExportFile {
     }
 
     /**
-     * Writes the export buffer and closes the file.
+     * Builds the contents of an export file into a streaming
+     * {@code GMFFExportBuffer}.
+     */
+    public interface ContentsBuilder {
+        /**
+         * @param exportBuffer the {@code GMFFExportBuffer} of the export file.
+         * @throws GMFFException if the export fails.
+         */
+        void build(GMFFExportBuffer exportBuffer) throws GMFFException;
+    }
+
+    /**
+     * The contents of an export file written beforehand to a staged file of
+     * the Export Folder (see {@link #stageFileContents}).
+     */
+    public static class StagedContents {
+        private final File stagedFile;
+        private final String contentsHash;
+
+        StagedContents(final File stagedFile, final String contentsHash) {
+            this.stagedFile = stagedFile;
+            this.contentsHash = contentsHash;
+        }
+
+        /**
+         * Deletes the staged file, if it was not written out.
+         */
+        public void discard() {
+            stagedFile.delete();
+        }
+    }
+
+    /**
+     * Writes the export contents as they are built and closes the file.
+     * <p>
+     * The contents are streamed to a temporary file of the Export Folder.
+     * Unless the file is opened in append mode, the temporary file then
+     * replaces the export file, atomically if the file system supports it;
+     * in append mode it is copied to the end of the export file. Either way,
+     * the export file is left unchanged if the export fails.
      *
-     * @param exportBuffer text to be written out.
-     * @throws GMFFException if I/O exception, security exception or if the
-     *             charsetEncoding name is not supported.
+     * @param contentsBuilder builds the text to be written out.
+     * @return the hash of the contents of the export file (see
+     *         {@link GMFFExportManifest#hash(byte[])}), or null in append mode.
+     * @throws GMFFException if I/O exception, security exception, if the
+     *             charsetEncoding name is not supported or if the export
+     *             fails.
      */
-    public void writeFileContents(final StringBuilder exportBuffer)
+    public String writeFileContents(final ContentsBuilder contentsBuilder)
         throws GMFFException
     {
 
-        try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(
-            new FileOutputStream(exportFile, append), charsetEncoding)))
-        {
-            w.write(exportBuffer.toString());
+        final File tempFile = GMFFExportManifest.getTempFile(exportFile);
+        try {
+            return moveToExportFile(tempFile,
+                writeContents(tempFile, contentsBuilder));
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Writes the export contents as they are built to a new staged file of
+     * the Export Folder, to be written out later by
+     * {@link #writeStagedContents}.
+     * <p>
+     * This is used by the threads of a parallel export, so that the exports
+     * waiting to be written out in order are held on disk, not in memory.
+     *
+     * @param contentsBuilder builds the text to be written out.
+     * @return the staged contents.
+     * @throws GMFFException if I/O exception, security exception, if the
+     *             charsetEncoding name is not supported or if the export
+     *             fails.
+     */
+    public StagedContents stageFileContents(
+        final ContentsBuilder contentsBuilder) throws GMFFException
+    {
+
+        File stagedFile = null;
+        try {
+            stagedFile = File.createTempFile("." + exportFileName + ".",
+                GMFFConstants.EXPORT_TEMP_FILE_TYPE,
+                exportFile.getParentFile());
+            final StagedContents stagedContents = new StagedContents(
+                stagedFile, writeContents(stagedFile, contentsBuilder));
+            stagedFile = null;
+            return stagedContents;
+        } catch (final IOException e) {
+            throw ioError(e);
+        } catch (final SecurityException e) {
+            throw miscError(e);
+        } finally {
+            if (stagedFile != null)
+                stagedFile.delete();
+        }
+    }
+
+    /**
+     * Writes out contents staged by {@link #stageFileContents}, as
+     * {@link #writeFileContents} does, and deletes the staged file.
+     *
+     * @param stagedContents the staged contents.
+     * @return the hash of the contents of the export file, or null in append
+     *         mode.
+     * @throws GMFFException if I/O exception or security exception.
+     */
+    public String writeStagedContents(final StagedContents stagedContents)
+        throws GMFFException
+    {
+
+        try {
+            return moveToExportFile(stagedContents.stagedFile,
+                stagedContents.contentsHash);
+        } finally {
+            stagedContents.discard();
+        }
+    }
+
+    /**
+     * Writes the export contents as they are built to a file and closes it.
+     *
+     * @param file the file.
+     * @param contentsBuilder builds the text to be written out.
+     * @return the hash of the contents.
+     * @throws GMFFException if I/O exception, security exception, if the
+     *             charsetEncoding name is not supported or if the export
+     *             fails.
+     */
+    private String writeContents(final File file,
+        final ContentsBuilder contentsBuilder) throws GMFFException
+    {
+
+        try {
+            final Charset charset = getCharset();
+            final MessageDigest digest = GMFFExportManifest.newDigest();
+            try (Writer w = new OutputStreamWriter(
+                new DigestOutputStream(new FileOutputStream(file), digest),
+                charset))
+            {
+                final GMFFExportBuffer exportBuffer = new GMFFExportBuffer(w);
+                contentsBuilder.build(exportBuffer);
+                exportBuffer.flush();
+                if (exportBuffer.getIOException() != null)
+                    throw exportBuffer.getIOException();
+            }
+            return GMFFExportManifest.toHex(digest);
         } catch (final UnsupportedEncodingException e) {
             throw new GMFFException(e,
                 GMFFConstants.ERRMSG_EXPORT_FILE_CHARSET_ERROR, exportFileName,
                 exportType, charsetEncoding, e.getMessage());
         } catch (final IOException e) {
-            throw new GMFFException(e,
-                GMFFConstants.ERRMSG_EXPORT_FILE_IO_ERROR, exportFileName,
-                exportType, getAbsolutePath(), e.getMessage());
+            throw ioError(e);
         } catch (final SecurityException e) {
-            throw new GMFFException(e,
-                GMFFConstants.ERRMSG_EXPORT_FILE_MISC_ERROR, exportFileName,
-                exportType, getAbsolutePath(), e.getMessage());
+            throw miscError(e);
+        }
+    }
+
+    /**
+     * Replaces the export file by a file of the Export Folder, or, in append
+     * mode, copies the file to the end of the export file.
+     *
+     * @param file the file.
+     * @param contentsHash the hash of the contents of the file.
+     * @return the hash of the contents of the export file, or null in append
+     *         mode.
+     * @throws GMFFException if I/O exception or security exception.
+     */
+    private String moveToExportFile(final File file,
+        final String contentsHash) throws GMFFException
+    {
+
+        try {
+            if (append) {
+                try (OutputStream out = new FileOutputStream(exportFile, true))
+                {
+                    Files.copy(file.toPath(), out);
+                }
+                return null;
+            }
+
+            GMFFExportManifest.replaceFile(file, exportFile);
+            return contentsHash;
+        } catch (final IOException e) {
+            throw ioError(e);
+        } catch (final SecurityException e) {
+            throw miscError(e);
+        }
+    }
+
+    private GMFFException ioError(final IOException e) {
+        return new GMFFException(e, GMFFConstants.ERRMSG_EXPORT_FILE_IO_ERROR,
+            exportFileName, exportType, getAbsolutePath(), e.getMessage());
+    }
+
+    private GMFFException miscError(final SecurityException e) {
+        return new GMFFException(e,
+            GMFFConstants.ERRMSG_EXPORT_FILE_MISC_ERROR, exportFileName,
+            exportType, getAbsolutePath(), e.getMessage());
+    }
+
+    private Charset getCharset() throws UnsupportedEncodingException {
+        try {
+            return Charset.forName(charsetEncoding);
+        } catch (final IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(e.getMessage());
         }
     }
 
@@ -0,0 +1,251 @@
+package mmj.gmff;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * {@code GMFFExportManifest} records, for each export file of an Export
+ * Folder, the key of the inputs of its export and the hash of its contents,
+ * so that an export whose inputs and output file are unchanged can be
+ * skipped.
+ * <p>
+ * The key of an export is a hash of the Proof Worksheet text, the Export
+ * Parms, the Model Files, the typesetting definitions and the text escapes of
+ * its Exporter (see {@code GMFFExporter.getExportKey()}). An export is
+ * unchanged if the manifest holds the same key for the export file, and the
+ * export file still has the recorded contents.
+ * <p>
+ * The manifest is stored in the Export Folder as a journal: each export file
+ * written appends a line with its name, key and contents hash, and the last
+ * line of a file name wins. The journal is compacted when it is loaded, if
+ * most of its lines are obsolete.
+ */
+public class GMFFExportManifest {
+
+    private static class Entry {
+        final String exportKey;
+        final String contentsHash;
+
+        Entry(final String exportKey, final String contentsHash) {
+            this.exportKey = exportKey;
+            this.contentsHash = contentsHash;
+        }
+    }
+
+    private final File folderFile;
+
+    private final File manifestFile;
+
+    private Map<String, Entry> entryMap = null;
+
+    /**
+     * Standard constructor.
+     *
+     * @param exportFolder the Export Folder.
+     */
+    public GMFFExportManifest(final GMFFFolder exportFolder) {
+        folderFile = exportFolder.getFolderFile();
+        manifestFile = new File(folderFile,
+            GMFFConstants.EXPORT_MANIFEST_FILE_NAME);
+    }
+
+    /**
+     * Returns true if an export file was written by an export with the same
+     * key and still has the contents written then.
+     *
+     * @param exportFileName the name of the export file, including file type.
+     * @param exportKey the key of the export.
+     * @return true if the export is unchanged.
+     * @throws GMFFException if the manifest cannot be read.
+     */
+    public synchronized boolean isUnchanged(final String exportFileName,
+        final String exportKey) throws GMFFException
+    {
+
+        final Entry entry = getEntryMap().get(exportFileName);
+        if (entry == null || !entry.exportKey.equals(exportKey))
+            return false;
+
+        final File exportFile = new File(folderFile, exportFileName);
+        try {
+            return exportFile.isFile() && entry.contentsHash
+                .equals(hash(Files.readAllBytes(exportFile.toPath())));
+        } catch (final IOException e) {
+            return false; // written again
+        }
+    }
+
+    /**
+     * Records the key and contents hash of an export file just written.
+     *
+     * @param exportFileName the name of the export file, including file type.
+     * @param exportKey the key of the export.
+     * @param contentsHash the hash of the contents of the export file (see
+     *            {@link #hash(byte[])}).
+     * @throws GMFFException if the manifest cannot be updated.
+     */
+    public synchronized void record(final String exportFileName,
+        final String exportKey, final String contentsHash) throws GMFFException
+    {
+
+        final Map<String, Entry> map = getEntryMap();
+        try (Writer w = new OutputStreamWriter(
+            new FileOutputStream(manifestFile, true), StandardCharsets.UTF_8))
+        {
+            w.write(formatLine(exportFileName, exportKey, contentsHash));
+        } catch (final IOException | SecurityException e) {
+            throw new GMFFException(e,
+                GMFFConstants.ERRMSG_EXPORT_MANIFEST_IO_ERROR,
+                manifestFile.getAbsolutePath(), e.getMessage());
+        }
+        map.put(exportFileName, new Entry(exportKey, contentsHash));
+    }
+
+    private Map<String, Entry> getEntryMap() throws GMFFException {
+        if (entryMap != null)
+            return entryMap;
+
+        entryMap = new HashMap<>();
+        if (!manifestFile.isFile())
+            return entryMap;
+
+        int nbrLines = 0;
+        try {
+            for (final String line : Files.readAllLines(manifestFile.toPath(),
+                StandardCharsets.UTF_8))
+            {
+                final String[] field = line.split("\t");
+                if (field.length == 3) {
+                    entryMap.put(field[0], new Entry(field[1], field[2]));
+                    nbrLines++;
+                }
+            }
+            if (nbrLines > GMFFConstants.EXPORT_MANIFEST_COMPACT_RATIO
+                * entryMap.size())
+                compact();
+        } catch (final IOException | SecurityException e) {
+            entryMap = null;
+            throw new GMFFException(e,
+                GMFFConstants.ERRMSG_EXPORT_MANIFEST_IO_ERROR,
+                manifestFile.getAbsolutePath(), e.getMessage());
+        }
+        return entryMap;
+    }
+
+    private void compact() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        for (final Map.Entry<String, Entry> e : entryMap.entrySet())
+            sb.append(formatLine(e.getKey(), e.getValue().exportKey,
+                e.getValue().contentsHash));
+
+        writeFileAtomically(manifestFile,
+            sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String formatLine(final String exportFileName,
+        final String exportKey, final String contentsHash)
+    {
+        return exportFileName + '\t' + exportKey + '\t' + contentsHash + '\n';
+    }
+
+    /**
+     * Writes a file through a temporary file of the same folder which then
+     * replaces it (see {@link #replaceFile}).
+     *
+     * @param file the file.
+     * @param contents the contents of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeFileAtomically(final File file,
+        final byte[] contents) throws IOException
+    {
+        final File tempFile = getTempFile(file);
+        try {
+            Files.write(tempFile.toPath(), contents);
+            replaceFile(tempFile, file);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * @param file a file.
+     * @return the temporary file of the same folder through which the file is
+     *         written.
+     */
+    public static File getTempFile(final File file) {
+        return new File(file.getParentFile(),
+            "." + file.getName() + GMFFConstants.EXPORT_TEMP_FILE_TYPE);
+    }
+
+    /**
+     * Replaces a file by its temporary file (see {@link #getTempFile}),
+     * atomically if the file system supports it, so that the file is never
+     * left partially written.
+     *
+     * @param tempFile the temporary file.
+     * @param file the file.
+     * @throws IOException if the file cannot be replaced.
+     */
+    public static void replaceFile(final File tempFile, final File file)
+        throws IOException
+    {
+        try {
+            Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return a new digest for the keys and hashes of the manifest.
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest
+                .getInstance(GMFFConstants.EXPORT_HASH_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds a String to a digest, followed by a separator.
+     *
+     * @param digest the digest.
+     * @param s the String.
+     */
+    public static void update(final MessageDigest digest, final String s) {
+        digest.update(s.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte)0);
+    }
+
+    /**
+     * @param digest a digest.
+     * @return the hash of the digest, in hexadecimal.
+     */
+    public static String toHex(final MessageDigest digest) {
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : digest.digest())
+            sb.append(Character.forDigit(b >> 4 & 0xF, 16))
+                .append(Character.forDigit(b & 0xF, 16));
+        return sb.toString();
+    }
+
+    /**
+     * @param bytes the contents of a file.
+     * @return the hash of the contents, in hexadecimal.
+     */
+    public static String hash(final byte[] bytes) {
+        final MessageDigest digest = newDigest();
+        digest.update(bytes);
+        return toHex(digest);
+    }
+}
@@ -0,0 +1,67 @@
+package mmj.gmff;
+
+/**
+ * {@code GMFFExportText} holds the export of a Proof Worksheet prepared by a
+ * {@code GMFFExporter} but not yet written to the export file.
+ * <p>
+ * The text of the export is either built as it is written to the export file,
+ * or built beforehand into a staged file of the Export Folder (by the threads
+ * of a parallel export). It is not built at all if the export is unchanged.
+ */
+public class GMFFExportText {
+
+    public final String theoremLabel;
+
+    public final ProofWorksheetCache proofWorksheetCache;
+
+    public final String exportKey;
+
+    public final boolean unchanged;
+
+    public final GMFFExportFile.StagedContents stagedContents;
+
+    /**
+     * Constructor for GMFFExportText.
+     *
+     * @param theoremLabel the label of the theorem whose proof is exported.
+     * @param proofWorksheetCache the proof to be exported.
+     * @param exportKey the key of the export, recorded in the manifest of the
+     *            Export Folder, or null if the export is not recorded.
+     * @param unchanged true if the export is unchanged and is not written
+     *            again.
+     */
+    public GMFFExportText(final String theoremLabel,
+        final ProofWorksheetCache proofWorksheetCache, final String exportKey,
+        final boolean unchanged)
+    {
+        this.theoremLabel = theoremLabel;
+        this.proofWorksheetCache = proofWorksheetCache;
+        this.exportKey = exportKey;
+        this.unchanged = unchanged;
+        stagedContents = null;
+    }
+
+    /**
+     * Constructor for a GMFFExportText whose text is built beforehand.
+     *
+     * @param exportText the export.
+     * @param stagedContents the text of the export, in a staged file.
+     */
+    public GMFFExportText(final GMFFExportText exportText,
+        final GMFFExportFile.StagedContents stagedContents)
+    {
+        theoremLabel = exportText.theoremLabel;
+        proofWorksheetCache = exportText.proofWorksheetCache;
+        exportKey = exportText.exportKey;
+        unchanged = exportText.unchanged;
+        this.stagedContents = stagedContents;
+    }
+
+    /**
+     * Deletes the staged file of the export, if it was not written out.
+     */
+    public void discard() {
+        if (stagedContents != null)
+            stagedContents.discard();
+    }
+}
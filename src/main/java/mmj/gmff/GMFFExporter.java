@@ -15,8 +15,10 @@
 
 package mmj.gmff;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import mmj.lang.*;
 
@@ -43,9 +45,18 @@ import mmj.lang.*;
  * {@code modelFileCacheMap} for the given Export Type. The purpose is to avoid
  * re-reading the model files over and over again.
  * <p>
+ * Likewise, {@code tokenRenderingMap} caches the rendering of each token
+ * typeset by the Exporter -- its typesetting definition, or else the escaped
+ * token -- so that a token is looked up and escaped only once.
+ * <p>
  * {@code GMFFExporter} also contains a number of utility functions which are
  * common to the different model exporters, such as {@code ModelAExporter},
  * which is an extension of {@code GMFFExporter}.
+ * <p>
+ * Each export file written by a {@code GMFFExporter} is recorded in the
+ * {@code GMFFExportManifest} of its Export Folder, along with the key of the
+ * inputs of its export (see {@link #getExportKey}), so that an export whose
+ * inputs and output file are unchanged is not built and written again.
  */
 public abstract class GMFFExporter {
 
@@ -55,6 +66,41 @@ public abstract class GMFFExporter {
     GMFFExporterTypesetDefs gmffExporterTypesetDefs;
     char[][] escapeSubstitutions;
     Map<String, String> modelFileCacheMap;
+    Messages messages;
+
+    /*
+     * The rendering of a token by typesetAndAppendToken.
+     */
+    private static class TokenRendering {
+        final String text;
+        /** true if the token is a symbol without typesetting definition */
+        final boolean typesetDefMissing;
+
+        TokenRendering(final String text, final boolean typesetDefMissing) {
+            this.text = text;
+            this.typesetDefMissing = typesetDefMissing;
+        }
+    }
+
+    private Map<String, TokenRendering> tokenRenderingMap;
+
+    /**
+     * Writes the contents of an export file.
+     */
+    protected interface ExportFileWriter {
+        /**
+         * @param exportFile the export file.
+         * @return the hash of the contents, or null in append mode.
+         * @throws GMFFException if the output operation fails.
+         */
+        String write(GMFFExportFile exportFile) throws GMFFException;
+    }
+
+    /*
+     * The hash of the Model Files, typesetting definitions and text escapes
+     * of the Exporter, computed on first use.
+     */
+    private String inputsHash;
 
     /**
      * A factory for generating GMFFExporters according to Model Id.
@@ -125,11 +171,52 @@ public abstract class GMFFExporter {
         modelFileCacheMap = new HashMap<>(
             GMFFConstants.EXPORTER_MODEL_CACHE_INIT_SIZE);
 
+        tokenRenderingMap = new ConcurrentHashMap<>(
+            GMFFConstants.METAMATH_DOLLAR_T_MAP_SIZE);
+
+        messages = gmffManager.getMessages();
+    }
+
+    /**
+     * Constructor for a copy of a {@code GMFFExporter} used by a thread of a
+     * parallel export.
+     * <p>
+     * The copy shares the Export Parms, Text Escapes, typesetting definitions,
+     * Model File cache and token renderings of the original, but accumulates
+     * its messages in its own {@code Messages} object.
+     *
+     * @param gmffExporter the {@code GMFFExporter} to copy.
+     * @param messages the {@code Messages} object of the copy.
+     */
+    protected GMFFExporter(final GMFFExporter gmffExporter,
+        final Messages messages)
+    {
+
+        gmffManager = gmffExporter.gmffManager;
+        gmffExportParms = gmffExporter.gmffExportParms;
+        gmffUserTextEscapes = gmffExporter.gmffUserTextEscapes;
+        gmffExporterTypesetDefs = gmffExporter.gmffExporterTypesetDefs;
+        escapeSubstitutions = gmffExporter.escapeSubstitutions;
+        modelFileCacheMap = gmffExporter.modelFileCacheMap;
+        tokenRenderingMap = gmffExporter.tokenRenderingMap;
+        this.messages = messages;
     }
 
     /**
-     * Abstract method to export a Proof Worksheet according to the pattern of a
-     * Model.
+     * Abstract method to create a copy of this {@code GMFFExporter} for a
+     * thread of a parallel export (see
+     * {@link #GMFFExporter(GMFFExporter, Messages)}).
+     *
+     * @param messages the {@code Messages} object of the copy.
+     * @return the copy.
+     */
+    public abstract GMFFExporter copyForWorker(Messages messages);
+
+    /**
+     * Exports a Proof Worksheet according to the pattern of a Model.
+     * <p>
+     * Prepares the export with {@link #prepareExport} and writes it out with
+     * {@link #writeExport}, which builds the export text as it is written.
      *
      * @param proofWorksheetCache {@code ProofWorksheetCache} object containing
      *            the proof to be exported.
@@ -141,30 +228,227 @@ public abstract class GMFFExporter {
      *         failed (error messages are accumed in the {@code Messages}
      *         object.)
      */
-    public abstract GMFFException exportProofWorksheet(
+    public GMFFException exportProofWorksheet(
+        final ProofWorksheetCache proofWorksheetCache,
+        final String appendFileName)
+    {
+
+        final GMFFExportText exportText = prepareExport(proofWorksheetCache,
+            appendFileName);
+        if (exportText == null)
+            return null;
+        return writeExport(exportText, appendFileName);
+    }
+
+    /**
+     * Abstract method to prepare the export of a Proof Worksheet according to
+     * the pattern of a Model: loads and validates the Proof Worksheet, without
+     * building the export text.
+     * <p>
+     * Unless the export is appended to a file, the result tells whether the
+     * export is unchanged (see {@link #isExportUnchanged}).
+     *
+     * @param proofWorksheetCache {@code ProofWorksheetCache} object containing
+     *            the proof to be exported.
+     * @param appendFileName File Name (minus File Type) of append file if the
+     *            regular file name is to be overridden (see documentation of
+     *            appendFileNames in GMFFDoc\GMFFRunParms.txt).
+     * @return the prepared export -- or {@code null} if the export failed
+     *         (error messages are accumed in the {@code Messages} object.)
+     */
+    public abstract GMFFExportText prepareExport(
         ProofWorksheetCache proofWorksheetCache, String appendFileName);
 
+    /**
+     * Abstract method to build the export text of a Proof Worksheet prepared
+     * by {@link #prepareExport}.
+     *
+     * @param exportText the prepared export.
+     * @param exportBuffer the {@code GMFFExportBuffer} receiving the export
+     *            text.
+     * @throws GMFFException if the export fails.
+     */
+    protected abstract void buildExport(GMFFExportText exportText,
+        GMFFExportBuffer exportBuffer) throws GMFFException;
+
+    /**
+     * Prepares the export of a Proof Worksheet and builds its text into a
+     * staged file of the Export Folder, to be written out later by
+     * {@link #writeExport}.
+     * <p>
+     * This is used by the threads of a parallel export.
+     *
+     * @param proofWorksheetCache {@code ProofWorksheetCache} object containing
+     *            the proof to be exported.
+     * @param appendFileName File Name (minus File Type) of append file if the
+     *            regular file name is to be overridden.
+     * @return the export -- or {@code null} if the export failed (error
+     *         messages are accumed in the {@code Messages} object.)
+     */
+    public GMFFExportText stageExport(
+        final ProofWorksheetCache proofWorksheetCache,
+        final String appendFileName)
+    {
+
+        final GMFFExportText exportText = prepareExport(proofWorksheetCache,
+            appendFileName);
+        if (exportText == null || exportText.unchanged)
+            return exportText;
+
+        try {
+            final GMFFExportFile exportFile = newExportFile(
+                getExportFileName(appendFileName, exportText.theoremLabel),
+                appendFileName != null);
+            return new GMFFExportText(exportText, exportFile.stageFileContents(
+                exportBuffer -> buildExport(exportText, exportBuffer)));
+        } catch (final GMFFException e) {
+            getMessages().accumException(e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes an export prepared by {@link #prepareExport} to the export file,
+     * building its text as it is written, unless it was staged beforehand by
+     * {@link #stageExport}.
+     *
+     * @param exportText the export.
+     * @param appendFileName File Name (minus File Type) of append file if the
+     *            regular file name is to be overridden (see documentation of
+     *            appendFileNames in GMFFDoc\GMFFRunParms.txt).
+     * @return Confirmation message of the successful export showing the
+     *         absolute path of the output file -- or {@code null} if the export
+     *         failed (error messages are accumed in the {@code Messages}
+     *         object.)
+     */
+    public GMFFException writeExport(final GMFFExportText exportText,
+        final String appendFileName)
+    {
+        try {
+            if (exportText.unchanged)
+                return new GMFFException(GMFFConstants.ERRMSG_EXPORT_UNCHANGED,
+                    exportText.theoremLabel,
+                    new File(gmffExportParms.exportFolder.getFolderFile(),
+                        getExportFileName(appendFileName,
+                            exportText.theoremLabel)).getAbsolutePath());
+
+            final ExportFileWriter exportFileWriter = //
+                exportText.stagedContents == null
+                    ? exportFile -> exportFile.writeFileContents(
+                        exportBuffer -> buildExport(exportText, exportBuffer))
+                    : exportFile -> exportFile
+                        .writeStagedContents(exportText.stagedContents);
+
+            return outputToExportFile(exportFileWriter, appendFileName,
+                exportText.theoremLabel, exportText.exportKey);
+        } catch (final GMFFException e) {
+            getMessages().accumException(e);
+        } finally {
+            exportText.discard();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the key of the export of a Proof Worksheet: a hash of the Proof
+     * Worksheet text, the Export Parms, the Model Files, the typesetting
+     * definitions and the text escapes of this Exporter. Exports with the same
+     * key produce the same export file.
+     *
+     * @param proofWorksheetCache {@code ProofWorksheetCache} object containing
+     *            the proof to be exported.
+     * @return the key of the export.
+     * @throws GMFFException if a Model File cannot be read.
+     */
+    public String getExportKey(final ProofWorksheetCache proofWorksheetCache)
+        throws GMFFException
+    {
+
+        final MessageDigest digest = GMFFExportManifest.newDigest();
+        GMFFExportManifest.update(digest, getInputsHash());
+        GMFFExportManifest.update(digest, proofWorksheetCache.proofText);
+        return GMFFExportManifest.toHex(digest);
+    }
+
+    private String getInputsHash() throws GMFFException {
+        if (inputsHash != null)
+            return inputsHash;
+
+        final MessageDigest digest = GMFFExportManifest.newDigest();
+        GMFFExportManifest.update(digest, gmffExportParms.exportType);
+        GMFFExportManifest.update(digest, gmffExportParms.modelId);
+        GMFFExportManifest.update(digest, gmffExportParms.charsetEncoding);
+        GMFFExportManifest.update(digest, gmffExportParms.exportFileType);
+
+        final File[] modelFiles = gmffExportParms.modelsFolder.listFiles("",
+            "");
+        for (final File modelFile : modelFiles) {
+            GMFFExportManifest.update(digest, modelFile.getName());
+            GMFFExportManifest.update(digest,
+                readModelFile(modelFile.getName()));
+        }
+
+        GMFFExportManifest.update(digest,
+            gmffExporterTypesetDefs.typesetDefKeyword);
+        final Map<String, String> typesetDefMap = new TreeMap<>(
+            gmffExporterTypesetDefs.typesetDefMap);
+        for (final Map.Entry<String, String> e : typesetDefMap.entrySet()) {
+            GMFFExportManifest.update(digest, e.getKey());
+            GMFFExportManifest.update(digest, e.getValue());
+        }
+
+        for (final char[] substitution : escapeSubstitutions)
+            GMFFExportManifest.update(digest, new String(substitution));
+
+        inputsHash = GMFFExportManifest.toHex(digest);
+        return inputsHash;
+    }
+
+    /**
+     * Returns true if the export of a theorem to a file is unchanged: the
+     * manifest of the Export Folder records an export with the same key, and
+     * the export file still has the contents written then.
+     *
+     * @param exportFileName the export file, including file type.
+     * @param exportKey the key of the export (see {@link #getExportKey}).
+     * @return true if the export is unchanged, false if it is changed or if
+     *         the manifest cannot be read (error message accumed in the
+     *         {@code Messages} object.)
+     */
+    protected boolean isExportUnchanged(final String exportFileName,
+        final String exportKey)
+    {
+
+        try {
+            return gmffManager.getExportManifest(gmffExportParms.exportFolder)
+                .isUnchanged(exportFileName, exportKey);
+        } catch (final GMFFException e) {
+            getMessages().accumException(e);
+            return false;
+        }
+    }
+
     /**
      * Get function to return the {@code Messages} object.
      *
      * @return the {@code Messages} object.
      */
     public Messages getMessages() {
-        return gmffManager.getMessages();
+        return messages;
     }
 
     /**
      * Outputs the contents of a Mandatory Model File to the export buffer
      * throwing an exception if the file is not found.
      *
-     * @param exportBuffer {@code StringBuilder} containing the contents of the
-     *            export file.
+     * @param exportBuffer {@code GMFFExportBuffer} receiving the contents of
+     *            the export file.
      * @param mandatoryModelFileName the File Name of the Model File within the
      *            Models Directory for this Export Type.
      * @param theoremLabel provided for use in error messages.
      * @throws GMFFException if other errors encountered (such as I/O errors.)
      */
-    public void appendMandatoryModelFile(final StringBuilder exportBuffer,
+    public void appendMandatoryModelFile(final GMFFExportBuffer exportBuffer,
         final String mandatoryModelFileName, final String theoremLabel)
             throws GMFFException
     {
@@ -174,17 +458,17 @@ public abstract class GMFFExporter {
     }
 
     /**
-     * Appends text from a Model File to the output StringBuilder.
+     * Appends text from a Model File to the output GMFFExportBuffer.
      * <p>
      * NOTE: does not escape the text because it is from a Model File and should
      * already be escaped (as needed.)
      *
-     * @param exportBuffer {@code StringBuilder} containing the contents of the
-     *            export file.
+     * @param exportBuffer {@code GMFFExportBuffer} receiving the contents of
+     *            the export file.
      * @param modelFileText data from the Model File to be appended to the
      *            exportBuffer.
      */
-    public void appendModelFileText(final StringBuilder exportBuffer,
+    public void appendModelFileText(final GMFFExportBuffer exportBuffer,
         final String modelFileText)
     {
 
@@ -209,45 +493,57 @@ public abstract class GMFFExporter {
      * "ALT=" feature to display the ASCII token text. So in this scenario it
      * may appear that the token was not found in the typesetting table, but the
      * absence of an error message indicates that that is not the case.
+     * <p>
+     * The rendering of the token is computed on its first occurrence and
+     * cached in {@code tokenRenderingMap}, including for tokens without
+     * typesetting definition.
      *
-     * @param exportBuffer {@code StringBuilder} containing the contents of the
-     *            export file.
+     * @param exportBuffer {@code GMFFExportBuffer} receiving the contents of
+     *            the export file.
      * @param token the Metamath token to be typeset.
      * @param theoremLabel provided for use in error messages.
      */
-    public void typesetAndAppendToken(final StringBuilder exportBuffer,
+    public void typesetAndAppendToken(final GMFFExportBuffer exportBuffer,
         final String token, final String theoremLabel)
     {
 
+        final TokenRendering rendering = tokenRenderingMap
+            .computeIfAbsent(token, this::renderToken);
+
+        exportBuffer.append(rendering.text);
+
+        if (rendering.typesetDefMissing)
+            getMessages().accumMessage(
+                GMFFConstants.ERRMSG_TYPESET_DEF_NOT_FOUND_ERROR, theoremLabel,
+                token, gmffExporterTypesetDefs.typesetDefKeyword);
+    }
+
+    private TokenRendering renderToken(final String token) {
+
         final String typesetString = gmffExporterTypesetDefs.typesetDefMap
             .get(token);
 
-        if (typesetString != null) {
-            exportBuffer.append(typesetString);
-            return;
-        }
+        if (typesetString != null)
+            return new TokenRendering(typesetString, false);
 
-        escapeAndAppendProofText(exportBuffer, " " + token + " ");
+        final GMFFExportBuffer rendering = new GMFFExportBuffer();
+        escapeAndAppendProofText(rendering, " " + token + " ");
 
         final Sym sym = gmffManager.getSymTbl().get(token);
 
-        if (sym == null || sym instanceof WorkVar)
-            return;
-
-        gmffManager.getMessages().accumMessage(
-            GMFFConstants.ERRMSG_TYPESET_DEF_NOT_FOUND_ERROR, theoremLabel,
-            token, gmffExporterTypesetDefs.typesetDefKeyword);
+        return new TokenRendering(rendering.toString(),
+            sym != null && !(sym instanceof WorkVar));
     }
 
     /**
      * Appends non-typeset text to the output buffer after escaping the text.
      *
-     * @param exportBuffer {@code StringBuilder} containing the contents of the
-     *            export file.
+     * @param exportBuffer {@code GMFFExportBuffer} receiving the contents of
+     *            the export file.
      * @param proofText output text from the proof worksheet to be escaped and
      *            appended to the output buffer.
      */
-    public void escapeAndAppendProofText(final StringBuilder exportBuffer,
+    public void escapeAndAppendProofText(final GMFFExportBuffer exportBuffer,
         final String proofText)
     {
         for (int i = 0; i < proofText.length(); i++)
@@ -315,6 +611,9 @@ public abstract class GMFFExporter {
      * <p>
      * Returns the file contents as a String, or throws an exception if not
      * found.
+     * <p>
+     * The cache is shared with the copies used by the threads of a parallel
+     * export, so it is accessed under its lock.
      *
      * @param modelFileName the File Name of the Model File within the Models
      *            Directory for this Export Type.
@@ -325,23 +624,25 @@ public abstract class GMFFExporter {
         throws GMFFException
     {
 
-        String modelFileContents = modelFileCacheMap.get(modelFileName);
+        synchronized (modelFileCacheMap) {
+            String modelFileContents = modelFileCacheMap.get(modelFileName);
 
-        if (modelFileContents == null) {
+            if (modelFileContents == null) {
 
-            final GMFFInputFile modelFile = new GMFFInputFile(
-                gmffExportParms.modelsFolder, modelFileName,
-                gmffExportParms.exportType,
-                GMFFConstants.MODEL_ERROR_MESSAGE_DESCRIPTOR,
-                GMFFConstants.DEFAULT_MODEL_FILE_BUFFER_SIZE);
+                final GMFFInputFile modelFile = new GMFFInputFile(
+                    gmffExportParms.modelsFolder, modelFileName,
+                    gmffExportParms.exportType,
+                    GMFFConstants.MODEL_ERROR_MESSAGE_DESCRIPTOR,
+                    GMFFConstants.DEFAULT_MODEL_FILE_BUFFER_SIZE);
 
-            modelFileContents = modelFile.loadContentsToString();
+                modelFileContents = modelFile.loadContentsToString();
 
-            modelFileCacheMap.put(modelFileName, modelFileContents);
+                modelFileCacheMap.put(modelFileName, modelFileContents);
 
-        }
+            }
 
-        return modelFileContents;
+            return modelFileContents;
+        }
     }
 
     /**
@@ -381,46 +682,57 @@ public abstract class GMFFExporter {
      * Finally, to note, the output file name's File Type is appended to the
      * file name computed above, in every case.
      *
-     * @param exportText the contents to be written out.
+     * @param exportFileWriter writes the contents of the export file.
      * @param appendFileName File Name (minus File Type) of append file if the
      *            regular file name is to be overridden (see documentation of
      *            appendFileNames in GMFFDoc\GMFFRunParms.txt).
      * @param theoremLabel the label of the theorem whose proof is being
      *            exported.
+     * @param exportKey the key of the export, recorded in the manifest of the
+     *            Export Folder, or null if the export is not recorded.
      * @return Confirmation message of the successful export showing the
      *         absolute path of the output file.
      * @throws GMFFException if the output operation fails.
      */
-    protected GMFFException outputToExportFile(final StringBuilder exportText,
-        final String appendFileName, final String theoremLabel)
-            throws GMFFException
+    protected GMFFException outputToExportFile(
+        final ExportFileWriter exportFileWriter,
+        final String appendFileName, final String theoremLabel,
+        final String exportKey) throws GMFFException
     {
 
-        String exportFileNamePrefix;
-        boolean append = false;
-
-        if (appendFileName == null) {
-
-            if (gmffExportParms.outputFileName == null)
-                exportFileNamePrefix = theoremLabel;
-            else
-                exportFileNamePrefix = gmffExportParms.outputFileName;
-        }
-        else {
-            exportFileNamePrefix = appendFileName;
-            append = true;
-        }
-
-        final String exportFileName = exportFileNamePrefix
-            + gmffExportParms.exportFileType;
-
         final String exportFileAbsolutePathname = writeExportFile(
-            exportFileName, exportText, append);
+            getExportFileName(appendFileName, theoremLabel), exportFileWriter,
+            appendFileName != null, exportKey);
 
         return new GMFFException(GMFFConstants.ERRMSG_EXPORT_CONFIRMATION,
             theoremLabel, exportFileAbsolutePathname);
     }
 
+    /**
+     * Returns the name of the export file of a theorem (see
+     * {@link #outputToExportFile}).
+     *
+     * @param appendFileName File Name (minus File Type) of append file if the
+     *            regular file name is to be overridden.
+     * @param theoremLabel the label of the theorem whose proof is being
+     *            exported.
+     * @return the name of the export file, including file type.
+     */
+    protected String getExportFileName(final String appendFileName,
+        final String theoremLabel)
+    {
+
+        String exportFileNamePrefix;
+        if (appendFileName != null)
+            exportFileNamePrefix = appendFileName;
+        else if (gmffExportParms.outputFileName != null)
+            exportFileNamePrefix = gmffExportParms.outputFileName;
+        else
+            exportFileNamePrefix = theoremLabel;
+
+        return exportFileNamePrefix + gmffExportParms.exportFileType;
+    }
+
     /**
      * Writes the export text to the specified file and returns a String
      * containing the absolute path of the output file.
@@ -432,26 +744,49 @@ public abstract class GMFFExporter {
      * The actual I/O operation is handled by {@code  GMFFExportfile}.
      *
      * @param exportFileName the output file, including file type.
-     * @param exportBuffer the output text data.
+     * @param exportFileWriter writes the output text data.
      * @param append true if file is to be opened in "append mode", otherwise
      *            false.
+     * @param exportKey the key of the export, recorded in the manifest of the
+     *            Export Folder, or null if the export is not recorded.
      * @return String containing the absolute path of the export file.
      * @throws GMFFException if the output operation fails.
      */
     protected String writeExportFile(final String exportFileName,
-        final StringBuilder exportBuffer, final boolean append)
-            throws GMFFException
+        final ExportFileWriter exportFileWriter, final boolean append,
+        final String exportKey) throws GMFFException
     {
 
-        final GMFFExportFile exportFile = new GMFFExportFile(
-            gmffExportParms.exportFolder, exportFileName,
-            gmffExportParms.charsetEncoding, gmffExportParms.exportType,
+        final GMFFExportFile exportFile = newExportFile(exportFileName,
             append);
 
         final String absolutePathname = exportFile.getAbsolutePath();
 
-        exportFile.writeFileContents(exportBuffer);
+        final String contentsHash = exportFileWriter.write(exportFile);
+
+        if (exportKey != null && contentsHash != null)
+            try {
+                gmffManager.getExportManifest(gmffExportParms.exportFolder)
+                    .record(exportFileName, exportKey, contentsHash);
+            } catch (final GMFFException e) {
+                getMessages().accumException(e);
+            }
 
         return absolutePathname;
     }
+
+    /**
+     * @param exportFileName the output file, including file type.
+     * @param append true if file is to be opened in "append mode", otherwise
+     *            false.
+     * @return the export file, in the Export Folder of this Exporter.
+     * @throws GMFFException if the export file cannot be written.
+     */
+    private GMFFExportFile newExportFile(final String exportFileName,
+        final boolean append) throws GMFFException
+    {
+        return new GMFFExportFile(gmffExportParms.exportFolder, exportFileName,
+            gmffExportParms.charsetEncoding, gmffExportParms.exportType,
+            append);
+    }
 }
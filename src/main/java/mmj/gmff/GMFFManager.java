@@ -17,11 +17,14 @@ package mmj.gmff;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.*;
 
 import mmj.lang.*;
 import mmj.mmio.MMIOConstants;
 import mmj.pa.ProofAsst;
 import mmj.pa.ProofAsstException;
+import mmj.util.SharedExecutor;
+import mmj.verify.VerifyException;
 
 /**
  * Serves as a central data store for GMFF work in progress and as the primary
@@ -56,10 +59,9 @@ public class GMFFManager {
 
     private Map<String, Sym> symTbl = null;
 
+    // accessed under its own lock: the comments are parsed in the background
     private final List<String> typesetDefinitionsCache;
 
-    private int nbrTypesetDefinitionsProcessedSoFar = 0;
-
     // via RunParmGMFFExportParms or wherever
     private final List<GMFFExportParms> inputGMFFExportParmsList;
 
@@ -83,8 +85,8 @@ public class GMFFManager {
     private List<GMFFUserTextEscapes> userTextEscapesList;
 
     // loaded using cached Metamath typesetting defintion
-    // comment records.
-    private final List<GMFFExporterTypesetDefs> exporterTypesetDefsList;
+    // comment records, one loader per typesetting definition keyword.
+    private final List<TypesetDefsLoader> typesetDefsLoaderList;
 
     // loaded with default merged with inputGMFFUserExportChoice
     private GMFFUserExportChoice gmffUserExportChoice;
@@ -93,6 +95,213 @@ public class GMFFManager {
     // to inputGMFFUserExportChoice
     private GMFFExporter[] selectedExporters;
 
+    // manifests of the Export Folders, by absolute pathname
+    private final Map<String, GMFFExportManifest> exportManifestMap = //
+        new HashMap<>();
+
+    /**
+     * Loads the typesetting definitions of one keyword from the cached
+     * Metamath $t Comment statements.
+     * <p>
+     * The comments are parsed in the background by the {@code SharedExecutor},
+     * as soon as they are cached, by at most one task at a time, in the order
+     * of the cache. The parse accumulates its messages in its own
+     * {@code Messages} object, which are passed on by {@link #finish()} at
+     * GMFF initialization.
+     */
+    private class TypesetDefsLoader {
+        final GMFFExporterTypesetDefs typesetDefs;
+
+        // owned by the task in progress, if any
+        private int nbrCommentsParsed = 0;
+        private final Messages parseMessages;
+        private GMFFException failure;
+
+        private Future<?> pending;
+
+        TypesetDefsLoader(final String typesetDefKeyword) {
+            typesetDefs = new GMFFExporterTypesetDefs(typesetDefKeyword,
+                symTbl == null ? GMFFConstants.METAMATH_DOLLAR_T_MAP_SIZE
+                    : symTbl.size());
+            parseMessages = new Messages(
+                messages.getErrorMessageArray().length,
+                messages.getInfoMessageArray().length);
+        }
+
+        /**
+         * Starts the parse of the comments not yet parsed, unless a parse is
+         * in progress or has failed.
+         */
+        synchronized void start() {
+            if (pending != null && !pending.isDone() || failure != null)
+                return;
+            pending = SharedExecutor.get().submit(this::parse);
+        }
+
+        /**
+         * Waits for the parse in progress, if any, parses the comments still
+         * not parsed, and accumulates the messages of the parse. A comment
+         * found invalid is parsed again by the next {@code finish()}.
+         *
+         * @throws GMFFException if a comment is invalid.
+         */
+        synchronized void finish() throws GMFFException {
+            if (pending != null) {
+                boolean interrupted = false;
+                try {
+                    while (true)
+                        try {
+                            pending.get();
+                            break;
+                        } catch (final InterruptedException e) {
+                            interrupted = true;
+                        }
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException)cause;
+                    if (cause instanceof Error)
+                        throw (Error)cause;
+                    throw new IllegalStateException(cause);
+                } finally {
+                    pending = null;
+                    if (interrupted)
+                        Thread.currentThread().interrupt();
+                }
+            }
+
+            if (failure == null)
+                parse();
+
+            for (int i = 0; i < parseMessages.getErrorMessageCnt(); i++)
+                messages.accumErrorMessage(
+                    parseMessages.getErrorMessageArray()[i]);
+            for (int i = 0; i < parseMessages.getInfoMessageCnt(); i++)
+                messages.accumInfoMessage(
+                    parseMessages.getInfoMessageArray()[i]);
+            parseMessages.clearMessages();
+
+            if (failure != null) {
+                final GMFFException e = failure;
+                failure = null; // parsed again next time
+                throw e;
+            }
+        }
+
+        private void parse() {
+            try {
+                final TypesetDefCommentParser parser = //
+                    new TypesetDefCommentParser(
+                        Collections.singletonList(typesetDefs), parseMessages);
+                String comment;
+                while ((comment = getCachedTypesettingComment(
+                    nbrCommentsParsed)) != null)
+                {
+                    parser.doIt(comment);
+                    nbrCommentsParsed++;
+                }
+            } catch (final GMFFException e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Gets the Proof Worksheet text of one item of an export.
+     *
+     * @param <T> the type of the items
+     */
+    private interface ProofTextSource<T> {
+        /**
+         * @param worker the worker exporting the item.
+         * @param item the item.
+         * @return the Proof Worksheet text, or null if the item cannot be
+         *         exported (error messages are accumed in the worker's
+         *         {@code Messages} object.)
+         * @throws GMFFException if the export must stop.
+         */
+        String getProofText(ExportWorker worker, T item) throws GMFFException;
+    }
+
+    /**
+     * The outcome of one item of a parallel export, as produced by a worker
+     * thread and written, in order, by the calling thread.
+     */
+    private static class ExportJob {
+        /** null if the item has no Proof Worksheet text. */
+        public GMFFExportText[] exports;
+        /** thrown when the job is written. */
+        public GMFFException failure;
+        public String[] errorMessages;
+        public String[] infoMessages;
+
+        /** Deletes the staged files of the exports not written out. */
+        public void discard() {
+            if (exports != null)
+                for (final GMFFExportText export : exports)
+                    if (export != null)
+                        export.discard();
+        }
+    }
+
+    /**
+     * The state of a thread of a parallel export: copies of the selected
+     * Exporters and, for theorem exports, a {@code ProofAsst} worker, all of
+     * them accumulating their messages in the worker's own {@code Messages}
+     * object.
+     */
+    private class ExportWorker {
+        private final Messages workerMessages;
+        private final GMFFExporter[] exporters;
+        private final ProofAsst proofAsst;
+
+        /**
+         * Must be invoked on the calling thread, before the worker is started.
+         *
+         * @param proofAsst the {@code ProofAsst} of a theorem export, or null.
+         * @throws VerifyException if the Work Variables of the
+         *             {@code ProofAsst} worker cannot be declared.
+         */
+        ExportWorker(final ProofAsst proofAsst) throws VerifyException {
+            workerMessages = new Messages(
+                messages.getErrorMessageArray().length,
+                messages.getInfoMessageArray().length);
+            exporters = new GMFFExporter[selectedExporters.length];
+            for (int i = 0; i < exporters.length; i++)
+                exporters[i] = selectedExporters[i]
+                    .copyForWorker(workerMessages);
+            this.proofAsst = proofAsst == null ? null
+                : proofAsst.createExportWorker(workerMessages);
+        }
+
+        <T> ExportJob export(final ProofTextSource<T> source, final T item,
+            final String appendFileName)
+        {
+            final ExportJob job = new ExportJob();
+            try {
+                final String proofText = source.getProofText(this, item);
+                if (proofText != null) {
+                    final ProofWorksheetCache p = new ProofWorksheetCache(
+                        proofText);
+                    job.exports = new GMFFExportText[exporters.length];
+                    for (int i = 0; i < exporters.length; i++)
+                        job.exports[i] = exporters[i].stageExport(p,
+                            appendFileName);
+                }
+            } catch (final GMFFException e) {
+                job.failure = e;
+            }
+            job.errorMessages = Arrays.copyOf(
+                workerMessages.getErrorMessageArray(),
+                workerMessages.getErrorMessageCnt());
+            job.infoMessages = Arrays.copyOf(
+                workerMessages.getInfoMessageArray(),
+                workerMessages.getInfoMessageCnt());
+            workerMessages.clearMessages();
+            return job;
+        }
+    }
+
     /**
      * Standard constructor.
      * <p>
@@ -115,8 +324,6 @@ public class GMFFManager {
 
         typesetDefinitionsCache = new ArrayList<>(1);
 
-        nbrTypesetDefinitionsProcessedSoFar = 0;
-
         inputGMFFExportParmsList = new ArrayList<>(
             GMFFConstants.DEFAULT_EXPORT_PARMS.length);
 
@@ -124,7 +331,7 @@ public class GMFFManager {
             GMFFConstants.DEFAULT_EXPORT_PARMS.length);
         inputGMFFUserExportChoice = null;
 
-        exporterTypesetDefsList = new ArrayList<>(
+        typesetDefsLoaderList = new ArrayList<>(
             GMFFConstants.DEFAULT_EXPORT_PARMS.length);
     }
 
@@ -211,8 +418,43 @@ public class GMFFManager {
      */
     public void cacheTypesettingCommentForGMFF(final String comment) {
 
-        typesetDefinitionsCache.add(comment);
+        synchronized (typesetDefinitionsCache) {
+            typesetDefinitionsCache.add(comment);
+        }
         forceReinitialization();
+
+        startTypesetDefsLoaders();
+    }
+
+    /**
+     * Starts the background parse of the cached Metamath $t Comment
+     * statements for the typesetting definition keywords of the Export Parms
+     * input so far.
+     */
+    private void startTypesetDefsLoaders() {
+
+        final List<GMFFExportParms> list = new ArrayList<>(
+            GMFFConstants.DEFAULT_EXPORT_PARMS.length);
+        for (final GMFFExportParms element : GMFFConstants.DEFAULT_EXPORT_PARMS)
+            updateExportParmsList(list, element);
+        for (final GMFFExportParms p : inputGMFFExportParmsList)
+            updateExportParmsList(list, p);
+
+        for (final GMFFExportParms p : list)
+            if (GMFFConstants.EXPORT_PARM_ON.equalsIgnoreCase(p.onoff)
+                && p.typesetDefKeyword != null)
+                getTypesetDefsLoader(p.typesetDefKeyword).start();
+    }
+
+    /**
+     * @param i the index of a cached Metamath $t Comment statement.
+     * @return the comment, or null if fewer comments are cached.
+     */
+    private String getCachedTypesettingComment(final int i) {
+        synchronized (typesetDefinitionsCache) {
+            return i < typesetDefinitionsCache.size()
+                ? typesetDefinitionsCache.get(i) : null;
+        }
     }
 
     /**
@@ -276,6 +518,27 @@ public class GMFFManager {
         return messages;
     }
 
+    /**
+     * Gets the manifest of the exports written in an Export Folder.
+     *
+     * @param exportFolder the Export Folder.
+     * @return the {@code GMFFExportManifest} of the Export Folder.
+     */
+    public GMFFExportManifest getExportManifest(
+        final GMFFFolder exportFolder)
+    {
+        synchronized (exportManifestMap) {
+            GMFFExportManifest manifest = exportManifestMap
+                .get(exportFolder.getAbsolutePath());
+            if (manifest == null) {
+                manifest = new GMFFExportManifest(exportFolder);
+                exportManifestMap.put(exportFolder.getAbsolutePath(),
+                    manifest);
+            }
+            return manifest;
+        }
+    }
+
     /**
      * Returns the {@code gmffInitialized} boolean variable.
      *
@@ -358,7 +621,19 @@ public class GMFFManager {
                 return;
             }
 
-            for (int i = 0; i < fileArray.length && i < max; i++) {
+            final int numberToExport = Math.min(fileArray.length, max);
+            final int nbrThreads = getNbrExportThreads(numberToExport);
+            if (nbrThreads > 1) {
+                exportInParallel(
+                    Arrays.asList(fileArray).subList(0, numberToExport),
+                    (worker, file) -> GMFFInputFile.getFileContents(file, " ",
+                        GMFFConstants.PROOF_WORKSHEET_MESSAGE_DESCRIPTOR,
+                        GMFFConstants.PROOF_WORKSHEET_BUFFER_SIZE),
+                    appendFileName, null, nbrThreads);
+                return;
+            }
+
+            for (int i = 0; i < numberToExport; i++) {
 
                 final String proofWorksheetText = GMFFInputFile.getFileContents(
                     fileArray[i], " ",
@@ -439,18 +714,28 @@ public class GMFFManager {
                 return;
             }
 
-            int i = 0;
+            final List<Theorem> theoremList = new ArrayList<>();
             for (final Theorem theorem : iterable) {
-                if (i++ >= max)
+                if (theoremList.size() >= max)
                     break;
-                gmffExportOneTheorem(theorem, appendFileName, proofAsst);
+                theoremList.add(theorem);
             }
-            if (i == 0) {
+            if (theoremList.isEmpty()) {
                 messages.accumMessage(
                     GMFFConstants.ERRMSG_NO_THEOREMS_SELECTED_ERROR,
                     labelOrAsterisk);
                 return;
             }
+
+            final int nbrThreads = getNbrExportThreads(theoremList.size());
+            if (nbrThreads > 1)
+                exportInParallel(theoremList,
+                    (worker, theorem) -> getTheoremProofText(theorem,
+                        worker.proofAsst, worker.workerMessages),
+                    appendFileName, proofAsst, nbrThreads);
+            else
+                for (final Theorem theorem : theoremList)
+                    gmffExportOneTheorem(theorem, appendFileName, proofAsst);
         }
         else
             gmffExportOneTheorem(labelOrAsterisk, appendFileName, proofAsst);
@@ -485,6 +770,29 @@ public class GMFFManager {
         if (!gmffInitialized)
             initialization();
 
+        final String proofWorksheetText = getTheoremProofText(theorem,
+            proofAsst, messages);
+
+        if (proofWorksheetText != null)
+            for (final GMFFException confirm : exportProofWorksheet(
+                proofWorksheetText, appendFileName))
+                messages.accumException(confirm);
+    }
+
+    /**
+     * Creates a Proof Worksheet from the Metamath (RPN) proof of a
+     * {@code Theorem}.
+     *
+     * @param theorem {@code Theorem} to be exported.
+     * @param proofAsst The {@code ProofAsst} object.
+     * @param messages The {@code Messages} object for error messages.
+     * @return the Proof Worksheet text, or {@code null} if the theorem's proof
+     *         is incomplete or invalid, or if it contains no assertions.
+     */
+    private static String getTheoremProofText(final Theorem theorem,
+        final ProofAsst proofAsst, final Messages messages)
+    {
+
         String proofWorksheetText;
         try {
             proofWorksheetText = proofAsst.exportOneTheorem(theorem);
@@ -492,17 +800,192 @@ public class GMFFManager {
             messages.accumException(new GMFFException(e,
                 GMFFConstants.ERRMSG_GMFF_THEOREM_EXPORT_PA_ERROR,
                 theorem.getLabel(), e.getMessage()));
-            return;
+            return null;
         }
 
         if (proofWorksheetText == null)
             messages.accumMessage(
                 GMFFConstants.ERRMSG_GMFF_THEOREM_EXPORT_PA_ERROR,
                 theorem.getLabel());
-        else
-            for (final GMFFException confirm : exportProofWorksheet(
-                proofWorksheetText, appendFileName))
-                messages.accumException(confirm);
+        return proofWorksheetText;
+    }
+
+    /**
+     * Returns the number of threads of an export.
+     *
+     * @param numberToExport the number of Proof Worksheets to export.
+     * @return the number of threads, 1 for a sequential export.
+     */
+    private static int getNbrExportThreads(final int numberToExport) {
+        return Math.min(SharedExecutor.getNbrThreads(),
+            numberToExport);
+    }
+
+    /**
+     * Exports a list of Proof Worksheets on {@code nbrThreads} threads of the
+     * {@code SharedExecutor}.
+     * <p>
+     * Each thread takes an {@code ExportWorker} from a pool, so a worker is
+     * never used by two threads at once. The workers get the Proof Worksheet
+     * texts, load the {@code MinProofWorksheet}s and typeset the exports,
+     * while the calling thread writes the exports -- and transfers the
+     * messages of each item -- in the order of the list, so the output files
+     * are the same as those of a sequential export. The workers stream each
+     * export to a staged file of the Export Folder, which the calling thread
+     * then moves to the export file, or appends to it. At most
+     * {@link GMFFConstants#EXPORTS_QUEUED_PER_THREAD} items per thread are in
+     * flight, which bounds the number of staged files.
+     *
+     * @param <T> the type of the items.
+     * @param itemList the items to export.
+     * @param source gets the Proof Worksheet text of an item.
+     * @param appendFileName name of a file to which export data should be
+     *            appended, or {@code null}.
+     * @param proofAsst the {@code ProofAsst} of a theorem export, or null.
+     * @param nbrThreads number of threads.
+     * @throws GMFFException if error found, or if the thread is interrupted.
+     */
+    private <T> void exportInParallel(final List<T> itemList,
+        final ProofTextSource<T> source, final String appendFileName,
+        final ProofAsst proofAsst, final int nbrThreads) throws GMFFException
+    {
+
+        if (selectedExporters.length == 0)
+            throw new GMFFException(
+                GMFFConstants.ERRMSG_NO_EXPORT_TYPES_SELECTED_ERROR);
+
+        final BlockingQueue<ExportWorker> workers = new ArrayBlockingQueue<>(
+            nbrThreads);
+        try {
+            for (int i = 0; i < nbrThreads; i++)
+                workers.add(new ExportWorker(proofAsst));
+        } catch (final VerifyException e) {
+            messages.accumException(e);
+            return;
+        }
+
+        final Deque<Future<ExportJob>> pending = new ArrayDeque<>();
+        final Iterator<T> iterator = itemList.iterator();
+        int nbrWritten = 0;
+        try {
+            while (true) {
+                while (iterator.hasNext() && pending.size() < nbrThreads
+                    * GMFFConstants.EXPORTS_QUEUED_PER_THREAD)
+                {
+                    final T item = iterator.next();
+                    pending.add(SharedExecutor.get().submit(() -> {
+                        final ExportWorker worker = workers.take();
+                        try {
+                            return worker.export(source, item,
+                                appendFileName);
+                        } finally {
+                            workers.add(worker);
+                        }
+                    }));
+                }
+                final Future<ExportJob> next = pending.poll();
+                if (next == null)
+                    break;
+                writeExportJob(next.get(), appendFileName);
+                nbrWritten++;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GMFFException(e,
+                GMFFConstants.ERRMSG_EXPORT_INTERRUPTED_ERROR, nbrWritten,
+                itemList.size());
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            discardExportJobs(pending);
+        }
+    }
+
+    /**
+     * Discards the jobs of a parallel export which are not written out: the
+     * jobs not started are cancelled, and the staged files of the others are
+     * deleted once they are done.
+     *
+     * @param pending the jobs.
+     */
+    private static void discardExportJobs(
+        final Collection<Future<ExportJob>> pending)
+    {
+
+        boolean interrupted = false;
+        for (final Future<ExportJob> job : pending)
+            if (!job.cancel(false))
+                while (true)
+                    try {
+                        job.get().discard();
+                        break;
+                    } catch (final InterruptedException e) {
+                        interrupted = true;
+                    } catch (final ExecutionException
+                        | CancellationException e)
+                    {
+                        break;
+                    }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Writes the exports of one item of a parallel export with the selected
+     * Exporters, after accumulating the messages of the item.
+     *
+     * @param job the outcome of the item.
+     * @param appendFileName name of a file to which export data should be
+     *            appended, or {@code null}.
+     * @throws GMFFException if the item failed.
+     */
+    private void writeExportJob(final ExportJob job,
+        final String appendFileName) throws GMFFException
+    {
+
+        for (final String m : job.errorMessages)
+            messages.accumErrorMessage(m);
+        for (final String m : job.infoMessages)
+            messages.accumInfoMessage(m);
+
+        if (job.failure != null) {
+            job.discard();
+            throw job.failure;
+        }
+
+        if (job.exports == null)
+            return;
+
+        final List<GMFFException> confirmationMessage = new ArrayList<>(0);
+        try {
+            for (int i = 0; i < job.exports.length; i++) {
+                GMFFExportText export = job.exports[i];
+                // an export found unchanged by a worker may have been
+                // overwritten since by the export of a preceding item
+                if (export != null && export.unchanged
+                    && !selectedExporters[i].isExportUnchanged(
+                        selectedExporters[i].getExportFileName(appendFileName,
+                            export.theoremLabel),
+                        export.exportKey))
+                    export = selectedExporters[i].prepareExport(
+                        export.proofWorksheetCache, appendFileName);
+                if (export != null) {
+                    final GMFFException confirm = selectedExporters[i]
+                        .writeExport(export, appendFileName);
+                    if (confirm != null)
+                        confirmationMessage.add(confirm);
+                }
+            }
+        } finally {
+            job.discard(); // the staged files not written out
+        }
+        for (final GMFFException confirm : confirmationMessage)
+            messages.accumException(confirm);
     }
 
     /**
@@ -696,8 +1179,8 @@ public class GMFFManager {
      */
     public void generateTypesettingDefinitionsReport() {
 
-        for (final GMFFExporterTypesetDefs t : exporterTypesetDefsList)
-            t.printTypesetDefs(messages);
+        for (final TypesetDefsLoader t : getExporterTypesetDefsLoaders())
+            t.typesetDefs.printTypesetDefs(messages);
     }
 
     /**
@@ -882,60 +1365,62 @@ public class GMFFManager {
 
     private void updateExporterTypesetDefsList() {
 
-        GMFFExporter exporter;
-
-        exporterLoop: for (int i = 0; i < gmffExporterList.size(); i++) {
-            exporter = gmffExporterList.get(i);
-
-            for (final GMFFExporterTypesetDefs t : exporterTypesetDefsList)
-                if (exporter.gmffExportParms.typesetDefKeyword
-                    .equals(t.typesetDefKeyword))
-                {
-
-                    exporter.gmffExporterTypesetDefs = t;
-
-                    continue exporterLoop;
-                }
-
-            // ergo, not found in gmffExporterTypesetDefsList...
-            final GMFFExporterTypesetDefs t = new GMFFExporterTypesetDefs(
-                exporter.gmffExportParms.typesetDefKeyword, symTbl.size());
+        for (final GMFFExporter exporter : gmffExporterList)
+            exporter.gmffExporterTypesetDefs = getTypesetDefsLoader(
+                exporter.gmffExportParms.typesetDefKeyword).typesetDefs;
+    }
 
-            exporter.gmffExporterTypesetDefs = t;
+    private TypesetDefsLoader getTypesetDefsLoader(
+        final String typesetDefKeyword)
+    {
 
-            updateExporterTypesetDefsList(t);
+        for (final TypesetDefsLoader t : typesetDefsLoaderList)
+            if (t.typesetDefs.typesetDefKeyword.equals(typesetDefKeyword))
+                return t;
 
-        }
+        final TypesetDefsLoader t = new TypesetDefsLoader(typesetDefKeyword);
+        typesetDefsLoaderList.add(t);
+        return t;
     }
 
-    private void updateExporterTypesetDefsList(
-        final GMFFExporterTypesetDefs newT)
-    {
+    /*
+     * Returns the loaders of the typesetting definition keywords of the
+     * Exporters, in the order they were created.
+     */
+    private List<TypesetDefsLoader> getExporterTypesetDefsLoaders() {
 
-        for (final GMFFExporterTypesetDefs oldT : exporterTypesetDefsList)
-            if (oldT.typesetDefKeyword.equals(newT.typesetDefKeyword))
-                return;
-        exporterTypesetDefsList.add(newT);
+        final List<TypesetDefsLoader> loaders = new ArrayList<>(
+            typesetDefsLoaderList.size());
+        for (final TypesetDefsLoader t : typesetDefsLoaderList)
+            for (final GMFFExporter exporter : gmffExporterList)
+                if (exporter.gmffExporterTypesetDefs == t.typesetDefs) {
+                    loaders.add(t);
+                    break;
+                }
+        return loaders;
     }
 
+    /*
+     * Parses the typesetting definitions of each keyword in parallel, as far
+     * as the background parse started when the comments were cached has not
+     * already done it.
+     */
     private void parseMetamathTypesetDefCache() throws GMFFException {
 
-        final TypesetDefCommentParser parser = new TypesetDefCommentParser(
-            exporterTypesetDefsList, messages);
-
-        String typesetDefComment;
-
-        while (nbrTypesetDefinitionsProcessedSoFar < typesetDefinitionsCache
-            .size())
-        {
-
-            typesetDefComment = typesetDefinitionsCache
-                .get(nbrTypesetDefinitionsProcessedSoFar);
-
-            parser.doIt(typesetDefComment);
+        final List<TypesetDefsLoader> loaders = getExporterTypesetDefsLoaders();
+        for (final TypesetDefsLoader t : loaders)
+            t.start();
 
-            nbrTypesetDefinitionsProcessedSoFar++;
-        }
+        GMFFException failure = null;
+        for (final TypesetDefsLoader t : loaders)
+            try {
+                t.finish();
+            } catch (final GMFFException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        if (failure != null)
+            throw failure;
     }
 
     private GMFFUserExportChoice loadGMFFUserExportChoice()
@@ -69,14 +69,14 @@ public class MinDistinctVariablesStmt extends MinProofWorkStmt {
      * 
      * @param gmffExporter The {@code GMFFExporter} requesting the export data
      *            build.
-     * @param exportBuffer The {@code StringBuilder} to which exported data is
-     *            to be output.
+     * @param exportBuffer The {@code GMFFExportBuffer} to which exported data
+     *            is to be output.
      * @throws GMFFException if errors are encountered during the export
      *             process.
      */
     @Override
     public void buildModelAExport(final GMFFExporter gmffExporter,
-        final StringBuilder exportBuffer) throws GMFFException
+        final GMFFExportBuffer exportBuffer) throws GMFFException
     {
 
         final String modelADistinctVar0 = gmffExporter
@@ -52,14 +52,14 @@ public class MinFooterStmt extends MinProofWorkStmt {
      * 
      * @param gmffExporter The {@code GMFFExporter} requesting the export data
      *            build.
-     * @param exportBuffer The {@code StringBuilder} to which exported data is
-     *            to be output.
+     * @param exportBuffer The {@code GMFFExportBuffer} to which exported data
+     *            is to be output.
      * @throws GMFFException if errors are encountered during the export
      *             process.
      */
     @Override
     public void buildModelAExport(final GMFFExporter gmffExporter,
-        final StringBuilder exportBuffer) throws GMFFException
+        final GMFFExportBuffer exportBuffer) throws GMFFException
     {
 
         final String modelAFooter0 = gmffExporter
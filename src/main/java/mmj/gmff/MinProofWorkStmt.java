@@ -150,13 +150,13 @@ public abstract class MinProofWorkStmt {
      *
      * @param gmffExporter The {@code GMFFExporter} requesting the export data
      *            build.
-     * @param exportBuffer The {@code StringBuilder} to which exported data is
-     *            to be output.
+     * @param exportBuffer The {@code GMFFExportBuffer} to which exported data
+     *            is to be output.
      * @throws GMFFException if errors are encountered during the export
      *             process.
      */
     public abstract void buildModelAExport(GMFFExporter gmffExporter,
-        StringBuilder exportBuffer) throws GMFFException;
+        GMFFExportBuffer exportBuffer) throws GMFFException;
 
     /**
      * Utility function to typeset and reformat a portion of a {@code String}
@@ -172,8 +172,8 @@ public abstract class MinProofWorkStmt {
      *
      * @param gmffExporter The {@code GMFFExporter} requesting the export data
      *            build.
-     * @param exportBuffer The {@code StringBuilder} to which exported data is
-     *            to be output.
+     * @param exportBuffer The {@code GMFFExportBuffer} to which exported data
+     *            is to be output.
      * @param lineChunks {@code String} array containing Metamath tokens or
      *            whitespace.
      * @param startOfFormulaSymbols index into {@code lineChunks} indicating the
@@ -182,7 +182,7 @@ public abstract class MinProofWorkStmt {
      *            initial part of the array.)
      */
     public void typesetFormulaSymbols(final GMFFExporter gmffExporter,
-        final StringBuilder exportBuffer, final String[] lineChunks,
+        final GMFFExportBuffer exportBuffer, final String[] lineChunks,
         final int startOfFormulaSymbols)
     {
 
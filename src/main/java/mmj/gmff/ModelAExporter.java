@@ -15,6 +15,8 @@
 
 package mmj.gmff;
 
+import mmj.lang.Messages;
+
 /**
  * {@code ModelAExporter} is an extension of {@code GMFFExporter} which
  * implements export of Proof Worksheets using Model A.
@@ -38,8 +40,26 @@ public class ModelAExporter extends GMFFExporter {
     }
 
     /**
-     * Exports a Proof Worksheet in Model A format and returns a confirmation
-     * message showing the absolute path of the output file.
+     * Constructor for a copy of a {@code ModelAExporter} used by a thread of a
+     * parallel export.
+     *
+     * @param modelAExporter The {@code ModelAExporter} to copy.
+     * @param messages The {@code Messages} object of the copy.
+     */
+    private ModelAExporter(final ModelAExporter modelAExporter,
+        final Messages messages)
+    {
+
+        super(modelAExporter, messages);
+    }
+
+    @Override
+    public GMFFExporter copyForWorker(final Messages messages) {
+        return new ModelAExporter(this, messages);
+    }
+
+    /**
+     * Prepares the export of a Proof Worksheet in Model A format.
      * <p>
      * Model A uses the {@code MinProofWorksheet} class instead of the standard
      * mmj2 <code>ProofWorksheet.
@@ -51,21 +71,17 @@ public class ModelAExporter extends GMFFExporter {
      *
      * @param p {@code ProofWorksheetCache} object containing the proof to be
      *            exported.
-     * @param appendFileName File Name minus File Type of append file if the
-     *            regular file name is to be overridden (see documentation of
-     *            appendFileNames in GMFFDoc\GMFFRunParms.txt).
-     * @return Confirmation message of the successful export showing the
-     *         absolute path of the output file -- or {@code null} if the export
-     *         failed (error messages are accumed in the {@code Messages}
-     *         object.)
+     * @param appendFileName File Name (minus File Type) of append file if the
+     *            regular file name is to be overridden.
+     * @return the prepared export -- or {@code null} if the export failed
+     *         (error messages are accumed in the {@code Messages} object.)
      */
     @Override
-    public GMFFException exportProofWorksheet(final ProofWorksheetCache p,
+    public GMFFExportText prepareExport(final ProofWorksheetCache p,
         final String appendFileName)
     {
         try {
-            final MinProofWorksheet w = p
-                .loadMinProofWorksheet(gmffManager.getMessages());
+            final MinProofWorksheet w = p.loadMinProofWorksheet(getMessages());
 
             if (!w.getStructuralErrors()) {
                 if (w.getMinProofWorkStmtList().isEmpty())
@@ -73,23 +89,42 @@ public class ModelAExporter extends GMFFExporter {
                         GMFFConstants.ERRMSG_BUILD_EMPTY_OR_INVALID_WORKSHEET_ERROR,
                         w.getTheoremLabel());
 
-                final StringBuilder exportText = buildModelAExportText(w);
-
-                return outputToExportFile(exportText, appendFileName,
-                    w.getTheoremLabel());
+                // only exports to a file of their own are recorded
+                String exportKey = null;
+                boolean unchanged = false;
+                if (appendFileName == null
+                    && gmffExportParms.outputFileName == null)
+                {
+                    exportKey = getExportKey(p);
+                    unchanged = isExportUnchanged(
+                        getExportFileName(null, w.getTheoremLabel()),
+                        exportKey);
+                }
+
+                return new GMFFExportText(w.getTheoremLabel(), p, exportKey,
+                    unchanged);
             }
         } catch (final GMFFException e) {
-            gmffManager.getMessages().accumException(e);
+            getMessages().accumException(e);
         }
         return null;
     }
 
-    private StringBuilder buildModelAExportText(final MinProofWorksheet w)
-        throws GMFFException
+    /**
+     * Builds the export text of a Proof Worksheet in Model A format.
+     *
+     * @param exportText the export prepared by {@link #prepareExport}.
+     * @param exportBuffer the {@code GMFFExportBuffer} receiving the export
+     *            text.
+     * @throws GMFFException if the export fails.
+     */
+    @Override
+    protected void buildExport(final GMFFExportText exportText,
+        final GMFFExportBuffer exportBuffer) throws GMFFException
     {
 
-        final StringBuilder exportBuffer = new StringBuilder(
-            GMFFConstants.EXPORT_BUFFER_DEFAULT_SIZE);
+        final MinProofWorksheet w = exportText.proofWorksheetCache
+            .loadMinProofWorksheet(getMessages());
 
         appendMandatoryModelFile(exportBuffer, GMFFConstants.MODEL_A_FILE0_NAME,
             w.getTheoremLabel());
@@ -99,8 +134,6 @@ public class ModelAExporter extends GMFFExporter {
 
         appendMandatoryModelFile(exportBuffer, GMFFConstants.MODEL_A_FILE2_NAME,
             w.getTheoremLabel());
-
-        return exportBuffer;
     }
 
 }
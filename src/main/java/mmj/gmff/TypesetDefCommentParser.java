@@ -54,18 +54,17 @@ import mmj.pa.MMJException;
  * and {@code $)} tokens prior to input. This is a result of the way that mmj2
  * parses input files and stores Metamath Comments in {@code mmj.mmio.SrcStmt}.
  * <p>
- * {@code TypesetDefCommentParser} is coded as a separate class in order to
- * provide modularity, not because there are separate instances of it.
- * {@code GMFFManager} instantiates it and then calls
+ * {@code GMFFManager} instantiates one {@code TypesetDefCommentParser} per
+ * typesetting definition keyword and then calls
  * {@code doIt(String typesetDefComment)} for each Metamath {@code $t} Comment
  * statement to be processed.
  * <p>
- * Another curious/strange aspect of processing is that mmj2 accumulates
- * Metamath typesetting Comment statements in the {@code GMFFManager} via
- * {@code mmj.mmio.Systemizer} method {@code loadComment()} but the typesetting
- * Comments are not processed unless and until the user or a RunParm command
- * invokes GMFF's typsetting services -- at which point {@code GMFFManager}
- * invokes {@code TypesetDefCommentParser}.
+ * mmj2 accumulates Metamath typesetting Comment statements in the
+ * {@code GMFFManager} via {@code mmj.mmio.Systemizer} method
+ * {@code loadComment()}, and each comment is parsed in the background as soon
+ * as it is cached, in parallel for each keyword of the Export Parms, so that
+ * the definitions are ready when the user or a RunParm command invokes GMFF's
+ * typsetting services.
  */
 public class TypesetDefCommentParser {
 
@@ -775,7 +775,7 @@ public class LangConstants {
     public static final ErrorCode ERRMSG_NULL_TARGET_VAR_HYP_PA_SUBST = of(
         "A-LA-0501" + " Severe bug encountered! cloneTargetToSourceVars"
             + " tried to clone a target VarHyp with a"
-            + " null 'paSubst' value -- the target Var Hyps"
+            + " null substitution value -- the target Var Hyps"
             + " should already have been assigned to Work Var Hyps!");
 
     // =======================================================
@@ -241,13 +241,16 @@ public class ParseNode {
         nodeStack.push(parseNode);
 
         int count = 0;
-        stackLoop: for (; !nodeStack.isEmpty(); count++) {
+        stackLoop: while (!nodeStack.isEmpty()) {
             final ParseNode thatNode = nodeStack.pop();
             final ParseNode myNode = nodeStack.pop();
             if (myNode.stmt != thatNode.stmt) {
                 if (!(myNode.stmt instanceof VarHyp)
                     || myNode.stmt.getTyp() != thatNode.stmt.getTyp())
+                {
+                    nodeStack.clear();
                     return -1;
+                }
             }
             else if (!(myNode.stmt instanceof VarHyp)) {
                 for (int i = myNode.child.length - 1; i >= 0; i--) {
@@ -259,11 +262,15 @@ public class ParseNode {
             for (int i = 0; i < count; i++)
                 if (subtree[i].targetVarHyp == myNode.stmt) {
                     if (!subtree[i].sourceNode.isDeepDup(thatNode, otherStack))
+                    {
+                        nodeStack.clear();
                         return -1;
+                    }
                     continue stackLoop;
                 }
             subtree[count].targetVarHyp = (VarHyp)myNode.stmt;
             subtree[count].sourceNode = thatNode;
+            count++;
         }
         return count;
     }
@@ -765,15 +772,26 @@ public class ParseNode {
      * definition, target variables; we do not expect any of them to be work
      * variables, and furthermore, we expect all of them to have assigned
      * values.
+     * <p>
+     * The target variables' values are looked up in {@code targetSubst} at
+     * their index in the target assertion's mandatory hypotheses.
      *
+     * @param targetVarIndex the index of each target variable in the target
+     *            assertion's mandatory hypotheses.
+     * @param targetSubst the substitutions to the target variables, parallel
+     *            to the target assertion's mandatory hypotheses.
      * @return ParseNode sub-tree converted to use WorkVarHyps.
      */
-    public ParseNode cloneTargetToSourceVars() {
+    public ParseNode cloneTargetToSourceVars(
+        final Map<VarHyp, Integer> targetVarIndex,
+        final ParseNode[] targetSubst)
+    {
 
         final ParseNode out = new ParseNode();
 
         if (stmt instanceof VarHyp) {
-            final ParseNode vHNode = ((VarHyp)stmt).paSubst;
+            final Integer i = targetVarIndex.get(stmt);
+            final ParseNode vHNode = i == null ? null : targetSubst[i];
             if (vHNode == null)
                 throw new IllegalArgumentException(new LangException(
                     LangConstants.ERRMSG_NULL_TARGET_VAR_HYP_PA_SUBST));
@@ -784,7 +802,8 @@ public class ParseNode {
             out.stmt = stmt;
             out.child = new ParseNode[child.length];
             for (int i = 0; i < child.length; i++)
-                out.child[i] = child[i].cloneTargetToSourceVars();
+                out.child[i] = child[i].cloneTargetToSourceVars(targetVarIndex,
+                    targetSubst);
         }
         return out;
     }
@@ -77,8 +77,10 @@ public class VarHyp extends Hyp {
      * a subtree which is the assigned substitution value for the VarHyp in a
      * single ProofStep.
      * <p>
-     * Yes, this is a hokey scratchpad. In theory an array of paSubst could be
-     * devised, with one entry for each thread :-) Or not.
+     * Yes, this is a hokey scratchpad. It is only used for Work Variables
+     * (WorkVarHyp), which belong to a single WorkVarManager; substitutions to
+     * an assertion's ordinary VarHyps are held by mmj.pa.StepUnifier itself,
+     * since those VarHyps are shared by every unification.
      */
     public ParseNode paSubst;
 
@@ -78,6 +78,25 @@ public class WorkVarManager {
         definedNbrWorkVarsList = new ArrayList<>(len);
     }
 
+    /**
+     * Construct a WorkVarManager with the same Work Variable definitions as
+     * another one.
+     * <p>
+     * The Work Variables themselves are not shared: declareWorkVars() must be
+     * invoked on the new WorkVarManager before use. This allows several Proof
+     * Worksheets to be unified concurrently, each thread using its own Work
+     * Variables.
+     *
+     * @param workVarManager WorkVarManager whose definitions are copied.
+     */
+    public WorkVarManager(final WorkVarManager workVarManager) {
+        definedTypCdList = new ArrayList<>(workVarManager.definedTypCdList);
+        definedWorkVarPrefixList = new ArrayList<>(
+            workVarManager.definedWorkVarPrefixList);
+        definedNbrWorkVarsList = new ArrayList<>(
+            workVarManager.definedNbrWorkVarsList);
+    }
+
     /**
      * Returns true if the Work Variables have been declared.
      * <p>
@@ -460,6 +479,31 @@ public class WorkVarManager {
         return declaredWorkVar[i][j];
     }
 
+    /**
+     * Allocates the same Work Variables as another WorkVarManager, so that the
+     * next allocations choose the same Work Variables (by name).
+     * <p>
+     * This is used by the threads which unify with their own Work Variables on
+     * behalf of a Proof Worksheet.
+     *
+     * @param workVarManager WorkVarManager whose allocations are copied.
+     * @return false if the two WorkVarManagers do not declare the same Work
+     *         Variables, in which case nothing is copied.
+     */
+    public boolean copyAllocations(final WorkVarManager workVarManager) {
+        if (!areWorkVarsDeclared || !workVarManager.areWorkVarsDeclared
+            || !Arrays.equals(declaredTypCd, workVarManager.declaredTypCd)
+            || !Arrays.equals(declaredWorkVarPrefix,
+                workVarManager.declaredWorkVarPrefix)
+            || !Arrays.equals(declaredNbrWorkVars,
+                workVarManager.declaredNbrWorkVars))
+            return false;
+        for (int i = 0; i < allocated.length; i++)
+            allocated[i] = workVarManager.allocated[i].clone();
+        prevAllocIndex = workVarManager.prevAllocIndex.clone();
+        return true;
+    }
+
     public void deallocAndReallocAll(final ProofWorksheet w) {
         if (w != null) {
             final Set<WorkVar> workVars = w.buildProofWorksheetWorkVarSet();
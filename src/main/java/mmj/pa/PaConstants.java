@@ -254,6 +254,12 @@ public class PaConstants {
      * ProofAsstBatchTest testing.
      */
     public static final int PA_TESTMSG_THEOREM_TIME_TOP_NUMBER = 10;
+
+    /**
+     * The maximum number of theorems, per thread, exported and unified ahead
+     * of the report in the parallel volume test.
+     */
+    public static final int PA_TESTMSG_THEOREMS_QUEUED_PER_THREAD = 4;
     // ----------------------------------------------------------
     // Constants for ProofAsstCursor.java
     // ----------------------------------------------------------
@@ -728,6 +734,24 @@ public class PaConstants {
      */
     public static final boolean PROOF_ASST_ASCII_RETEST_DEFAULT = false;
 
+    /**
+     * Default Option Value 10, number of threads, for ProofAsstBatchTest: 1,
+     * which runs the test sequentially.
+     */
+    public static final int PROOF_ASST_BATCH_TEST_THREADS_DEFAULT = 1;
+
+    /**
+     * Default Option Value 3, tolerated slowdown in percent, for
+     * ProofAsstBatchTestCompare.
+     */
+    public static final int PROOF_ASST_BATCH_TEST_COMPARE_PCT_DEFAULT = 25;
+
+    /**
+     * Default Option Value 4, tolerated slowdown in milliseconds, for
+     * ProofAsstBatchTestCompare.
+     */
+    public static final int PROOF_ASST_BATCH_TEST_COMPARE_MS_DEFAULT = 5;
+
     /**
      * RECHECK_PROOF_ASST_USING_PROOF_VERIFIER_DEFAULT
      */
@@ -768,6 +792,16 @@ public class PaConstants {
      */
     public static final boolean STEP_SELECTOR_SHOW_SUBSTITUTIONS_DEFAULT = true;
 
+    /**
+     * Default value for the SearchStreamResults preference.
+     * <p>
+     * Specifies whether or not the results of a General Search are shown on
+     * the Search Results window while the search runs.
+     * <p>
+     * SEARCH_STREAM_RESULTS_DEFAULT = true
+     */
+    public static final boolean SEARCH_STREAM_RESULTS_DEFAULT = true;
+
     /**
      * Default value for StepSelectorDialogPaneWidth RunParm.
      * <p>
@@ -1280,6 +1314,13 @@ public class PaConstants {
 
     public static final String RESHOW_SEARCH_RESULTS_ITEM_TEXT = "Reshow Search Results";
 
+    public static final String SET_STREAM_SEARCH_RESULTS_ITEM_TEXT = "Set Stream Search Results";
+
+    /**
+     * Prompt for SetStreamSearchResults Menu Item Action dialog.
+     */
+    public static final String PA_GUI_SET_STREAM_SEARCH_RESULTS_PROMPT = "Enter Stream Search Results option (true or false)";
+
     // ========== new TheoremLoader stuff ===========
 
     /**
@@ -2074,18 +2115,52 @@ public class PaConstants {
     // ----------------------------------------------------------
 
     /**
-     * Applied array init size.
+     * Trail array init size.
      * <p>
-     * Used for backout of unification updates.
+     * Used for backout of unification updates, and also as the initial size
+     * of the deferred substitution pool.
      */
-    public static final int STEP_UNIFIER_APPLIED_ARRAY_LEN_INIT = 1000;
+    public static final int STEP_UNIFIER_TRAIL_LEN_INIT = 1000;
 
     /**
-     * Applied array max size.
+     * Trail array max size.
      * <p>
      * Used for backout of unification updates.
      */
-    public static final int STEP_UNIFIER_APPLIED_ARRAY_LEN_MAX = 8000;
+    public static final int STEP_UNIFIER_TRAIL_LEN_MAX = 8000;
+
+    /**
+     * Initial number of levels (logical hypotheses + 1) for which trail counts
+     * are preallocated.
+     */
+    public static final int STEP_UNIFIER_LEVEL_LEN_INIT = 32;
+
+    // ----------------------------------------------------------
+    // Constants for ProofSearch.java
+    // ----------------------------------------------------------
+
+    /**
+     * Default maximum proof depth (assertions on a path from an unproved step
+     * to a leaf) for the ProofAsstProofSearch RunParm.
+     */
+    public static final int PROOF_SEARCH_MAX_DEPTH_DEFAULT = 3;
+
+    /**
+     * Default maximum number of goal expansions per unproved step for the
+     * ProofAsstProofSearch RunParm.
+     */
+    public static final int PROOF_SEARCH_MAX_NODES_DEFAULT = 100000;
+
+    /**
+     * Default maximum search time per unproved step, in seconds, for the
+     * ProofAsstProofSearch RunParm.
+     */
+    public static final int PROOF_SEARCH_MAX_SECONDS_DEFAULT = 10;
+
+    /**
+     * Default search strategy for the ProofAsstProofSearch RunParm.
+     */
+    public static final ProofSearch.Strategy PROOF_SEARCH_STRATEGY_DEFAULT = ProofSearch.Strategy.BestFirst;
 
     // ----------------------------------------------------------
     // Constants for StepSelectorDialog.java
@@ -2136,6 +2211,21 @@ public class PaConstants {
      */
     public static final int STEP_SELECTOR_SEARCH_HYP_LOOKUP_MAX = 3;
 
+    /**
+     * STEP_SELECTOR_PARALLEL_MIN_ASSRTS = 2000.
+     * <p>
+     * StepSelectorSearch scans the assertions with several threads when there
+     * are at least this many assertions to scan.
+     */
+    public static final int STEP_SELECTOR_PARALLEL_MIN_ASSRTS = 2000;
+
+    /**
+     * STEP_SELECTOR_PARALLEL_CHUNK_SIZE = 256.
+     * <p>
+     * The number of assertions of a chunk of a parallel StepSelectorSearch.
+     */
+    public static final int STEP_SELECTOR_PARALLEL_CHUNK_SIZE = 256;
+
     /**
      * STEP_SELECTOR_SEARCH_FORMULA_INDENT = ' '.
      */
@@ -2299,6 +2389,57 @@ public class PaConstants {
     public static final ErrorCode ERRMSG_PA_TIME_TOP_HEADER = of("I-PA-0128"
         + " Here is the list of most time consuming theorem unifications: ");
 
+    public static final ErrorCode ERRMSG_PROOF_SEARCH_FOUND = of("I-PA-0129",
+        "Proof search proved step %s adding %d step(s). Nodes = %d,"
+            + " milliseconds = %d.");
+
+    public static final ErrorCode ERRMSG_PROOF_SEARCH_NOT_FOUND = of(
+        "I-PA-0130", "Proof search found no proof for step %s. Nodes = %d,"
+            + " milliseconds = %d.");
+
+    public static final ErrorCode ERRMSG_PROOF_SEARCH_BUDGET_EXHAUSTED = of(
+        "I-PA-0131", "Proof search for step %s stopped: node or time budget"
+            + " exhausted. Nodes = %d, milliseconds = %d.");
+
+    public static final ErrorCode ERRMSG_PROOF_SEARCH_TOTALS = of("I-PA-0132",
+        "Proof search totals: theorems = %d, steps proved = %d,"
+            + " steps added = %d, nodes = %d.");
+
+    public static final ErrorCode ERRMSG_PROOF_SEARCH_INTERRUPTED = of(
+        "I-PA-0141", "Proof search for step %s interrupted. Nodes = %d,"
+            + " milliseconds = %d.");
+
+    public static final ErrorCode ERRMSG_PA_TESTMSG_THREADS = of("I-PA-0133",
+        "Unification test running on %d threads.");
+
+    public static final ErrorCode ERRMSG_PA_TESTMSG_THREADS_IGNORED = of(
+        "I-PA-0134", "Unification test threads = %d ignored: AsciiRetest and"
+            + " UpdateDJs require a sequential test.");
+
+    public static final ErrorCode ERRMSG_PA_TESTMSG_REPORT_FORMAT = of(
+        "E-PA-0135", "Unification test report %s, line %d, is not a report"
+            + " record: %s");
+
+    public static final ErrorCode ERRMSG_PA_TESTMSG_REGRESSED = of("I-PA-0136",
+        "Theorem %s: unification time regressed from %s ms to %s ms (+%s%%),"
+            + " assertions scanned %d -> %d.");
+
+    public static final ErrorCode ERRMSG_PA_TESTMSG_OUTCOME_CHANGED = of(
+        "I-PA-0137", "Theorem %s: unification outcome changed from %s to %s.");
+
+    public static final ErrorCode ERRMSG_PA_TESTMSG_COMPARE_TOTALS = of(
+        "I-PA-0138", "REPORT COMPARISON TOTALS: Theorems compared = %d,"
+            + " time regressed by more than %d%% = %d, outcome changed = %d,"
+            + " only in old report = %d, only in new report = %d,"
+            + " total time %s ms -> %s ms.");
+
+    public static final ErrorCode ERRMSG_PA_TRANSFORMATION_PROFILE = of(
+        "I-PA-0139", "Transformations of the unification (count/own time):"
+            + " %s.");
+
+    public static final ErrorCode ERRMSG_PA_TRANSFORMATION_PROFILE_TOTALS = of(
+        "I-PA-0140", "TRANSFORMATION TOTALS (count/own time): %s.");
+
     // ----------------------------------------------------------
     // Messages from ProofAsstGUI.java
     // ----------------------------------------------------------
@@ -2899,10 +3040,10 @@ public class PaConstants {
     // Messages from StepUnifier.java
     // ----------------------------------------------------------
 
-    public static final ErrorCode ERRMSG_ADD_TO_APPLIED_ARRAY_OFLOW = of(
+    public static final ErrorCode ERRMSG_STEP_UNIFIER_TRAIL_OFLOW = of(
         "A-PA-0701"
-            + " Severe Problem! Maximum size of 'applied' array exceeded in"
-            + " StepUnifier.addToAppliedArray(). This might *not* be a bug(?), but"
+            + " Severe Problem! Maximum size of 'trail' array exceeded in"
+            + " StepUnifier.pushTrail(). This might *not* be a bug(?), but"
             + " it will require a recompile of the source code, at least.");
 
     // ----------------------------------------------------------
@@ -77,6 +77,7 @@ import static mmj.pa.ProofWorksheet.addLabelContext;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import mmj.gmff.GMFFException;
 import mmj.lang.*;
@@ -88,7 +89,10 @@ import mmj.pa.PaConstants.*;
 import mmj.pa.StepRequest.StepRequestType;
 import mmj.tl.*;
 import mmj.transforms.TransformationManager;
+import mmj.transforms.TransformationProfile;
+import mmj.transforms.TransformationSnapshot;
 import mmj.util.OutputBoss;
+import mmj.util.SharedExecutor;
 import mmj.util.StopWatch;
 import mmj.verify.*;
 import mmj.verify.GrammarConstants.LabelContext;
@@ -118,6 +122,25 @@ public class ProofAsst implements TheoremLoaderCommitListener {
     private final TheoremLoader theoremLoader;
     public final MacroManager macroManager;
 
+    /** Steps of the last worksheet unified by {@link #unify}. */
+    private final StepDependencyGraph stepDependencyGraph = new StepDependencyGraph();
+
+    // measurements of the last unify(), for the volume test report
+    private long lastParseNanos;
+    private long lastUnifyNanos;
+    private long lastTransformationNanos;
+    private final TransformationProfile lastTransformationProfile = new TransformationProfile();
+    private int lastNbrAssrtsScanned;
+
+    /** Work done by the TransformationManagers in all unifications. */
+    private final TransformationProfile transformationProfile = new TransformationProfile();
+
+    /** Write the transformation profile of each unification as a message. */
+    private boolean transformationProfileMessages;
+
+    /** Tables of the last TransformationManager, reused while still valid. */
+    private TransformationSnapshot trSnapshot;
+
     // -----------------------------------------------------------------
     // -------------------------LOCAL CLASSES---------------------------
     // -----------------------------------------------------------------
@@ -126,7 +149,13 @@ public class ProofAsst implements TheoremLoaderCommitListener {
     private static class TheoremTestResult {
         public final StopWatch stopWatch;
         public final ProofWorksheet proofWorksheet;
+        /** The theorem, or null for a proof read from an import file. */
         public final Theorem theorem;
+        public long parseNanos;
+        public long unifyNanos;
+        public long transformationNanos;
+        public TransformationProfile transformationProfile;
+        public int nbrAssrtsScanned;
 
         public TheoremTestResult(final StopWatch stopWatch,
             final ProofWorksheet proofWorksheet, final Theorem theorem)
@@ -150,6 +179,23 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         public int nbrTestProvedDifferently = 0;
     }
 
+    /**
+     * The outcome of one theorem of the parallel volume test, as produced by a
+     * worker thread and consumed, in theorem order, by the main thread.
+     */
+    private static class TheoremTestJob {
+        public final Theorem theorem;
+        /** null if the theorem could not be exported. */
+        public TheoremTestResult result;
+        public String updatedProofText;
+        public String[] errorMessages;
+        public String[] infoMessages;
+
+        public TheoremTestJob(final Theorem theorem) {
+            this.theorem = theorem;
+        }
+    }
+
     // -----------------------------------------------------------------
     // ----------------------------METHODS------------------------------
     // -----------------------------------------------------------------
@@ -252,6 +298,7 @@ public class ProofAsst implements TheoremLoaderCommitListener {
      */
     public boolean initializeLookupTables(final Messages messages) {
         this.messages = messages;
+        stepDependencyGraph.clear();
         initializedOK = proofUnifier.initializeLookupTables(messages);
         proofAsstPreferences.getSearchMgr().initOtherEnvAreas(this,
             logicalSystem, grammar, verifyProofs, messages);
@@ -275,6 +322,8 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         if (!getInitializedOK())
             return; // the stmtTbl data has not been stored yet
 
+        stepDependencyGraph.clear();
+
         final List<Theorem> listOfAssrtAddsSortedBySeq = mmtTheoremSet
             .buildSortedAssrtListOfAdds(MObj.SEQ);
 
@@ -283,6 +332,7 @@ public class ProofAsst implements TheoremLoaderCommitListener {
 
         proofUnifier
             .mergeListOfAssrtAddsSortedBySeq(listOfAssrtAddsSortedBySeq);
+        proofAsstPreferences.getSearchMgr().commit(listOfAssrtAddsSortedBySeq);
     }
 
     /**
@@ -644,9 +694,16 @@ public class ProofAsst implements TheoremLoaderCommitListener {
             proofTextEdited = (String)macroManager.get("proofText");
         }
 
+        lastUnifyNanos = 0;
+        lastTransformationNanos = 0;
+        lastTransformationProfile.clear();
+        lastNbrAssrtsScanned = 0;
+
         final boolean[] errorFound = new boolean[1];
+        final long parseStartNanos = System.nanoTime();
         final ProofWorksheet proofWorksheet = getParsedProofWorksheet(
             proofTextEdited, errorFound, inputCursorPos, stepRequest);
+        lastParseNanos = System.nanoTime() - parseStartNanos;
 
         if (!errorFound[0]) {
 
@@ -657,7 +714,11 @@ public class ProofAsst implements TheoremLoaderCommitListener {
 
             proofWorksheet.runCallback(CallbackType.AFTER_RENUMBER);
 
-            unifyProofWorksheet(proofWorksheet, noConvertWV, printOkMessages);
+            final long unifyStartNanos = System.nanoTime();
+            unifyProofWorksheet(proofWorksheet, noConvertWV, printOkMessages,
+                proofWorksheet.stepRequest == null ? stepDependencyGraph
+                    : null);
+            lastUnifyNanos = System.nanoTime() - unifyStartNanos;
         }
 
         if (tlRequest != null && proofWorksheet.getGeneratedProofStmt() != null)
@@ -728,15 +789,42 @@ public class ProofAsst implements TheoremLoaderCommitListener {
     public void importFromMemoryAndUnify(final Messages messages,
         final int selectorCount, final Theorem selectorTheorem,
         final OutputBoss outputBoss, final boolean asciiRetest)
+    {
+        importFromMemoryAndUnify(messages, selectorCount, selectorTheorem,
+            outputBoss, asciiRetest, 1, null);
+    }
+
+    /**
+     * Import Theorem proofs from memory and unifies, optionally on several
+     * threads.
+     * <p>
+     * This is a simulation routine for testing purposes.
+     *
+     * @param messages Messages object for output messages.
+     * @param selectorCount use to restrict the number of theorems present.
+     * @param selectorTheorem just process one theorem, ignore selectorCount.
+     * @param outputBoss mmj.util.OutputBoss object, if not null means, please
+     *            print the proof test.
+     * @param asciiRetest instructs program to re-unify the output Proof
+     *            Worksheet text after unification.
+     * @param nbrThreads number of theorems unified at once; 1 runs the test
+     *            sequentially. AsciiRetest and UpdateDJs force a sequential
+     *            test.
+     * @param report the per-theorem report to write, or null.
+     */
+    public void importFromMemoryAndUnify(final Messages messages,
+        final int selectorCount, final Theorem selectorTheorem,
+        final OutputBoss outputBoss, final boolean asciiRetest,
+        final int nbrThreads, final VolumeTestReport report)
     {
         this.messages = messages;
 
         if (selectorTheorem != null)
             importFromMemoryAndUnifyOneTheorem(selectorTheorem, outputBoss,
-                asciiRetest);
+                asciiRetest, report);
         else
             importFromMemoryAndUnifyManyTheorems(selectorCount, outputBoss,
-                asciiRetest);
+                asciiRetest, nbrThreads, report);
     }
 
     /**
@@ -753,6 +841,26 @@ public class ProofAsst implements TheoremLoaderCommitListener {
     public void importFromMemoryAndUnifyOneTheorem(
         final Theorem selectorTheorem, final OutputBoss outputBoss,
         final boolean asciiRetest)
+    {
+        importFromMemoryAndUnifyOneTheorem(selectorTheorem, outputBoss,
+            asciiRetest, null);
+    }
+
+    /**
+     * Imports one theorem proof from memory and unifies.
+     * <p>
+     * This is a simulation routine for testing purposes.
+     *
+     * @param selectorTheorem process selected theorem.
+     * @param outputBoss mmj.util.OutputBoss object, if not null means, please
+     *            print the proof test.
+     * @param asciiRetest instructs program to re-unify the output Proof
+     *            Worksheet text after unification.
+     * @param report the per-theorem report to write, or null.
+     */
+    public void importFromMemoryAndUnifyOneTheorem(
+        final Theorem selectorTheorem, final OutputBoss outputBoss,
+        final boolean asciiRetest, final VolumeTestReport report)
     {
         assert selectorTheorem != null;
 
@@ -785,10 +893,11 @@ public class ProofAsst implements TheoremLoaderCommitListener {
                 proofAsstPreferences.recheckProofAsstUsingProofVerifier
                     .set(verifierRecheck);
 
-            final TheoremTestResult result = new TheoremTestResult(
+            final TheoremTestResult result = newTheoremTestResult(
                 testStopWatch, proofWorksheet, selectorTheorem);
 
             volumeTestOutputRoutine(result, null, true);
+            writeVolumeTestReport(report, result);
 
             final String updatedProofText = proofWorksheet.getOutputProofText();
 
@@ -822,6 +931,36 @@ public class ProofAsst implements TheoremLoaderCommitListener {
      */
     public void importFromMemoryAndUnifyManyTheorems(final int selectorCount,
         final OutputBoss outputBoss, final boolean asciiRetest)
+    {
+        importFromMemoryAndUnifyManyTheorems(selectorCount, outputBoss,
+            asciiRetest, 1, null);
+    }
+
+    /**
+     * Import Theorem proofs from memory and unifies.
+     * <p>
+     * This is a simulation routine for testing purposes.
+     * <p>
+     * If {@code nbrThreads > 1} the theorems are unified on that many threads,
+     * each with its own Work Variables, StepUnifier, ProofUnifier, VerifyProofs
+     * and Messages (see {@link #createVolumeTestWorker()}), while the
+     * LogicalSystem and Grammar are shared. The results are reported in theorem
+     * order, so the output is the same as that of the sequential test except
+     * for the timings. The parallel test does not support asciiRetest or the
+     * UpdateDJs option (which alters theorems used by other unifications), so
+     * these run sequentially.
+     *
+     * @param selectorCount use to restrict the number of theorems present.
+     * @param outputBoss mmj.util.OutputBoss object, if not null means, please
+     *            print the proof test.
+     * @param asciiRetest instructs program to re-unify the output Proof
+     *            Worksheet text after unification.
+     * @param nbrThreads number of theorems unified at once.
+     * @param report the per-theorem report to write, or null.
+     */
+    public void importFromMemoryAndUnifyManyTheorems(final int selectorCount,
+        final OutputBoss outputBoss, final boolean asciiRetest,
+        final int nbrThreads, final VolumeTestReport report)
     {
         final boolean unifiedFormat = proofAsstPreferences.exportFormatUnified
             .get();
@@ -843,78 +982,316 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         final TheoremTestResult[] timeTop = smallTest ? null
             : new TheoremTestResult[PaConstants.PA_TESTMSG_THEOREM_TIME_TOP_NUMBER];
 
-        final StopWatch wholeTestSuiteTime = new StopWatch(true);
-        for (final Theorem theorem : theoremList) {
-            if (numberProcessed >= numberToProcess
-                || messages.maxErrorMessagesReached())
-                break;
-
-            // This whole function is needed for debug and regression tests.
-            // The biggest test is set.mm which consumes a lot of time.
-            // So, I think, it will be good to watch the progress dynamically.
-            if (outputBoss != null)
-                try {
-                    outputBoss.printException(new ProofAsstException(
-                        PaConstants.ERRMSG_PA_TESTMSG_PROGRESS,
-                        numberProcessed + 1, numberToProcess,
-                        theorem.getLabel()));
-                } catch (final IOException e) {}
-
-            stats.nbrTestTheoremsProcessed++;
-            final String proofText = exportOneTheorem(null, theorem,
-                unifiedFormat, hypsOrder, deriveFormulas);
-            if (proofText != null) {
-                if (asciiRetest)
-                    proofAsstPreferences.recheckProofAsstUsingProofVerifier
-                        .set(false);
-                // for Volume Testing
-
-                final StopWatch testStopWatch = new StopWatch(true);
-                final ProofWorksheet proofWorksheet = unify(false, // no renum
-                    true, // don't convert work vars
-                    proofText, null, // no preprocess
-                    null, // no step request
-                    null, // no TL request
-                    -1, // inputCursorPos
-                    smallTest); // printOkMessages
-                testStopWatch.stop();
-
-                if (asciiRetest)
-                    proofAsstPreferences.recheckProofAsstUsingProofVerifier
-                        .set(verifierRecheck);
-
-                final TheoremTestResult result = new TheoremTestResult(
-                    testStopWatch, proofWorksheet, theorem);
-
-                addResultToVolumeTestTimeTop(timeTop, result);
+        boolean parallel = nbrThreads > 1;
+        if (parallel
+            && (asciiRetest || proofAsstPreferences.importUpdateDJs.get()))
+        {
+            messages.accumMessage(PaConstants.ERRMSG_PA_TESTMSG_THREADS_IGNORED,
+                nbrThreads);
+            parallel = false;
+        }
 
-                volumeTestOutputRoutine(result, stats, smallTest);
-                final String updatedProofText = proofWorksheet
-                    .getOutputProofText();
+        final StopWatch wholeTestSuiteTime = new StopWatch(true);
+        if (parallel) {
+            messages.accumMessage(PaConstants.ERRMSG_PA_TESTMSG_THREADS,
+                nbrThreads);
+            unifyManyTheoremsInParallel(
+                theoremList.subList(0, numberToProcess), outputBoss, smallTest,
+                timeTop, stats, nbrThreads, report);
+        }
+        else
+            for (final Theorem theorem : theoremList) {
+                if (numberProcessed >= numberToProcess
+                    || messages.maxErrorMessagesReached())
+                    break;
 
-                // retest
-                if (updatedProofText != null && asciiRetest)
-                    unify(false, // no renum
+                // This whole function is needed for debug and regression tests.
+                // The biggest test is set.mm which consumes a lot of time.
+                // So, I think, it will be good to watch the progress
+                // dynamically.
+                if (outputBoss != null)
+                    try {
+                        outputBoss.printException(new ProofAsstException(
+                            PaConstants.ERRMSG_PA_TESTMSG_PROGRESS,
+                            numberProcessed + 1, numberToProcess,
+                            theorem.getLabel()));
+                    } catch (final IOException e) {}
+
+                stats.nbrTestTheoremsProcessed++;
+                final String proofText = exportOneTheorem(null, theorem,
+                    unifiedFormat, hypsOrder, deriveFormulas);
+                if (proofText != null) {
+                    if (asciiRetest)
+                        proofAsstPreferences.recheckProofAsstUsingProofVerifier
+                            .set(false);
+                    // for Volume Testing
+
+                    final StopWatch testStopWatch = new StopWatch(true);
+                    final ProofWorksheet proofWorksheet = unify(
+                        false, // no renum
                         true, // don't convert work vars
-                        updatedProofText, null, // no preprocess request
+                        proofText, null, // no preprocess
                         null, // no step request
                         null, // no TL request
                         -1, // inputCursorPos
                         smallTest); // printOkMessages
-
-                if (updatedProofText != null) {
-                    printProof(outputBoss, proofWorksheet, updatedProofText);
-                    checkAndCompareUpdateDJs(proofWorksheet);
+                    testStopWatch.stop();
+
+                    if (asciiRetest)
+                        proofAsstPreferences.recheckProofAsstUsingProofVerifier
+                            .set(verifierRecheck);
+
+                    final TheoremTestResult result = newTheoremTestResult(
+                        testStopWatch, proofWorksheet, theorem);
+
+                    addResultToVolumeTestTimeTop(timeTop, result);
+
+                    volumeTestOutputRoutine(result, stats, smallTest);
+                    writeVolumeTestReport(report, result);
+                    final String updatedProofText = proofWorksheet
+                        .getOutputProofText();
+
+                    // retest
+                    if (updatedProofText != null && asciiRetest)
+                        unify(false, // no renum
+                            true, // don't convert work vars
+                            updatedProofText, null, // no preprocess request
+                            null, // no step request
+                            null, // no TL request
+                            -1, // inputCursorPos
+                            smallTest); // printOkMessages
+
+                    if (updatedProofText != null) {
+                        printProof(outputBoss, proofWorksheet,
+                            updatedProofText);
+                        checkAndCompareUpdateDJs(proofWorksheet);
+                    }
                 }
+                numberProcessed++;
             }
-            numberProcessed++;
-        }
         System.err.println(); // for debug reasons
         wholeTestSuiteTime.stop();
 
         printVolumeTestStats(stats, wholeTestSuiteTime, timeTop);
     }
 
+    /**
+     * Unifies the theorems of the volume test on {@code nbrThreads} threads.
+     * <p>
+     * The theorems are unified by tasks of the {@link SharedExecutor}. Each
+     * task takes a worker (see {@link #createVolumeTestWorker()}) from a
+     * pool, so a worker is never used by two tasks at once, and at most one
+     * task per worker is submitted at once, so a task never waits for a
+     * worker on a thread of the shared executor. The main
+     * thread consumes the outcomes in theorem order and does everything that
+     * touches the main Messages, the OutputBoss and the theorem's frame, just
+     * as the sequential test does. At most
+     * {@link PaConstants#PA_TESTMSG_THEOREMS_QUEUED_PER_THREAD} theorems per
+     * thread are in flight, which bounds the number of Proof Worksheets held
+     * in memory.
+     *
+     * @param theoremList the theorems to test.
+     * @param outputBoss mmj.util.OutputBoss object, or null.
+     * @param smallTest true if ok theorems are reported.
+     * @param timeTop the most time consuming unifications, or null.
+     * @param stats the test statistics.
+     * @param nbrThreads number of theorems unified at once.
+     * @param report the per-theorem report to write, or null.
+     */
+    private void unifyManyTheoremsInParallel(final List<Theorem> theoremList,
+        final OutputBoss outputBoss, final boolean smallTest,
+        final TheoremTestResult[] timeTop, final VolumeTestStats stats,
+        final int nbrThreads, final VolumeTestReport report)
+    {
+        final BlockingQueue<ProofAsst> workers = new ArrayBlockingQueue<>(
+            nbrThreads);
+        try {
+            for (int i = 0; i < nbrThreads; i++)
+                workers.add(createVolumeTestWorker());
+        } catch (final VerifyException e) {
+            messages.accumException(e);
+            return;
+        }
+
+        final Semaphore running = new Semaphore(nbrThreads);
+        final Deque<Future<TheoremTestJob>> pending = new ArrayDeque<>();
+        final Iterator<Theorem> iterator = theoremList.iterator();
+        int numberProcessed = 0;
+        try {
+            while (!messages.maxErrorMessagesReached()) {
+                while (iterator.hasNext() && pending.size() < nbrThreads
+                    * PaConstants.PA_TESTMSG_THEOREMS_QUEUED_PER_THREAD
+                    && running.tryAcquire())
+                {
+                    final Theorem theorem = iterator.next();
+                    pending.add(SharedExecutor.get().submit(() -> {
+                        final ProofAsst worker = workers.take();
+                        try {
+                            return worker.unifyVolumeTestTheorem(theorem,
+                                smallTest);
+                        } finally {
+                            workers.add(worker);
+                            running.release();
+                        }
+                    }));
+                }
+                final Future<TheoremTestJob> next = pending.poll();
+                if (next == null)
+                    break;
+                final TheoremTestJob job = next.get();
+
+                if (outputBoss != null)
+                    try {
+                        outputBoss.printException(new ProofAsstException(
+                            PaConstants.ERRMSG_PA_TESTMSG_PROGRESS,
+                            numberProcessed + 1, theoremList.size(),
+                            job.theorem.getLabel()));
+                    } catch (final IOException e) {}
+
+                stats.nbrTestTheoremsProcessed++;
+                for (final String m : job.errorMessages)
+                    messages.accumErrorMessage(m);
+                for (final String m : job.infoMessages)
+                    messages.accumInfoMessage(m);
+
+                if (job.result != null) {
+                    transformationProfile.add(job.result.transformationProfile);
+                    addResultToVolumeTestTimeTop(timeTop, job.result);
+
+                    volumeTestOutputRoutine(job.result, stats, smallTest);
+                    writeVolumeTestReport(report, job.result);
+
+                    if (job.updatedProofText != null) {
+                        printProof(outputBoss, job.result.proofWorksheet,
+                            job.updatedProofText);
+                        checkAndCompareUpdateDJs(job.result.proofWorksheet);
+                    }
+                }
+                numberProcessed++;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            for (final Future<TheoremTestJob> future : pending)
+                future.cancel(true);
+        }
+    }
+
+    /**
+     * Creates a worker for the parallel volume test: a ProofAsst sharing this
+     * ProofAsst's LogicalSystem, Grammar and settings, but with its own Work
+     * Variables (and so its own StepUnifier), ProofUnifier, VerifyProofs,
+     * Messages and, if enabled, TransformationManager. Workers have no
+     * MacroManager.
+     * <p>
+     * Must be invoked on the main thread, before the workers are started.
+     *
+     * @return the worker.
+     * @throws VerifyException if the Work Variables cannot be declared.
+     */
+    private ProofAsst createVolumeTestWorker() throws VerifyException {
+        final WorkVarManager workVarManager = new WorkVarManager(
+            proofAsstPreferences.getWorkVarManager());
+        workVarManager.declareWorkVars(grammar, logicalSystem);
+
+        final ProofAsst worker = new ProofAsst(
+            proofAsstPreferences.copyForWorker(workVarManager), logicalSystem,
+            grammar, new VerifyProofs(), theoremLoader, null);
+        worker.trSnapshot = trSnapshot;
+        worker.transformationProfileMessages = transformationProfileMessages;
+        worker.messages = new Messages(
+            messages.getErrorMessageArray().length,
+            messages.getInfoMessageArray().length);
+        worker.initializedOK = worker.proofUnifier
+            .initializeLookupTables(worker.messages);
+
+        final TransformationManager trManager = proofUnifier
+            .getTransformationManager();
+        if (trManager != null)
+            worker.initAutotransformations(true, trManager.dbg,
+                trManager.supportImplicationPrefix);
+        worker.messages.clearMessages();
+
+        // created here, once, since the workers share it
+        logicalSystem.getProofCompression();
+        return worker;
+    }
+
+    /**
+     * Creates a worker which exports theorems (see
+     * {@link #exportOneTheorem(Theorem)}) on another thread: a ProofAsst
+     * sharing this ProofAsst's LogicalSystem, Grammar and settings, but with
+     * its own Work Variables, VerifyProofs and Messages. The worker is not
+     * initialized for unification.
+     * <p>
+     * Must be invoked on the main thread, before the worker is started.
+     *
+     * @param messages the Messages object of the worker.
+     * @return the worker.
+     * @throws VerifyException if the Work Variables cannot be declared.
+     */
+    public ProofAsst createExportWorker(final Messages messages)
+        throws VerifyException
+    {
+        final WorkVarManager workVarManager = new WorkVarManager(
+            proofAsstPreferences.getWorkVarManager());
+        workVarManager.declareWorkVars(grammar, logicalSystem);
+
+        final ProofAsst worker = new ProofAsst(
+            proofAsstPreferences.copyForWorker(workVarManager), logicalSystem,
+            grammar, new VerifyProofs(), theoremLoader, null);
+        worker.messages = messages;
+        return worker;
+    }
+
+    /**
+     * Exports and unifies one theorem of the parallel volume test. Invoked on
+     * a worker (see {@link #createVolumeTestWorker()}).
+     *
+     * @param theorem the theorem to test.
+     * @param smallTest true if ok messages are to be generated.
+     * @return the outcome, including the messages generated.
+     */
+    private TheoremTestJob unifyVolumeTestTheorem(final Theorem theorem,
+        final boolean smallTest)
+    {
+        final TheoremTestJob job = new TheoremTestJob(theorem);
+
+        final String proofText = exportOneTheorem(null, theorem,
+            proofAsstPreferences.exportFormatUnified.get(),
+            proofAsstPreferences.exportHypsOrder.get(),
+            proofAsstPreferences.exportDeriveFormulas.get());
+        if (proofText != null) {
+            final StopWatch testStopWatch = new StopWatch(true);
+            final ProofWorksheet proofWorksheet = unify(false, // no renum
+                true, // don't convert work vars
+                proofText, null, // no preprocess
+                null, // no step request
+                null, // no TL request
+                -1, // inputCursorPos
+                smallTest); // printOkMessages
+            testStopWatch.stop();
+
+            job.result = newTheoremTestResult(testStopWatch, proofWorksheet,
+                theorem);
+            job.updatedProofText = proofWorksheet.getOutputProofText();
+        }
+
+        job.errorMessages = Arrays.copyOf(messages.getErrorMessageArray(),
+            messages.getErrorMessageCnt());
+        job.infoMessages = Arrays.copyOf(messages.getInfoMessageArray(),
+            messages.getInfoMessageCnt());
+        messages.clearMessages();
+        return job;
+    }
+
     /**
      * Perform the optimizations for theorem search during "parallel"
      * unification
@@ -961,6 +1338,9 @@ public class ProofAsst implements TheoremLoaderCommitListener {
 
     /**
      * This function initialize auto-transformation component.
+     * <p>
+     * The tables of the previous auto-transformation component are reused if
+     * the assertions did not change since they were built.
      *
      * @param enabled Set to false to de-initialize an already loaded
      *            transformation manager
@@ -975,9 +1355,33 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         final TransformationManager trManager = enabled
             ? new TransformationManager(this, getSortedAssrtSearchList(),
                 getProvableLogicStmtTyp(), messages, verifyProofs,
-                supportPrefix, debugOutput)
+                supportPrefix, debugOutput, trSnapshot)
             : null;
+        if (trManager != null && trManager.getSnapshot() != null)
+            trSnapshot = trManager.getSnapshot();
         proofUnifier.setTransformationManager(trManager);
+        stepDependencyGraph.clear();
+    }
+
+    /**
+     * @param transformationProfileMessages true if the transformation profile
+     *            of each unification (see
+     *            {@link ProofUnifier#getTransformationProfile()}) is to be
+     *            written as an info message.
+     */
+    public void setTransformationProfileMessages(
+        final boolean transformationProfileMessages)
+    {
+        this.transformationProfileMessages = transformationProfileMessages;
+    }
+
+    /**
+     * @return the work done by the TransformationManagers in all the
+     *         unifications of this ProofAsst, including those of the
+     *         volume test workers, for each kind of transformation.
+     */
+    public TransformationProfile getTransformationProfile() {
+        return transformationProfile;
     }
 
     /**
@@ -996,7 +1400,7 @@ public class ProofAsst implements TheoremLoaderCommitListener {
                                                                   // open
         final Messages messages, final int numberToProcess,
         final Theorem selectorTheorem, final OutputBoss outputBoss,
-        final boolean asciiRetest)
+        final boolean asciiRetest, final VolumeTestReport report)
     {
 
         this.messages = messages;
@@ -1020,7 +1424,9 @@ public class ProofAsst implements TheoremLoaderCommitListener {
 
             while (true) {
 
+                final long parseStartNanos = System.nanoTime();
                 proofWorksheet = proofWorksheetParser.next();
+                final long parseNanos = System.nanoTime() - parseStartNanos;
 
                 theoremLabel = proofWorksheet.getTheoremLabel();
 
@@ -1040,7 +1446,8 @@ public class ProofAsst implements TheoremLoaderCommitListener {
                             proofAsstPreferences.recheckProofAsstUsingProofVerifier
                                 .set(false);
 
-                        unifyProofWorksheet(proofWorksheet, false, true);
+                        unifyImportedProofWorksheet(proofWorksheet,
+                            parseNanos, report);
 
                         if (asciiRetest)
                             proofAsstPreferences.recheckProofAsstUsingProofVerifier
@@ -1078,7 +1485,8 @@ public class ProofAsst implements TheoremLoaderCommitListener {
                     proofAsstPreferences.recheckProofAsstUsingProofVerifier
                         .set(false);
 
-                unifyProofWorksheet(proofWorksheet, false, true);
+                unifyImportedProofWorksheet(proofWorksheet, parseNanos,
+                    report);
 
                 if (asciiRetest)
                     proofAsstPreferences.recheckProofAsstUsingProofVerifier
@@ -1126,6 +1534,34 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         }
     }
 
+    /**
+     * Unifies a Proof Worksheet read by importFromFileAndUnify() and writes
+     * its line of the per-theorem report.
+     *
+     * @param proofWorksheet the Proof Worksheet.
+     * @param parseNanos the time spent reading and parsing the Proof
+     *            Worksheet.
+     * @param report the per-theorem report to write, or null.
+     */
+    private void unifyImportedProofWorksheet(
+        final ProofWorksheet proofWorksheet, final long parseNanos,
+        final VolumeTestReport report)
+    {
+        lastParseNanos = parseNanos;
+        lastTransformationNanos = 0;
+        lastTransformationProfile.clear();
+        lastNbrAssrtsScanned = 0;
+
+        final StopWatch testStopWatch = new StopWatch(true);
+        final long unifyStartNanos = System.nanoTime();
+        unifyProofWorksheet(proofWorksheet, false, true, null);
+        lastUnifyNanos = System.nanoTime() - unifyStartNanos;
+        testStopWatch.stop();
+
+        writeVolumeTestReport(report, newTheoremTestResult(testStopWatch,
+            proofWorksheet, null));
+    }
+
     /**
      * Exercises the PreprocessRequest code for one proof.
      *
@@ -1196,7 +1632,7 @@ public class ProofAsst implements TheoremLoaderCommitListener {
 
             if (!proofWorksheet.hasStructuralErrors()) {
                 origProofText = proofWorksheet.getOutputProofText();
-                unifyProofWorksheet(proofWorksheet, false, true);
+                unifyProofWorksheet(proofWorksheet, false, true, null);
             }
             if (proofWorksheet.hasStructuralErrors()) {
                 messages.accumException(addLabelContext(proofWorksheet,
@@ -1262,6 +1698,114 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         }
     }
 
+    /**
+     * Reads and unifies Proof Worksheets, then runs a ProofSearch for the
+     * derivation steps still unproved and unifies the worksheets again with
+     * the proofs found.
+     *
+     * @param importReader source of proofs
+     * @param messages Messages object for output messages.
+     * @param outputBoss mmj.util.OutputBoss object, if not null means, please
+     *            print the updated Proof Worksheets.
+     * @param proofSearch the ProofSearch, with its budgets.
+     */
+    public void proofSearchFromFile(final Reader importReader, // already open
+        final Messages messages, final OutputBoss outputBoss,
+        final ProofSearch proofSearch)
+    {
+
+        this.messages = messages;
+
+        ProofWorksheet proofWorksheet = null;
+        int numberProcessed = 0;
+
+        try (
+            ProofWorksheetParser proofWorksheetParser = new ProofWorksheetParser(
+                importReader, PaConstants.PROOF_TEXT_READER_CAPTION,
+                proofAsstPreferences, logicalSystem, grammar, messages,
+                macroManager))
+        {
+
+            while (proofWorksheetParser.hasNext()) {
+
+                proofWorksheet = proofWorksheetParser.next();
+
+                if (proofWorksheet.hasStructuralErrors()) {
+                    messages.accumException(addLabelContext(proofWorksheet,
+                        PaConstants.ERRMSG_PA_IMPORT_STRUCT_ERROR));
+                    break;
+                }
+
+                if (messages.maxErrorMessagesReached()
+                    || Thread.currentThread().isInterrupted())
+                    break;
+
+                unifyProofWorksheet(proofWorksheet, false, true, null);
+
+                if (proofSearch.searchProofWorksheet(proofWorksheet,
+                    messages) > 0)
+                    // the ordinary unification validates the new steps
+                    proofWorksheet = unify(false, // no renum
+                        false, // convert work vars
+                        proofWorksheet.getOutputProofText(), null, // no
+                                                                  // preprocess
+                        null, // no step request
+                        null, // no TL request
+                        -1, // inputCursorPos
+                        true); // printOkMessages
+
+                final String updatedProofText = proofWorksheet
+                    .getOutputProofText();
+                if (updatedProofText != null)
+                    printProof(outputBoss, proofWorksheet, updatedProofText);
+                numberProcessed++;
+            }
+        } catch (final ProofAsstException e) {
+            messages.accumException(
+                addLabelContext(proofWorksheet, new ProofAsstException(e,
+                    PaConstants.ERRMSG_PA_IMPORT_ERROR, e.getMessage())));
+            proofWorksheet = updateWorksheetWithException(proofWorksheet, e);
+        } catch (final MMIOException e) {
+            messages.accumException(
+                addLabelContext(proofWorksheet, new ProofAsstException(e,
+                    PaConstants.ERRMSG_PA_IMPORT_IO_ERROR, e.getMessage())));
+            proofWorksheet = updateWorksheetWithException(proofWorksheet, e);
+        } catch (final Exception e) {
+            e.printStackTrace();
+            messages.accumException(addLabelContext(proofWorksheet,
+                new ProofAsstException(e,
+                    PaConstants.ERRMSG_PA_IMPORT_SEVERE_ERROR,
+                    e.getMessage())));
+            proofWorksheet = updateWorksheetWithException(proofWorksheet, null);
+        }
+
+        messages.accumMessage(PaConstants.ERRMSG_PROOF_SEARCH_TOTALS,
+            numberProcessed, proofSearch.getNbrStepsProved(),
+            proofSearch.getNbrStepsAdded(), proofSearch.getTotalNodes());
+    }
+
+    /**
+     * Builds a ProofSearch over the assertions available for unification.
+     *
+     * @param maxDepth maximum proof depth.
+     * @param maxNodes maximum number of goal expansions per step.
+     * @param maxMillis maximum search time per step, in milliseconds.
+     * @param nbrThreads number of search threads.
+     * @param strategy the search strategy.
+     * @return the ProofSearch.
+     * @throws VerifyException if the Work Variables of the search threads
+     *             cannot be declared.
+     */
+    public ProofSearch getProofSearch(final int maxDepth, final long maxNodes,
+        final long maxMillis, final int nbrThreads,
+        final ProofSearch.Strategy strategy) throws VerifyException
+    {
+        return new ProofSearch(proofUnifier.getUnifySearchListByMObjSeq(),
+            getProvableLogicStmtTyp(), proofAsstPreferences.getWorkVarManager(),
+            grammar, logicalSystem, maxDepth, maxNodes, maxMillis, nbrThreads,
+            strategy);
+    }
+
     /**
      * Export Theorem proofs to a given Writer.
      * <p>
@@ -1412,6 +1956,56 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         return proofWorksheet;
     }
 
+    /**
+     * Creates the test result of a theorem unified by {@link #unify}, with the
+     * measurements of that unification.
+     *
+     * @param stopWatch the time of the whole unification.
+     * @param proofWorksheet the Proof Worksheet unified.
+     * @param theorem the theorem tested.
+     * @return the test result.
+     */
+    private TheoremTestResult newTheoremTestResult(final StopWatch stopWatch,
+        final ProofWorksheet proofWorksheet, final Theorem theorem)
+    {
+        final TheoremTestResult result = new TheoremTestResult(stopWatch,
+            proofWorksheet, theorem);
+        result.parseNanos = lastParseNanos;
+        result.unifyNanos = lastUnifyNanos;
+        result.transformationNanos = lastTransformationNanos;
+        result.transformationProfile = lastTransformationProfile.copy();
+        result.nbrAssrtsScanned = lastNbrAssrtsScanned;
+        return result;
+    }
+
+    private static void writeVolumeTestReport(final VolumeTestReport report,
+        final TheoremTestResult result)
+    {
+        if (report == null)
+            return;
+
+        int nbrSteps = 0;
+        for (final ProofWorkStmt s : result.proofWorksheet
+            .getProofWorkStmtList())
+            if (s instanceof ProofStepStmt)
+                nbrSteps++;
+
+        final DerivationStep q = result.proofWorksheet.getQedStep();
+        final String outcome = q == null ? VolumeTestReport.OUTCOME_NO_QED_STEP
+            : PaConstants.STATUS_DESC[getVolumeTestStatus(q)];
+
+        final String label = result.theorem == null
+            ? result.proofWorksheet.getTheoremLabel()
+            : result.theorem.getLabel();
+
+        report.write(new VolumeTestReport.Entry(label, nbrSteps,
+            VolumeTestReport.toMillis(result.parseNanos),
+            VolumeTestReport.toMillis(result.unifyNanos),
+            VolumeTestReport.toMillis(result.transformationNanos),
+            VolumeTestReport.toMillis(result.transformationProfile),
+            result.nbrAssrtsScanned, outcome));
+    }
+
     /**
      * This function compares {@code candidate} time information with the
      * content of {@code timeTop} array and updates {@code timeTop} if it is
@@ -1478,6 +2072,28 @@ public class ProofAsst implements TheoremLoaderCommitListener {
         }
     }
 
+    // the volume test statuses are for backward compatibility to the old
+    // ProofWorkStmt.status values (see PaConstants.STATUS_DESC).
+    private static final int STATUS_NOT_PROVED = 4; // arbitrary
+    private static final int STATUS_PROVED_PERFECTLY = 8;
+    private static final int STATUS_DJ_VARS_ERROR = 9;
+    private static final int STATUS_VERIFY_PROOF_ERROR = 10;
+
+    /**
+     * @param q the qed step of a Proof Worksheet of the volume test.
+     * @return the volume test status of the theorem, an index into
+     *         {@link PaConstants#STATUS_DESC}.
+     */
+    private static int getVolumeTestStatus(final DerivationStep q) {
+        if (q.getProofTree() == null)
+            return STATUS_NOT_PROVED;
+        if (q.djVarsErrorStatus != DjVarsErrorStatus.None)
+            return STATUS_DJ_VARS_ERROR;
+        if (q.verifyProofError)
+            return STATUS_VERIFY_PROOF_ERROR;
+        return STATUS_PROVED_PERFECTLY;
+    }
+
     private void volumeTestOutputRoutine(final TheoremTestResult result,
         final VolumeTestStats stats, final boolean printOkTheorems)
     {
@@ -1494,29 +2110,12 @@ public class ProofAsst implements TheoremLoaderCommitListener {
             return;
         }
 
-        // this 's' is for batch testing. the numbers
-        // are for backward compatibility to the old
-        // ProofWorkStmt.status values.
-        final int PROVED_PERFECTLY = 8;
-        int s;
-        if (q.getProofTree() == null)
-            s = 4; // arbitrary
-        else if (q.djVarsErrorStatus == DjVarsErrorStatus.None) {
-            if (!q.verifyProofError)
-                s = PROVED_PERFECTLY; // proved perfectly
-            else {
-                s = 10; // verify proof err
-                if (stats != null)
-                    stats.nbrTestNotProvedPerfectly++;
-            }
-        }
-        else {
-            s = 9; // dj vars error
+        final int s = getVolumeTestStatus(q);
+        if (s == STATUS_VERIFY_PROOF_ERROR || s == STATUS_DJ_VARS_ERROR)
             if (stats != null)
                 stats.nbrTestNotProvedPerfectly++;
-        }
 
-        if (printOkTheorems || s != PROVED_PERFECTLY)
+        if (printOkTheorems || s != STATUS_PROVED_PERFECTLY)
             messages.accumMessage(PaConstants.ERRMSG_PA_TESTMSG_01,
                 result.theorem.getLabel(),
                 result.stopWatch.getElapsedTimeInStr(), s,
@@ -1682,7 +2281,8 @@ public class ProofAsst implements TheoremLoaderCommitListener {
     }
 
     private void unifyProofWorksheet(final ProofWorksheet proofWorksheet,
-        final boolean noConvertWV, final boolean printOkMessages)
+        final boolean noConvertWV, final boolean printOkMessages,
+        final StepDependencyGraph stepDependencyGraph)
     {
 
         if (proofWorksheet.getNbrDerivStepsReadyForUnify() > 0
@@ -1691,9 +2291,24 @@ public class ProofAsst implements TheoremLoaderCommitListener {
                 || proofWorksheet.stepRequest.type == StepRequestType.GeneralSearch))
         {
 
+            if (stepDependencyGraph != null)
+                stepDependencyGraph.startUnify(proofWorksheet);
+
             try {
                 proofUnifier.unifyAllProofDerivationSteps(proofWorksheet,
-                    messages, noConvertWV);
+                    messages, noConvertWV, stepDependencyGraph);
+                lastNbrAssrtsScanned = proofUnifier.getNbrAssrtsScanned();
+                lastTransformationNanos = proofUnifier
+                    .getTransformationNanos();
+                lastTransformationProfile.clear();
+                lastTransformationProfile
+                    .add(proofUnifier.getTransformationProfile());
+                transformationProfile.add(lastTransformationProfile);
+                if (transformationProfileMessages
+                    && !lastTransformationProfile.isEmpty())
+                    messages.accumMessage(
+                        PaConstants.ERRMSG_PA_TRANSFORMATION_PROFILE,
+                        lastTransformationProfile);
             } catch (final VerifyException e) {
                 // this is a particularly severe situation
                 // caused by a shortage of allocatable
@@ -1703,9 +2318,14 @@ public class ProofAsst implements TheoremLoaderCommitListener {
                 // is no bug...)
                 messages.accumException(e);
                 proofWorksheet.setStructuralErrors(true);
+                if (stepDependencyGraph != null)
+                    stepDependencyGraph.clear();
                 return;
             }
 
+            if (stepDependencyGraph != null)
+                stepDependencyGraph.endUnify(proofWorksheet);
+
             final ProofFormat format = proofAsstPreferences.proofFormat.get();
             final RPNStep[] rpnProof = format == ProofFormat.Normal
                 ? proofWorksheet.getQedStepProofRPN()
@@ -1725,10 +2345,15 @@ public class ProofAsst implements TheoremLoaderCommitListener {
 
                     final int width = proofWorksheet.proofAsstPreferences.rpnProofRightCol
                         .get() - proofWorksheet.getRPNProofLeftCol() + 1;
-                    final List<Stmt> parenList = logicalSystem
-                        .getProofCompression()
-                        .compress(proofWorksheet.getTheoremLabel(), width,
+                    // shared by the threads of the parallel volume test
+                    final ProofCompression compression = logicalSystem
+                        .getProofCompression();
+                    final List<Stmt> parenList;
+                    synchronized (compression) {
+                        parenList = compression.compress(
+                            proofWorksheet.getTheoremLabel(), width,
                             mandHypList, optHypList, rpnProof, letters);
+                    }
 
                     proofWorksheet.addGeneratedProofStmt(parenList,
                         letters.toString());
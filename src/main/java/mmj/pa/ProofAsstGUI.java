@@ -1514,6 +1514,14 @@ public class ProofAsstGUI {
             KeyStroke.getKeyStroke(KeyEvent.VK_3, ActionEvent.CTRL_MASK));
         i.setText(PaConstants.RESHOW_SEARCH_RESULTS_ITEM_TEXT);
         searchMenu.add(i);
+
+        i = new JMenuItem(PaConstants.SET_STREAM_SEARCH_RESULTS_ITEM_TEXT);
+        i.addActionListener(
+            repromptAction(PaConstants.PA_GUI_SET_STREAM_SEARCH_RESULTS_PROMPT,
+                proofAsstPreferences.searchStreamResults,
+                s -> proofAsstPreferences.searchStreamResults
+                    .set(ProofAsstPreferences.parseBoolean(s))));
+        searchMenu.add(i);
         return searchMenu;
     }
 
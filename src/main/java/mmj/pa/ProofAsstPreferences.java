@@ -72,7 +72,7 @@ import mmj.verify.VerifyProofs;
 /**
  * Holds user settings/preferences used by the Proof Assistant.
  */
-public class ProofAsstPreferences {
+public class ProofAsstPreferences implements Cloneable {
     private static final String PFX = "ProofAsst.";
 
     private final SessionStore store;
@@ -89,6 +89,12 @@ public class ProofAsstPreferences {
      */
     public Setting<File> startupProofWorksheetFile;
 
+    /**
+     * Folder of the saved transformation tables (see
+     * mmj.transforms.TransformationSnapshot), or null if they are not saved.
+     */
+    public Setting<File> transformationSnapshotFolder;
+
     /** Default file name suffix, such as ".txt" or ".mmp". */
     public Setting<String> defaultFileNameSuffix;
 
@@ -213,6 +219,13 @@ public class ProofAsstPreferences {
     public Setting<Integer> stepSelectorDialogPaneWidth;
     public Setting<Integer> stepSelectorDialogPaneHeight;
 
+    /**
+     * On/off indicator instructing the General Search to show its results on
+     * the Search Results window while it runs, and to keep the results found
+     * when it is stopped by a cancel or a timeout.
+     */
+    public Setting<Boolean> searchStreamResults;
+
     public Setting<Integer> assrtListFreespace;
 
     /**
@@ -277,6 +290,8 @@ public class ProofAsstPreferences {
         proofFolder = store.addFileSetting(PFX + "proofFolder", null);
         startupProofWorksheetFile = store
             .addFileSetting(PFX + "startupProofWorksheetFile", null);
+        transformationSnapshotFolder = store
+            .addFileSetting(PFX + "transformationSnapshotFolder", null);
 
         defaultFileNameSuffix = store.addSetting(PFX + "defaultFileNameSuffix",
             PaConstants.PA_GUI_DEFAULT_FILE_NAME_SUFFIX);
@@ -362,6 +377,9 @@ public class ProofAsstPreferences {
             PFX + "stepSelectorShowSubstitutions",
             PaConstants.STEP_SELECTOR_SHOW_SUBSTITUTIONS_DEFAULT);
 
+        searchStreamResults = store.addSetting(PFX + "searchStreamResults",
+            PaConstants.SEARCH_STREAM_RESULTS_DEFAULT);
+
         stepSelectorDialogPaneWidth = setIntBound(
             store.addSetting(PFX + "stepSelectorDialogPaneWidth",
                 PaConstants.STEP_SELECTOR_DIALOG_PANE_WIDTH_DEFAULT),
@@ -523,6 +541,33 @@ public class ProofAsstPreferences {
         return s;
     }
 
+    /**
+     * Returns a copy of these preferences for a background worker, such as a
+     * thread of the parallel volume test.
+     * <p>
+     * The copy shares every Setting with the original (so settings must not be
+     * changed while the copy is in use), but it has its own WorkVarManager and
+     * therefore its own StepUnifier and SearchMgr.
+     *
+     * @param workVarManager the worker's own WorkVarManager, with the Work
+     *            Variables already declared.
+     * @return the copy.
+     */
+    public ProofAsstPreferences copyForWorker(
+        final WorkVarManager workVarManager)
+    {
+        final ProofAsstPreferences copy;
+        try {
+            copy = (ProofAsstPreferences)clone();
+        } catch (final CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        copy.workVarManager = workVarManager;
+        copy.stepUnifier = null;
+        copy.searchMgr = null;
+        return copy;
+    }
+
     /**
      * A simple routine to build a list of all defined Fonts Families.
      * <p>
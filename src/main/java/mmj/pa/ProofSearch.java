@@ -0,0 +1,910 @@
+package mmj.pa;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mmj.lang.*;
+import mmj.pa.PaConstants.UnificationStatus;
+import mmj.util.OrderedParallelScan;
+import mmj.util.SharedExecutor;
+import mmj.verify.Grammar;
+import mmj.verify.VerifyException;
+
+/**
+ * ProofSearch is a bounded backward proof search for the derivation steps of a
+ * Proof Worksheet which the Unification search could not prove with a single
+ * assertion.
+ * <p>
+ * A goal (the formula of an unproved step) is expanded by every assertion
+ * whose conclusion unifies with it, using a {@link StepUnifier}: as for the
+ * Derive feature, the variables of the assertion which do not occur in its
+ * conclusion are given new Work Variables, so the subgoals (the instantiated
+ * logical hyps) may contain Work Variables. A subgoal is proved by a preceding
+ * worksheet step (a derivation step or a hypothesis), which may assign its
+ * Work Variables, or it is expanded in turn. The assignments of the Work
+ * Variables are undone on backtracking, so for instance the minor premise of
+ * ax-mp is found as the antecedent of a proof of the major premise. A subgoal
+ * which is only a Work Variable is not expanded: it is proved by a preceding
+ * step, or once its Work Variable is assigned.
+ * <p>
+ * The search is an iterative deepening search, so the proofs found are of
+ * minimal depth; {@link Strategy#BestFirst} tries the expansions with the
+ * fewest and smallest open subgoals first, {@link Strategy#BreadthFirst}
+ * keeps database order.
+ * <p>
+ * The expansions of an unproved step are distributed over the threads of the
+ * {@link SharedExecutor}, each thread with its own StepUnifier and Work
+ * Variables, and the first proof in the order of the expansions is kept, as
+ * in a single thread search. The outcome of every goal without Work Variables
+ * is cached by goal formula (proofs for the whole worksheet, failures for as
+ * long as the set of worksheet steps usable as leaves is unchanged). The
+ * search of each step is limited by a node budget and a time budget, and it
+ * stops when the thread running it is interrupted.
+ * <p>
+ * A proof found is written into the worksheet as new derivation steps placed
+ * before the unproved step, each with its Hyps and Ref filled in. A Work
+ * Variable which is still unassigned in the proof is written as is. The
+ * worksheet must then be unified again (see
+ * {@link ProofAsst#proofSearchFromFile}) so that the ordinary unification
+ * validates the steps, including the Distinct Variable restrictions, which
+ * are not checked during the search, and builds the proof.
+ */
+public class ProofSearch {
+
+    /** Order in which the expansions of a goal are tried. */
+    public enum Strategy {
+        /** Assertions in database order, specific conclusions first. */
+        BreadthFirst,
+        /** Expansions with the fewest, then smallest, open subgoals first. */
+        BestFirst
+    }
+
+    /** A proof of a goal: an assertion applied to proofs of its hyps. */
+    private static class ProofNode {
+        /** may contain Work Variables assigned since the proof was built */
+        final ParseNode formula;
+        /** null for a leaf. */
+        final Assrt assrt;
+        /** the worksheet step proving a leaf, else null. */
+        final ProofStepStmt fact;
+        final ProofNode[] hyps;
+        final int depth;
+
+        ProofNode(final ParseNode formula, final ProofStepStmt fact) {
+            this.formula = formula;
+            assrt = null;
+            this.fact = fact;
+            hyps = null;
+            depth = 0;
+        }
+
+        ProofNode(final ParseNode formula, final Assrt assrt,
+            final ProofNode[] hyps)
+        {
+            this.formula = formula;
+            this.assrt = assrt;
+            fact = null;
+            this.hyps = hyps;
+            int d = 0;
+            for (final ProofNode h : hyps)
+                d = Math.max(d, h.depth);
+            depth = d + 1;
+        }
+
+        boolean isGround() {
+            if (!ProofSearch.isGround(formula))
+                return false;
+            if (hyps != null)
+                for (final ProofNode h : hyps)
+                    if (!h.isGround())
+                        return false;
+            return true;
+        }
+    }
+
+    /** Receives the proofs of a goal, in turn. */
+    private interface ProofConsumer {
+        /**
+         * @param proof a proof, valid with the current Work Variable
+         *            assignments
+         * @return true to end the search, keeping the assignments
+         * @throws InterruptedException if the search is interrupted
+         */
+        boolean accept(ProofNode proof) throws InterruptedException;
+    }
+
+    /** Receives the proofs of the subgoals of an expansion, in turn. */
+    private interface HypsConsumer {
+        boolean accept(ProofNode[] hyps) throws InterruptedException;
+    }
+
+    /** Cached outcome of a goal. */
+    private static class Outcome {
+        final ProofNode proof;
+        /** no proof exists of depth less than or equal to this. */
+        final int failedDepth;
+        /** the facts generation the failure is valid for. */
+        final int factGen;
+
+        Outcome(final ProofNode proof) {
+            this.proof = proof;
+            failedDepth = -1;
+            factGen = -1;
+        }
+
+        Outcome(final int failedDepth, final int factGen) {
+            proof = null;
+            this.failedDepth = failedDepth;
+            this.factGen = factGen;
+        }
+    }
+
+    /** ParseNode wrapper for use as a key: deep equality. */
+    private static class GoalKey {
+        final ParseNode root;
+        final int hash;
+
+        GoalKey(final ParseNode root) {
+            this.root = root;
+            hash = root.deepHashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof GoalKey && hash == ((GoalKey)obj).hash
+                && root.isDeepDup(((GoalKey)obj).root);
+        }
+    }
+
+    private final Cnst provableLogicStmtTyp;
+    private final int maxDepth;
+    private final long maxNodes;
+    private final long maxMillis;
+    private final Strategy strategy;
+
+    /** candidate assertions by conclusion root Stmt, in database order */
+    private final Map<Stmt, List<Assrt>> assrtsByRoot = new HashMap<>();
+
+    /** candidate assertions with a variable conclusion, e.g. ax-mp */
+    private final List<Assrt> assrtsWithVarRoot = new ArrayList<>();
+
+    /** the searchers, one per thread; the first one is the calling thread's */
+    private final Searcher[] searchers;
+
+    private final ConcurrentHashMap<GoalKey, Outcome> cache = new ConcurrentHashMap<>();
+
+    // state of the current step's search, read by all threads
+    private int maxSeq;
+    private Map<GoalKey, ProofStepStmt> facts;
+    private List<ProofStepStmt> factList;
+    private int factGen;
+    private long deadline;
+    private final AtomicLong nbrNodes = new AtomicLong();
+    private volatile boolean budgetExhausted;
+
+    private int nbrStepsProved;
+    private int nbrStepsAdded;
+    private long totalNodes;
+
+    /**
+     * Constructor.
+     *
+     * @param assrtList the assertions available for unification, sorted by
+     *            MObj.seq (see
+     *            {@link ProofUnifier#getUnifySearchListByMObjSeq()}).
+     * @param provableLogicStmtTyp the provable logic statement type ("|-").
+     * @param workVarManager the WorkVarManager whose Work Variable definitions
+     *            are used by the search threads.
+     * @param grammar the Grammar.
+     * @param logicalSystem the LogicalSystem.
+     * @param maxDepth maximum number of assertions on a path from an unproved
+     *            step to a leaf.
+     * @param maxNodes maximum number of goal expansions per unproved step.
+     * @param maxMillis maximum search time per unproved step, in milliseconds.
+     * @param nbrThreads number of threads expanding goals, at most the number
+     *            of threads of the {@link SharedExecutor}.
+     * @param strategy order in which expansions are tried.
+     * @throws VerifyException if the Work Variables of the search threads
+     *             cannot be declared.
+     */
+    public ProofSearch(final List<Assrt> assrtList,
+        final Cnst provableLogicStmtTyp, final WorkVarManager workVarManager,
+        final Grammar grammar, final LogicalSystem logicalSystem,
+        final int maxDepth, final long maxNodes, final long maxMillis,
+        final int nbrThreads, final Strategy strategy) throws VerifyException
+    {
+        this.provableLogicStmtTyp = provableLogicStmtTyp;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        this.maxMillis = maxMillis;
+        this.strategy = strategy;
+
+        for (final Assrt assrt : assrtList) {
+            final ParseTree tree = assrt.getExprParseTree();
+            if (tree == null || assrt.getFormula()
+                .getTyp() != provableLogicStmtTyp)
+                continue;
+            final Stmt root = tree.getRoot().stmt;
+            if (root instanceof VarHyp)
+                assrtsWithVarRoot.add(assrt);
+            else
+                assrtsByRoot.computeIfAbsent(root, k -> new ArrayList<>())
+                    .add(assrt);
+        }
+
+        searchers = new Searcher[Math.max(1,
+            Math.min(nbrThreads, SharedExecutor.getNbrThreads()))];
+        for (int i = 0; i < searchers.length; i++) {
+            final WorkVarManager searcherWorkVarManager = new WorkVarManager(
+                workVarManager);
+            searcherWorkVarManager.declareWorkVars(grammar, logicalSystem);
+            searchers[i] = new Searcher(searcherWorkVarManager);
+        }
+    }
+
+    /**
+     * Searches proofs for the unproved derivation steps of a (unified) Proof
+     * Worksheet and writes the proofs found into it.
+     * <p>
+     * Steps are searched in worksheet order, so the steps added for one step
+     * may serve as leaves for the next. Only derivation steps without a Ref
+     * which failed to unify, and whose formula is complete and free of Work
+     * Variables, are searched.
+     *
+     * @param w the Proof Worksheet, already unified.
+     * @param messages the Messages object for the search results.
+     * @return the number of steps proved. If the thread is interrupted, the
+     *         search stops with the steps proved so far written into the
+     *         worksheet, and the thread stays interrupted.
+     */
+    public int searchProofWorksheet(final ProofWorksheet w,
+        final Messages messages)
+    {
+        final List<DerivationStep> targets = new ArrayList<>();
+        for (final ProofWorkStmt s : w.getProofWorkStmtList())
+            if (s instanceof DerivationStep && isSearchable((DerivationStep)s))
+                targets.add((DerivationStep)s);
+        if (targets.isEmpty())
+            return 0;
+
+        maxSeq = w.getMaxSeq();
+        cache.clear();
+        factGen = 0;
+
+        int nbrProved = 0;
+        try {
+            for (final DerivationStep target : targets) {
+                loadFacts(w, target);
+                // the Work Variables of the worksheet, including those of
+                // the proofs written, are not used by the search
+                for (final Searcher searcher : searchers)
+                    searcher.workVarManager.deallocAndReallocAll(w);
+
+                final long start = System.nanoTime();
+                deadline = start + maxMillis * 1000000L;
+                nbrNodes.set(0);
+                budgetExhausted = false;
+
+                ProofNode proof = null;
+                boolean interrupted = false;
+                try {
+                    proof = searchGoal(target.formulaParseTree.getRoot());
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                } finally {
+                    totalNodes += nbrNodes.get();
+                }
+                final long millis = (System.nanoTime() - start) / 1000000L;
+
+                if (interrupted) {
+                    messages.accumException(ProofWorksheet.addLabelContext(w,
+                        PaConstants.ERRMSG_PROOF_SEARCH_INTERRUPTED,
+                        target.getStep(), nbrNodes.get(), millis));
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                if (proof == null) {
+                    messages.accumException(ProofWorksheet.addLabelContext(w,
+                        budgetExhausted
+                            ? PaConstants.ERRMSG_PROOF_SEARCH_BUDGET_EXHAUSTED
+                            : PaConstants.ERRMSG_PROOF_SEARCH_NOT_FOUND,
+                        target.getStep(), nbrNodes.get(), millis));
+                    continue;
+                }
+
+                final int added = writeProof(w, target, proof);
+                nbrProved++;
+                nbrStepsAdded += added;
+                messages.accumException(ProofWorksheet.addLabelContext(w,
+                    PaConstants.ERRMSG_PROOF_SEARCH_FOUND, target.getStep(),
+                    added, nbrNodes.get(), millis));
+            }
+        } finally {
+            nbrStepsProved += nbrProved;
+            facts = null;
+            factList = null;
+            cache.clear();
+        }
+        return nbrProved;
+    }
+
+    /** @return the total number of steps proved so far. */
+    public int getNbrStepsProved() {
+        return nbrStepsProved;
+    }
+
+    /** @return the total number of steps added to worksheets so far. */
+    public int getNbrStepsAdded() {
+        return nbrStepsAdded;
+    }
+
+    /** @return the total number of goal expansions so far. */
+    public long getTotalNodes() {
+        return totalNodes;
+    }
+
+    private static boolean isSearchable(final DerivationStep d) {
+        return d.getRef() == null && d.getLocalRef() == null
+            && d.formulaParseTree != null && d.workVarList == null
+            && (d.unificationStatus == UnificationStatus.NotUnified
+                || d.unificationStatus == UnificationStatus.UnificationError);
+    }
+
+    private static boolean isGround(final ParseNode node) {
+        if (node.stmt instanceof WorkVarHyp)
+            return false;
+        for (final ParseNode child : node.child)
+            if (!isGround(child))
+                return false;
+        return true;
+    }
+
+    /**
+     * Loads the steps preceding the target: the leaves allowed in its proof.
+     * Cached failures stay valid only while this set is unchanged.
+     */
+    private void loadFacts(final ProofWorksheet w, final DerivationStep target) {
+        final Map<GoalKey, ProofStepStmt> newFacts = new HashMap<>();
+        final List<ProofStepStmt> newFactList = new ArrayList<>();
+        for (final ProofWorkStmt s : w.getProofWorkStmtList()) {
+            if (s == target)
+                break;
+            if (!(s instanceof ProofStepStmt))
+                continue;
+            final ProofStepStmt step = (ProofStepStmt)s;
+            if (step.formulaParseTree == null || step.workVarList != null
+                || step instanceof DerivationStep
+                    && ((DerivationStep)step).getLocalRef() != null)
+                continue;
+            if (newFacts.putIfAbsent(new GoalKey(step.formulaParseTree
+                .getRoot()), step) == null)
+                newFactList.add(step);
+        }
+        if (facts == null || !newFacts.keySet().equals(facts.keySet()))
+            factGen++;
+        facts = newFacts;
+        factList = newFactList;
+    }
+
+    /**
+     * Iterative deepening search of an unproved step's formula. At each depth
+     * the expansions of the formula are scanned in parallel, in chunks of one
+     * expansion, and the first proof in the order of the expansions is kept.
+     */
+    private ProofNode searchGoal(final ParseNode goal)
+        throws InterruptedException
+    {
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (isBudgetExhausted())
+                break;
+            final List<Assrt> candidates = searchers[0].getCandidates(goal);
+            final int subDepth = depth - 1;
+            final ProofNode[] found = new ProofNode[1];
+            final OrderedParallelScan<ProofNode, RuntimeException> parallelScan = new OrderedParallelScan<>(
+                candidates.size(), 1, proof -> {
+                    found[0] = proof;
+                    return true;
+                });
+            final int nbrHelpers = Math.min(parallelScan.getNbrHelpers(),
+                searchers.length - 1);
+            final List<OrderedParallelScan.Scanner<ProofNode, RuntimeException>> helperScanners = new ArrayList<>();
+            for (int i = 1; i <= nbrHelpers; i++)
+                helperScanners
+                    .add(searchers[i].getChunkScanner(goal, candidates, subDepth));
+            parallelScan.run(
+                searchers[0].getChunkScanner(goal, candidates, subDepth),
+                helperScanners);
+            if (found[0] != null)
+                return found[0];
+        }
+        return null;
+    }
+
+    private boolean isBudgetExhausted() {
+        if (!budgetExhausted && (nbrNodes.incrementAndGet() > maxNodes
+            || System.nanoTime() > deadline))
+            budgetExhausted = true;
+        return budgetExhausted;
+    }
+
+    /**
+     * The search of one thread, with its own StepUnifier, Work Variables and
+     * Work Variable assignments.
+     */
+    private class Searcher {
+        final WorkVarManager workVarManager;
+        final StepUnifier stepUnifier;
+
+        /** the assignments of the Work Variables, made by the search */
+        final Map<VarHyp, ParseNode> assignments = new HashMap<>();
+
+        /** the Work Variables assigned, in order, for backtracking */
+        final List<VarHyp> assigned = new ArrayList<>();
+
+        /** the Work Variables allocated, in order, for backtracking */
+        final List<WorkVarHyp> allocated = new ArrayList<>();
+
+        Searcher(final WorkVarManager workVarManager) {
+            this.workVarManager = workVarManager;
+            stepUnifier = new StepUnifier(workVarManager);
+        }
+
+        /**
+         * Returns the Scanner of the expansions of a goal without Work
+         * Variables. A Scanner which finds a proof stops.
+         */
+        OrderedParallelScan.Scanner<ProofNode, RuntimeException> getChunkScanner(
+            final ParseNode goal, final List<Assrt> candidates,
+            final int subDepth)
+        {
+            return (from, to) -> {
+                final List<ProofNode> proofs = new ArrayList<>(1);
+                for (int i = from; i < to && proofs.isEmpty()
+                    && !budgetExhausted; i++)
+                {
+                    final Assrt assrt = candidates.get(i);
+                    final int mark = mark();
+                    final ParseNode[] subgoals = unify(goal, assrt);
+                    if (subgoals != null)
+                        proveAll(subgoals, subDepth, hyps -> proofs.add(
+                            resolve(new ProofNode(goal, assrt, hyps))));
+                    undo(mark);
+                }
+                return proofs;
+            };
+        }
+
+        /**
+         * Proves a goal with proofs of at most the given depth.
+         *
+         * @param goal the goal formula's parse tree, may contain Work
+         *            Variables.
+         * @param depth maximum proof depth.
+         * @param consumer receives the proofs found.
+         * @return true if the consumer ended the search.
+         */
+        boolean prove(final ParseNode unresolvedGoal, final int depth,
+            final ProofConsumer consumer) throws InterruptedException
+        {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            final ParseNode goal = resolve(unresolvedGoal);
+            if (isGround(goal)) {
+                // any proof will do
+                final ProofNode proof = proveGround(goal, depth);
+                return proof != null && consumer.accept(proof);
+            }
+
+            final int mark = mark();
+            for (final ProofStepStmt fact : factList) {
+                if (assign(goal, fact.formulaParseTree.getRoot())
+                    && consumer.accept(new ProofNode(goal, fact)))
+                    return true;
+                undo(mark);
+            }
+            if (depth == 0 || goal.stmt instanceof WorkVarHyp
+                || isBudgetExhausted())
+                return false;
+
+            for (final Assrt assrt : getCandidates(goal)) {
+                final ParseNode[] subgoals = unify(goal, assrt);
+                if (subgoals != null && proveAll(subgoals, depth - 1,
+                    hyps -> consumer.accept(new ProofNode(goal, assrt, hyps))))
+                    return true;
+                undo(mark);
+                if (budgetExhausted)
+                    break;
+            }
+            return false;
+        }
+
+        /**
+         * Proves a goal without Work Variables. A proof is cached if it has no
+         * Work Variables left; otherwise its Work Variables stay allocated
+         * until the caller backtracks.
+         *
+         * @param goal the goal formula's parse tree.
+         * @param depth maximum proof depth.
+         * @return the proof, or null.
+         */
+        private ProofNode proveGround(final ParseNode goal, final int depth)
+            throws InterruptedException
+        {
+            final GoalKey key = new GoalKey(goal);
+            final ProofStepStmt fact = facts.get(key);
+            if (fact != null)
+                return new ProofNode(goal, fact);
+            if (depth == 0)
+                return null;
+
+            final Outcome cached = cache.get(key);
+            if (cached != null)
+                if (cached.proof != null) {
+                    if (cached.proof.depth <= depth)
+                        return cached.proof;
+                }
+                else if (cached.factGen == factGen
+                    && cached.failedDepth >= depth)
+                    return null;
+
+            if (isBudgetExhausted())
+                return null;
+
+            final ProofNode[] found = new ProofNode[1];
+            final int mark = mark();
+            for (final Assrt assrt : getCandidates(goal)) {
+                final ParseNode[] subgoals = unify(goal, assrt);
+                if (subgoals != null && proveAll(subgoals, depth - 1, hyps -> {
+                    found[0] = resolve(new ProofNode(goal, assrt, hyps));
+                    return true;
+                }))
+                    break;
+                undo(mark);
+                if (budgetExhausted)
+                    break;
+            }
+
+            final ProofNode proof = found[0];
+            if (proof != null) {
+                if (proof.isGround()) {
+                    undo(mark);
+                    cache.merge(key, new Outcome(proof),
+                        (old, o) -> old.proof != null
+                            && old.proof.depth <= o.proof.depth ? old : o);
+                }
+            }
+            else if (!budgetExhausted)
+                // a search cut short by the budget proves nothing
+                cache.merge(key, new Outcome(depth, factGen),
+                    (old, o) -> old.proof != null || old.factGen == o.factGen
+                        && old.failedDepth >= o.failedDepth ? old : o);
+            return proof;
+        }
+
+        /**
+         * Proves the subgoals of an expansion, those which are only a Work
+         * Variable last, backtracking over the proofs of each subgoal.
+         */
+        private boolean proveAll(final ParseNode[] subgoals, final int depth,
+            final HypsConsumer consumer) throws InterruptedException
+        {
+            final int[] order = new int[subgoals.length];
+            int n = 0;
+            for (int i = 0; i < subgoals.length; i++)
+                if (!(subgoals[i].stmt instanceof WorkVarHyp))
+                    order[n++] = i;
+            for (int i = 0; i < subgoals.length; i++)
+                if (subgoals[i].stmt instanceof WorkVarHyp)
+                    order[n++] = i;
+            return proveFrom(subgoals, order, 0,
+                new ProofNode[subgoals.length], depth, consumer);
+        }
+
+        private boolean proveFrom(final ParseNode[] subgoals, final int[] order,
+            final int i, final ProofNode[] hyps, final int depth,
+            final HypsConsumer consumer) throws InterruptedException
+        {
+            if (i == order.length)
+                return consumer.accept(hyps.clone());
+            final int j = order[i];
+            return prove(subgoals[j], depth, proof -> {
+                hyps[j] = proof;
+                return proveFrom(subgoals, order, i + 1, hyps, depth,
+                    consumer);
+            });
+        }
+
+        /**
+         * Lists the assertions whose conclusion may unify with a goal, in the
+         * order they are to be tried.
+         *
+         * @param goal the goal formula's parse tree, without assigned Work
+         *            Variables.
+         * @return the assertions.
+         */
+        List<Assrt> getCandidates(final ParseNode goal) {
+            final List<Assrt> out = new ArrayList<>();
+            final List<Assrt> specific = assrtsByRoot.get(goal.stmt);
+            if (specific != null)
+                addCandidates(specific, out);
+            addCandidates(assrtsWithVarRoot, out);
+            if (strategy != Strategy.BestFirst)
+                return out;
+
+            // the open subgoals of each expansion: its subgoals which are
+            // not preceding steps
+            final Map<Assrt, int[]> open = new HashMap<>();
+            final int mark = mark();
+            for (final Assrt assrt : out) {
+                final ParseNode[] subgoals = unify(goal, assrt);
+                if (subgoals != null) {
+                    final int[] openCntAndSize = new int[2];
+                    for (final ParseNode subgoal : subgoals) {
+                        final ParseNode resolved = resolve(subgoal);
+                        if (!isGround(resolved)
+                            || !facts.containsKey(new GoalKey(resolved)))
+                        {
+                            openCntAndSize[0]++;
+                            openCntAndSize[1] += resolved
+                                .countParseNodes(false);
+                        }
+                    }
+                    open.put(assrt, openCntAndSize);
+                }
+                undo(mark);
+            }
+            out.removeIf(assrt -> !open.containsKey(assrt));
+            out.sort(Comparator.<Assrt> comparingInt(a -> open.get(a)[0])
+                .thenComparingInt(a -> open.get(a)[1]));
+            return out;
+        }
+
+        private void addCandidates(final List<Assrt> assrts,
+            final List<Assrt> out)
+        {
+            for (final Assrt assrt : assrts) {
+                if (assrt.getSeq() >= maxSeq)
+                    // the list is sorted
+                    break;
+                out.add(assrt);
+            }
+        }
+
+        /**
+         * Unifies a goal with the conclusion of an assertion. The Work
+         * Variables of the assertion's variables which do not occur in the
+         * goal stay allocated, and the Work Variables of the goal are
+         * assigned, until the next {@link #undo}.
+         *
+         * @param goal the goal formula's parse tree, without assigned Work
+         *            Variables.
+         * @param assrt the assertion.
+         * @return the subgoals: the instantiated logical hyps of the
+         *         assertion, or null if the assertion does not unify or if a
+         *         subgoal is the goal itself.
+         */
+        private ParseNode[] unify(final ParseNode goal, final Assrt assrt) {
+            final LogHyp[] logHyps = assrt.getLogHypArray();
+            final ParseNode[] assrtSubst;
+            try {
+                if (!stepUnifier.unifyAndMergeStepFormula(false, assrt, goal))
+                    return null;
+            } catch (final VerifyException e) {
+                // too few Work Variables are left
+                return null;
+            }
+            assrtSubst = stepUnifier
+                .unifyAndMergeHypsUnsorted(new ProofStepStmt[logHyps.length]);
+            if (assrtSubst == null)
+                return null;
+
+            // the Work Variables allocated by the unification were released
+            // by the end of this trial unification
+            for (final ParseNode subst : assrtSubst)
+                if (subst != null)
+                    keepWorkVars(subst);
+
+            final Hyp[] hypArray = assrt.getMandFrame().hypArray;
+            if (!assign(goal, assrt.getExprParseTree().getRoot()
+                .deepCloneApplyingAssrtSubst(hypArray, assrtSubst)))
+                return null;
+
+            final ParseNode[] subgoals = new ParseNode[logHyps.length];
+            for (int i = 0; i < subgoals.length; i++) {
+                subgoals[i] = logHyps[i].getExprParseTree().getRoot()
+                    .deepCloneApplyingAssrtSubst(hypArray, assrtSubst);
+                // a hyp equal to the goal gets us nowhere
+                if (resolve(subgoals[i]).isDeepDup(resolve(goal)))
+                    return null;
+            }
+            return subgoals;
+        }
+
+        private void keepWorkVars(final ParseNode node) {
+            if (node.stmt instanceof WorkVarHyp) {
+                final WorkVarHyp workVarHyp = (WorkVarHyp)node.stmt;
+                if (!workVarManager.isAllocated(workVarHyp.getWorkVar())) {
+                    workVarManager.alloc(workVarHyp.getWorkVar());
+                    allocated.add(workVarHyp);
+                }
+            }
+            else
+                for (final ParseNode child : node.child)
+                    keepWorkVars(child);
+        }
+
+        /**
+         * Assigns the Work Variables of two formulas so that they are equal.
+         * On failure, some Work Variables may be assigned.
+         *
+         * @param a a formula's parse tree.
+         * @param b another formula's parse tree.
+         * @return true if the formulas are now equal.
+         */
+        private boolean assign(final ParseNode a, final ParseNode b) {
+            final ParseNode x = deref(a);
+            final ParseNode y = deref(b);
+            if (x.stmt instanceof WorkVarHyp)
+                return assignWorkVar((VarHyp)x.stmt, y);
+            if (y.stmt instanceof WorkVarHyp)
+                return assignWorkVar((VarHyp)y.stmt, x);
+            if (x.stmt != y.stmt)
+                return false;
+            for (int i = 0; i < x.child.length; i++)
+                if (!assign(x.child[i], y.child[i]))
+                    return false;
+            return true;
+        }
+
+        private boolean assignWorkVar(final VarHyp workVarHyp,
+            final ParseNode node)
+        {
+            if (node.stmt == workVarHyp)
+                return true;
+            if (workVarHyp.getTyp() != node.stmt.getTyp()
+                || occurs(workVarHyp, node))
+                return false;
+            assignments.put(workVarHyp, node);
+            assigned.add(workVarHyp);
+            return true;
+        }
+
+        private boolean occurs(final VarHyp workVarHyp, final ParseNode node) {
+            final ParseNode x = deref(node);
+            if (x.stmt == workVarHyp)
+                return true;
+            for (final ParseNode child : x.child)
+                if (occurs(workVarHyp, child))
+                    return true;
+            return false;
+        }
+
+        private ParseNode deref(ParseNode node) {
+            ParseNode assignment;
+            while (node.stmt instanceof WorkVarHyp
+                && (assignment = assignments.get(node.stmt)) != null)
+                node = assignment;
+            return node;
+        }
+
+        /**
+         * @param node a formula's parse tree
+         * @return the formula with the assigned Work Variables replaced, or
+         *         the input node if none is assigned.
+         */
+        private ParseNode resolve(final ParseNode node) {
+            if (node.stmt instanceof WorkVarHyp) {
+                final ParseNode assignment = assignments.get(node.stmt);
+                return assignment == null ? node : resolve(assignment);
+            }
+            ParseNode[] child = null;
+            for (int i = 0; i < node.child.length; i++) {
+                final ParseNode resolved = resolve(node.child[i]);
+                if (resolved != node.child[i]) {
+                    if (child == null)
+                        child = node.child.clone();
+                    child[i] = resolved;
+                }
+            }
+            return child == null ? node : new ParseNode(node.stmt, child);
+        }
+
+        /**
+         * @param proof a proof
+         * @return the proof with the assigned Work Variables replaced.
+         */
+        private ProofNode resolve(final ProofNode proof) {
+            if (proof.hyps == null)
+                return new ProofNode(resolve(proof.formula), proof.fact);
+            final ProofNode[] hyps = new ProofNode[proof.hyps.length];
+            for (int i = 0; i < hyps.length; i++)
+                hyps[i] = resolve(proof.hyps[i]);
+            return new ProofNode(resolve(proof.formula), proof.assrt, hyps);
+        }
+
+        private int mark() {
+            return assigned.size() << 16 | allocated.size();
+        }
+
+        /**
+         * Undoes the assignments and allocations made since a mark.
+         *
+         * @param mark the value returned by {@link #mark()}
+         */
+        private void undo(final int mark) {
+            final int assignedCnt = mark >>> 16;
+            while (assigned.size() > assignedCnt)
+                assignments.remove(assigned.remove(assigned.size() - 1));
+            final int allocatedCnt = mark & 0xffff;
+            while (allocated.size() > allocatedCnt)
+                workVarManager
+                    .dealloc(allocated.remove(allocated.size() - 1));
+        }
+    }
+
+    /**
+     * Writes a proof into the worksheet: a new derivation step before the
+     * target for every inner node which is not already a preceding step, and
+     * the Hyps and Ref of the target itself.
+     *
+     * @return the number of steps added.
+     */
+    private int writeProof(final ProofWorksheet w, final DerivationStep target,
+        final ProofNode proof)
+    {
+        final Map<GoalKey, ProofStepStmt> written = new HashMap<>(facts);
+
+        final ProofStepStmt[] hyps = new ProofStepStmt[proof.hyps.length];
+        for (int i = 0; i < hyps.length; i++)
+            hyps[i] = writeProofStep(w, target, proof.hyps[i], written);
+
+        final String[] hypSteps = new String[hyps.length];
+        for (int i = 0; i < hyps.length; i++)
+            hypSteps[i] = hyps[i].getStep();
+
+        target.setHypList(hyps);
+        target.setHypStepList(hypSteps);
+        target.setHypFldIncomplete(false);
+        target.setRef(proof.assrt);
+        target.setRefLabel(proof.assrt.getLabel());
+        target.reloadStepHypRefInStmtText();
+        target.reloadLogHypKeysAndMaxDepth();
+
+        return written.size() - facts.size();
+    }
+
+    private ProofStepStmt writeProofStep(final ProofWorksheet w,
+        final DerivationStep target, final ProofNode node,
+        final Map<GoalKey, ProofStepStmt> written)
+    {
+        final GoalKey key = new GoalKey(node.formula);
+        final ProofStepStmt existing = written.get(key);
+        if (existing != null)
+            return existing;
+
+        final ProofStepStmt[] hyps = new ProofStepStmt[node.hyps.length];
+        final String[] hypSteps = new String[hyps.length];
+        for (int i = 0; i < hyps.length; i++) {
+            hyps[i] = writeProofStep(w, target, node.hyps[i], written);
+            hypSteps[i] = hyps[i].getStep();
+        }
+
+        final Formula formula = node.formula.convertToFormula();
+        formula.setTyp(provableLogicStmtTyp);
+        final List<WorkVar> workVarList = new ArrayList<>();
+        node.formula.accumSetOfWorkVarsUsed(workVarList);
+        final DerivationStep d = w.addDerivStep(target, hyps, hypSteps,
+            node.assrt.getLabel(), formula, new ParseTree(node.formula),
+            workVarList.isEmpty() ? null : workVarList);
+        d.setRef(node.assrt);
+        written.put(key, d);
+        return d;
+    }
+}
@@ -74,6 +74,7 @@ import mmj.pa.MacroManager.CallbackType;
 import mmj.pa.PaConstants.*;
 import mmj.pa.StepRequest.StepRequestType;
 import mmj.transforms.TransformationManager;
+import mmj.transforms.TransformationProfile;
 import mmj.verify.*;
 
 /**
@@ -174,6 +175,18 @@ public class ProofUnifier {
 
     private TransformationManager trManager;
 
+    /** The graph of the previous unification, or null. */
+    private StepDependencyGraph stepDependencyGraph;
+
+    /** Assertions scanned by the searches of the last unification. */
+    private int nbrAssrtsScanned;
+
+    /** Time spent in the TransformationManager by the last unification. */
+    private long transformationNanos;
+
+    /** Work done by the TransformationManager in the last unification. */
+    private final TransformationProfile transformationProfile = new TransformationProfile();
+
     public PostUnifyHook postUnifyHook;
 
     /*
@@ -362,12 +375,41 @@ public class ProofUnifier {
         final ProofWorksheet proofWorksheet, final Messages messages,
         final boolean noConvertWV) throws VerifyException
     {
+        unifyAllProofDerivationSteps(proofWorksheet, messages, noConvertWV,
+            null);
+    }
+
+    /**
+     * Unifies the proof steps in a Proof Worksheet, reusing the assertion
+     * search results of steps which are unchanged since the previous
+     * unification.
+     *
+     * @param proofWorksheet proof in progress
+     * @param messages the mmj.lang.Messages object used to store error and
+     *            informational messages.
+     * @param noConvertWV true if we should not replace work vars with dummy
+     *            vars in derivation steps
+     * @param stepDependencyGraph the graph of the previous unification, already
+     *            started for this one (see
+     *            {@link StepDependencyGraph#startUnify}), or null.
+     * @throws VerifyException if unification was unsuccessful
+     */
+    public void unifyAllProofDerivationSteps(
+        final ProofWorksheet proofWorksheet, final Messages messages,
+        final boolean noConvertWV,
+        final StepDependencyGraph stepDependencyGraph) throws VerifyException
+    {
 
         if (!getTablesInitialized())
             throw new IllegalStateException(new ProofAsstException(
                 PaConstants.ERRMSG_UNIFY_TABLES_NOT_INIT));
 
         this.proofWorksheet = proofWorksheet;
+        this.stepDependencyGraph = stepDependencyGraph;
+
+        nbrAssrtsScanned = 0;
+        transformationNanos = 0;
+        transformationProfile.clear();
 
         holdSoftDjVarsErrorList = new ArrayList<>();
 
@@ -572,7 +614,7 @@ public class ProofUnifier {
             if (derivStep.getRef() == null) {
                 if (derivStep.isAutoStep())
                     autoDerivSteps[autoDerivStepsCount++] = derivStep;
-                else
+                else if (!reusePrevSearchOutcome())
                     derivStepsWithEmptyRef[derivStepsWithEmptyRefCount++] = derivStep;
                 continue;
             }
@@ -599,6 +641,46 @@ public class ProofUnifier {
         }
     }
 
+    /**
+     * Reuses the outcome of the previous unification's assertion search for
+     * an empty-Ref derivation step which is unchanged since then.
+     * <p>
+     * If the previous search found an Assrt the step is unified with just that
+     * Assrt (which rebuilds its substitutions for this worksheet); if the
+     * previous search found nothing the step is left un-unified.
+     *
+     * @return true if the search for derivStep can be skipped.
+     * @throws VerifyException if an error occurs
+     */
+    private boolean reusePrevSearchOutcome() throws VerifyException {
+        if (stepDependencyGraph == null)
+            return false;
+
+        if (derivStep.hasDeriveStepFormula() || derivStep.hasDeriveStepHyps()
+            || !stepDependencyGraph.hasPrevSearchOutcome(derivStep))
+        {
+            stepDependencyGraph.markSearched(derivStep, false);
+            return false;
+        }
+
+        final Assrt prevRef = stepDependencyGraph.getPrevSearchRef(derivStep);
+        if (prevRef != null) {
+            assrt = prevRef;
+            assrtNbrLogHyps = assrt.getLogHypArrayLength();
+            if (derivStep.getHypNumber() != assrtNbrLogHyps
+                || !unifyStepWithoutWorkVars().proper()
+                || derivStep.djVarsErrorStatus != DjVarsErrorStatus.None)
+            {
+                // should not happen, but the search will sort it out
+                stepDependencyGraph.markSearched(derivStep, false);
+                return false;
+            }
+        }
+
+        stepDependencyGraph.markSearched(derivStep, true);
+        return true;
+    }
+
     private void autoStepSearchForDuplicates() {
         int nbrCompleted = 0;
         for (int i = 0; i < autoDerivStepsCount; i++) {
@@ -634,6 +716,7 @@ public class ProofUnifier {
                 // halt the scan -- the list is sorted!!!
                 break;
 
+            nbrAssrtsScanned++;
             assrt = a;
             assrtNbrLogHyps = assrt.getLogHypArrayLength();
 
@@ -715,8 +798,14 @@ public class ProofUnifier {
         autoDerivStepsCount -= autoBestResults.size();
 
         for (int i = 0; i < autoDerivStepsCount; i++) {
+            final long startNanos = System.nanoTime();
+            final TransformationProfile startProfile = trManager.getProfile()
+                .copy();
             final List<DerivationStep> list = trManager
                 .tryToFindTransformations(proofWorksheet, autoDerivSteps[i]);
+            transformationNanos += System.nanoTime() - startNanos;
+            transformationProfile.addDifference(trManager.getProfile(),
+                startProfile);
             if (list != null) {
                 for (final DerivationStep d : list) {
                     derivStep = d;
@@ -747,6 +836,7 @@ public class ProofUnifier {
                 // halt the scan -- the list is sorted!!!
                 break;
 
+            nbrAssrtsScanned++;
             assrt = a;
             assrtNbrLogHyps = assrt.getLogHypArrayLength();
 
@@ -2986,6 +3076,36 @@ public class ProofUnifier {
         this.trManager = trManager;
     }
 
+    /** @return the TransformationManager, or null if not enabled. */
+    public TransformationManager getTransformationManager() {
+        return trManager;
+    }
+
+    /**
+     * @return the number of assertions scanned by the unification searches of
+     *         the last unification.
+     */
+    public int getNbrAssrtsScanned() {
+        return nbrAssrtsScanned;
+    }
+
+    /**
+     * @return the time spent by the last unification looking for
+     *         transformations, in nanoseconds.
+     */
+    public long getTransformationNanos() {
+        return transformationNanos;
+    }
+
+    /**
+     * @return the work done by the TransformationManager in the last
+     *         unification, for each kind of transformation. Its times are
+     *         parts of {@link #getTransformationNanos()}.
+     */
+    public TransformationProfile getTransformationProfile() {
+        return transformationProfile;
+    }
+
     public <T extends MMJException> T addStepContext(final T e) {
         return ProofWorksheet.addLabelContext(proofWorksheet, StepContext
             .addStepContext(derivStep == null ? null : derivStep.getStep(), e));
@@ -1317,6 +1317,8 @@ public class ProofWorksheet {
                     && stepRequest.step.equals(stepField))
                 {
                     refField = ((Assrt)stepRequest.param1).getLabel();
+                    if (stepRequest.hypField != null)
+                        hypField = stepRequest.hypField;
                     stepSelectorChoiceRequired = false;
                     stepRequest = null; // done, so null it.
                 }
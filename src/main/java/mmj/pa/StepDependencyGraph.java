@@ -0,0 +1,247 @@
+package mmj.pa;
+
+import java.util.*;
+
+import mmj.lang.Assrt;
+import mmj.lang.Formula;
+import mmj.pa.PaConstants.DjVarsErrorStatus;
+import mmj.pa.PaConstants.UnificationStatus;
+
+/**
+ * StepDependencyGraph remembers the derivation steps (step -> hyp steps) of the
+ * Proof Worksheet produced by the previous unification so that the next
+ * unification of the same theorem can skip work whose inputs have not changed.
+ * <p>
+ * A step is "unchanged" if a step with the same step number existed in the
+ * previous worksheet with the same formula and the same hyp step numbers, and
+ * all of its hyps are, transitively, unchanged.
+ * <p>
+ * At present the only result reused is the outcome of the assertion search
+ * made for a derivation step with no Ref: either the Assrt found, or the fact
+ * that no Assrt unified. The search is by far the most expensive part of
+ * unification, and in a large worksheet with many unproved steps it is
+ * otherwise repeated for every step on every unify. Reusing an Assrt still
+ * re-runs the (fast) unification with that single Assrt so that the
+ * substitutions and proof tree are rebuilt consistently for the new
+ * worksheet.
+ * <p>
+ * Steps involving Work Variables are never reused: the Work Variables are
+ * re-allocated by WorkVarManager on every unification (see
+ * {@link StepUnifier#startProofWorksheet()}), so those steps are always
+ * unified from scratch.
+ * <p>
+ * The graph is discarded whenever the theorem, its location in the database,
+ * its Distinct Variable statements, the Dj Vars soft error setting or the
+ * unify search exclusion settings differ from the previous unification, and
+ * ProofAsst clears it when the set of assertions available for unification
+ * or the auto-transformation settings change.
+ */
+public class StepDependencyGraph {
+
+    private static class Node {
+        final String formula;
+        final String[] hyps;
+        boolean searched;
+        Assrt searchRef;
+
+        Node(final String formula, final String[] hyps) {
+            this.formula = formula;
+            this.hyps = hyps;
+        }
+    }
+
+    private String contextKey;
+
+    private Map<String, Node> prevNodes = new HashMap<>();
+
+    private final Map<ProofStepStmt, Boolean> unchangedMemo = new IdentityHashMap<>();
+
+    /**
+     * Empty-Ref derivation steps sent to the assertion search in the current
+     * unification, with their formula as of the search.
+     */
+    private final Map<DerivationStep, String> searchedSteps = new IdentityHashMap<>();
+
+    private int nbrSearchesReused;
+
+    /**
+     * Discards everything remembered about the previous unification.
+     */
+    public void clear() {
+        contextKey = null;
+        prevNodes = new HashMap<>();
+        unchangedMemo.clear();
+        searchedSteps.clear();
+    }
+
+    /**
+     * Prepares for the unification of a Proof Worksheet.
+     *
+     * @param w the Proof Worksheet about to be unified.
+     */
+    public void startUnify(final ProofWorksheet w) {
+        final String newContextKey = buildContextKey(w);
+        if (!newContextKey.equals(contextKey)) {
+            clear();
+            contextKey = newContextKey;
+        }
+        unchangedMemo.clear();
+        searchedSteps.clear();
+        nbrSearchesReused = 0;
+    }
+
+    /**
+     * Rebuilds the graph from the just-unified Proof Worksheet, keeping the
+     * assertion search outcomes of the steps that were searched (or reused a
+     * previous search).
+     *
+     * @param w the Proof Worksheet just unified.
+     */
+    public void endUnify(final ProofWorksheet w) {
+        final Map<String, Node> nodes = new HashMap<>();
+        for (final ProofWorkStmt s : w.getProofWorkStmtList()) {
+            if (!(s instanceof ProofStepStmt))
+                continue;
+            final ProofStepStmt step = (ProofStepStmt)s;
+            final Node node = new Node(getFormulaString(step),
+                getHypSteps(step));
+            if (step instanceof DerivationStep)
+                loadSearchOutcome(node, (DerivationStep)step);
+            nodes.put(step.getStep(), node);
+        }
+        prevNodes = nodes;
+        unchangedMemo.clear();
+        searchedSteps.clear();
+    }
+
+    /**
+     * Returns true if the previous unification searched the assertions for
+     * this (unchanged) step, in which case {@link #getPrevSearchRef} holds the
+     * outcome.
+     *
+     * @param d an empty-Ref derivation step.
+     * @return true if the previous search outcome may be reused.
+     */
+    public boolean hasPrevSearchOutcome(final DerivationStep d) {
+        final Node node = prevNodes.get(d.getStep());
+        return node != null && node.searched && isUnchanged(d);
+    }
+
+    /**
+     * Returns the Assrt found by the previous search for this step.
+     *
+     * @param d an empty-Ref derivation step for which
+     *            {@link #hasPrevSearchOutcome} is true.
+     * @return the Assrt found, or null if no Assrt unified with the step.
+     */
+    public Assrt getPrevSearchRef(final DerivationStep d) {
+        return prevNodes.get(d.getStep()).searchRef;
+    }
+
+    /**
+     * Notes that an empty-Ref derivation step is handled by the assertion
+     * search in this unification (or by reusing the previous search).
+     *
+     * @param d the derivation step.
+     * @param reused true if the outcome of the previous search was reused.
+     */
+    public void markSearched(final DerivationStep d, final boolean reused) {
+        searchedSteps.put(d, getSearchKey(d));
+        if (reused)
+            nbrSearchesReused++;
+    }
+
+    /**
+     * @return the number of assertion searches skipped during the current (or
+     *         last) unification.
+     */
+    public int getNbrSearchesReused() {
+        return nbrSearchesReused;
+    }
+
+    private void loadSearchOutcome(final Node node, final DerivationStep d) {
+        final String searchedKey = searchedSteps.get(d);
+
+        // the formula or hyps were revised after the search, so the
+        // outcome does not describe the step as it now stands.
+        if (searchedKey == null || !searchedKey.equals(getSearchKey(d)))
+            return;
+
+        if (d.unificationStatus == UnificationStatus.NotUnified) {
+            node.searched = true;
+            node.searchRef = null;
+        }
+        else if ((d.unificationStatus.proper
+            || d.unificationStatus == UnificationStatus.UnifiedWIncompleteHyps)
+            && d.getRef() instanceof Assrt
+            && d.djVarsErrorStatus == DjVarsErrorStatus.None
+            && (d.alternateRefList == null || d.alternateRefList.isEmpty()))
+        {
+            node.searched = true;
+            node.searchRef = (Assrt)d.getRef();
+        }
+    }
+
+    private boolean isUnchanged(final ProofStepStmt step) {
+        final Boolean memo = unchangedMemo.get(step);
+        if (memo != null)
+            return memo;
+
+        // guards against (invalid) hyp loops
+        unchangedMemo.put(step, Boolean.FALSE);
+
+        boolean unchanged = false;
+        final Node node = prevNodes.get(step.getStep());
+        if (node != null && node.formula.equals(getFormulaString(step))
+            && Arrays.equals(node.hyps, getHypSteps(step)))
+        {
+            unchanged = true;
+            if (step instanceof DerivationStep)
+                for (final ProofStepStmt hyp : ((DerivationStep)step)
+                    .getHypList())
+                    if (hyp == null || !isUnchanged(hyp)) {
+                        unchanged = false;
+                        break;
+                    }
+        }
+
+        unchangedMemo.put(step, unchanged);
+        return unchanged;
+    }
+
+    private static String buildContextKey(final ProofWorksheet w) {
+        final ProofAsstPreferences prefs = w.proofAsstPreferences;
+        final StringBuilder sb = new StringBuilder();
+        sb.append(w.getTheoremLabel()).append('\n');
+        sb.append(w.getMaxSeq()).append('\n');
+        sb.append(prefs.djVarsSoftErrors.get()).append('\n');
+        sb.append(new TreeSet<>(prefs.unifySearchExclude.get())).append('\n');
+        sb.append(prefs.excludeDiscouraged.get()).append('\n');
+        for (int i = 0; i < w.dvStmtCnt; i++)
+            sb.append(w.dvStmtArray[i].getStmtText()).append('\n');
+        return sb.toString();
+    }
+
+    private static String getFormulaString(final ProofStepStmt step) {
+        final Formula formula = step.getFormula();
+        return formula == null ? "" : formula.toString();
+    }
+
+    private static String[] getHypSteps(final ProofStepStmt step) {
+        if (!(step instanceof DerivationStep))
+            return new String[0];
+        final ProofStepStmt[] hypList = ((DerivationStep)step).getHypList();
+        final String[] hyps = new String[hypList.length];
+        for (int i = 0; i < hyps.length; i++)
+            hyps[i] = hypList[i] == null ? PaConstants.DEFAULT_STMT_LABEL
+                : hypList[i].getStep();
+        return hyps;
+    }
+
+    private static String getSearchKey(final DerivationStep d) {
+        final StringBuilder sb = new StringBuilder(getFormulaString(d));
+        for (final ProofStepStmt hyp : d.getHypList())
+            sb.append('\n').append(hyp == null ? "" : getFormulaString(hyp));
+        return sb.toString();
+    }
+}
@@ -24,6 +24,12 @@ public class StepRequest {
     public String step;
     public Object param1;
 
+    /**
+     * For a SelectorChoice, the Hyp field to give the step with the chosen
+     * assertion, or null to keep its Hyp field.
+     */
+    public String hypField;
+
     /**
      * Constructor for StepRequest
      *
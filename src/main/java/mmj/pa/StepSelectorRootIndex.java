@@ -0,0 +1,167 @@
+package mmj.pa;
+
+import java.util.*;
+
+import mmj.lang.*;
+import mmj.util.MergeSortedArrayLists;
+
+/**
+ * An index of the Step Selector assertions by number of logical hypotheses and
+ * by the syntax axiom at the root of the conclusion.
+ * <p>
+ * A derivation step whose formula has a syntax axiom at its root only unifies
+ * with the assertions whose conclusion has the same syntax axiom at its root,
+ * or is a bare variable. The assertions whose conclusion is a bare variable
+ * (or has no parse tree) are kept in a separate "wildcard" list, which is
+ * searched for every step.
+ * <p>
+ * Every list of the index is sorted by {@link Assrt#NBR_LOG_HYP_SEQ}, like the
+ * list of assertions of the StepSelectorSearch.
+ */
+class StepSelectorRootIndex {
+
+    /** The assertions with a given number of logical hypotheses */
+    private static class Band {
+        private final Map<Stmt, ArrayList<Assrt>> byRoot = new HashMap<>();
+        private final ArrayList<Assrt> anyRoot = new ArrayList<>();
+
+        /*
+         * The candidates of the step roots searched so far: byRoot merged
+         * with anyRoot. Cleared when assertions are added.
+         */
+        private final Map<Stmt, List<Assrt>> candidates = new HashMap<>();
+
+        List<Assrt> getCandidates(final Stmt stepRootStmt) {
+            List<Assrt> list = candidates.get(stepRootStmt);
+            if (list == null) {
+                final List<Assrt> rootList = byRoot.get(stepRootStmt);
+                if (rootList == null)
+                    list = anyRoot;
+                else {
+                    final ArrayList<Assrt> merged = new ArrayList<>(
+                        rootList.size() + anyRoot.size());
+                    merged.addAll(anyRoot);
+                    new MergeSortedArrayLists<>(merged, rootList,
+                        Assrt.NBR_LOG_HYP_SEQ, true); // abortIfDupsFound
+                    list = merged;
+                }
+                candidates.put(stepRootStmt, list);
+            }
+            return list;
+        }
+    }
+
+    private final TreeMap<Integer, Band> bands = new TreeMap<>();
+
+    /**
+     * Constructor for StepSelectorRootIndex
+     *
+     * @param assrtList the assertions, sorted by Assrt.NBR_LOG_HYP_SEQ
+     */
+    StepSelectorRootIndex(final List<? extends Assrt> assrtList) {
+        add(assrtList);
+    }
+
+    /**
+     * Adds assertions to the index.
+     *
+     * @param assrtList the assertions, sorted by Assrt.NBR_LOG_HYP_SEQ
+     */
+    void add(final List<? extends Assrt> assrtList) {
+        final Map<ArrayList<Assrt>, List<Assrt>> adds = //
+            new IdentityHashMap<>();
+        for (final Assrt assrt : assrtList) {
+            Band band = bands.get(assrt.getLogHypArrayLength());
+            if (band == null) {
+                band = new Band();
+                bands.put(assrt.getLogHypArrayLength(), band);
+            }
+            band.candidates.clear();
+            final Stmt root = getRootStmt(assrt);
+            ArrayList<Assrt> list = band.anyRoot;
+            if (root != null) {
+                list = band.byRoot.get(root);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    band.byRoot.put(root, list);
+                }
+            }
+            List<Assrt> addList = adds.get(list);
+            if (addList == null) {
+                addList = new ArrayList<>();
+                adds.put(list, addList);
+            }
+            addList.add(assrt);
+        }
+        for (final Map.Entry<ArrayList<Assrt>, List<Assrt>> e : adds
+            .entrySet())
+            if (e.getKey().isEmpty())
+                e.getKey().addAll(e.getValue());
+            else
+                new MergeSortedArrayLists<>(e.getKey(), e.getValue(),
+                    Assrt.NBR_LOG_HYP_SEQ, true); // abortIfDupsFound
+    }
+
+    /**
+     * @param assrt an assertion
+     * @return the syntax axiom at the root of the conclusion, or null if the
+     *         conclusion is a bare variable or has no parse tree
+     */
+    private static Stmt getRootStmt(final Assrt assrt) {
+        final ParseTree parseTree = assrt.getExprParseTree();
+        if (parseTree == null || parseTree.getRoot() == null
+            || parseTree.getRoot().stmt instanceof VarHyp)
+            return null;
+        return parseTree.getRoot().stmt;
+    }
+
+    /**
+     * Builds the list of the assertions which may unify with a step: for each
+     * number of logical hypotheses from minHyps to maxHyps, the assertions
+     * with this number of hypotheses which precede the Proof Worksheet and
+     * whose conclusion has the given root or is a bare variable.
+     *
+     * @param minHyps the minimum number of logical hypotheses
+     * @param maxHyps the maximum number of logical hypotheses
+     * @param maxSeq the MObj seq of the Proof Worksheet
+     * @param stepRootStmt the Stmt at the root of the step formula
+     * @return the list of the candidate assertions, sorted by
+     *         Assrt.NBR_LOG_HYP_SEQ
+     */
+    List<Assrt> getCandidates(final int minHyps, final int maxHyps,
+        final int maxSeq, final Stmt stepRootStmt)
+    {
+        final List<Assrt> candidates = new ArrayList<>();
+        if (minHyps > maxHyps)
+            return candidates;
+        for (final Band band : bands.subMap(minHyps, true, maxHyps, true)
+            .values())
+        {
+            final List<Assrt> list = band.getCandidates(stepRootStmt);
+            candidates.addAll(
+                list.subList(0, findFirstSeqNotBelow(list, maxSeq)));
+        }
+        return candidates;
+    }
+
+    /**
+     * @param list a list of assertions sorted by seq
+     * @param seq the seq
+     * @return the index of the first assertion of the list with a seq not
+     *         below the given seq, or the size of the list
+     */
+    private static int findFirstSeqNotBelow(final List<Assrt> list,
+        final int seq)
+    {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            final int mid = low + (high - low) / 2;
+            if (list.get(mid).getSeq() < seq)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
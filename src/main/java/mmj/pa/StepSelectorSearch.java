@@ -27,12 +27,23 @@ import java.util.*;
 
 import mmj.lang.*;
 import mmj.util.MergeSortedArrayLists;
+import mmj.util.OrderedParallelScan;
+import mmj.util.SharedExecutor;
 import mmj.verify.VerifyException;
 import mmj.verify.VerifyProofs;
 
 /**
  * StepSelectorSearch builds StepSelectorResults for a single derivation proof
  * step.
+ * <p>
+ * A long list of assertions is scanned in chunks by several threads, each one
+ * with its own StepUnifier, Work Variables and VerifyProofs. The Work
+ * Variables of a thread are allocated like those of the Proof Worksheet, so
+ * the substitutions shown are the same. The results of the chunks are merged
+ * in order, so they are those of a single-threaded scan. A step with Work
+ * Variables in its formula or its hypotheses is scanned by one thread, since
+ * the substitutions to the Work Variables of the Proof Worksheet are stored in
+ * the Work Variables themselves.
  */
 public class StepSelectorSearch {
 
@@ -47,18 +58,23 @@ public class StepSelectorSearch {
 //  private Assrt[]                assrtArray;
     private final ArrayList<Assrt> assrtAList;
 
+    /*
+     * assrtAList indexed by the root of the conclusions.
+     */
+    private final StepSelectorRootIndex rootIndex;
+
+    /*
+     * The Scans of the helper threads, kept for the next searches.
+     */
+    private final List<Scan> helperScans = new ArrayList<>();
+
     /*
      * these instance variables are "global" work items
      * stored here for convenience.
      */
     private DerivationStep derivStep;
-    private ProofStepStmt[] derivStepHypArray;
-
-    private Assrt assrt;
-    private int assrtNbrLogHyps;
-    private Hyp[] assrtHypArray;
-    private LogHyp[] assrtLogHypArray;
-    private ParseNode[] assrtSubst;
+    private ProofStepStmt[] derivStepSortedHypArray;
+    private int nbrDerivStepHyps;
 
     /**
      * Constructor for StepSelectorSearch
@@ -93,6 +109,8 @@ public class StepSelectorSearch {
         assrtAList.addAll(unifySearchList);
 
         Collections.sort(assrtAList, Assrt.NBR_LOG_HYP_SEQ);
+
+        rootIndex = new StepSelectorRootIndex(assrtAList);
     }
 
     public void mergeListOfAssrtAddsSortedBySeq(
@@ -106,6 +124,8 @@ public class StepSelectorSearch {
 
         new MergeSortedArrayLists<>(assrtAList, addList, Assrt.NBR_LOG_HYP_SEQ,
             true); // abortIfDupsFound
+
+        rootIndex.add(addList);
     }
 
     /**
@@ -124,8 +144,6 @@ public class StepSelectorSearch {
         final DerivationStep derivStep) throws VerifyException
     {
 
-        boolean storeOverflow = false;
-
         this.derivStep = derivStep;
 
         final int maxSeq = derivStep.w.getMaxSeq();
@@ -135,7 +153,7 @@ public class StepSelectorSearch {
 
         /* count and double-check input
          */
-        int nbrDerivStepHyps = 0;
+        nbrDerivStepHyps = 0;
         for (final ProofStepStmt element : derivStep.getHypList()) {
             if (element == null)
                 continue;
@@ -151,12 +169,7 @@ public class StepSelectorSearch {
 
         /* Now sort to avoid worst case search time
          */
-        final ProofStepStmt[] derivStepSortedHypArray = derivStep
-            .getSortedHypArray();
-
-        /*  Binary search for 1st Assrt w/correct number of log hyps.
-         */
-        int assrtIndex = computeSearchStart(nbrDerivStepHyps);
+        derivStepSortedHypArray = derivStep.getSortedHypArray();
 
         /* See if log hyp "wildcards" to be searched.
          */
@@ -170,41 +183,27 @@ public class StepSelectorSearch {
            and if there are "wildcards" (e.g. "2,?,1" or "2,,1")
            then we search assertions with n->9999999 log hyps
          */
-        int hypIndex = nbrDerivStepHyps;
-        hypLoop: while (hypIndex <= maxHyps) {
-            /* Copy sorted array to new array whose size matches
-               the size of the assertion hyp arrays -- note that
-               "null" hyps are at the end due to the sort, so
-               we lose nothing here...
-             */
-            derivStepHypArray = new ProofStepStmt[hypIndex];
-            for (int i = 0; i < nbrDerivStepHyps; i++)
-                derivStepHypArray[i] = derivStepSortedHypArray[i];
-
-            while (assrtIndex < assrtAList.size()) {
-                assrt = assrtAList.get(assrtIndex);
-                if (assrt.getSeq() < maxSeq) {
-                    assrtNbrLogHyps = assrt.getLogHypArrayLength();
-                    if (assrtNbrLogHyps != hypIndex) {
-                        hypIndex++;
-                        continue hypLoop;
-                    }
-                    if (isAssrtUnifiable())
-                        if (addAssrtToStore(store)) { // isFull()
-                            storeOverflow = true;
-                            break hypLoop;
-                        }
-                }
-                else if (hypIndex < // 95% of Assrts
-                PaConstants.STEP_SELECTOR_SEARCH_HYP_LOOKUP_MAX) {
-                    hypIndex++; // so skip forward
-                    assrtIndex = computeSearchStart(hypIndex);
-                    continue hypLoop;
-                }
-                assrtIndex++;
-            }
-            break;
-        }
+        /* A step whose formula has a syntax axiom at its root only unifies
+           with the assertions whose conclusion has the same root or is a
+           bare variable, but a Work Variable or a missing formula unifies
+           with every conclusion.
+         */
+        final ParseNode stepRoot = derivStep.formulaParseTree == null ? null
+            : derivStep.formulaParseTree.getRoot();
+        final List<Assrt> scanList = stepRoot == null
+            || stepRoot.stmt instanceof WorkVarHyp
+                ? buildScanList(nbrDerivStepHyps, maxHyps, maxSeq)
+                : rootIndex.getCandidates(nbrDerivStepHyps, maxHyps, maxSeq,
+                    stepRoot.stmt);
+
+        boolean storeOverflow;
+        if (scanList.size() >= PaConstants.STEP_SELECTOR_PARALLEL_MIN_ASSRTS
+            && SharedExecutor.getNbrThreads() > 1
+            && !derivStep.hasWorkVarsInStepOrItsHyps())
+            storeOverflow = scanInParallel(scanList, store);
+        else
+            storeOverflow = new Scan(stepUnifier, verifyProofs, false).scan(
+                scanList, 0, scanList.size(), store);
 
         return store.createStepSelectorResults(derivStep.getStep(),
             storeOverflow);
@@ -214,6 +213,53 @@ public class StepSelectorSearch {
         return assrtAList;
     }
 
+    /**
+     * Builds the list of the assertions to scan: for each number of logical
+     * hypotheses from minHyps to maxHyps, the assertions of assrtAList with
+     * this number of hypotheses which precede the Proof Worksheet.
+     *
+     * @param minHyps the minimum number of logical hypotheses
+     * @param maxHyps the maximum number of logical hypotheses
+     * @param maxSeq the MObj seq of the Proof Worksheet
+     * @return the list of the assertions to scan, in assrtAList order
+     */
+    private List<Assrt> buildScanList(final int minHyps, final int maxHyps,
+        final int maxSeq)
+    {
+        final List<Assrt> scanList = new ArrayList<>();
+        int start = computeSearchStart(minHyps);
+        while (start < assrtAList.size()) {
+            final int nbrHyps = assrtAList.get(start).getLogHypArrayLength();
+            if (nbrHyps > maxHyps)
+                break;
+            final int end = Math.min(computeSearchStart(nbrHyps + 1),
+                assrtAList.size());
+            scanList.addAll(
+                assrtAList.subList(start, findFirstSeqNotBelow(start, end,
+                    maxSeq)));
+            start = end;
+        }
+        return scanList;
+    }
+
+    /**
+     * @param low the start of a range of assrtAList sorted by seq
+     * @param high the end of the range
+     * @param seq the seq
+     * @return the index of the first assertion of the range with a seq not
+     *         below the given seq, or the end of the range
+     */
+    private int findFirstSeqNotBelow(int low, int high, final int seq) {
+        while (low < high) {
+            final int mid = low + (high - low) / 2;
+            if (assrtAList.get(mid).getSeq() < seq)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
     /**
      * Boolean search of assrtArray using partial key to find starting position
      * for scan of Assertions.
@@ -268,109 +314,269 @@ public class StepSelectorSearch {
         return ++mid;
     }
 
-    private boolean isAssrtUnifiable() throws VerifyException {
 
-        if (unifyStepFormulaWithWorkVars()) {
+    /**
+     * Scans the assertions in chunks, claimed in order by the current thread
+     * and by helper tasks, each with its own Scan (see
+     * {@link OrderedParallelScan}). The results of the chunks are merged in
+     * order into the store, and the scan stops as soon as the store is full.
+     * <p>
+     * If the current thread is interrupted, the scan stops, with the results
+     * merged so far, and the thread is left interrupted.
+     *
+     * @param scanList the assertions to scan
+     * @param store the store
+     * @return true if the store is full
+     * @throws VerifyException if not enough allocatable WorkVars.
+     */
+    private boolean scanInParallel(final List<Assrt> scanList,
+        final StepSelectorStore store) throws VerifyException
+    {
+        final OrderedParallelScan<StepSelectorItem, VerifyException> parallelScan = new OrderedParallelScan<>(
+            scanList.size(), PaConstants.STEP_SELECTOR_PARALLEL_CHUNK_SIZE,
+            item -> store.add(item.assrt, item.selection));
+        final List<OrderedParallelScan.Scanner<StepSelectorItem, VerifyException>> helperScanners = new ArrayList<>();
+        for (final Scan scan : borrowHelperScans(parallelScan.getNbrHelpers()))
+            helperScanners.add(scan.getChunkScanner(scanList));
+        boolean settled = false;
+        try {
+            parallelScan.run(new Scan(stepUnifier, verifyProofs, true)
+                .getChunkScanner(scanList), helperScanners);
+            settled = true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!settled) // a helper may still be scanning a chunk
+                helperScans.clear();
+        }
+        return store.isFull();
+    }
 
-            if (assrtNbrLogHyps == 0) {
-                assrtSubst = stepUnifier.finalizeAndLoadAssrtSubst();
-                return true;
-            }
+    /**
+     * Returns the Scans of the helper tasks, with the Work Variables allocated
+     * like those of the Proof Worksheet. The Scans are created on the current
+     * thread, because declaring Work Variables updates the type codes.
+     *
+     * @param nbrHelpers the number of helper tasks
+     * @return the Scans
+     * @throws VerifyException if the Work Variables cannot be declared
+     */
+    private List<Scan> borrowHelperScans(final int nbrHelpers)
+        throws VerifyException
+    {
+        final WorkVarManager workVarManager = proofAsstPreferences
+            .getWorkVarManager();
+        for (final Iterator<Scan> i = helperScans.iterator(); i.hasNext();) {
+            final Scan scan = i.next();
+            if (scan.workVarManager.copyAllocations(workVarManager))
+                scan.derivStepHypArray = null; // hyps of the previous step
+            else
+                i.remove();
+        }
+        while (helperScans.size() < nbrHelpers) {
+            final WorkVarManager helperWorkVarManager = new WorkVarManager(
+                workVarManager);
+            helperWorkVarManager.declareWorkVars(derivStep.w.grammar,
+                derivStep.w.logicalSystem);
+            helperWorkVarManager.copyAllocations(workVarManager);
+            helperScans.add(new Scan(new StepUnifier(helperWorkVarManager),
+                new VerifyProofs(), true));
+        }
+        return helperScans.subList(0, nbrHelpers);
+    }
 
-            if ((assrtSubst = stepUnifier.unifyAndMergeHypsSorted(
-                assrt.getSortedLogHypArray(), derivStepHypArray)) != null)
-                return true;
+    /**
+     * The unification of the assertions of a scan with the derivation step,
+     * with the data of the current assertion. Each thread of a parallel scan
+     * has its own Scan.
+     */
+    private class Scan {
+        private final StepUnifier stepUnifier;
+        private final VerifyProofs verifyProofs;
+        private final WorkVarManager workVarManager;
+
+        /*
+         * The substitutions share the nodes of the derivation step, which
+         * converting a formula to RPN updates, so a parallel Scan converts a
+         * copy.
+         */
+        private final boolean parallel;
+
+        private ProofStepStmt[] derivStepHypArray;
+        private Assrt assrt;
+        private int assrtNbrLogHyps;
+        private Hyp[] assrtHypArray;
+        private LogHyp[] assrtLogHypArray;
+        private ParseNode[] assrtSubst;
+
+        Scan(final StepUnifier stepUnifier, final VerifyProofs verifyProofs,
+            final boolean parallel)
+        {
+            this.stepUnifier = stepUnifier;
+            this.verifyProofs = verifyProofs;
+            this.parallel = parallel;
+            workVarManager = stepUnifier.getWorkVarManager();
         }
 
-        return false;
-    }
+        /**
+         * Returns the Scanner of the chunks of a parallel scan, which unifies
+         * each chunk into its own store.
+         *
+         * @param list the assertions
+         * @return the Scanner
+         */
+        OrderedParallelScan.Scanner<StepSelectorItem, VerifyException> getChunkScanner(
+            final List<Assrt> list)
+        {
+            return (from, to) -> {
+                final StepSelectorStore chunkStore = StepSelectorStore
+                    .createStepSelectorStore(proofAsstPreferences);
+                scan(list, from, to, chunkStore);
+                return chunkStore.getItems();
+            };
+        }
 
-    // cloned from ProofUnifier.java
-    private boolean unifyStepFormulaWithWorkVars() throws VerifyException {
+        /**
+         * Unifies a range of assertions with the derivation step, and adds the
+         * unifiable ones to a store.
+         *
+         * @param list the assertions
+         * @param from the start of the range
+         * @param to the end of the range
+         * @param store the store
+         * @return true if the store is full
+         * @throws VerifyException if not enough allocatable WorkVars.
+         */
+        boolean scan(final List<Assrt> list, final int from, final int to,
+            final StepSelectorStore store) throws VerifyException
+        {
+            for (int i = from; i < to; i++) {
+                assrt = list.get(i);
+                assrtNbrLogHyps = assrt.getLogHypArrayLength();
+                if (derivStepHypArray == null
+                    || derivStepHypArray.length != assrtNbrLogHyps)
+                {
+                    /* Copy sorted array to new array whose size matches
+                       the size of the assertion hyp arrays -- note that
+                       "null" hyps are at the end due to the sort, so
+                       we lose nothing here...
+                     */
+                    derivStepHypArray = new ProofStepStmt[assrtNbrLogHyps];
+                    for (int j = 0; j < nbrDerivStepHyps; j++)
+                        derivStepHypArray[j] = derivStepSortedHypArray[j];
+                }
+                if (isAssrtUnifiable() && addAssrtToStore(store)) // isFull()
+                    return true;
+            }
+            return false;
+        }
 
-        assrtHypArray = assrt.getMandFrame().hypArray;
-        assrtLogHypArray = assrt.getLogHypArray();
-        assrt.getExprParseTree().getRoot();
+        private boolean isAssrtUnifiable() throws VerifyException {
 
-        ParseNode stepRoot = null;
-        if (derivStep.formulaParseTree != null)
-            stepRoot = derivStep.formulaParseTree.getRoot();
-        return stepUnifier.unifyAndMergeStepFormula(/* commit = */false, assrt,
-            stepRoot);
-    }
+            if (unifyStepFormulaWithWorkVars()) {
 
-    private boolean addAssrtToStore(final StepSelectorStore store) {
+                if (assrtNbrLogHyps == 0) {
+                    assrtSubst = stepUnifier.finalizeAndLoadAssrtSubst();
+                    return true;
+                }
+
+                if ((assrtSubst = stepUnifier.unifyAndMergeHypsSorted(
+                    assrt.getSortedLogHypArray(), derivStepHypArray)) != null)
+                    return true;
+            }
 
-        final String[] lineArray = new String[1 + assrtNbrLogHyps];
+            return false;
+        }
 
-        int cntLines = 0;
+        // cloned from ProofUnifier.java
+        private boolean unifyStepFormulaWithWorkVars() throws VerifyException {
 
-        Formula conclusionFormula;
-        if (proofAsstPreferences.stepSelectorShowSubstitutions.get())
-            conclusionFormula = buildStepSelectionSubstFormula(
-                assrt.getExprParseTree());
-        else
-            conclusionFormula = assrt.getFormula();
+            assrtHypArray = assrt.getMandFrame().hypArray;
+            assrtLogHypArray = assrt.getLogHypArray();
+            assrt.getExprParseTree().getRoot();
 
-        final Formula[] logHypFormula = new Formula[assrtNbrLogHyps];
-        for (int i = 0; i < assrtNbrLogHyps; i++)
+            ParseNode stepRoot = null;
+            if (derivStep.formulaParseTree != null)
+                stepRoot = derivStep.formulaParseTree.getRoot();
+            return stepUnifier.unifyAndMergeStepFormula(/* commit = */false, assrt,
+                stepRoot);
+        }
+
+        private boolean addAssrtToStore(final StepSelectorStore store) {
+
+            final String[] lineArray = new String[1 + assrtNbrLogHyps];
+
+            int cntLines = 0;
+
+            Formula conclusionFormula;
             if (proofAsstPreferences.stepSelectorShowSubstitutions.get())
-                logHypFormula[i] = buildStepSelectionSubstFormula(
-                    assrtLogHypArray[i].getExprParseTree());
+                conclusionFormula = buildStepSelectionSubstFormula(
+                    assrt.getExprParseTree());
             else
-                logHypFormula[i] = assrtLogHypArray[i].getFormula();
+                conclusionFormula = assrt.getFormula();
 
-        StringBuilder sb;
-        if (assrtNbrLogHyps == 0) {
+            final Formula[] logHypFormula = new Formula[assrtNbrLogHyps];
+            for (int i = 0; i < assrtNbrLogHyps; i++)
+                if (proofAsstPreferences.stepSelectorShowSubstitutions.get())
+                    logHypFormula[i] = buildStepSelectionSubstFormula(
+                        assrtLogHypArray[i].getExprParseTree());
+                else
+                    logHypFormula[i] = assrtLogHypArray[i].getFormula();
 
-            sb = new StringBuilder(conclusionFormula.getCnt() * 4 // guess
-                + 10); // guess
-            sb.append(assrt.getLabel());
-            sb.append(PaConstants.STEP_SELECTOR_FORMULA_LABEL_SEPARATOR);
-            sb.append(conclusionFormula.toString());
-            lineArray[cntLines++] = sb.toString();
-        }
+            StringBuilder sb;
+            if (assrtNbrLogHyps == 0) {
+
+                sb = new StringBuilder(conclusionFormula.getCnt() * 4 // guess
+                    + 10); // guess
+                sb.append(assrt.getLabel());
+                sb.append(PaConstants.STEP_SELECTOR_FORMULA_LABEL_SEPARATOR);
+                sb.append(conclusionFormula.toString());
+                lineArray[cntLines++] = sb.toString();
+            }
 
-        else {
+            else {
 
-            sb = new StringBuilder(logHypFormula[0].getCnt() * 4 + 10);
-            sb.append(assrt.getLabel());
-            sb.append(PaConstants.STEP_SELECTOR_FORMULA_LABEL_SEPARATOR);
-            sb.append(logHypFormula[0].toString());
-            lineArray[cntLines++] = sb.toString();
+                sb = new StringBuilder(logHypFormula[0].getCnt() * 4 + 10);
+                sb.append(assrt.getLabel());
+                sb.append(PaConstants.STEP_SELECTOR_FORMULA_LABEL_SEPARATOR);
+                sb.append(logHypFormula[0].toString());
+                lineArray[cntLines++] = sb.toString();
 
-            for (int i = 1; i < assrtNbrLogHyps; i++) {
+                for (int i = 1; i < assrtNbrLogHyps; i++) {
 
-                sb = new StringBuilder(logHypFormula[i].getCnt() * 4 + 10);
+                    sb = new StringBuilder(logHypFormula[i].getCnt() * 4 + 10);
+                    sb.append(PaConstants.STEP_SELECTOR_SEARCH_FORMULA_INDENT);
+                    sb.append(PaConstants.STEP_SELECTOR_FORMULA_LOG_HYP_SEPARATOR);
+                    sb.append(logHypFormula[i].toString());
+                    lineArray[cntLines++] = sb.toString();
+                }
+
+                sb = new StringBuilder(conclusionFormula.getCnt() * 4 + 10);
                 sb.append(PaConstants.STEP_SELECTOR_SEARCH_FORMULA_INDENT);
-                sb.append(PaConstants.STEP_SELECTOR_FORMULA_LOG_HYP_SEPARATOR);
-                sb.append(logHypFormula[i].toString());
+                sb.append(PaConstants.STEP_SELECTOR_FORMULA_YIELDS_SEPARATOR);
+                sb.append(conclusionFormula.toString());
                 lineArray[cntLines++] = sb.toString();
             }
 
-            sb = new StringBuilder(conclusionFormula.getCnt() * 4 + 10);
-            sb.append(PaConstants.STEP_SELECTOR_SEARCH_FORMULA_INDENT);
-            sb.append(PaConstants.STEP_SELECTOR_FORMULA_YIELDS_SEPARATOR);
-            sb.append(conclusionFormula.toString());
-            lineArray[cntLines++] = sb.toString();
+            return store.add(assrt, lineArray);
         }
 
-        return store.add(assrt, lineArray);
-    }
+        private Formula buildStepSelectionSubstFormula(
+            final ParseTree inParseTree)
+        {
 
-    private Formula buildStepSelectionSubstFormula(
-        final ParseTree inParseTree)
-    {
+            ParseTree outParseTree = inParseTree
+                .deepCloneApplyingAssrtSubst(assrtHypArray, assrtSubst);
+            if (parallel)
+                outParseTree = outParseTree.deepClone();
 
-        final ParseTree outParseTree = inParseTree
-            .deepCloneApplyingAssrtSubst(assrtHypArray, assrtSubst);
+            final Formula outFormula = verifyProofs.convertRPNToFormula(
+                outParseTree.convertToRPN(),
+                PaConstants.DOT_STEP_CAPTION + derivStep.getStep());
 
-        final Formula outFormula = verifyProofs.convertRPNToFormula(
-            outParseTree.convertToRPN(),
-            PaConstants.DOT_STEP_CAPTION + derivStep.getStep());
+            outFormula.setTyp(provableLogicStmtTyp);
 
-        outFormula.setTyp(provableLogicStmtTyp);
-
-        return outFormula;
+            return outFormula;
+        }
     }
 }
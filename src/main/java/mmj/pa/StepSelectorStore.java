@@ -118,6 +118,13 @@ public class StepSelectorStore {
         return isFull();
     }
 
+    /**
+     * @return the items, in the order they were added.
+     */
+    List<StepSelectorItem> getItems() {
+        return storeList;
+    }
+
     /**
      * Checks to see if the store has fewer result items than permitted
      * according the Proof Assistant Preferences StepSelectorMaxResults value.
@@ -10,10 +10,21 @@
  *
  * Version 0.01 03/01/2008
  *              - new!
+ * Version 0.02
+ *              - replace UnifySubst lists and the "applied" array
+ *                with a preallocated trail and deferred substitution
+ *                pool.
+ * Version 0.03
+ *              - keep the substitutions to the assertion's VarHyps
+ *                in assrtVarSubst instead of the shared VarHyp.paSubst
+ *                slot, so that separate StepUnifier instances (each
+ *                with its own WorkVarManager) may run concurrently.
  */
 
 package mmj.pa;
 
+import java.util.*;
+
 import mmj.lang.*;
 import mmj.verify.VerifyException;
 
@@ -27,13 +38,14 @@ import mmj.verify.VerifyException;
  * StepUnifier has much in common with the unification algorithm in
  * ProofUnifier. These are the main differences:
  * <ol>
- * <li>It accumulates VarHyp substitution results into the new "paSubst" slot in
- * mmj.lang.VarHyp instead of indirectly in the assrtSubst array.</li>
+ * <li>It accumulates Work Variable substitution results into the "paSubst"
+ * slot in mmj.lang.WorkVarHyp (the assertion's own VarHyps are shared by every
+ * unification, so their substitutions are held in this StepUnifier's
+ * assrtVarSubst array, parallel to the assertion's mandatory hypotheses).</li>
  * <li>It uses Work Variables instead of Dummy Variables.</li>
- * <li>SubstAnswer is a 2 dimensional array of UnifySubst in StepUnifier instead
- * of a 3 dimensional array of ParseNode, as in ProofUnifier. The payload of
- * SubstAnswer is a linked list instead of an array (for a variety of
- * reasons...)</li>
+ * <li>SubstAnswer is a 2 dimensional array of ranges into the deferred
+ * substitution pool in StepUnifier instead of a 3 dimensional array of
+ * ParseNode, as in ProofUnifier.</li>
  * <li>The contents of SubstAnswer[i][j] are "raw", meaning that two elements of
  * the [i][j] list may be inconsistent. This reduces the efficiency of the
  * unification process but is an unavoidable result of the presence of Work Vars
@@ -44,11 +56,12 @@ import mmj.verify.VerifyException;
  * dependent upon the previously accum'd logical hypotheses... so, to make it
  * simple, we just store the "raw" substitutions pre-accumulation/merging.)</li>
  * <li>The backout process for reversing partial results during processing of
- * the sorted logical hypothesis arrays is different. One thing it has in common
- * with ProofUnifier's backout process is that it too relies on the fact that
- * only ONE substitution to a VarHyp is made -- so backout out an assignment
- * does not require restoring a previous substitution, but simply null-ing it
- * out.</li>
+ * the sorted logical hypothesis arrays is different: each VarHyp assignment is
+ * pushed onto a "trail" and backing out a level simply pops that level's trail
+ * entries. One thing it has in common with ProofUnifier's backout process is
+ * that it too relies on the fact that only ONE substitution to a VarHyp is
+ * made -- so backout out an assignment does not require restoring a previous
+ * substitution, but simply null-ing it out.</li>
  * <li>No attempt is made to salvage the work produced by
  * unifyAndMergeHypsUnsorted() as is done in ProofUnifier when going into
  * unifyAndMergeHypsSorted(). "Salvage" would mean pre-loading substAnswer with
@@ -67,6 +80,16 @@ public class StepUnifier {
      */
     public static int F_LEVEL_NBR = -1;
 
+    /**
+     * substAnswer value: unifyLogHypFormula() has not been attempted.
+     */
+    private static final int SUBST_NOT_ATTEMPTED = -1;
+
+    /**
+     * substAnswer value: unifyLogHypFormula() was attempted and failed.
+     */
+    private static final int SUBST_IMPOSSIBLE = -2;
+
     /**
      * {@code commit} means that finalizeAndLoadAssrtSubst() will, if false, not
      * update VarHyp's at finalization time. This allows StepUnifier to be used
@@ -78,51 +101,89 @@ public class StepUnifier {
     private final WorkVarManager workVarManager;
 
     /**
-     * {@code applied} is just an array of UnifySubst's without regard for their
-     * internal linked-list "next" pointers. It holds the UnifySubst data
-     * currently applied to the VarHyp storage areas and is used for any
-     * backouts of those changes.
+     * {@code trail} holds, in assignment order, the VarHyps whose substitution
+     * is currently assigned by this unification, and is used for any
+     * backouts of those changes. {@code trailDealloc[i]} is true if
+     * {@code trail[i]} is a WorkVarHyp allocated during unification (rather
+     * than assigned) which must be deallocated on backout.
+     * <p>
+     * The trail is preallocated and reused, so trying an assertion and
+     * backing it out allocates no bookkeeping objects.
+     */
+    private VarHyp[] trail;
+    private boolean[] trailDealloc;
+    private int trailCnt;
+
+    /**
+     * Number of trail entries pushed by each level, indexed by level number +
+     * 1 (so that the F level, -1, is at index 0).
      */
-    private UnifySubst[] applied;
-    private int appliedCnt;
-    private int[] levelAppliedCnt;
+    private int[] levelTrailCnt;
 
     private int currLevel;
-    private UnifySubst currLevelDeferred;
-    private UnifySubst currLevelDeferredLast;
+
+    /**
+     * The deferred substitution pool holds the "raw" substitutions generated
+     * by unifyLevel() which are not applied immediately. The substitutions for
+     * the current level are {@code deferFrom/deferTo[currLevelDeferredStart]}
+     * up to (but not including) {@code currLevelDeferredEnd}.
+     */
+    private VarHyp[] deferFrom;
+    private ParseNode[] deferTo;
+    private int deferCnt;
+    private int currLevelDeferredStart;
+    private int currLevelDeferredEnd;
 
     private Hyp[] assrtHypArray;
     private LogHyp[] assrtLogHypArray;
 
+    /**
+     * The substitutions to the assertion's VarHyps (the "target" variables),
+     * parallel to assrtHypArray. Work Variable substitutions stay in
+     * WorkVarHyp.paSubst since the Work Variables belong to this StepUnifier's
+     * WorkVarManager.
+     */
+    private ParseNode[] assrtVarSubst;
+
+    /**
+     * The index in assrtHypArray of each of the assertion's VarHyps, loaded
+     * on first use for each assertion (see {@link #getAssrtVarIndex()}).
+     */
+    private final Map<VarHyp, Integer> assrtVarIndex = new IdentityHashMap<>();
+    private boolean assrtVarIndexLoaded;
+
+    private int logHypCnt;
+
     private ProofStepStmt[] derivStepHypArray;
 
     /**
-     * T "substAnswer" array contains the results of unifyLogHypFormula() stored
-     * at these coordinates
+     * The "substAnswer" arrays contain the results of unifyLogHypFormula()
+     * stored at these coordinates
      *
      * <pre>
      *     row   = derivStepHypArray[i]  (1st dimension)
      *     col   = assrtLogHypArray[j]   (2nd dimension)
+     *     index = i * logHypCnt + j
      * </pre>
      *
      * We use the following conventions:
      * <ul>
-     * <li>substAnswer[i][j] == null means that unifyLogHypFormula() has not
-     * been attempted for the ith derivStepHypArray element with the jth
-     * assrtLogHypArray element.
-     * <li>substAnswer[i][j] == UnifySubst.IMPOSSIBLE means that
+     * <li>substAnswerStart[index] == SUBST_NOT_ATTEMPTED means that
+     * unifyLogHypFormula() has not been attempted for the ith
+     * derivStepHypArray element with the jth assrtLogHypArray element.
+     * <li>substAnswerStart[index] == SUBST_IMPOSSIBLE means that
      * unifyLogHypFormula() was attempted and failure was reported -- no
      * unification. (Note that the individual hyp pair can be successfully
      * unified but when those results are accum'd into the composite data, a
      * substitution "inconsistency" is detected.)
-     * <li>substAnswer[i][j] == UnifySubst.EMPTY_LIST means that
-     * unifyLogHypFormula() was attempted no substitutions were reports
-     * (probably because of a "null" unification because a step LogHyp is
-     * missing (for Derive)).
-     * <li>substAnswer[i][j] == something else means that unifyLogHypFormula()
-     * was successful
+     * <li>otherwise unifyLogHypFormula() was successful and the substitutions
+     * are in the deferred substitution pool from substAnswerStart[index] up to
+     * substAnswerEnd[index] (which may be an empty range, probably because of
+     * a "null" unification because a step LogHyp is missing (for Derive)).
+     * </ul>
      */
-    private UnifySubst[][] substAnswer;
+    private int[] substAnswerStart;
+    private int[] substAnswerEnd;
 
     /**
      * This array cross-references the input sorted arrays derivStepHypArray and
@@ -152,8 +213,24 @@ public class StepUnifier {
      */
     public StepUnifier(final WorkVarManager workVarManager) {
         this.workVarManager = workVarManager;
-        applied = new UnifySubst[PaConstants.STEP_UNIFIER_APPLIED_ARRAY_LEN_INIT];
+        trail = new VarHyp[PaConstants.STEP_UNIFIER_TRAIL_LEN_INIT];
+        trailDealloc = new boolean[PaConstants.STEP_UNIFIER_TRAIL_LEN_INIT];
+        deferFrom = new VarHyp[PaConstants.STEP_UNIFIER_TRAIL_LEN_INIT];
+        deferTo = new ParseNode[PaConstants.STEP_UNIFIER_TRAIL_LEN_INIT];
+        levelTrailCnt = new int[PaConstants.STEP_UNIFIER_LEVEL_LEN_INIT];
+        assrtVarSubst = new ParseNode[0];
+        substAnswerStart = new int[0];
+        substAnswerEnd = new int[0];
+        derivAssrtXRef = new int[0];
+        assrtHypUsed = new boolean[0];
+        impossibleCnt = new int[0];
+    }
 
+    /**
+     * @return the WorkVarManager of the Work Variables of this StepUnifier.
+     */
+    public WorkVarManager getWorkVarManager() {
+        return workVarManager;
     }
 
     /**
@@ -208,7 +285,7 @@ public class StepUnifier {
         }
         else {
             loadAssrtSubst(assrtSubst);
-            backoutAllHLevelApplieds();
+            backoutAllHLevelTrail();
             backoutFLevelApplieds();
         }
         return assrtSubst;
@@ -217,7 +294,7 @@ public class StepUnifier {
     private void loadAssrtSubst(final ParseNode[] assrtSubst) {
         for (int i = 0; i < assrtHypArray.length; i++)
             if (assrtHypArray[i] instanceof VarHyp) {
-                assrtSubst[i] = ((VarHyp)assrtHypArray[i]).paSubst;
+                assrtSubst[i] = assrtVarSubst[i];
                 if (assrtSubst[i].hasUpdatedWorkVar())
                     assrtSubst[i] = assrtSubst[i]
                         .cloneResolvingUpdatedWorkVars();
@@ -237,7 +314,7 @@ public class StepUnifier {
      * @return derivAssrtXRef array of int indexes.
      */
     public int[] getDerivAssrtXRef() {
-        return derivAssrtXRef;
+        return Arrays.copyOf(derivAssrtXRef, logHypCnt);
     }
 
     /**
@@ -259,7 +336,7 @@ public class StepUnifier {
      * because it does perform the full sequence of calls.
      */
     public void backoutFLevelApplieds() {
-        backoutOneLevelApplieds(F_LEVEL_NBR);
+        backoutOneLevelTrail(F_LEVEL_NBR);
     }
 
     /**
@@ -284,15 +361,21 @@ public class StepUnifier {
         this.commit = commit;
         assrtHypArray = assrt.getMandFrame().hypArray;
         assrtLogHypArray = assrt.getLogHypArray();
+        logHypCnt = assrtLogHypArray.length;
 
-        // initializeTargetVarHypPASubst
-        for (int i = 0; i < assrtHypArray.length; i++)
-            if (assrtHypArray[i] instanceof VarHyp)
-                ((VarHyp)assrtHypArray[i]).paSubst = null;
+        // initializeTargetVarHypSubst
+        assrtVarIndexLoaded = false;
+        if (assrtVarSubst.length < assrtHypArray.length)
+            assrtVarSubst = new ParseNode[assrtHypArray.length];
+        else
+            Arrays.fill(assrtVarSubst, 0, assrtHypArray.length, null);
 
-        // allocateNewProofStepStuff
-        appliedCnt = 0;
-        levelAppliedCnt = new int[assrtLogHypArray.length + 1];
+        // resetProofStepTrail
+        trailCnt = 0;
+        if (levelTrailCnt.length <= logHypCnt)
+            levelTrailCnt = new int[logHypCnt + 1];
+        else
+            Arrays.fill(levelTrailCnt, 0, logHypCnt + 1, 0);
 
         // OK, DO IT!
         // ==========
@@ -303,15 +386,16 @@ public class StepUnifier {
         }
 
         currLevel = F_LEVEL_NBR;
-        currLevelDeferred = UnifySubst.EMPTY_LIST;
-        currLevelDeferredLast = null;
+        deferCnt = 0;
         if (unifyLevel(assrt.getExprParseTree().getRoot(), stepRoot)) {
+            currLevelDeferredStart = 0;
+            currLevelDeferredEnd = deferCnt;
             allocWorkVarsForUnassignedSourceVars();
             if (mergeCurrLevelSubst())
                 return true;
         }
 
-        backoutCurrLevelApplieds();
+        backoutCurrLevelTrail();
 
         return false;
     }
@@ -335,7 +419,7 @@ public class StepUnifier {
         this.derivStepHypArray = derivStepHypArray;
         ParseNode sourceRoot;
 
-        for (currLevel = 0; currLevel < assrtLogHypArray.length; currLevel++) {
+        for (currLevel = 0; currLevel < logHypCnt; currLevel++) {
 
             if (derivStepHypArray[currLevel] == null)
                 sourceRoot = null;
@@ -343,14 +427,17 @@ public class StepUnifier {
                 sourceRoot = derivStepHypArray[currLevel].formulaParseTree
                     .getRoot();
 
+            // the deferred pool is scratch space here: each level's
+            // substitutions are merged before the next level is unified.
+            deferCnt = 0;
             if (unifyLogHypFormula(
                 assrtLogHypArray[currLevel].getExprParseTree().getRoot(),
-                sourceRoot) != UnifySubst.IMPOSSIBLE)
+                sourceRoot))
                 if (mergeCurrLevelSubst())
                     continue;
 
             for (int i = currLevel; i >= 0; i--)
-                backoutOneLevelApplieds(i);
+                backoutOneLevelTrail(i);
             return null;
         }
 
@@ -390,20 +477,30 @@ public class StepUnifier {
 
         this.derivStepHypArray = derivStepHypArray;
         this.assrtLogHypArray = assrtLogHypArray;
-
-        substAnswer = new UnifySubst[assrtLogHypArray.length][];
-
-        for (int i = 0; i < assrtLogHypArray.length; i++)
-            substAnswer[i] = new UnifySubst[assrtLogHypArray.length];
+        logHypCnt = assrtLogHypArray.length;
 
         // ok! add complexity to keep track of substAnswer :)
-        impossibleCnt = new int[assrtLogHypArray.length];
+        final int answerCnt = logHypCnt * logHypCnt;
+        if (substAnswerStart.length < answerCnt) {
+            substAnswerStart = new int[answerCnt];
+            substAnswerEnd = new int[answerCnt];
+        }
+        Arrays.fill(substAnswerStart, 0, answerCnt, SUBST_NOT_ATTEMPTED);
 
-        assrtHypUsed = new boolean[assrtLogHypArray.length];
+        if (impossibleCnt.length < logHypCnt) {
+            impossibleCnt = new int[logHypCnt];
+            assrtHypUsed = new boolean[logHypCnt];
+            derivAssrtXRef = new int[logHypCnt];
+        }
+        else {
+            Arrays.fill(impossibleCnt, 0, logHypCnt, 0);
+            Arrays.fill(assrtHypUsed, 0, logHypCnt, false);
+        }
+        Arrays.fill(derivAssrtXRef, 0, logHypCnt, -1);
 
-        derivAssrtXRef = new int[assrtLogHypArray.length];
-        for (int i = 0; i < derivAssrtXRef.length; i++)
-            derivAssrtXRef[i] = -1;
+        // substAnswer ranges point into the deferred pool, so it is
+        // only reset once, here, for the whole sorted unification.
+        deferCnt = 0;
 
         boolean status = false;
         currLevel = 0;
@@ -411,39 +508,39 @@ public class StepUnifier {
             if (!findNextUnifiedAssrtHyp()) { // !find at this level
 
                 if (impossibleCnt[currLevel] >= // no satisfaction
-                assrtLogHypArray.length)
+                logHypCnt)
                     break; // assrtLogHyp!
 
                 if (--currLevel < 0)
                     break; // no prev levels to try
 
                 // backout previous level's merged substitutions
-                backoutOneLevelApplieds(currLevel);
+                backoutOneLevelTrail(currLevel);
             }
-            else if (++currLevel >= assrtLogHypArray.length) {
+            else if (++currLevel >= logHypCnt) {
                 // success! yay!!!
                 status = true;
                 break;
             }
 
-        // tidy up :-0)
-        substAnswer = null;
-        impossibleCnt = null;
-        assrtHypUsed = null;
+        // tidy up :-0) -- release references held by the deferred pool
+        Arrays.fill(deferTo, 0, deferCnt, null);
+        Arrays.fill(deferFrom, 0, deferCnt, null);
+        deferCnt = 0;
 
         if (status)
             return finalizeAndLoadAssrtSubst();
         else {
             // backout all applied subst including level "F" (-1)
             for (int i = currLevel; i >= -1; i--)
-                backoutOneLevelApplieds(i);
+                backoutOneLevelTrail(i);
             return null;
         }
     }
 
     private boolean findNextUnifiedAssrtHyp() {
 
-        final UnifySubst[] currLevelSubstAnswer = substAnswer[currLevel];
+        final int currLevelAnswerBase = currLevel * logHypCnt;
 
         int nextAssrtHypIndex = derivAssrtXRef[currLevel];
         if (nextAssrtHypIndex != -1) {
@@ -451,45 +548,46 @@ public class StepUnifier {
             derivAssrtXRef[currLevel] = -1;
         }
 
-        int governorLimit = assrtLogHypArray.length;
+        int governorLimit = logHypCnt;
         while (governorLimit-- > 0) {
             nextAssrtHypIndex++;
-            if (nextAssrtHypIndex >= assrtLogHypArray.length)
+            if (nextAssrtHypIndex >= logHypCnt)
                 return false;
             if (assrtHypUsed[nextAssrtHypIndex])
                 continue;
-            if (currLevelSubstAnswer[nextAssrtHypIndex] == UnifySubst.IMPOSSIBLE)
+            final int answerIndex = currLevelAnswerBase + nextAssrtHypIndex;
+            if (substAnswerStart[answerIndex] == SUBST_IMPOSSIBLE)
                 continue;
-            if (currLevelSubstAnswer[nextAssrtHypIndex] == null) {
-                if (unifyAndMergeSubstAnswer(currLevelSubstAnswer,
-                    nextAssrtHypIndex))
+            if (substAnswerStart[answerIndex] == SUBST_NOT_ATTEMPTED) {
+                if (unifyAndMergeSubstAnswer(answerIndex, nextAssrtHypIndex))
                 {
                     derivAssrtXRef[currLevel] = nextAssrtHypIndex;
                     assrtHypUsed[nextAssrtHypIndex] = true;
                     return true;
                 }
-                if (currLevelSubstAnswer[nextAssrtHypIndex] == UnifySubst.IMPOSSIBLE)
+                if (substAnswerStart[answerIndex] == SUBST_IMPOSSIBLE)
                     impossibleCnt[currLevel]++;
                 continue;
             }
 
             // here we (attempt to) merge in the previously computed
             // substitutions for a LogHyp
-            currLevelDeferred = currLevelSubstAnswer[nextAssrtHypIndex];
+            currLevelDeferredStart = substAnswerStart[answerIndex];
+            currLevelDeferredEnd = substAnswerEnd[answerIndex];
             if (mergeCurrLevelSubst()) {
                 derivAssrtXRef[currLevel] = nextAssrtHypIndex;
                 assrtHypUsed[nextAssrtHypIndex] = true;
                 return true;
             }
             else
-                backoutCurrLevelApplieds();
+                backoutCurrLevelTrail();
         }
 
         return false;
     }
 
-    private boolean unifyAndMergeSubstAnswer(
-        final UnifySubst[] currLevelSubstAnswer, final int assrtLogHypIndex)
+    private boolean unifyAndMergeSubstAnswer(final int answerIndex,
+        final int assrtLogHypIndex)
     {
 
         ParseNode sourceRoot;
@@ -498,40 +596,51 @@ public class StepUnifier {
         else
             sourceRoot = derivStepHypArray[currLevel].formulaParseTree
                 .getRoot();
-        if ((currLevelSubstAnswer[assrtLogHypIndex] = unifyLogHypFormula(
+        if (unifyLogHypFormula(
             assrtLogHypArray[assrtLogHypIndex].getExprParseTree().getRoot(),
-            sourceRoot)) != UnifySubst.IMPOSSIBLE)
+            sourceRoot))
+        {
+            substAnswerStart[answerIndex] = currLevelDeferredStart;
+            substAnswerEnd[answerIndex] = currLevelDeferredEnd;
             if (mergeCurrLevelSubst())
                 return true;
+        }
+        else
+            substAnswerStart[answerIndex] = SUBST_IMPOSSIBLE;
 
-        backoutCurrLevelApplieds();
+        backoutCurrLevelTrail();
         return false;
     }
 
-    private UnifySubst unifyLogHypFormula(final ParseNode targetRoot,
+    /**
+     * Unifies a logical hypothesis formula, leaving the generated
+     * substitutions in the deferred pool range currLevelDeferredStart to
+     * currLevelDeferredEnd.
+     *
+     * @param targetRoot the assertion logical hypothesis root
+     * @param sourceRoot the derivation step hypothesis root, or null
+     * @return false if unification is impossible.
+     */
+    private boolean unifyLogHypFormula(final ParseNode targetRoot,
         final ParseNode sourceRoot)
     {
 
-        currLevelDeferred = UnifySubst.EMPTY_LIST;
-        currLevelDeferredLast = null;
-
-        if (sourceRoot != null)
-            if (!unifyLevel(targetRoot, sourceRoot))
-                return UnifySubst.IMPOSSIBLE;
+        final int start = deferCnt;
+        if (sourceRoot != null && !unifyLevel(targetRoot, sourceRoot)) {
+            deferCnt = start;
+            return false;
+        }
 
-        return currLevelDeferred;
+        currLevelDeferredStart = start;
+        currLevelDeferredEnd = deferCnt;
+        return true;
     }
 
     private boolean mergeCurrLevelSubst() {
 
-        if (currLevelDeferred != UnifySubst.EMPTY_LIST) {
-            UnifySubst curr = currLevelDeferred;
-            while (curr != null) {
-                if (!mergeSubst(curr))
-                    return false;
-                curr = curr.next;
-            }
-        }
+        for (int i = currLevelDeferredStart; i < currLevelDeferredEnd; i++)
+            if (!mergeSubst(deferFrom[i], deferTo[i], false))
+                return false;
         return true;
     }
 
@@ -544,22 +653,17 @@ public class StepUnifier {
             if (!(assrtHypArray[i] instanceof VarHyp))
                 continue;
 
-            sourceVarHyp = (VarHyp)assrtHypArray[i];
-            if (sourceVarHyp.paSubst != null)
+            if (assrtVarSubst[i] != null)
                 continue;
 
+            sourceVarHyp = (VarHyp)assrtHypArray[i];
             workVarHyp = workVarManager.allocWorkVarHyp(sourceVarHyp.getTyp());
 
-            addToAppliedArray(
-                new UnifySubst(workVarHyp, null, // null toNode
-                    true), // generatedDuringAccum
-                F_LEVEL_NBR); // fLevel
+            pushTrail(workVarHyp, true, F_LEVEL_NBR); // dealloc on backout
 
-            sourceVarHyp.paSubst = new ParseNode(workVarHyp);
+            assrtVarSubst[i] = new ParseNode(workVarHyp);
 
-            addToAppliedArray(
-                new UnifySubst(sourceVarHyp, sourceVarHyp.paSubst, true), // generatedDuringAccum
-                F_LEVEL_NBR); // fLevel
+            pushTrail(sourceVarHyp, false, F_LEVEL_NBR);
         }
     }
 
@@ -572,16 +676,15 @@ public class StepUnifier {
 
         if (targetNode.stmt instanceof VarHyp) {
             final VarHyp targetVarHyp = (VarHyp)targetNode.stmt;
-            final UnifySubst targetSubst = new UnifySubst(targetVarHyp, // fromHyp
-                sourceNode, // toNode
-                false); // generatedDuringAccum
-
-            if (currLevel == F_LEVEL_NBR && targetVarHyp.paSubst == null) {
-                targetVarHyp.paSubst = sourceNode;
-                addToAppliedArray(targetSubst, F_LEVEL_NBR); // fLevel index
+            if (currLevel == F_LEVEL_NBR) {
+                final int i = getAssrtVarIndex(targetVarHyp);
+                if (assrtVarSubst[i] == null) {
+                    assrtVarSubst[i] = sourceNode;
+                    pushTrail(targetVarHyp, false, F_LEVEL_NBR);
+                    return true;
+                }
             }
-            else
-                addToCurrLevelDeferred(targetSubst);
+            addToDeferred(targetVarHyp, sourceNode);
             return true;
         }
 
@@ -593,56 +696,27 @@ public class StepUnifier {
         }
 
         if (sourceNode.stmt instanceof WorkVarHyp) {
-            addToCurrLevelDeferred(
-                new UnifySubst((VarHyp)sourceNode.stmt, targetNode, false));
+            addToDeferred((VarHyp)sourceNode.stmt, targetNode);
             return true;
         }
 
         return false;
     }
 
-    private boolean mergeSubst(final UnifySubst curr) {
-
-        ParseNode toParseNode = curr.toNode;
-
-        if (curr.fromHyp instanceof WorkVarHyp) {
-            if (!curr.generatedDuringAccum)
-                toParseNode = curr.toNode.cloneTargetToSourceVars();
-
-            if (curr.fromHyp.paSubst == null) {
-                final int returnCode = toParseNode
-                    .checkWorkVarHasOccursIn((WorkVarHyp)curr.fromHyp);
-
-                if (returnCode == LangConstants.WV_OCCURS_IN_RENAME_LOOP)
-                    return true; // ok, but no assignment update!
-
-                if (returnCode == LangConstants.WV_OCCURS_IN_ERROR)
-                    return false; // naughty!
-            }
-        }
-
-        if (curr.fromHyp.paSubst == null) {
-            curr.fromHyp.paSubst = toParseNode;
-            addToAppliedArray(curr, currLevel);
-            return true;
-        }
-
-        return subunify(curr.fromHyp.paSubst, toParseNode);
-    }
-
-    // clone of mergeSubst()
-    private boolean mergeSubst2(final VarHyp currFromHyp,
-        final ParseNode currToNode, final boolean currGeneratedDuringAccum)
+    private boolean mergeSubst(final VarHyp fromHyp, final ParseNode toNode,
+        final boolean generatedDuringAccum)
     {
-        ParseNode toParseNode = currToNode;
+        ParseNode toParseNode = toNode;
 
-        if (currFromHyp instanceof WorkVarHyp) {
-            if (!currGeneratedDuringAccum)
-                toParseNode = currToNode.cloneTargetToSourceVars();
+        final ParseNode fromSubst = getSubst(fromHyp);
+        if (fromHyp instanceof WorkVarHyp) {
+            if (!generatedDuringAccum)
+                toParseNode = toNode
+                    .cloneTargetToSourceVars(getAssrtVarIndex(), assrtVarSubst);
 
-            if (currFromHyp.paSubst == null) {
+            if (fromSubst == null) {
                 final int returnCode = toParseNode
-                    .checkWorkVarHasOccursIn((WorkVarHyp)currFromHyp);
+                    .checkWorkVarHasOccursIn((WorkVarHyp)fromHyp);
 
                 if (returnCode == LangConstants.WV_OCCURS_IN_RENAME_LOOP)
                     return true; // ok, but no assignment update!
@@ -652,14 +726,13 @@ public class StepUnifier {
             }
         }
 
-        if (currFromHyp.paSubst == null) {
-            currFromHyp.paSubst = toParseNode;
-            addToAppliedArray(new UnifySubst(currFromHyp, currToNode,
-                currGeneratedDuringAccum), currLevel);
+        if (fromSubst == null) {
+            setSubst(fromHyp, toParseNode);
+            pushTrail(fromHyp, false, currLevel);
             return true;
         }
 
-        return subunify(currFromHyp.paSubst, toParseNode);
+        return subunify(fromSubst, toParseNode);
     }
 
     /**
@@ -690,9 +763,9 @@ public class StepUnifier {
             return false;
 
         if (n1.stmt instanceof WorkVarHyp)
-            return mergeSubst2((VarHyp)n1.stmt, n2, true); // generatedDuringAccum
+            return mergeSubst((VarHyp)n1.stmt, n2, true); // generatedDuringAccum
         if (n2.stmt instanceof WorkVarHyp)
-            return mergeSubst2((VarHyp)n2.stmt, n1, true); // generatedDuringAccum
+            return mergeSubst((VarHyp)n2.stmt, n1, true); // generatedDuringAccum
 
         return false;
     }
@@ -702,66 +775,95 @@ public class StepUnifier {
     // ***************************************************
     // ===================================================
 
-    private void addToCurrLevelDeferred(final UnifySubst deferredSubst) {
+    private Map<VarHyp, Integer> getAssrtVarIndex() {
+        if (!assrtVarIndexLoaded) {
+            assrtVarIndex.clear();
+            for (int i = 0; i < assrtHypArray.length; i++)
+                if (assrtHypArray[i] instanceof VarHyp)
+                    assrtVarIndex.put((VarHyp)assrtHypArray[i], i);
+            assrtVarIndexLoaded = true;
+        }
+        return assrtVarIndex;
+    }
+
+    private int getAssrtVarIndex(final VarHyp varHyp) {
+        return getAssrtVarIndex().get(varHyp);
+    }
+
+    private ParseNode getSubst(final VarHyp varHyp) {
+        return varHyp instanceof WorkVarHyp ? varHyp.paSubst
+            : assrtVarSubst[getAssrtVarIndex(varHyp)];
+    }
+
+    private void setSubst(final VarHyp varHyp, final ParseNode subst) {
+        if (varHyp instanceof WorkVarHyp)
+            varHyp.paSubst = subst;
+        else
+            assrtVarSubst[getAssrtVarIndex(varHyp)] = subst;
+    }
 
-        currLevelDeferredLast = deferredSubst.insert(currLevelDeferredLast);
+    private void addToDeferred(final VarHyp fromHyp, final ParseNode toNode) {
 
-        if (currLevelDeferred == UnifySubst.EMPTY_LIST)
-            currLevelDeferred = deferredSubst;
+        if (deferCnt >= deferFrom.length) {
+            final int n = deferFrom.length * 2;
+            deferFrom = Arrays.copyOf(deferFrom, n);
+            deferTo = Arrays.copyOf(deferTo, n);
+        }
+
+        deferFrom[deferCnt] = fromHyp;
+        deferTo[deferCnt++] = toNode;
     }
 
-    private void addToAppliedArray(final UnifySubst unifySubst,
-        int levelIndex)
+    private void pushTrail(final VarHyp varHyp, final boolean dealloc,
+        final int levelNbr)
     {
-        if (appliedCnt >= applied.length) {
-            if (appliedCnt >= PaConstants.STEP_UNIFIER_APPLIED_ARRAY_LEN_MAX)
+        if (trailCnt >= trail.length) {
+            if (trailCnt >= PaConstants.STEP_UNIFIER_TRAIL_LEN_MAX)
                 throw new IllegalArgumentException(new ProofAsstException(
-                    PaConstants.ERRMSG_ADD_TO_APPLIED_ARRAY_OFLOW));
-            final int n = applied.length
-                + PaConstants.STEP_UNIFIER_APPLIED_ARRAY_LEN_INIT;
-            final UnifySubst[] x = new UnifySubst[n];
-            for (int i = 0; i < appliedCnt; i++)
-                x[i] = applied[i];
-            applied = x;
+                    PaConstants.ERRMSG_STEP_UNIFIER_TRAIL_OFLOW));
+            final int n = trail.length
+                + PaConstants.STEP_UNIFIER_TRAIL_LEN_INIT;
+            trail = Arrays.copyOf(trail, n);
+            trailDealloc = Arrays.copyOf(trailDealloc, n);
         }
 
-        applied[appliedCnt++] = unifySubst;
-        levelAppliedCnt[++levelIndex]++;
+        trailDealloc[trailCnt] = dealloc;
+        trail[trailCnt++] = varHyp;
+        levelTrailCnt[levelNbr + 1]++;
     }
-    private void backoutCurrLevelApplieds() {
-        backoutOneLevelApplieds(currLevel);
+
+    private void backoutCurrLevelTrail() {
+        backoutOneLevelTrail(currLevel);
     }
 
-    private void backoutAllHLevelApplieds() {
-        for (int i = levelAppliedCnt.length - 2; i >= 0; i--)
-            backoutOneLevelApplieds(i);
+    private void backoutAllHLevelTrail() {
+        for (int i = logHypCnt - 1; i >= 0; i--)
+            backoutOneLevelTrail(i);
     }
 
-    private void backoutOneLevelApplieds(int levelNbr) {
+    private void backoutOneLevelTrail(int levelNbr) {
 
-        int backoutCnt = levelAppliedCnt[++levelNbr];
+        int backoutCnt = levelTrailCnt[++levelNbr];
 
-        UnifySubst appliedSubst;
+        VarHyp varHyp;
         while (backoutCnt-- > 0) {
-            appliedSubst = applied[--appliedCnt];
+            varHyp = trail[--trailCnt];
 
-            // Erase fromHyp.paSubst value because we never
-            // apply a substitution value more than once per
-            // variable during unification -- so if the VarHyp
-            // is mentioned in array "applied", erase .paSubst.
-            appliedSubst.fromHyp.paSubst = null;
+            // Erase the substitution because we never apply a
+            // substitution value more than once per variable
+            // during unification -- so if the VarHyp is on the
+            // trail, erase its substitution.
+            setSubst(varHyp, null);
 
-            if (appliedSubst.fromHyp instanceof WorkVarHyp
-                && appliedSubst.toNode == null)
-                // appliedSubst.toNode == null means that
+            if (trailDealloc[trailCnt])
                 // allocation was requested during unification;
                 // the WorkVarHyp was not part of the original
                 // formula, so it can be deallocated.
-                workVarManager.dealloc((WorkVarHyp)appliedSubst.fromHyp);
+                workVarManager.dealloc((WorkVarHyp)varHyp);
 
-            applied[appliedCnt] = null;
+            trail[trailCnt] = null;
         }
 
-        levelAppliedCnt[levelNbr] = 0;
+        levelTrailCnt[levelNbr] = 0;
     }
 }
@@ -0,0 +1,334 @@
+package mmj.pa;
+
+import java.io.*;
+import java.util.*;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import mmj.lang.Messages;
+import mmj.transforms.TransformationProfile;
+import mmj.transforms.TransformationProfile.Kind;
+
+/**
+ * VolumeTestReport is the machine-readable, per-theorem report of the
+ * unification volume test (RunParm ProofAsstBatchTest), and the comparison of
+ * two such reports (RunParm ProofAsstBatchTestCompare).
+ * <p>
+ * The report has one record per theorem, in test order, holding the theorem
+ * label, the number of proof steps, the parse, unification and transformation
+ * times, the time of each kind of transformation (see
+ * {@link TransformationProfile}; the key of a kind is its label followed by
+ * "Ms"), all in milliseconds, the number of assertions scanned by the
+ * unification search and the outcome (one of
+ * {@link PaConstants#STATUS_DESC}, or {@link #OUTCOME_NO_QED_STEP}). It is
+ * written as CSV, with a header line, if the file name ends with ".csv", and
+ * as JSON Lines (one JSON object per line) otherwise. Both formats are read
+ * back by {@link #read}.
+ * <p>
+ * The unification time includes the transformation time, which includes the
+ * times of the kinds of transformation. Note that with a
+ * multi-threaded test the times of theorems unified at once are measured
+ * concurrently.
+ */
+public class VolumeTestReport implements Closeable {
+
+    public static final String KEY_THEOREM = "theorem";
+    public static final String KEY_STEPS = "steps";
+    public static final String KEY_PARSE_MS = "parseMs";
+    public static final String KEY_UNIFY_MS = "unifyMs";
+    public static final String KEY_TRANSFORM_MS = "transformMs";
+    public static final String KEY_ASSRTS_SCANNED = "assrtsScanned";
+    public static final String KEY_OUTCOME = "outcome";
+
+    /** The outcome of a theorem whose Proof Worksheet has no qed step. */
+    public static final String OUTCOME_NO_QED_STEP = "NO_QED_STEP";
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private static final String[] CSV_HEADER = csvHeader();
+
+    private static final String CSV_SUFFIX = ".csv";
+
+    /** One theorem of the report. */
+    public static class Entry {
+        public final String theorem;
+        public final int nbrSteps;
+        public final double parseMillis;
+        public final double unifyMillis;
+        public final double transformationMillis;
+        /** The times of the kinds of transformation, by Kind ordinal */
+        public final double[] profileMillis;
+        public final int nbrAssrtsScanned;
+        public final String outcome;
+
+        public Entry(final String theorem, final int nbrSteps,
+            final double parseMillis, final double unifyMillis,
+            final double transformationMillis, final double[] profileMillis,
+            final int nbrAssrtsScanned, final String outcome)
+        {
+            this.theorem = theorem;
+            this.nbrSteps = nbrSteps;
+            this.parseMillis = parseMillis;
+            this.unifyMillis = unifyMillis;
+            this.transformationMillis = transformationMillis;
+            this.profileMillis = profileMillis;
+            this.nbrAssrtsScanned = nbrAssrtsScanned;
+            this.outcome = outcome;
+        }
+
+        /** @return the parse plus unification time, in milliseconds. */
+        public double getTotalMillis() {
+            return parseMillis + unifyMillis;
+        }
+
+        @Override
+        public String toString() {
+            return theorem + ":" + formatMillis(getTotalMillis()) + "ms";
+        }
+    }
+
+    private final PrintWriter writer;
+    private final boolean csv;
+
+    /**
+     * Starts a report.
+     *
+     * @param writer the report file, closed by {@link #close()}.
+     * @param fileName the report file name, whose suffix selects the format.
+     */
+    public VolumeTestReport(final Writer writer, final String fileName) {
+        this.writer = new PrintWriter(writer);
+        csv = isCsv(fileName);
+        if (csv)
+            this.writer.println(String.join(",", CSV_HEADER));
+    }
+
+    /**
+     * Adds a theorem to the report.
+     *
+     * @param entry the theorem outcome.
+     */
+    public void write(final Entry entry) {
+        if (csv) {
+            final StringBuilder sb = new StringBuilder(entry.theorem);
+            sb.append(',').append(entry.nbrSteps);
+            sb.append(',').append(formatMillis(entry.parseMillis));
+            sb.append(',').append(formatMillis(entry.unifyMillis));
+            sb.append(',').append(formatMillis(entry.transformationMillis));
+            for (final double millis : entry.profileMillis)
+                sb.append(',').append(formatMillis(millis));
+            sb.append(',').append(entry.nbrAssrtsScanned);
+            writer.println(sb.append(',').append(entry.outcome));
+        }
+        else {
+            // JSONObject does not keep the key order, so build it by hand
+            final StringBuilder sb = new StringBuilder("{");
+            sb.append(JSONObject.quote(KEY_THEOREM)).append(':')
+                .append(JSONObject.quote(entry.theorem));
+            sb.append(',').append(JSONObject.quote(KEY_STEPS)).append(':')
+                .append(entry.nbrSteps);
+            sb.append(',').append(JSONObject.quote(KEY_PARSE_MS)).append(':')
+                .append(formatMillis(entry.parseMillis));
+            sb.append(',').append(JSONObject.quote(KEY_UNIFY_MS)).append(':')
+                .append(formatMillis(entry.unifyMillis));
+            sb.append(',').append(JSONObject.quote(KEY_TRANSFORM_MS))
+                .append(':').append(formatMillis(entry.transformationMillis));
+            for (final Kind kind : KINDS)
+                sb.append(',').append(JSONObject.quote(profileKey(kind)))
+                    .append(':')
+                    .append(formatMillis(entry.profileMillis[kind.ordinal()]));
+            sb.append(',').append(JSONObject.quote(KEY_ASSRTS_SCANNED))
+                .append(':').append(entry.nbrAssrtsScanned);
+            sb.append(',').append(JSONObject.quote(KEY_OUTCOME)).append(':')
+                .append(JSONObject.quote(entry.outcome));
+            writer.println(sb.append('}'));
+        }
+    }
+
+    /**
+     * @return true if an error occurred writing the report.
+     */
+    public boolean checkError() {
+        return writer.checkError();
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    /**
+     * Reads a report written by {@link #write}, in either format.
+     *
+     * @param reader the report file.
+     * @param fileName the report file name, for messages.
+     * @return the theorems of the report by label, in report order.
+     * @throws IOException if an I/O error occurs.
+     * @throws ProofAsstException if the report is not well formed.
+     */
+    public static Map<String, Entry> read(final Reader reader,
+        final String fileName) throws IOException, ProofAsstException
+    {
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+        final BufferedReader in = new BufferedReader(reader);
+        String line;
+        int lineNbr = 0;
+        boolean csvHeaderRead = false;
+        while ((line = in.readLine()) != null) {
+            lineNbr++;
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+            try {
+                final Entry entry;
+                if (line.startsWith("{"))
+                    entry = parseJson(new JSONObject(line));
+                else if (!csvHeaderRead
+                    && line.equals(String.join(",", CSV_HEADER)))
+                {
+                    csvHeaderRead = true;
+                    continue;
+                }
+                else
+                    entry = parseCsv(line.split(",", -1));
+                entries.put(entry.theorem, entry);
+            } catch (JSONException | IllegalArgumentException e) {
+                throw new ProofAsstException(e,
+                    PaConstants.ERRMSG_PA_TESTMSG_REPORT_FORMAT, fileName,
+                    lineNbr, e.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Compares two reports and accumulates a message for every theorem of the
+     * new report whose total time regressed by more than
+     * {@code thresholdPct} percent and {@code minMillis} milliseconds, or
+     * whose outcome changed, followed by a summary message.
+     *
+     * @param oldEntries the reference report.
+     * @param newEntries the report to check.
+     * @param thresholdPct the tolerated slowdown, in percent.
+     * @param minMillis the tolerated slowdown, in milliseconds.
+     * @param messages the Messages object.
+     * @return the number of theorems whose time regressed.
+     */
+    public static int compare(final Map<String, Entry> oldEntries,
+        final Map<String, Entry> newEntries, final int thresholdPct,
+        final double minMillis, final Messages messages)
+    {
+        int nbrCompared = 0;
+        int nbrRegressed = 0;
+        int nbrOutcomesChanged = 0;
+        double oldTotal = 0;
+        double newTotal = 0;
+        for (final Entry newEntry : newEntries.values()) {
+            final Entry oldEntry = oldEntries.get(newEntry.theorem);
+            if (oldEntry == null)
+                continue;
+            nbrCompared++;
+            final double oldMillis = oldEntry.getTotalMillis();
+            final double newMillis = newEntry.getTotalMillis();
+            oldTotal += oldMillis;
+            newTotal += newMillis;
+
+            if (newMillis - oldMillis >= minMillis
+                && newMillis > oldMillis * (1 + thresholdPct / 100.0))
+            {
+                nbrRegressed++;
+                messages.accumMessage(PaConstants.ERRMSG_PA_TESTMSG_REGRESSED,
+                    newEntry.theorem, formatMillis(oldMillis),
+                    formatMillis(newMillis),
+                    oldMillis == 0 ? "-"
+                        : Long.toString(
+                            Math.round((newMillis / oldMillis - 1) * 100)),
+                    oldEntry.nbrAssrtsScanned, newEntry.nbrAssrtsScanned);
+            }
+            if (!newEntry.outcome.equals(oldEntry.outcome)) {
+                nbrOutcomesChanged++;
+                messages.accumMessage(
+                    PaConstants.ERRMSG_PA_TESTMSG_OUTCOME_CHANGED,
+                    newEntry.theorem, oldEntry.outcome, newEntry.outcome);
+            }
+        }
+
+        messages.accumMessage(PaConstants.ERRMSG_PA_TESTMSG_COMPARE_TOTALS,
+            nbrCompared, thresholdPct, nbrRegressed, nbrOutcomesChanged,
+            oldEntries.size() - nbrCompared, newEntries.size() - nbrCompared,
+            formatMillis(oldTotal), formatMillis(newTotal));
+        return nbrRegressed;
+    }
+
+    /**
+     * @param fileName a report file name.
+     * @return true if the report is to be written as CSV.
+     */
+    public static boolean isCsv(final String fileName) {
+        return fileName.toLowerCase(Locale.ROOT).endsWith(CSV_SUFFIX);
+    }
+
+    /**
+     * @param nanos a time in nanoseconds.
+     * @return the time in milliseconds.
+     */
+    public static double toMillis(final long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * @param profile the work done by the transformations.
+     * @return the times of the kinds of transformation in milliseconds, by
+     *         Kind ordinal.
+     */
+    public static double[] toMillis(final TransformationProfile profile) {
+        final double[] millis = new double[KINDS.length];
+        for (final Kind kind : KINDS)
+            millis[kind.ordinal()] = toMillis(profile.getNanos(kind));
+        return millis;
+    }
+
+    private static String profileKey(final Kind kind) {
+        return kind.label + "Ms";
+    }
+
+    private static String[] csvHeader() {
+        final List<String> header = new ArrayList<>(Arrays.asList(
+            KEY_THEOREM, KEY_STEPS, KEY_PARSE_MS, KEY_UNIFY_MS,
+            KEY_TRANSFORM_MS));
+        for (final Kind kind : KINDS)
+            header.add(profileKey(kind));
+        header.add(KEY_ASSRTS_SCANNED);
+        header.add(KEY_OUTCOME);
+        return header.toArray(new String[header.size()]);
+    }
+
+    private static String formatMillis(final double millis) {
+        return String.format(Locale.ROOT, "%.3f", millis);
+    }
+
+    private static Entry parseJson(final JSONObject o) {
+        final double[] profileMillis = new double[KINDS.length];
+        for (final Kind kind : KINDS)
+            profileMillis[kind.ordinal()] = o.getDouble(profileKey(kind));
+        return new Entry(o.getString(KEY_THEOREM), o.getInt(KEY_STEPS),
+            o.getDouble(KEY_PARSE_MS), o.getDouble(KEY_UNIFY_MS),
+            o.getDouble(KEY_TRANSFORM_MS), profileMillis,
+            o.getInt(KEY_ASSRTS_SCANNED), o.getString(KEY_OUTCOME));
+    }
+
+    private static Entry parseCsv(final String[] fields) {
+        if (fields.length != CSV_HEADER.length)
+            throw new IllegalArgumentException(String.join(",", CSV_HEADER));
+        final int profileStart = 5;
+        final double[] profileMillis = new double[KINDS.length];
+        for (int i = 0; i < KINDS.length; i++)
+            profileMillis[i] = Double.parseDouble(fields[profileStart + i]);
+        final int end = profileStart + KINDS.length;
+        return new Entry(fields[0], Integer.parseInt(fields[1]),
+            Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+            Double.parseDouble(fields[4]), profileMillis,
+            Integer.parseInt(fields[end]), fields[end + 1]);
+    }
+}
@@ -0,0 +1,120 @@
+package mmj.search;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mmj.lang.*;
+import mmj.lang.ParseTree.RPNStep;
+
+/**
+ * The strings of the assertions searched by {@link SearchDataGetter}: the
+ * formulas of an assertion and of its logical hypotheses, its lowercase
+ * comment and the labels of its proof.
+ * <p>
+ * The strings of an assertion are rendered by the first search which needs
+ * them and kept for the next searches. The strings are not copied: a String
+ * of ASCII characters is already stored as one byte per character. A
+ * rendering remembers the formulas, hypotheses, description and proof it was
+ * rendered from, and is rendered again if one of them is replaced, as when a
+ * theorem is updated by the TheoremLoader.
+ * <p>
+ * The cache is thread safe, so that the parallel scans of a search share it.
+ */
+public class AssrtRenderingCache {
+
+    /** The strings of an assertion */
+    static class Rendering {
+        private final Formula formula;
+        private final LogHyp[] logHyps;
+        private final String description;
+
+        /** The formula of the assertion, followed by a space */
+        final String formulaString;
+
+        /** The formulas of the logical hypotheses */
+        final String[] logHypFormulaStrings;
+
+        /** The lowercase comment, with its white space collapsed */
+        final String commentString;
+
+        /** The labels of the proof, rendered from the proof array */
+        private volatile LabelRPN labelRPN;
+
+        Rendering(final Assrt assrt) {
+            formula = assrt.getFormula();
+            logHyps = assrt.getLogHypArray();
+            description = assrt.getDescription();
+            formulaString = formula.toString() + " ";
+            logHypFormulaStrings = new String[logHyps.length];
+            for (int i = 0; i < logHyps.length; i++)
+                logHypFormulaStrings[i] = logHyps[i].getFormula().toString();
+            commentString = description == null ? ""
+                : assrt.getDescriptionForSearch().toLowerCase();
+        }
+
+        boolean isValid(final Assrt assrt) {
+            return formula == assrt.getFormula()
+                && logHyps == assrt.getLogHypArray()
+                && description == assrt.getDescription();
+        }
+
+        /**
+         * @param theorem the theorem of this rendering
+         * @return the labels of the proof of the theorem, separated by spaces
+         */
+        String getLabelRPNString(final Theorem theorem) {
+            final RPNStep[] proof = theorem.getProof();
+            LabelRPN l = labelRPN;
+            if (l == null || l.proof != proof) {
+                l = new LabelRPN(proof);
+                labelRPN = l;
+            }
+            return l.string;
+        }
+    }
+
+    private static class LabelRPN {
+        final RPNStep[] proof;
+        final String string;
+
+        LabelRPN(final RPNStep[] proof) {
+            this.proof = proof;
+            final StringBuilder sb = new StringBuilder(5 * proof.length);
+            String sep = "";
+            for (final RPNStep element : proof) {
+                sb.append(sep);
+                sb.append(element);
+                sep = " ";
+            }
+            string = sb.toString();
+        }
+    }
+
+    private final Map<Assrt, Rendering> renderings = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the strings of an assertion, rendering them if they are not
+     * cached or if the assertion changed.
+     *
+     * @param assrt the assertion
+     * @return the strings of the assertion
+     */
+    Rendering get(final Assrt assrt) {
+        Rendering rendering = renderings.get(assrt);
+        if (rendering == null || !rendering.isValid(assrt)) {
+            rendering = new Rendering(assrt);
+            renderings.put(assrt, rendering);
+        }
+        return rendering;
+    }
+
+    /** Removes all the renderings. */
+    public void clear() {
+        renderings.clear();
+    }
+
+    /** @return the number of assertions rendered */
+    public int size() {
+        return renderings.size();
+    }
+}
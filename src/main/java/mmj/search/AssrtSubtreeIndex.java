@@ -0,0 +1,173 @@
+package mmj.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mmj.lang.*;
+import mmj.search.AssrtTextIndex.Postings;
+
+/**
+ * An index of the shapes of the subexpressions of the assertion formulas,
+ * used to find the candidate assertions of a parse expression or parse
+ * statement search without unifying the search term with every subtree of
+ * every assertion.
+ * <p>
+ * The shapes are the parts of the parse trees made of one or two nodes, with
+ * the variables abstracted away: a node with its syntax axiom, and a node with
+ * one of its children, both with their syntax axioms and the position of the
+ * child. Each shape of the formulas of an assertion and of its logical
+ * hypotheses is mapped to the list of the assertions which contain it.
+ * <p>
+ * When a search term is unified with a subtree of an assertion by
+ * substituting its variables (the operators "&gt;=" and "&gt;"), or when they
+ * are equal up to the names of their variables (the operators "=" and "=="),
+ * every shape of the search term is a shape of the subtree. The candidates of
+ * such a search term are the assertions which contain all its shapes: a
+ * superset of the assertions which match it, and the search still unifies
+ * the term with each candidate. The other operators substitute the variables
+ * of the assertions, and every assertion is a candidate.
+ * <p>
+ * The shapes are hashed to numbers, and a hash collision only adds
+ * candidates. Like the {@link AssrtTextIndex}, the index is only added to,
+ * and the assertions which are not in the index are always candidates.
+ */
+public class AssrtSubtreeIndex {
+
+    private final Map<Assrt, Integer> ids = new ConcurrentHashMap<>();
+
+    private final Map<Long, Postings> shapes = new HashMap<>();
+
+    /**
+     * Builds the index of a list of assertions.
+     *
+     * @param assrts the assertions
+     */
+    public AssrtSubtreeIndex(final Collection<? extends Assrt> assrts) {
+        add(assrts);
+    }
+
+    /**
+     * Adds assertions to the index, or adds the current formulas of
+     * assertions which are already indexed.
+     *
+     * @param assrts the assertions
+     */
+    public synchronized void add(final Collection<? extends Assrt> assrts) {
+        final Set<Long> assrtShapes = new HashSet<>();
+        for (final Assrt assrt : assrts) {
+            assrtShapes.clear();
+            if (!addShapes(assrtShapes, assrt.getExprParseTree()))
+                continue;
+            boolean parsed = true;
+            for (final LogHyp logHyp : assrt.getLogHypArray())
+                parsed &= addShapes(assrtShapes, logHyp.getExprParseTree());
+            if (!parsed)
+                continue;
+            Integer id = ids.get(assrt);
+            if (id == null) {
+                id = ids.size();
+                ids.put(assrt, id);
+            }
+            for (final Long shape : assrtShapes)
+                AssrtTextIndex.addWord(shapes, shape, id);
+        }
+    }
+
+    /**
+     * Adds the shapes of a parse tree to a set.
+     *
+     * @param set the set of shapes
+     * @param parseTree the parse tree, or null
+     * @return false if there is no parse tree
+     */
+    private static boolean addShapes(final Set<Long> set,
+        final ParseTree parseTree)
+    {
+        if (parseTree == null || parseTree.getRoot() == null)
+            return false;
+        final Deque<ParseNode> nodeStack = new ArrayDeque<>();
+        nodeStack.push(parseTree.getRoot());
+        while (!nodeStack.isEmpty()) {
+            final ParseNode node = nodeStack.pop();
+            if (node.stmt instanceof VarHyp)
+                continue;
+            set.add(nodeShape(node.stmt));
+            final ParseNode[] child = node.child;
+            for (int i = 0; i < child.length; i++) {
+                if (!(child[i].stmt instanceof VarHyp))
+                    set.add(edgeShape(node.stmt, i, child[i].stmt));
+                nodeStack.push(child[i]);
+            }
+        }
+        return true;
+    }
+
+    private static long nodeShape(final Stmt stmt) {
+        return stmt.getSeq();
+    }
+
+    private static long edgeShape(final Stmt parent, final int i,
+        final Stmt child)
+    {
+        return (parent.getSeq() + 1L) * 0x9E3779B97F4A7C15L
+            + (i + 1L) * 0xC2B2AE3D27D4EB4FL + child.getSeq();
+    }
+
+    /**
+     * Finds the candidate assertions of a parse expression or parse statement
+     * search term.
+     *
+     * @param searchOperChoice the search operator (see
+     *            {@link SearchOptionsConstants#OPER_VALUE_LE_ID} and so on)
+     * @param parseTree the parse tree of the search term
+     * @return the candidates, to be tested with {@link #isCandidate}, or null
+     *         if every assertion is a candidate
+     */
+    public synchronized BitSet getCandidates(final int searchOperChoice,
+        final ParseTree parseTree)
+    {
+        switch (searchOperChoice) {
+            case SearchOptionsConstants.OPER_VALUE_EQ_ID:
+            case SearchOptionsConstants.OPER_VALUE_EQ_EQ_ID:
+            case SearchOptionsConstants.OPER_VALUE_GE_ID:
+            case SearchOptionsConstants.OPER_VALUE_GT_ID:
+                break;
+
+            default:
+                return null;
+        }
+        final Set<Long> termShapes = new HashSet<>();
+        if (!addShapes(termShapes, parseTree) || termShapes.isEmpty())
+            return null;
+        final List<Postings> list = new ArrayList<>(termShapes.size());
+        for (final Long shape : termShapes) {
+            final Postings postings = shapes.get(shape);
+            if (postings == null)
+                return new BitSet();
+            list.add(postings);
+        }
+        list.sort(Comparator.comparingInt(Postings::size));
+        BitSet candidates = null;
+        for (final Postings postings : list) {
+            final BitSet matches = new BitSet(ids.size());
+            postings.addTo(matches);
+            if (candidates == null)
+                candidates = matches;
+            else
+                candidates.and(matches);
+            if (candidates.isEmpty())
+                break;
+        }
+        return candidates;
+    }
+
+    /**
+     * @param candidates the candidates returned by {@link #getCandidates}
+     * @param assrt the assertion
+     * @return true if the assertion is a candidate or is not indexed
+     */
+    public boolean isCandidate(final BitSet candidates, final Assrt assrt) {
+        final Integer id = ids.get(assrt);
+        return id == null || candidates.get(id);
+    }
+}
@@ -0,0 +1,277 @@
+package mmj.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mmj.lang.Assrt;
+import mmj.lang.LogHyp;
+
+/**
+ * An inverted index of the words of the assertion comments, formulas and
+ * labels, used to find the candidate assertions of a character string search
+ * without rendering the text of every assertion.
+ * <p>
+ * The words are the strings rendered by {@link SearchDataGetter} split at
+ * spaces: the lowercase comment (see {@link Assrt#getDescriptionForSearch()}),
+ * the symbols of the formulas of the assertion and of its logical hypotheses,
+ * and the labels of the assertion and of its logical hypotheses. Each word is
+ * mapped to the list of the assertions which contain it.
+ * <p>
+ * The candidates of a search term are a superset of the assertions which
+ * match it: a term "x y z" is only found in a text whose words end with "x",
+ * equal "y" and start with "z", so the candidates are the assertions with such
+ * words, and the search still checks each candidate against its text. The
+ * word "y" is looked up in the index, and the words ending with "x" and
+ * starting with "z" are ranges of sorted maps (see {@link Vocabulary}): only a
+ * term of a single word, which may be any part of a word, is compared with
+ * every word of the index. The index is only added to, so it remains a
+ * superset if an assertion changes. Assertions which are not in the index
+ * are always candidates.
+ */
+public class AssrtTextIndex {
+
+    /** The ids of the assertions of a word, in increasing order */
+    static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(final int id) {
+            if (size != 0 && ids[size - 1] == id)
+                return;
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void addTo(final BitSet bitSet) {
+            for (int i = 0; i < size; i++)
+                bitSet.set(ids[i]);
+        }
+    }
+
+    /**
+     * The words of a part of the assertions, sorted, and sorted by their
+     * reversed strings, so that the words with a prefix or a suffix are a
+     * range of a map.
+     */
+    static class Vocabulary {
+        private final TreeMap<String, Postings> words = new TreeMap<>();
+
+        private final TreeMap<String, Postings> reversedWords = new TreeMap<>();
+
+        void add(final String word, final int id) {
+            Postings postings = words.get(word);
+            if (postings == null) {
+                postings = new Postings();
+                words.put(word, postings);
+                reversedWords.put(reverse(word), postings);
+            }
+            postings.add(id);
+        }
+
+        /**
+         * @param word the word
+         * @param bitSet the set of the assertions of the word
+         */
+        void addWord(final String word, final BitSet bitSet) {
+            final Postings postings = words.get(word);
+            if (postings != null)
+                postings.addTo(bitSet);
+        }
+
+        /**
+         * @param prefix the prefix
+         * @param bitSet the set of the assertions of the words starting with
+         *            the prefix
+         */
+        void addPrefixed(final String prefix, final BitSet bitSet) {
+            addRange(words, prefix, bitSet);
+        }
+
+        /**
+         * @param suffix the suffix
+         * @param bitSet the set of the assertions of the words ending with the
+         *            suffix
+         */
+        void addSuffixed(final String suffix, final BitSet bitSet) {
+            addRange(reversedWords, reverse(suffix), bitSet);
+        }
+
+        /**
+         * Scans the whole vocabulary.
+         *
+         * @param part the part of a word
+         * @param bitSet the set of the assertions of the words containing the
+         *            part
+         */
+        void addContaining(final String part, final BitSet bitSet) {
+            for (final Map.Entry<String, Postings> e : words.entrySet())
+                if (e.getKey().contains(part))
+                    e.getValue().addTo(bitSet);
+        }
+
+        private static void addRange(final TreeMap<String, Postings> map,
+            final String prefix, final BitSet bitSet)
+        {
+            for (final Map.Entry<String, Postings> e : map.tailMap(prefix)
+                .entrySet())
+            {
+                if (!e.getKey().startsWith(prefix))
+                    break;
+                e.getValue().addTo(bitSet);
+            }
+        }
+
+        private static String reverse(final String word) {
+            return new StringBuilder(word).reverse().toString();
+        }
+    }
+
+    private final Map<Assrt, Integer> ids = new ConcurrentHashMap<>();
+
+    private final Vocabulary commentWords = new Vocabulary();
+
+    private final Vocabulary formulaWords = new Vocabulary();
+
+    private final Map<String, Postings> labels = new HashMap<>();
+
+    /**
+     * Builds the index of a list of assertions.
+     *
+     * @param assrts the assertions
+     */
+    public AssrtTextIndex(final Collection<? extends Assrt> assrts) {
+        add(assrts);
+    }
+
+    /**
+     * Adds assertions to the index, or adds the current text of assertions
+     * which are already indexed.
+     *
+     * @param assrts the assertions
+     */
+    public synchronized void add(final Collection<? extends Assrt> assrts) {
+        for (final Assrt assrt : assrts) {
+            Integer id = ids.get(assrt);
+            if (id == null) {
+                id = ids.size();
+                ids.put(assrt, id);
+            }
+            if (assrt.getDescription() != null)
+                addWords(commentWords,
+                    assrt.getDescriptionForSearch().toLowerCase(), id);
+            addWords(formulaWords, assrt.getFormula().toString(), id);
+            addWord(labels, assrt.getLabel(), id);
+            for (final LogHyp logHyp : assrt.getLogHypArray()) {
+                addWords(formulaWords, logHyp.getFormula().toString(), id);
+                addWord(labels, logHyp.getLabel(), id);
+            }
+        }
+    }
+
+    private static void addWords(final Vocabulary vocabulary,
+        final String text, final int id)
+    {
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf(' ', start);
+            if (end < 0)
+                end = text.length();
+            if (end > start)
+                vocabulary.add(text.substring(start, end), id);
+            start = end + 1;
+        }
+    }
+
+    static <K> void addWord(final Map<K, Postings> map, final K word,
+        final int id)
+    {
+        Postings postings = map.get(word);
+        if (postings == null) {
+            postings = new Postings();
+            map.put(word, postings);
+        }
+        postings.add(id);
+    }
+
+    /**
+     * Finds the candidate assertions of a character string search term.
+     *
+     * @param searchPartChoice the searched part of the assertions (see
+     *            {@link SearchOptionsConstants#PART_FORMULAS_ID} and so on)
+     * @param text the search term, in lowercase for a comment search
+     * @return the candidates, to be tested with {@link #isCandidate}, or null
+     *         if every assertion is a candidate
+     */
+    public synchronized BitSet getCandidates(final int searchPartChoice,
+        final String text)
+    {
+        switch (searchPartChoice) {
+            case SearchOptionsConstants.PART_COMMENTS_ID:
+                return getCandidates(commentWords, text);
+
+            case SearchOptionsConstants.PART_FORMULAS_ID:
+                return getCandidates(formulaWords, text);
+
+            case SearchOptionsConstants.PART_LABELS_ID:
+                final BitSet candidates = new BitSet(ids.size());
+                final Postings postings = labels.get(text);
+                if (postings != null)
+                    postings.addTo(candidates);
+                return candidates;
+
+            default:
+                return null;
+        }
+    }
+
+    private BitSet getCandidates(final Vocabulary vocabulary,
+        final String text)
+    {
+        BitSet candidates = null;
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf(' ', start);
+            if (end < 0)
+                end = text.length();
+            if (end > start) {
+                final String word = text.substring(start, end);
+                final boolean spaceBefore = start > 0;
+                final boolean spaceAfter = end < text.length();
+                final BitSet matches = new BitSet(ids.size());
+                if (spaceBefore && spaceAfter)
+                    vocabulary.addWord(word, matches);
+                else if (spaceBefore)
+                    vocabulary.addPrefixed(word, matches);
+                else if (spaceAfter)
+                    vocabulary.addSuffixed(word, matches);
+                else
+                    vocabulary.addContaining(word, matches);
+                if (candidates == null)
+                    candidates = matches;
+                else
+                    candidates.and(matches);
+                if (candidates.isEmpty())
+                    break;
+            }
+            start = end + 1;
+        }
+        return candidates;
+    }
+
+    /**
+     * @param candidates the candidates returned by {@link #getCandidates}
+     * @param assrt the assertion
+     * @return true if the assertion is a candidate or is not indexed
+     */
+    public boolean isCandidate(final BitSet candidates,
+        final Assrt assrt)
+    {
+        final Integer id = ids.get(assrt);
+        return id == null || candidates.get(id);
+    }
+}
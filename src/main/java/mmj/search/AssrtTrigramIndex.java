@@ -0,0 +1,475 @@
+package mmj.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mmj.lang.Assrt;
+import mmj.lang.LogHyp;
+import mmj.search.AssrtTextIndex.Postings;
+
+/**
+ * A trigram index of the assertion comments, formulas and labels, used to
+ * find the candidate assertions of a regular expression search without
+ * running the regular expression on the text of every assertion.
+ * <p>
+ * The texts are the strings rendered by {@link SearchDataGetter}: the
+ * lowercase comment, the formulas and the labels of the assertion and of its
+ * logical hypotheses. Each trigram (substring of 3 characters) of a text is
+ * mapped to the list of the assertions which contain it.
+ * <p>
+ * A regular expression is turned into a query: a conjunction of the trigrams
+ * of the literal strings which every match must contain, and of disjunctions
+ * of such queries for the alternatives "a|b". The candidates of the query are
+ * a superset of the assertions which match the regular expression, and the
+ * search still runs the regular expression on each candidate. When the
+ * regular expression has no required literal string of 3 characters, or uses
+ * constructs not handled here (such as the embedded flags "(?i)"), every
+ * assertion is a candidate.
+ * <p>
+ * Like the {@link AssrtTextIndex}, the index is only added to, and the
+ * assertions which are not in the index are always candidates.
+ */
+public class AssrtTrigramIndex {
+
+    /** A conjunction of trigrams and of disjunctions of queries */
+    static class Query {
+        final Set<String> trigrams = new HashSet<>();
+        final List<List<Query>> disjunctions = new ArrayList<>();
+
+        void and(final Query that) {
+            trigrams.addAll(that.trigrams);
+            disjunctions.addAll(that.disjunctions);
+        }
+
+        boolean isEmpty() {
+            return trigrams.isEmpty() && disjunctions.isEmpty();
+        }
+    }
+
+    /**
+     * A parser of the java.util.regex syntax which only extracts the literal
+     * strings required by a regular expression. Whatever is not understood
+     * only breaks the literal strings, except for the embedded flags, which
+     * change the meaning of the literals and make the whole query unknown.
+     */
+    static class QueryParser {
+        private final String regex;
+        private int pos;
+        private boolean unsupported;
+
+        QueryParser(final String regex) {
+            this.regex = regex;
+        }
+
+        /**
+         * @return the query of the regular expression, or null if any text
+         *         may match it
+         */
+        Query parse() {
+            final Query query = parseAlternation();
+            if (unsupported || pos < regex.length())
+                return null;
+            return query;
+        }
+
+        private Query parseAlternation() {
+            final List<Query> branches = new ArrayList<>();
+            boolean any = false;
+            while (true) {
+                final Query branch = parseBranch();
+                if (branch == null)
+                    any = true;
+                else
+                    branches.add(branch);
+                if (pos >= regex.length() || regex.charAt(pos) != '|')
+                    break;
+                pos++;
+            }
+            if (any)
+                return null;
+            if (branches.size() == 1)
+                return branches.get(0);
+            final Query query = new Query();
+            query.disjunctions.add(branches);
+            return query;
+        }
+
+        private Query parseBranch() {
+            final Query query = new Query();
+            final StringBuilder run = new StringBuilder();
+            while (pos < regex.length() && !unsupported) {
+                final char c = regex.charAt(pos);
+                if (c == '|' || c == ')')
+                    break;
+                switch (c) {
+                    case '(':
+                        endRun(query, run);
+                        final Query group = parseGroup();
+                        if (parseQuantifier() != 0 && group != null)
+                            query.and(group);
+                        break;
+
+                    case '[':
+                        endRun(query, run);
+                        skipClass();
+                        parseQuantifier();
+                        break;
+
+                    case '.':
+                    case '^':
+                    case '$':
+                    case ']':
+                    case '}':
+                        endRun(query, run);
+                        pos++;
+                        parseQuantifier();
+                        break;
+
+                    case '*':
+                    case '+':
+                    case '?':
+                    case '{':
+                        unsupported = true;
+                        break;
+
+                    case '\\':
+                        pos++;
+                        if (pos >= regex.length())
+                            unsupported = true;
+                        else if (regex.charAt(pos) == 'Q')
+                            parseQuotedLiteral(query, run);
+                        else if (Character.isLetterOrDigit(regex.charAt(pos)))
+                        {
+                            endRun(query, run);
+                            skipEscape();
+                            parseQuantifier();
+                        }
+                        else
+                            parseLiteral(query, run, regex.charAt(pos++));
+                        break;
+
+                    default:
+                        pos++;
+                        parseLiteral(query, run, c);
+                }
+            }
+            endRun(query, run);
+            return query.isEmpty() ? null : query;
+        }
+
+        /** Parses a character and its quantifier, if any. */
+        private void parseLiteral(final Query query, final StringBuilder run,
+            final char c)
+        {
+            final int min = parseQuantifier();
+            if (min == -1)
+                run.append(c);
+            else if (min == 0)
+                endRun(query, run);
+            else {
+                // "ab+c" contains "ab" and "bc"
+                run.append(c);
+                endRun(query, run);
+                run.append(c);
+            }
+        }
+
+        private void parseQuotedLiteral(final Query query,
+            final StringBuilder run)
+        {
+            pos++;
+            int end = regex.indexOf("\\E", pos);
+            if (end < 0)
+                end = regex.length();
+            final String quoted = regex.substring(pos, end);
+            pos = Math.min(end + 2, regex.length());
+            if (quoted.isEmpty())
+                return;
+            run.append(quoted, 0, quoted.length() - 1);
+            parseLiteral(query, run, quoted.charAt(quoted.length() - 1));
+        }
+
+        private Query parseGroup() {
+            pos++;
+            boolean zeroWidth = false;
+            if (regex.startsWith("?", pos)) {
+                if (regex.startsWith("?:", pos) || regex.startsWith("?>", pos))
+                    pos += 2;
+                else if (regex.startsWith("?=", pos)
+                    || regex.startsWith("?!", pos))
+                {
+                    pos += 2;
+                    zeroWidth = true;
+                }
+                else if (regex.startsWith("?<=", pos)
+                    || regex.startsWith("?<!", pos))
+                {
+                    pos += 3;
+                    zeroWidth = true;
+                }
+                else if (regex.startsWith("?<", pos)) {
+                    final int end = regex.indexOf('>', pos);
+                    if (end < 0) {
+                        unsupported = true;
+                        return null;
+                    }
+                    pos = end + 1;
+                }
+                else {
+                    unsupported = true;
+                    return null;
+                }
+            }
+            final Query query = parseAlternation();
+            if (pos >= regex.length() || regex.charAt(pos) != ')') {
+                unsupported = true;
+                return null;
+            }
+            pos++;
+            return zeroWidth ? null : query;
+        }
+
+        /**
+         * @return the minimum number of repetitions of the quantifier at the
+         *         current position, or -1 if there is no quantifier
+         */
+        private int parseQuantifier() {
+            if (pos >= regex.length())
+                return -1;
+            int min;
+            switch (regex.charAt(pos)) {
+                case '?':
+                case '*':
+                    min = 0;
+                    pos++;
+                    break;
+
+                case '+':
+                    min = 1;
+                    pos++;
+                    break;
+
+                case '{':
+                    final int end = regex.indexOf('}', pos);
+                    if (end < 0) {
+                        unsupported = true;
+                        return 0;
+                    }
+                    min = 0;
+                    for (int i = pos + 1; i < end
+                        && Character.isDigit(regex.charAt(i)); i++)
+                        min = Math.min(min * 10 + regex.charAt(i) - '0', 3);
+                    pos = end + 1;
+                    break;
+
+                default:
+                    return -1;
+            }
+            if (pos < regex.length()
+                && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+'))
+                pos++;
+            return min;
+        }
+
+        private void skipClass() {
+            pos++;
+            if (regex.startsWith("^", pos))
+                pos++;
+            if (regex.startsWith("]", pos))
+                pos++;
+            int depth = 1;
+            while (pos < regex.length()) {
+                final char c = regex.charAt(pos++);
+                if (c == '\\') {
+                    if (regex.startsWith("Q", pos)) {
+                        final int end = regex.indexOf("\\E", pos);
+                        pos = end < 0 ? regex.length() : end + 2;
+                    }
+                    else
+                        pos++;
+                }
+                else if (c == '[')
+                    depth++;
+                else if (c == ']' && --depth == 0)
+                    return;
+            }
+            unsupported = true;
+        }
+
+        /**
+         * Skips an escape starting with a letter or a digit. Skipping too much
+         * only loses literals, so the octal escapes and back references skip
+         * all their digits.
+         */
+        private void skipEscape() {
+            final char c = regex.charAt(pos++);
+            switch (c) {
+                case 'p':
+                case 'P':
+                case 'x':
+                case 'N':
+                    if (regex.startsWith("{", pos))
+                        skipTo('}');
+                    else
+                        pos += c == 'x' ? 2 : 1;
+                    break;
+
+                case 'k':
+                    skipTo('>');
+                    break;
+
+                case 'u':
+                    pos += 4;
+                    break;
+
+                case 'c':
+                    pos++;
+                    break;
+
+                default:
+                    if (Character.isDigit(c))
+                        while (pos < regex.length()
+                            && Character.isDigit(regex.charAt(pos)))
+                            pos++;
+            }
+            pos = Math.min(pos, regex.length());
+        }
+
+        private void skipTo(final char c) {
+            final int end = regex.indexOf(c, pos);
+            if (end < 0)
+                unsupported = true;
+            pos = end < 0 ? regex.length() : end + 1;
+        }
+
+        private static void endRun(final Query query,
+            final StringBuilder run)
+        {
+            for (int i = 0; i + 3 <= run.length(); i++)
+                query.trigrams.add(run.substring(i, i + 3));
+            run.setLength(0);
+        }
+    }
+
+    private final Map<Assrt, Integer> ids = new ConcurrentHashMap<>();
+
+    private final Map<String, Postings> commentTrigrams = new HashMap<>();
+
+    private final Map<String, Postings> formulaTrigrams = new HashMap<>();
+
+    private final Map<String, Postings> labelTrigrams = new HashMap<>();
+
+    /**
+     * Builds the index of a list of assertions.
+     *
+     * @param assrts the assertions
+     */
+    public AssrtTrigramIndex(final Collection<? extends Assrt> assrts) {
+        add(assrts);
+    }
+
+    /**
+     * Adds assertions to the index, or adds the current text of assertions
+     * which are already indexed.
+     *
+     * @param assrts the assertions
+     */
+    public synchronized void add(final Collection<? extends Assrt> assrts) {
+        for (final Assrt assrt : assrts) {
+            Integer id = ids.get(assrt);
+            if (id == null) {
+                id = ids.size();
+                ids.put(assrt, id);
+            }
+            if (assrt.getDescription() != null)
+                addTrigrams(commentTrigrams,
+                    assrt.getDescriptionForSearch().toLowerCase(), id);
+            addTrigrams(formulaTrigrams, assrt.getFormula().toString() + " ",
+                id);
+            addTrigrams(labelTrigrams, assrt.getLabel(), id);
+            for (final LogHyp logHyp : assrt.getLogHypArray()) {
+                addTrigrams(formulaTrigrams, logHyp.getFormula().toString(),
+                    id);
+                addTrigrams(labelTrigrams, logHyp.getLabel(), id);
+            }
+        }
+    }
+
+    private static void addTrigrams(final Map<String, Postings> map,
+        final String text, final int id)
+    {
+        for (int i = 0; i + 3 <= text.length(); i++)
+            AssrtTextIndex.addWord(map, text.substring(i, i + 3), id);
+    }
+
+    /**
+     * Finds the candidate assertions of a regular expression search term.
+     *
+     * @param searchPartChoice the searched part of the assertions (see
+     *            {@link SearchOptionsConstants#PART_FORMULAS_ID} and so on)
+     * @param regex the regular expression, compiled without flags
+     * @return the candidates, to be tested with {@link #isCandidate}, or null
+     *         if every assertion is a candidate
+     */
+    public synchronized BitSet getCandidates(final int searchPartChoice,
+        final String regex)
+    {
+        final Map<String, Postings> map;
+        switch (searchPartChoice) {
+            case SearchOptionsConstants.PART_COMMENTS_ID:
+                map = commentTrigrams;
+                break;
+
+            case SearchOptionsConstants.PART_FORMULAS_ID:
+                map = formulaTrigrams;
+                break;
+
+            case SearchOptionsConstants.PART_LABELS_ID:
+                map = labelTrigrams;
+                break;
+
+            default:
+                return null;
+        }
+        final Query query = new QueryParser(regex).parse();
+        return query == null ? null : getCandidates(map, query);
+    }
+
+    private BitSet getCandidates(final Map<String, Postings> map,
+        final Query query)
+    {
+        BitSet candidates = null;
+        for (final String trigram : query.trigrams) {
+            final BitSet matches = new BitSet(ids.size());
+            final Postings postings = map.get(trigram);
+            if (postings != null)
+                postings.addTo(matches);
+            if (candidates == null)
+                candidates = matches;
+            else
+                candidates.and(matches);
+        }
+        for (final List<Query> disjunction : query.disjunctions) {
+            final BitSet matches = new BitSet(ids.size());
+            for (final Query branch : disjunction)
+                matches.or(getCandidates(map, branch));
+            if (candidates == null)
+                candidates = matches;
+            else
+                candidates.and(matches);
+        }
+        return candidates;
+    }
+
+    /**
+     * @param candidates the candidates returned by {@link #getCandidates}
+     * @param assrt the assertion
+     * @return true if the assertion is a candidate or is not indexed
+     */
+    public boolean isCandidate(final BitSet candidates,
+        final Assrt assrt)
+    {
+        final Integer id = ids.get(assrt);
+        return id == null || candidates.get(id);
+    }
+}
@@ -24,17 +24,42 @@ public class CharStrSearchDataLine extends SearchDataLine {
         if (csa.searchOutput.searchReturnCode == 0
             && searchPartChoice == SearchOptionsConstants.PART_COMMENTS_ID)
             convertSearchTermTextToLowerCase();
+        if (csa.searchOutput.searchReturnCode == 0) {
+            assrtTextIndex = csa.searchMgr.getAssrtTextIndex();
+            for (final QuotedSearchTerm quotedSearchTerm : quotedSearchTermList)
+                quotedSearchTerm.candidates = assrtTextIndex
+                    .getCandidates(searchPartChoice, quotedSearchTerm.text);
+        }
+    }
+
+    private CharStrSearchDataLine(final CharStrSearchDataLine searchDataLine,
+        final SearchDataGetter searchDataGetter)
+    {
+        super(searchDataLine, searchDataGetter);
+        assrtTextIndex = searchDataLine.assrtTextIndex;
     }
 
     @Override
-    public void loadAssrtData() {
-        loadAssrtDataStringArray();
+    public SearchDataLine copy(final SearchDataGetter searchDataGetter) {
+        return new CharStrSearchDataLine(this, searchDataGetter);
     }
 
+    /**
+     * The assertion data is loaded by {@link #evaluateSearchTerm}, only if the
+     * assertion is a candidate of the search term in the AssrtTextIndex.
+     */
+    @Override
+    public void loadAssrtData() {}
+
     @Override
     public boolean evaluateSearchTerm(final QuotedSearchTerm quotedSearchTerm,
         final CompiledSearchArgs csa)
     {
+        if (quotedSearchTerm.candidates != null && !assrtTextIndex
+            .isCandidate(quotedSearchTerm.candidates, searchDataGetter.assrt))
+            return false;
+        if (assrtDataStringArray == null)
+            loadAssrtDataStringArray();
         if (searchPartChoice == SearchOptionsConstants.PART_LABELS_ID) {
             for (final String element : assrtDataStringArray)
                 if (element.equals(quotedSearchTerm.text))
@@ -47,4 +72,6 @@ public class CharStrSearchDataLine extends SearchDataLine {
                     return true;
         return false;
     }
+
+    AssrtTextIndex assrtTextIndex;
 }
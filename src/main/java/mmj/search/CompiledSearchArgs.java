@@ -102,16 +102,6 @@ public class CompiledSearchArgs {
     }
 
     private void unsupportedFeaturesCheck() {
-        if (searchResultsChecked != 0)
-            searchArgs.resultsChecked.unsupportedFeatureError(searchOutput);
-        if (searchMaxExtResults != 0)
-            searchArgs.maxExtResults.unsupportedFeatureError(searchOutput);
-        if (searchMaxIncompHyps != 0)
-            searchArgs.maxIncompHyps.unsupportedFeatureError(searchOutput);
-        if (searchPrevStepsChecked != 0)
-            searchArgs.prevStepsChecked.unsupportedFeatureError(searchOutput);
-        if (searchReuseDerivSteps)
-            searchArgs.reuseDerivSteps.unsupportedFeatureError(searchOutput);
         if (searchAutoSelect)
             searchArgs.autoSelect.unsupportedFeatureError(searchOutput);
     }
@@ -0,0 +1,428 @@
+package mmj.search;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import mmj.lang.*;
+import mmj.pa.*;
+import mmj.util.OrderedParallelScan;
+import mmj.util.SharedExecutor;
+import mmj.verify.VerifyException;
+
+/**
+ * The Extended Search of a Step Search: completes the search results whose
+ * hypotheses are not all given by the Hyp field of the derivation step with
+ * previous proof steps.
+ * <p>
+ * The results checked are the first ResultsChecked (sorted) search results
+ * which are not completed, with at most MaxIncompHyps incomplete hypotheses.
+ * They are tried in order of number of incomplete hypotheses, then in the
+ * order of the results: the combinations of the previous steps, nearest
+ * first, are unified with the incomplete hypotheses until one unifies. The
+ * previous steps are at most PrevStepsChecked steps before the derivation
+ * step which are not already among its hypotheses. Unless ReuseDerivSteps is
+ * on, the derivation steps already used as a hypothesis by a previous step
+ * are skipped, except those following a comment starting with
+ * {@link SearchConstants#EXT_SEARCH_REUSE_COMMENT_TOKEN}.
+ * <p>
+ * The results completed, up to MaxExtResults including the ones completed by
+ * the search itself, are scored as completed, and their Hyp field is applied
+ * with them (see {@link StepRequest#hypField}).
+ * <p>
+ * The results are tried in parallel by the threads of the
+ * {@link SharedExecutor}, each one with its own StepUnifier and Work
+ * Variables, which are kept for the next searches.
+ * The substitutions to the Work Variables of the Proof Worksheet are stored in
+ * the Work Variables themselves, so if the steps have some, the results are
+ * tried one at a time with the StepUnifier of the Proof Worksheet. The results
+ * completed do not depend on the number of threads.
+ */
+public class ExtendedSearch {
+
+    private final ProofAsst proofAsst;
+    private final ProofAsstPreferences proofAsstPreferences;
+
+    /** The StepUnifiers of the threads, with their own Work Variables */
+    private final Queue<StepUnifier> workerUnifiers =
+        new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param proofAsst the ProofAsst
+     * @param proofAsstPreferences the preferences, with the StepUnifier and
+     *            the Work Variables of the Proof Worksheet
+     */
+    public ExtendedSearch(final ProofAsst proofAsst,
+        final ProofAsstPreferences proofAsstPreferences)
+    {
+        this.proofAsst = proofAsst;
+        this.proofAsstPreferences = proofAsstPreferences;
+    }
+
+    /**
+     * Completes the search results of a Step Search.
+     *
+     * @param csa the compiled search arguments
+     * @param derivStep the derivation step searched
+     * @param items the search results, sorted, without the trailer item
+     * @param searchOutput the output of the search, for the statistics
+     * @throws InterruptedException if the search task is cancelled
+     */
+    public void complete(final CompiledSearchArgs csa,
+        final DerivationStep derivStep, final List<SearchSelectionItem> items,
+        final SearchOutput searchOutput) throws InterruptedException
+    {
+        int quota = csa.searchMaxExtResults;
+        for (final SearchSelectionItem item : items)
+            if (item.score == SearchConstants.SEARCH_SCORE_COMPLETED_ITEM)
+                quota--;
+        if (quota <= 0)
+            return;
+
+        final List<ProofStepStmt> prevSteps = buildPrevStepList(csa,
+            derivStep);
+        final List<Candidate> list = new ArrayList<>();
+        final int nbrChecked = Math.min(csa.searchResultsChecked,
+            items.size());
+        for (int i = 0; i < nbrChecked; i++) {
+            final SearchSelectionItem item = items.get(i);
+            if (item.score != SearchConstants.SEARCH_SCORE_SELECTED_ITEM)
+                continue;
+            final int nbrIncompHyps = item.assrt.getLogHypArrayLength()
+                - csa.nbrDerivStepHyps;
+            if (nbrIncompHyps <= csa.searchMaxIncompHyps
+                && nbrIncompHyps <= prevSteps.size())
+                list.add(new Candidate(item, nbrIncompHyps));
+        }
+        if (list.isEmpty())
+            return;
+        list.sort(Comparator.comparingInt(c -> c.nbrIncompHyps));
+
+        final Completion completion = new Completion(csa, derivStep,
+            prevSteps, list.toArray(new Candidate[list.size()]), quota);
+        if (SharedExecutor.getNbrThreads() > 1 && list.size() > 1
+            && !hasWorkVars(derivStep, prevSteps))
+            completion.runInParallel();
+        else
+            completion.run(proofAsstPreferences.getStepUnifier());
+
+        for (final Candidate candidate : completion.candidates) {
+            if (quota == 0)
+                break;
+            if (candidate.hypField == null)
+                continue;
+            final SearchSelectionItem item = candidate.item;
+            final String label = item.assrt.getLabel();
+            item.score = SearchConstants.SEARCH_SCORE_COMPLETED_ITEM;
+            item.hypField = candidate.hypField;
+            item.selection[0] = SearchConstants.COMPLETED_ITEM_OUTPUT_LITERAL
+                + label + SearchConstants.SEARCH_OUTPUT_EXT_HYPS_START
+                + candidate.hypField
+                + SearchConstants.SEARCH_OUTPUT_EXT_HYPS_END
+                + item.selection[0].substring(label.length());
+            searchOutput.statsNbrCompletedSearchResults++;
+            quota--;
+        }
+    }
+
+    /**
+     * @param csa the compiled search arguments
+     * @param derivStep the derivation step searched
+     * @return the steps which may be used as incomplete hypotheses, nearest
+     *         first
+     */
+    private List<ProofStepStmt> buildPrevStepList(
+        final CompiledSearchArgs csa, final DerivationStep derivStep)
+    {
+        final List<ProofStepStmt> steps = new ArrayList<>();
+        final Set<ProofStepStmt> referenced = Collections
+            .newSetFromMap(new IdentityHashMap<>());
+        final Set<ProofStepStmt> reusable = Collections
+            .newSetFromMap(new IdentityHashMap<>());
+        boolean reuse = false;
+        for (final ProofWorkStmt stmt : derivStep.getProofWorksheet()
+            .getProofWorkStmtList())
+        {
+            if (stmt == derivStep)
+                break;
+            if (stmt instanceof CommentStmt) {
+                reuse = isReuseComment((CommentStmt)stmt);
+                continue;
+            }
+            if (stmt instanceof DerivationStep)
+                for (final ProofStepStmt hyp : ((DerivationStep)stmt)
+                    .getHypList())
+                    if (hyp != null)
+                        referenced.add(hyp);
+            if (stmt instanceof ProofStepStmt
+                && ((ProofStepStmt)stmt).formulaParseTree != null)
+            {
+                steps.add((ProofStepStmt)stmt);
+                if (reuse)
+                    reusable.add((ProofStepStmt)stmt);
+            }
+            reuse = false;
+        }
+
+        final List<ProofStepStmt> hyps = Arrays.asList(derivStep.getHypList());
+        final List<ProofStepStmt> prevSteps = new ArrayList<>();
+        for (int i = steps.size() - 1; i >= 0
+            && prevSteps.size() < csa.searchPrevStepsChecked; i--)
+        {
+            final ProofStepStmt step = steps.get(i);
+            boolean isHyp = false;
+            for (final ProofStepStmt hyp : hyps)
+                isHyp |= hyp == step;
+            if (isHyp || !csa.searchReuseDerivSteps
+                && step instanceof DerivationStep && referenced.contains(step)
+                && !reusable.contains(step))
+                continue;
+            prevSteps.add(step);
+        }
+        return prevSteps;
+    }
+
+    private static boolean isReuseComment(final CommentStmt comment) {
+        String text = comment.getStmtText().toString().trim();
+        if (text.startsWith(PaConstants.COMMENT_STMT_TOKEN_PREFIX))
+            text = text
+                .substring(PaConstants.COMMENT_STMT_TOKEN_PREFIX.length())
+                .trim();
+        final String[] tokens = text.split("\\s+", 2);
+        return tokens[0]
+            .equalsIgnoreCase(SearchConstants.EXT_SEARCH_REUSE_COMMENT_TOKEN);
+    }
+
+    private static boolean hasWorkVars(final DerivationStep derivStep,
+        final List<ProofStepStmt> prevSteps)
+    {
+        if (derivStep.hasWorkVarsInStepOrItsHyps())
+            return true;
+        final Set<WorkVar> workVars = new HashSet<>();
+        for (final ProofStepStmt step : prevSteps)
+            step.accumSetOfWorkVarsUsed(workVars);
+        return !workVars.isEmpty();
+    }
+
+    private StepUnifier borrowWorkerUnifier() {
+        final StepUnifier stepUnifier = workerUnifiers.poll();
+        if (stepUnifier != null)
+            return stepUnifier;
+        final WorkVarManager workVarManager = new WorkVarManager(
+            proofAsstPreferences.getWorkVarManager());
+        try {
+            workVarManager.declareWorkVars(proofAsst.getGrammar(),
+                proofAsst.getLogicalSystem());
+        } catch (final VerifyException e) {
+            throw new IllegalArgumentException(
+                SearchConstants.ERRMSG_EXT_SEARCH_WORK_VARS_1 + e.getMessage(),
+                e);
+        }
+        return new StepUnifier(workVarManager);
+    }
+
+    private static void checkForInterrupt() throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
+
+    /** A search result checked, with its completion */
+    private static class Candidate {
+        final SearchSelectionItem item;
+        final int nbrIncompHyps;
+
+        /** The completed Hyp field, or null if not completed */
+        String hypField = null;
+
+        Candidate(final SearchSelectionItem item, final int nbrIncompHyps) {
+            this.item = item;
+            this.nbrIncompHyps = nbrIncompHyps;
+        }
+    }
+
+    /**
+     * The completion of the results checked of a search. The results are
+     * scanned in order (see {@link OrderedParallelScan}), and the completion
+     * stops when the results done at the start of the list hold enough
+     * completed results, or when a thread fails.
+     */
+    private class Completion {
+        private final ParseNode stepRoot;
+        private final List<ProofStepStmt> prevSteps;
+        private final ProofStepStmt[] givenHyps;
+        final Candidate[] candidates;
+        private final int quota;
+        private int nbrCompleted = 0;
+
+        Completion(final CompiledSearchArgs csa,
+            final DerivationStep derivStep, final List<ProofStepStmt> prevSteps,
+            final Candidate[] candidates, final int quota)
+        {
+            stepRoot = derivStep.formulaParseTree == null ? null
+                : derivStep.formulaParseTree.getRoot();
+            this.prevSteps = prevSteps;
+            givenHyps = Arrays.copyOf(derivStep.getSortedHypArray(),
+                csa.nbrDerivStepHyps);
+            this.candidates = candidates;
+            this.quota = quota;
+        }
+
+        private OrderedParallelScan<Candidate, RuntimeException> newScan() {
+            return new OrderedParallelScan<>(candidates.length, 1,
+                candidate -> candidate.hypField != null
+                    && ++nbrCompleted >= quota);
+        }
+
+        /**
+         * Completes the results with the StepUnifier of the calling thread.
+         *
+         * @param stepUnifier the StepUnifier
+         * @throws InterruptedException if the search task is cancelled
+         */
+        void run(final StepUnifier stepUnifier) throws InterruptedException {
+            newScan().run(new Completer(stepUnifier),
+                Collections.<Completer> emptyList());
+        }
+
+        /**
+         * Completes the results with the StepUnifiers of the threads, which
+         * are kept for the next searches if the completion succeeds.
+         *
+         * @throws InterruptedException if the search task is cancelled
+         */
+        void runInParallel() throws InterruptedException {
+            final OrderedParallelScan<Candidate, RuntimeException> scan = newScan();
+            final Completer completer = new Completer(borrowWorkerUnifier());
+            final List<Completer> helperCompleters = new ArrayList<>();
+            for (int i = 0; i < scan.getNbrHelpers(); i++)
+                helperCompleters.add(new Completer(borrowWorkerUnifier()));
+            scan.run(completer, helperCompleters);
+            workerUnifiers.add(completer.stepUnifier);
+            for (final Completer helperCompleter : helperCompleters)
+                workerUnifiers.add(helperCompleter.stepUnifier);
+        }
+
+        /** The completion of the results by a thread */
+        private class Completer
+            implements OrderedParallelScan.Scanner<Candidate, RuntimeException>
+        {
+            private final StepUnifier stepUnifier;
+            private Assrt assrt;
+            private LogHyp[] sortedLogHyps;
+            private ProofStepStmt[] hyps;
+            private int[] derivAssrtXRef;
+
+            Completer(final StepUnifier stepUnifier) {
+                this.stepUnifier = stepUnifier;
+            }
+
+            @Override
+            public List<Candidate> scan(final int from, final int to)
+                throws InterruptedException
+            {
+                for (int i = from; i < to; i++)
+                    candidates[i].hypField = complete(candidates[i]);
+                return Arrays.asList(candidates).subList(from, to);
+            }
+
+            /**
+             * @param candidate a result checked
+             * @return the completed Hyp field, or null
+             * @throws InterruptedException if the search task is cancelled
+             */
+            String complete(final Candidate candidate)
+                throws InterruptedException
+            {
+                assrt = candidate.item.assrt;
+                sortedLogHyps = assrt.getSortedLogHypArray();
+                hyps = Arrays.copyOf(givenHyps, sortedLogHyps.length);
+                final int level = givenHyps.length;
+                boolean completed;
+                if (candidate.nbrIncompHyps <= 1)
+                    completed = choose(prevSteps, 0, level);
+                else {
+                    // a step which does not unify alone with the other hyps
+                    // left incomplete is in no completion
+                    final List<ProofStepStmt> usable = new ArrayList<>();
+                    for (final ProofStepStmt step : prevSteps) {
+                        hyps[level] = step;
+                        if (unify())
+                            usable.add(step);
+                    }
+                    hyps[level] = null;
+                    completed = choose(usable, 0, level);
+                }
+                return completed ? buildHypField() : null;
+            }
+
+            /**
+             * Tries the combinations of steps for the hypotheses from a level,
+             * in order.
+             *
+             * @param steps the steps
+             * @param from the first step to use at this level
+             * @param level the level, index in hyps
+             * @return true if a combination unifies, which is left in hyps
+             * @throws InterruptedException if the search task is cancelled
+             */
+            private boolean choose(final List<ProofStepStmt> steps,
+                final int from, final int level) throws InterruptedException
+            {
+                if (level == hyps.length)
+                    return unify();
+                for (int i = from; i < steps.size(); i++) {
+                    hyps[level] = steps.get(i);
+                    if (choose(steps, i + 1, level + 1))
+                        return true;
+                }
+                hyps[level] = null;
+                return false;
+            }
+
+            /**
+             * Unifies the assertion with the derivation step and the hyps, the
+             * null ones being left incomplete.
+             *
+             * @return true if they unify
+             * @throws InterruptedException if the search task is cancelled
+             */
+            private boolean unify() throws InterruptedException {
+                checkForInterrupt();
+                try {
+                    if (!stepUnifier.unifyAndMergeStepFormula(false, assrt,
+                        stepRoot))
+                        return false;
+                    if (hyps.length == 0) {
+                        stepUnifier.finalizeAndLoadAssrtSubst();
+                        return true;
+                    }
+                    if (stepUnifier.unifyAndMergeHypsSorted(sortedLogHyps,
+                        hyps) == null)
+                        return false;
+                } catch (final VerifyException e) {
+                    throw new IllegalArgumentException(
+                        SearchConstants.ERRMSG_EXT_SEARCH_WORK_VARS_1
+                            + e.getMessage(),
+                        e);
+                }
+                derivAssrtXRef = stepUnifier.getDerivAssrtXRef();
+                return true;
+            }
+
+            /**
+             * @return the steps of the hyps, in the order of the hypotheses of
+             *         the assertion
+             */
+            private String buildHypField() {
+                final LogHyp[] logHyps = assrt.getLogHypArray();
+                final String[] steps = new String[logHyps.length];
+                for (int i = 0; i < hyps.length; i++)
+                    for (int j = 0; j < logHyps.length; j++)
+                        if (logHyps[j] == sortedLogHyps[derivAssrtXRef[i]])
+                            steps[j] = hyps[i].getStep();
+                return String.join(
+                    Character.toString(PaConstants.FIELD_DELIMITER_COMMA),
+                    steps);
+            }
+        }
+    }
+}
@@ -25,9 +25,24 @@ public class ParseExprSearchDataLine extends SearchDataLine {
     {
         super(csa, i, searchDataGetter);
         searchUnifier = null;
-        searchUnifier = csa.searchMgr.getSearchUnifier();
+        searchUnifier = new SearchUnifier();
         if (csa.searchOutput.searchReturnCode == 0)
             parseSearchTerms(csa);
+        if (csa.searchOutput.searchReturnCode == 0)
+            findSubtreeCandidates(csa);
+    }
+
+    private ParseExprSearchDataLine(
+        final ParseExprSearchDataLine searchDataLine,
+        final SearchDataGetter searchDataGetter)
+    {
+        super(searchDataLine, searchDataGetter);
+        searchUnifier = new SearchUnifier();
+    }
+
+    @Override
+    public SearchDataLine copy(final SearchDataGetter searchDataGetter) {
+        return new ParseExprSearchDataLine(this, searchDataGetter);
     }
 
     @Override
@@ -61,6 +76,8 @@ public class ParseExprSearchDataLine extends SearchDataLine {
     public boolean evaluateSearchTerm(final QuotedSearchTerm quotedSearchTerm,
         final CompiledSearchArgs csa)
     {
+        if (!isSubtreeCandidate(quotedSearchTerm))
+            return false;
         final boolean excludeVarHyps = !(quotedSearchTerm.parsedSearchTerm.parseTree
             .getRoot().stmt instanceof VarHyp);
         final int numHyps = quotedSearchTerm.parsedSearchTerm.varHypArray.length;
@@ -24,9 +24,24 @@ public class ParseStmtSearchDataLine extends SearchDataLine {
     {
         super(csa, i, searchDataGetter);
         searchUnifier = null;
-        searchUnifier = csa.searchMgr.getSearchUnifier();
+        searchUnifier = new SearchUnifier();
         if (csa.searchOutput.searchReturnCode == 0)
             parseSearchTerms(csa);
+        if (csa.searchOutput.searchReturnCode == 0)
+            findSubtreeCandidates(csa);
+    }
+
+    private ParseStmtSearchDataLine(
+        final ParseStmtSearchDataLine searchDataLine,
+        final SearchDataGetter searchDataGetter)
+    {
+        super(searchDataLine, searchDataGetter);
+        searchUnifier = new SearchUnifier();
+    }
+
+    @Override
+    public SearchDataLine copy(final SearchDataGetter searchDataGetter) {
+        return new ParseStmtSearchDataLine(this, searchDataGetter);
     }
 
     @Override
@@ -60,6 +75,8 @@ public class ParseStmtSearchDataLine extends SearchDataLine {
     public boolean evaluateSearchTerm(final QuotedSearchTerm quotedSearchTerm,
         final CompiledSearchArgs csa)
     {
+        if (!isSubtreeCandidate(quotedSearchTerm))
+            return false;
         final int numHyps = quotedSearchTerm.parsedSearchTerm.varHypArray.length;
         for (final ParseTree element : assrtDataTreeArray)
             if (searchUnifier.unifyStmt(numHyps, searchOperChoice, element,
@@ -15,6 +15,7 @@
 
 package mmj.search;
 
+import java.util.BitSet;
 import java.util.regex.Pattern;
 
 public class QuotedSearchTerm {
@@ -27,6 +28,7 @@ public class QuotedSearchTerm {
         errorMessage = null;
         orIsSet = false;
         pattern = null;
+        candidates = null;
         parsedSearchTerm = null;
     }
 
@@ -38,6 +40,7 @@ public class QuotedSearchTerm {
         errorMessage = null;
         orIsSet = false;
         pattern = null;
+        candidates = null;
         parsedSearchTerm = null;
     }
 
@@ -121,5 +124,6 @@ public class QuotedSearchTerm {
     public String errorMessage;
     public boolean orIsSet;
     Pattern pattern;
+    BitSet candidates;
     public ParsedSearchTerm parsedSearchTerm;
 }
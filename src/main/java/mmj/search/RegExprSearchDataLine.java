@@ -23,26 +23,47 @@ public class RegExprSearchDataLine extends SearchDataLine {
         super(csa, i, searchDataGetter);
         if (csa.searchOutput.searchReturnCode == 0)
             compileSearchTermTextToRegex(csa);
+        if (csa.searchOutput.searchReturnCode == 0)
+            findRegexCandidates(csa);
+    }
+
+    private RegExprSearchDataLine(final RegExprSearchDataLine searchDataLine,
+        final SearchDataGetter searchDataGetter)
+    {
+        super(searchDataLine, searchDataGetter);
     }
 
     @Override
-    public void loadAssrtData() {
-        loadAssrtDataStringArray();
+    public SearchDataLine copy(final SearchDataGetter searchDataGetter) {
+        return new RegExprSearchDataLine(this, searchDataGetter);
     }
 
+    /**
+     * The assertion data is loaded by {@link #evaluateSearchTerm}, only if the
+     * assertion is a candidate of the search term in the AssrtTrigramIndex.
+     */
+    @Override
+    public void loadAssrtData() {}
+
     @Override
     public boolean evaluateSearchTerm(final QuotedSearchTerm quotedSearchTerm,
         final CompiledSearchArgs csa)
     {
+        if (!isRegexCandidate(quotedSearchTerm))
+            return false;
+        if (assrtDataStringArray == null)
+            loadAssrtDataStringArray();
         if (searchPartChoice == SearchOptionsConstants.PART_LABELS_ID) {
             for (final String element : assrtDataStringArray)
-                if (quotedSearchTerm.pattern.matcher(element).matches())
+                if (quotedSearchTerm.pattern
+                    .matcher(new InterruptibleText(element)).matches())
                     return true;
 
         }
         else
             for (final String element : assrtDataStringArray)
-                if (quotedSearchTerm.pattern.matcher(element).find(0))
+                if (quotedSearchTerm.pattern
+                    .matcher(new InterruptibleText(element)).find(0))
                     return true;
         return false;
     }
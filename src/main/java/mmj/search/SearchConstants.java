@@ -30,11 +30,19 @@ public class SearchConstants {
         + "Label %s invalid: not found or not a Statement. Statement label, or a blank?";
     public static final String SEARCH_OUTPUT_LIST_MORE_LITERAL = "***MORE***";
     public static final String SEARCH_OUTPUT_LIST_END_LITERAL = "***END***";
+    public static final String SEARCH_OUTPUT_LIST_SEARCHING_LITERAL = "***SEARCHING***";
+    public static final String SEARCH_OUTPUT_LIST_STOPPED_LITERAL = "***STOPPED***";
     public static final int SEARCH_SCORE_COMPLETED_ITEM = 100;
     public static final int SEARCH_SCORE_SELECTED_ITEM = 50;
     public static final int SEARCH_SCORE_NOT_SELECTED_ITEM = 0;
     public static final int SEARCH_SCORE_TRAILER_ITEM = -1;
+    public static final int SEARCH_PARALLEL_MIN_ASSRTS = 2000;
+    public static final int SEARCH_PARALLEL_CHUNK_SIZE = 256;
+    public static final int SEARCH_STREAM_INTERVAL_MILLIS = 500;
     public static final String COMPLETED_ITEM_OUTPUT_LITERAL = "(*) ";
+    public static final String SEARCH_OUTPUT_EXT_HYPS_START = " [";
+    public static final String SEARCH_OUTPUT_EXT_HYPS_END = "]";
+    public static final String EXT_SEARCH_REUSE_COMMENT_TOKEN = "<so:reuse>";
     public static final String DOT_STEP_CAPTION = ".Step ";
     public static final String SEARCH_OUTPUT_SEARCH_FORMULA_INDENT = "    ";
     public static final String SEARCH_OUTPUT_FORMULA_LABEL_SEPARATOR = " ::= ";
@@ -66,6 +74,12 @@ public class SearchConstants {
         + " SearchOptions? System Message = ";
     public static final String ERRMSG_SEARCH_TASK_EXECUTION_1 = "E-SE-0205"
         + " Search task execution exception! System Message = ";
+    public static final String ERRMSG_EXT_SEARCH_WORK_VARS_1 = "A-SE-0206"
+        + " Extended Search Work Variable problem: alloc more via RunParms?"
+        + " System Message = ";
+    public static final String ERRMSG_SEARCH_STOPPED_RESULTS_KEPT_1 = "I-SE-0207"
+        + " Search stopped before its end, the results found so far are"
+        + " shown. ";
     public static final String ERRMSG_ARG_ERROR_1 = "A-SE-0301"
         + " Validation error for field ";
     public static final String ERRMSG_ARG_ERROR_2 = " value = ";
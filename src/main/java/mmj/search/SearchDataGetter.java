@@ -21,6 +21,16 @@ import mmj.lang.ParseTree.RPNStep;
 public class SearchDataGetter {
 
     public SearchDataGetter() {
+        this(null);
+    }
+
+    /**
+     * @param renderingCache the strings of the assertions rendered by the
+     *            previous searches, or null to render them for each search
+     */
+    public SearchDataGetter(final AssrtRenderingCache renderingCache) {
+        this.renderingCache = renderingCache;
+        rendering = null;
         assrt = null;
         assrtFormulaString = null;
         logHypFormulaString = null;
@@ -41,6 +51,7 @@ public class SearchDataGetter {
 
     public void initForNextSearch(final Assrt assrt1) {
         assrt = assrt1;
+        rendering = null;
         logHypFormulaString = null;
         assrtFormulaString = null;
         assrtCommentString = null;
@@ -90,6 +101,8 @@ public class SearchDataGetter {
     }
 
     private String[] getLogHypFormulaString() {
+        if (logHypFormulaString == null && renderingCache != null)
+            logHypFormulaString = getRendering().logHypFormulaStrings;
         if (logHypFormulaString == null) {
             final LogHyp[] alogHyp = assrt.getLogHypArray();
             logHypFormulaString = new String[alogHyp.length];
@@ -101,6 +114,8 @@ public class SearchDataGetter {
     }
 
     private String getAssrtFormulaString() {
+        if (assrtFormulaString == null && renderingCache != null)
+            assrtFormulaString = getRendering().formulaString;
         if (assrtFormulaString == null)
             assrtFormulaString = assrt.getFormula().toString() + " ";
         return assrtFormulaString;
@@ -115,6 +130,8 @@ public class SearchDataGetter {
     }
 
     private String getAssrtCommentString() {
+        if (assrtCommentString == null && renderingCache != null)
+            assrtCommentString = getRendering().commentString;
         if (assrtCommentString == null)
             assrtCommentString = assrt.getDescriptionForSearch().toLowerCase();
         return assrtCommentString;
@@ -189,6 +206,9 @@ public class SearchDataGetter {
     }
 
     private String getLabelRPNString() {
+        if (labelRPNString == null && renderingCache != null)
+            labelRPNString = getRendering()
+                .getLabelRPNString((Theorem)assrt);
         if (labelRPNString == null) {
             final RPNStep[] astmt = ((Theorem)assrt).getProof();
             final StringBuffer sb = new StringBuffer(5 * astmt.length);
@@ -204,6 +224,12 @@ public class SearchDataGetter {
         return labelRPNString;
     }
 
+    private AssrtRenderingCache.Rendering getRendering() {
+        if (rendering == null)
+            rendering = renderingCache.get(assrt);
+        return rendering;
+    }
+
     public VarHyp[][] getFormulasAssrtDataVarHypArray(final boolean flag,
         final boolean flag1, final boolean flag2)
     {
@@ -306,6 +332,8 @@ public class SearchDataGetter {
         return assrtFormulaTree;
     }
 
+    final AssrtRenderingCache renderingCache;
+    AssrtRenderingCache.Rendering rendering;
     Assrt assrt;
     String assrtFormulaString;
     String[] logHypFormulaString;
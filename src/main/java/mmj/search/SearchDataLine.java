@@ -17,6 +17,7 @@ package mmj.search;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -97,6 +98,40 @@ public abstract class SearchDataLine {
         loadQuotedSearchTermList(csa);
     }
 
+    /**
+     * Copies a compiled search data line for the scan of another thread. The
+     * search terms, which are not changed by the scan, are shared.
+     *
+     * @param searchDataLine the compiled search data line
+     * @param searchDataGetter the data of the current assertion of the copy
+     */
+    protected SearchDataLine(final SearchDataLine searchDataLine,
+        final SearchDataGetter searchDataGetter)
+    {
+        rowIndex = searchDataLine.rowIndex;
+        this.searchDataGetter = searchDataGetter;
+        searchInWhatChoice = searchDataLine.searchInWhatChoice;
+        searchPartChoice = searchDataLine.searchPartChoice;
+        searchFormatChoice = searchDataLine.searchFormatChoice;
+        searchOperChoice = searchDataLine.searchOperChoice;
+        searchForWhat = searchDataLine.searchForWhat;
+        searchBoolChoice = searchDataLine.searchBoolChoice;
+        wantsAxioms = searchDataLine.wantsAxioms;
+        wantsTheorems = searchDataLine.wantsTheorems;
+        wantsLogHyps = searchDataLine.wantsLogHyps;
+        quotedSearchTermList = searchDataLine.quotedSearchTermList;
+        assrtTrigramIndex = searchDataLine.assrtTrigramIndex;
+        assrtSubtreeIndex = searchDataLine.assrtSubtreeIndex;
+        initForNextSearch();
+    }
+
+    /**
+     * @param searchDataGetter the data of the current assertion of the copy
+     * @return a copy of this compiled search data line for the scan of another
+     *         thread
+     */
+    public abstract SearchDataLine copy(SearchDataGetter searchDataGetter);
+
     public abstract void loadAssrtData();
 
     public abstract boolean evaluateSearchTerm(
@@ -270,6 +305,90 @@ public abstract class SearchDataLine {
 
     }
 
+    /**
+     * Finds the candidates of the regular expressions of the search terms in
+     * the AssrtTrigramIndex.
+     *
+     * @param csa the CompiledSearchArgs
+     */
+    protected void findRegexCandidates(final CompiledSearchArgs csa) {
+        assrtTrigramIndex = csa.searchMgr.getAssrtTrigramIndex();
+        for (final QuotedSearchTerm quotedSearchTerm : quotedSearchTermList)
+            quotedSearchTerm.candidates = assrtTrigramIndex
+                .getCandidates(searchPartChoice, quotedSearchTerm.text);
+    }
+
+    /**
+     * @param quotedSearchTerm the search term
+     * @return false if the assertion is not a candidate of the regular
+     *         expression of the search term in the AssrtTrigramIndex
+     */
+    protected boolean isRegexCandidate(
+        final QuotedSearchTerm quotedSearchTerm)
+    {
+        return quotedSearchTerm.candidates == null || assrtTrigramIndex
+            .isCandidate(quotedSearchTerm.candidates, searchDataGetter.assrt);
+    }
+
+    /**
+     * Finds the candidates of the parse trees of the search terms in the
+     * AssrtSubtreeIndex.
+     *
+     * @param csa the CompiledSearchArgs
+     */
+    protected void findSubtreeCandidates(final CompiledSearchArgs csa) {
+        assrtSubtreeIndex = csa.searchMgr.getAssrtSubtreeIndex();
+        for (final QuotedSearchTerm quotedSearchTerm : quotedSearchTermList)
+            quotedSearchTerm.candidates = assrtSubtreeIndex.getCandidates(
+                searchOperChoice, quotedSearchTerm.parsedSearchTerm.parseTree);
+    }
+
+    /**
+     * @param quotedSearchTerm the search term
+     * @return false if the assertion is not a candidate of the parse tree of
+     *         the search term in the AssrtSubtreeIndex
+     */
+    protected boolean isSubtreeCandidate(
+        final QuotedSearchTerm quotedSearchTerm)
+    {
+        return quotedSearchTerm.candidates == null || assrtSubtreeIndex
+            .isCandidate(quotedSearchTerm.candidates, searchDataGetter.assrt);
+    }
+
+    /**
+     * A text whose matching by a regular expression stops with a
+     * CancellationException when the search task is cancelled, since a
+     * regular expression may take very long on a single text.
+     */
+    static class InterruptibleText implements CharSequence {
+        private final CharSequence text;
+        private int nbrChars = 0;
+
+        InterruptibleText(final CharSequence text) {
+            this.text = text;
+        }
+
+        public char charAt(final int index) {
+            if ((++nbrChars & 0xFFF) == 0
+                && Thread.currentThread().isInterrupted())
+                throw new CancellationException();
+            return text.charAt(index);
+        }
+
+        public int length() {
+            return text.length();
+        }
+
+        public CharSequence subSequence(final int start, final int end) {
+            return new InterruptibleText(text.subSequence(start, end));
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
     int rowIndex;
     SearchDataGetter searchDataGetter;
     boolean wantsAxioms;
@@ -285,4 +404,6 @@ public abstract class SearchDataLine {
     String[] assrtDataStringArray;
     ParseTree[] assrtDataTreeArray;
     VarHyp[][] assrtDataVarHypArray;
+    AssrtTrigramIndex assrtTrigramIndex;
+    AssrtSubtreeIndex assrtSubtreeIndex;
 }
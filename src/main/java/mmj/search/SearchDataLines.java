@@ -22,7 +22,7 @@ public class SearchDataLines {
     public SearchDataLines(final CompiledSearchArgs csa) {
         getter = null;
         line = null;
-        getter = new SearchDataGetter();
+        getter = new SearchDataGetter(csa.searchMgr.getAssrtRenderingCache());
         line = new SearchDataLine[4];
         for (int i = 0; i < line.length; i++)
             if (csa.searchForWhat[i].equals(""))
@@ -32,6 +32,21 @@ public class SearchDataLines {
 
     }
 
+    /**
+     * Copies compiled search data lines for the scan of another thread. The
+     * search terms are shared, and the copy has its own data of the current
+     * assertion (see {@link SearchDataLine#copy}).
+     *
+     * @param searchDataLines the compiled search data lines
+     */
+    public SearchDataLines(final SearchDataLines searchDataLines) {
+        getter = new SearchDataGetter(searchDataLines.getter.renderingCache);
+        line = new SearchDataLine[searchDataLines.line.length];
+        for (int i = 0; i < line.length; i++)
+            if (searchDataLines.line[i] != null)
+                line[i] = searchDataLines.line[i].copy(getter);
+    }
+
     public boolean evaluate(final Assrt assrt, final CompiledSearchArgs csa) {
         getter.initForNextSearch(assrt);
         boolean flag = false;
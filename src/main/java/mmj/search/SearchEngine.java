@@ -15,12 +15,14 @@
 
 package mmj.search;
 
-import java.util.BitSet;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 import mmj.lang.*;
 import mmj.pa.*;
+import mmj.util.OrderedParallelScan;
+import mmj.util.SharedExecutor;
 import mmj.verify.VerifyException;
 import mmj.verify.VerifyProofs;
 
@@ -37,17 +39,22 @@ public class SearchEngine {
     private final VerifyProofs verifyProofs;
     private final Cnst provableLogicStmtTyp;
     private final StepUnifier stepUnifier;
+    private ExtendedSearch extendedSearch = null;
     private List<Assrt> assrtAList;
     private DerivationStep derivStep = null;
-    private ProofStepStmt[] derivStepHypArray = null;
-    private Assrt assrt = null;
-    private int assrtNbrLogHyps = 0;
-    private Hyp[] assrtHypArray = null;
-    private LogHyp[] assrtLogHypArray = null;
-    private ParseNode[] assrtSubst = null;
     private boolean stepSearchMode = false;
     private boolean substitutions = false;
 
+    /** The listener of the partial results of the search, or null */
+    private Consumer<SearchOutput> partialResultsListener = null;
+
+    /**
+     * The fields are used by the search task under this lock, so that a new
+     * search waits for the end of a cancelled search task.
+     */
+    private final Object taskLock = new Object();
+    private volatile boolean cancelled = false;
+
     public SearchEngine(final SearchMgr searchMgr, final ProofAsst proofAsst,
         final ProofAsstPreferences proofAsstPreferences,
         final BookManager bookManager, final VerifyProofs verifyProofs,
@@ -67,30 +74,34 @@ public class SearchEngine {
     }
 
     public SearchOutput execSearch() {
-        searchOutput = searchMgr.getSearchOutput();
-        searchArgs = searchMgr.getSearchArgs();
-        stepSearchMode = searchArgs.stepSearchMode;
-        setAssrtAList(searchArgs.sortedAssrtSearchList);
-        store = null;
-        proofAsstPreferences.getWorkVarManager()
-            .deallocAndReallocAll(searchArgs.proofWorksheet);
-        compiledSearchArgs = searchArgs.compile(searchMgr, bookManager,
-            searchOutput, proofAsst, proofAsstPreferences, verifyProofs,
-            provableLogicStmtTyp);
+        synchronized (taskLock) {
+            cancelled = false;
+            searchOutput = searchMgr.getSearchOutput();
+            searchArgs = searchMgr.getSearchArgs();
+            stepSearchMode = searchArgs.stepSearchMode;
+            setAssrtAList(searchArgs.sortedAssrtSearchList);
+            store = null;
+            partialResultsListener = searchMgr
+                .getPartialResultsListener(searchOutput);
+            proofAsstPreferences.getWorkVarManager()
+                .deallocAndReallocAll(searchArgs.proofWorksheet);
+            compiledSearchArgs = searchArgs.compile(searchMgr, bookManager,
+                searchOutput, proofAsst, proofAsstPreferences, verifyProofs,
+                provableLogicStmtTyp);
+        }
+        SearchError error = null;
         if (searchOutput.searchReturnCode == 0) {
-            final FutureTask<SearchOutput> search = new FutureTask<>(
-                new Callable<SearchOutput>()
-            {
-                    public SearchOutput call() throws Exception {
+            final Future<SearchOutput> search = SharedExecutor.get()
+                .submit(() -> {
+                    synchronized (taskLock) {
                         return searchTask();
                     }
                 });
-            Executors.newSingleThreadExecutor().execute(search);
             try {
-                searchOutput = search.get(compiledSearchArgs.searchMaxTime,
-                    TimeUnit.SECONDS);
+                search.get(compiledSearchArgs.searchMaxTime, TimeUnit.SECONDS);
             } catch (final InterruptedException interruptedexception) {
-                searchOutput.storeError(3, 30,
+                cancelSearchTask(search);
+                error = new SearchError(3, 30,
                     SearchConstants.ERRMSG_SEARCH_TASK_INTERRUPTED_1
                         + interruptedexception.getMessage());
             } catch (final ExecutionException executionexception) {
@@ -101,32 +112,74 @@ public class SearchEngine {
                 throw new IllegalArgumentException(
                     "Rethrowing ExecutionException", executionexception);
             } catch (final TimeoutException timeoutexception) {
-                searchOutput.storeError(2, 30,
+                cancelSearchTask(search);
+                error = new SearchError(2, 30,
                     SearchConstants.ERRMSG_SEARCH_TASK_TIMEOUT_1
                         + timeoutexception.getMessage());
             }
         }
-        searchOutput.finalize(compiledSearchArgs, bookManager,
-            proofAsst.getMessages());
+        synchronized (taskLock) {
+            if (error != null && !keepPartialResults(error))
+                searchOutput.storeError(error);
+            searchOutput.finalize(compiledSearchArgs, bookManager,
+                proofAsst.getMessages());
+        }
         return searchOutput;
     }
 
+    /**
+     * Keeps the results found by a streamed search which was stopped by a
+     * timeout or a cancel, instead of reporting the error.
+     *
+     * @param error the error of the stopped search
+     * @return true if the results are kept
+     */
+    private boolean keepPartialResults(final SearchError error) {
+        if (partialResultsListener == null || store == null
+            || store.size() == 0)
+            return false;
+        synchronized (searchOutput) {
+            if (!searchOutput.resultsComplete) {
+                store.loadPartialSearchOutput(searchOutput, "",
+                    SearchConstants.SEARCH_OUTPUT_LIST_STOPPED_LITERAL);
+                searchOutput.resultsComplete = true;
+            }
+        }
+        proofAsst.getMessages().accumInfoMessage(
+            SearchConstants.ERRMSG_SEARCH_STOPPED_RESULTS_KEPT_1
+                + error.message);
+        return true;
+    }
+
+    /**
+     * Interrupts the search task: it stops at its next call of
+     * checkForInterrupt(), or in the regular expression it is running (see
+     * {@link SearchDataLine.InterruptibleText}), and it then releases the
+     * taskLock.
+     *
+     * @param search the search task
+     */
+    private void cancelSearchTask(final Future<SearchOutput> search) {
+        cancelled = true;
+        search.cancel(true);
+    }
+
     public SearchOutput searchTask() {
         substitutions = compiledSearchArgs.searchSubstitutions;
         store = new SearchOutputStore(compiledSearchArgs.searchMaxResults,
             compiledSearchArgs.searchOutputSortNbr);
+        if (partialResultsListener != null)
+            store.setPartialResultsListener(partialResultsListener, "",
+                SearchConstants.SEARCH_STREAM_INTERVAL_MILLIS);
         try {
             loadSearchOutput();
-            if (searchOutput.searchReturnCode == 0
-                && compiledSearchArgs.searchResultsChecked > 0)
-            {
-                checkForInterrupt();
-                doExtendedSearch();
-            }
-        } catch (final InterruptedException interruptedexception) {
-            searchOutput.storeError(3, 30,
-                SearchConstants.ERRMSG_SEARCH_TASK_INTERRUPTED_1
-                    + interruptedexception.getMessage());
+        } catch (final InterruptedException
+            | CancellationException interruptedexception)
+        {
+            if (!cancelled)
+                searchOutput.storeError(3, 30,
+                    SearchConstants.ERRMSG_SEARCH_TASK_INTERRUPTED_1
+                        + interruptedexception.getMessage());
         }
         return searchOutput;
     }
@@ -147,122 +200,146 @@ public class SearchEngine {
     }
 
     private void loadSearchOutput() throws InterruptedException {
-        ProofStepStmt[] aproofStepStmt = null;
-        boolean full = false;
-        final int minSeq = compiledSearchArgs.searchMinSeq;
-        final int maxSeq = compiledSearchArgs.searchMaxSeq;
-        final int nbrDerivStepHyps = compiledSearchArgs.nbrDerivStepHyps;
-        final int minHyps = compiledSearchArgs.searchMinHyps;
-        final int maxHyps = compiledSearchArgs.searchMaxHyps;
-        final int minProofRefs = compiledSearchArgs.searchMinProofRefs;
         String step;
         if (stepSearchMode) {
             derivStep = searchArgs.stepSearchStmt;
-            aproofStepStmt = derivStep.getSortedHypArray();
             step = derivStep.getStep();
         }
         else {
             derivStep = null;
-            aproofStepStmt = null;
-            derivStepHypArray = null;
             step = "";
         }
-        int k1 = computeSearchStart(minHyps);
-        hypLoop: for (int hyp = minHyps; hyp <= maxHyps; hyp++) {
-            if (stepSearchMode) {
-                derivStepHypArray = new ProofStepStmt[hyp];
-                for (int j2 = 0; j2 < nbrDerivStepHyps; j2++)
-                    derivStepHypArray[j2] = aproofStepStmt[j2];
+        final List<Assrt> scanList = buildScanList();
+        boolean full;
+        if (!stepSearchMode
+            && scanList.size() >= SearchConstants.SEARCH_PARALLEL_MIN_ASSRTS
+            && SharedExecutor.getNbrThreads() > 1)
+            full = scanInParallel(scanList);
+        else
+            full = new Scan(searchOutput, compiledSearchArgs.searchDataLines)
+                .scan(scanList, 0, scanList.size(), store);
+        if (searchOutput.searchReturnCode == 0 && stepSearchMode
+            && compiledSearchArgs.searchResultsChecked > 0
+            && compiledSearchArgs.searchMaxExtResults > 0)
+        {
+            checkForInterrupt();
+            doExtendedSearch();
+        }
+        store.loadSearchOutput(searchOutput, step, full);
+    }
 
+    /**
+     * Builds the list of the assertions to scan: the assertions of assrtAList,
+     * which is sorted by number of logical hypotheses and seq, with the
+     * numbers of hypotheses and the seqs within the bounds of the search.
+     * <p>
+     * The assertions rejected here are counted in the statistics like they
+     * were when the whole list was scanned: each one under the MinSeq bound,
+     * and the first one past the end of each hypothesis count group.
+     *
+     * @return the list of the assertions to scan, in assrtAList order
+     */
+    private List<Assrt> buildScanList() {
+        final List<Assrt> scanList = new ArrayList<>();
+        final int minSeq = compiledSearchArgs.searchMinSeq;
+        final int maxSeq = compiledSearchArgs.searchMaxSeq;
+        int start = computeSearchStart(compiledSearchArgs.searchMinHyps);
+        while (start < assrtAList.size()) {
+            final int hyp = assrtAList.get(start).getLogHypArrayLength();
+            if (hyp > compiledSearchArgs.searchMaxHyps)
+                break;
+            final int end = Math.min(computeSearchStart(hyp + 1),
+                assrtAList.size());
+            final int first = findFirstSeqAbove(start, end, minSeq);
+            final int last = findFirstSeqAbove(first, end, maxSeq - 1);
+            searchOutput.statsNbrInputAssrtGets += first - start;
+            searchOutput.statsNbrRejectLEMinSeq += first - start;
+            scanList.addAll(assrtAList.subList(first, last));
+            if (last < end) {
+                searchOutput.statsNbrInputAssrtGets++;
+                searchOutput.statsNbrRejectGEMaxSeq++;
             }
-            for (; k1 < assrtAList.size(); k1++) {
-                checkForInterrupt();
-                if (searchOutput.searchReturnCode != 0)
-                    break;
-                assrt = assrtAList.get(k1);
+            else if (end < assrtAList.size()) {
                 searchOutput.statsNbrInputAssrtGets++;
-                final int i2 = assrt.getSeq();
-                if (i2 >= maxSeq) {
-                    searchOutput.statsNbrRejectGEMaxSeq++;
-                    k1 = computeSearchStart(hyp + 1);
-                    continue hypLoop;
-                }
-                if (i2 <= minSeq) {
-                    searchOutput.statsNbrRejectLEMinSeq++;
-                    k1++;
-                    continue;
-                }
-                assrtNbrLogHyps = assrt.getLogHypArrayLength();
-                if (assrtNbrLogHyps != hyp) {
-                    searchOutput.statsNbrRejectGTHypIndex++;
-                    continue hypLoop;
-                }
-                if (assrt.getNbrProofRefs() < minProofRefs) {
-                    searchOutput.statsNbrRejectLTMinProofRefs++;
-                    k1++;
-                    continue;
-                }
-                assrtLogHypArray = assrt.getLogHypArray();
-                assrtHypArray = assrt.getMandFrame().hypArray;
-                if (evaluateOtherExclusionCriteria()) {
-                    if (stepSearchMode && !isAssrtUnifiable()) {
-                        searchOutput.statsNbrRejectFailUnify++;
-                        k1++;
-                        continue;
-                    }
-                    if (evaluateSearchDataLines()) {
-                        if (searchOutput.searchReturnCode != 0)
-                            break;
-                        searchOutput.statsNbrSelected++;
-                        if (addAssrtToStore(computeScore())) {
-                            full = true;
-                            break;
-                        }
-                    }
-                    else
-                        searchOutput.statsNbrRejectFailSearchData++;
-                }
-                else
-                    searchOutput.statsNbrRejectOtherExclCriteria++;
+                searchOutput.statsNbrRejectGTHypIndex++;
             }
+            start = end;
         }
-        store.loadSearchOutput(searchOutput, step, full);
-        return;
+        return scanList;
     }
 
-    private void doExtendedSearch() throws InterruptedException {
-        checkForInterrupt();
+    /**
+     * @param from the start of a range of assrtAList sorted by seq
+     * @param to the end of the range
+     * @param seq the seq
+     * @return the index of the first assertion of the range with a greater
+     *         seq, or the end of the range
+     */
+    private int findFirstSeqAbove(int from, int to, final int seq) {
+        while (from < to) {
+            final int mid = from + (to - from) / 2;
+            if (assrtAList.get(mid).getSeq() > seq)
+                to = mid;
+            else
+                from = mid + 1;
+        }
+        return from;
     }
 
-    private boolean evaluateOtherExclusionCriteria() {
-        final String s = assrt.getLabel();
-        final int i = compiledSearchArgs.searchExclLabelsPattern.length;
-        for (int j = 0; j < i; j++)
-            if (compiledSearchArgs.searchExclLabelsPattern[j].matcher(s)
-                .matches())
-            {
-                searchOutput.statsNbrRejectExclLabels++;
-                return false;
-            }
-
-        final BitSet bitset = compiledSearchArgs.searchCombinedDependencies;
-        if (bitset != null)
-            if (compiledSearchArgs.searchUseChapHierarchy) {
-                if (!bitset.get(assrt.getChapterNbr()))
-                    return false;
-            }
-            else if (compiledSearchArgs.searchUseSecHierarchy && !bitset
-                .get(BookManager.getOrigSectionNbr(assrt.getSectionNbr())))
-                return false;
-        return true;
+    /**
+     * Scans the assertions in chunks, claimed in order by the search task and
+     * by helper tasks, each with its own Scan (see {@link OrderedParallelScan}
+     * ). The results of the chunks are merged in order into the store, so they
+     * are those of a sequential scan: the scan stops as soon as the store is
+     * full.
+     *
+     * @param scanList the assertions to scan
+     * @return true if the store is full
+     * @throws InterruptedException if the search task is cancelled
+     */
+    private boolean scanInParallel(final List<Assrt> scanList)
+        throws InterruptedException
+    {
+        final OrderedParallelScan<SearchSelectionItem, RuntimeException> parallelScan = new OrderedParallelScan<>(
+            scanList.size(), SearchConstants.SEARCH_PARALLEL_CHUNK_SIZE,
+            item -> {
+                final boolean full = store.add(item.assrt, item.selection,
+                    item.score);
+                store.publishPartialResults();
+                return full;
+            });
+        final List<SearchOutput> helperStats = new ArrayList<>();
+        final List<OrderedParallelScan.Scanner<SearchSelectionItem, RuntimeException>> helperScanners = new ArrayList<>();
+        for (int i = 0; i < parallelScan.getNbrHelpers(); i++) {
+            final SearchOutput stats = new SearchOutput("");
+            helperStats.add(stats);
+            helperScanners.add(new Scan(stats,
+                compiledSearchArgs.searchDataLines == null ? null
+                    : new SearchDataLines(compiledSearchArgs.searchDataLines))
+                        .getChunkScanner(scanList));
+        }
+        parallelScan.run(
+            new Scan(searchOutput, compiledSearchArgs.searchDataLines)
+                .getChunkScanner(scanList),
+            helperScanners);
+        for (final SearchOutput stats : helperStats)
+            searchOutput.addStats(stats);
+        return store.isFull();
     }
 
-    private boolean evaluateSearchDataLines() {
-        if (compiledSearchArgs.searchDataLines != null)
-            return compiledSearchArgs.searchDataLines.evaluate(assrt,
-                compiledSearchArgs);
-        else
-            return true;
+    /**
+     * Completes the first sorted search results with previous proof steps (see
+     * {@link ExtendedSearch}).
+     *
+     * @throws InterruptedException if the search task is cancelled
+     */
+    private void doExtendedSearch() throws InterruptedException {
+        if (extendedSearch == null)
+            extendedSearch = new ExtendedSearch(proofAsst,
+                proofAsstPreferences);
+        store.sort();
+        extendedSearch.complete(compiledSearchArgs, derivStep,
+            store.getItems(), searchOutput);
     }
 
     private int computeSearchStart(final int minHyps) {
@@ -285,124 +362,259 @@ public class SearchEngine {
         return ++l;
     }
 
-    private boolean isAssrtUnifiable() {
-        try {
-            if (unifyStepFormulaWithWorkVars()) {
-                if (assrtNbrLogHyps == 0) {
-                    assrtSubst = stepUnifier.finalizeAndLoadAssrtSubst();
-                    return true;
+    private void checkForInterrupt() throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        else
+            return;
+    }
+
+    /**
+     * The evaluation of the assertions of a scan, with the data of the current
+     * assertion. Each thread of a parallel scan has its own Scan, with its own
+     * search data lines and statistics.
+     */
+    private class Scan {
+        private final SearchOutput stats;
+        private final SearchDataLines searchDataLines;
+        private ProofStepStmt[] derivStepHypArray = null;
+        private Assrt assrt = null;
+        private int assrtNbrLogHyps = 0;
+        private Hyp[] assrtHypArray = null;
+        private LogHyp[] assrtLogHypArray = null;
+        private ParseNode[] assrtSubst = null;
+
+        Scan(final SearchOutput stats, final SearchDataLines searchDataLines) {
+            this.stats = stats;
+            this.searchDataLines = searchDataLines;
+        }
+
+        /**
+         * Returns the Scanner of the chunks of a parallel scan, which
+         * evaluates each chunk into its own store.
+         *
+         * @param list the assertions
+         * @return the Scanner
+         */
+        OrderedParallelScan.Scanner<SearchSelectionItem, RuntimeException> getChunkScanner(
+            final List<Assrt> list)
+        {
+            return (from, to) -> {
+                final SearchOutputStore chunkStore = new SearchOutputStore(
+                    compiledSearchArgs.searchMaxResults,
+                    compiledSearchArgs.searchOutputSortNbr);
+                scan(list, from, to, chunkStore);
+                return chunkStore.getItems();
+            };
+        }
+
+        /**
+         * Evaluates a range of assertions, and adds the selected ones to a
+         * store.
+         *
+         * @param list the assertions
+         * @param from the start of the range
+         * @param to the end of the range
+         * @param store the store
+         * @return true if the store is full
+         * @throws InterruptedException if the search task is cancelled
+         */
+        boolean scan(final List<Assrt> list, final int from, final int to,
+            final SearchOutputStore store) throws InterruptedException
+        {
+            final int minProofRefs = compiledSearchArgs.searchMinProofRefs;
+            for (int k1 = from; k1 < to; k1++) {
+                checkForInterrupt();
+                store.publishPartialResults();
+                if (searchOutput.searchReturnCode != 0)
+                    break;
+                assrt = list.get(k1);
+                stats.statsNbrInputAssrtGets++;
+                assrtNbrLogHyps = assrt.getLogHypArrayLength();
+                if (assrt.getNbrProofRefs() < minProofRefs) {
+                    stats.statsNbrRejectLTMinProofRefs++;
+                    continue;
+                }
+                assrtLogHypArray = assrt.getLogHypArray();
+                assrtHypArray = assrt.getMandFrame().hypArray;
+                if (evaluateOtherExclusionCriteria()) {
+                    if (stepSearchMode && !isAssrtUnifiable()) {
+                        stats.statsNbrRejectFailUnify++;
+                        continue;
+                    }
+                    if (evaluateSearchDataLines()) {
+                        if (searchOutput.searchReturnCode != 0)
+                            break;
+                        stats.statsNbrSelected++;
+                        if (addAssrtToStore(store, computeScore()))
+                            return true;
+                    }
+                    else
+                        stats.statsNbrRejectFailSearchData++;
                 }
-                if ((assrtSubst = stepUnifier.unifyAndMergeHypsSorted(
-                    assrt.getSortedLogHypArray(), derivStepHypArray)) != null)
-                    return true;
+                else
+                    stats.statsNbrRejectOtherExclCriteria++;
             }
-        } catch (final VerifyException verifyException) {
-            throw new IllegalArgumentException(
-                " A work var problem: alloc more via RunParms? "
-                    + verifyException.getMessage());
+            return false;
         }
-        return false;
-    }
 
-    private boolean unifyStepFormulaWithWorkVars() throws VerifyException {
-        assrt.getExprParseTree().getRoot();
-        ParseNode parseNode = null;
-        if (derivStep.formulaParseTree != null)
-            parseNode = derivStep.formulaParseTree.getRoot();
-        return stepUnifier.unifyAndMergeStepFormula(false, assrt, parseNode);
-    }
+        private boolean evaluateOtherExclusionCriteria() {
+            final String s = assrt.getLabel();
+            final int i = compiledSearchArgs.searchExclLabelsPattern.length;
+            for (int j = 0; j < i; j++)
+                if (compiledSearchArgs.searchExclLabelsPattern[j].matcher(s)
+                    .matches())
+                {
+                    stats.statsNbrRejectExclLabels++;
+                    return false;
+                }
 
-    private int computeScore() {
-        if (stepSearchMode && !compiledSearchArgs.derivStepHypWildcards) {
-            searchOutput.statsNbrCompletedSearchResults++;
-            return 100;
+            final BitSet bitset = compiledSearchArgs.searchCombinedDependencies;
+            if (bitset != null)
+                if (compiledSearchArgs.searchUseChapHierarchy) {
+                    if (!bitset.get(assrt.getChapterNbr()))
+                        return false;
+                }
+                else if (compiledSearchArgs.searchUseSecHierarchy
+                    && !bitset.get(
+                        BookManager.getOrigSectionNbr(assrt.getSectionNbr())))
+                    return false;
+            return true;
         }
-        else
-            return 50;
-    }
 
-    private boolean addAssrtToStore(final int score) {
-        String s;
-        if (score == 100)
-            s = SearchConstants.COMPLETED_ITEM_OUTPUT_LITERAL;
-        else
-            s = "";
-        String s1 = "";
-        int j;
-        if (compiledSearchArgs.searchComments) {
-            s1 = assrt.getDescription();
-            j = 2 + assrtNbrLogHyps;
+        private boolean evaluateSearchDataLines() {
+            if (searchDataLines != null)
+                return searchDataLines.evaluate(assrt, compiledSearchArgs);
+            else
+                return true;
         }
-        else
-            j = 1 + assrtNbrLogHyps;
-        final String[] selection = new String[j];
-        int k = 0;
-        final Formula[] aformula = new Formula[assrtNbrLogHyps];
-        Formula formula;
-        if (stepSearchMode && substitutions) {
-            formula = buildSearchSelectionSubstFormula(
-                assrt.getExprParseTree());
-            for (int l = 0; l < assrtNbrLogHyps; l++)
-                aformula[l] = buildSearchSelectionSubstFormula(
-                    assrtLogHypArray[l].getExprParseTree());
 
+        private boolean isAssrtUnifiable() {
+            if (derivStepHypArray == null
+                || derivStepHypArray.length != assrtNbrLogHyps)
+            {
+                final ProofStepStmt[] aproofStepStmt = derivStep
+                    .getSortedHypArray();
+                derivStepHypArray = new ProofStepStmt[assrtNbrLogHyps];
+                for (int j2 = 0; j2 < compiledSearchArgs.nbrDerivStepHyps; j2++)
+                    derivStepHypArray[j2] = aproofStepStmt[j2];
+            }
+            try {
+                if (unifyStepFormulaWithWorkVars()) {
+                    if (assrtNbrLogHyps == 0) {
+                        assrtSubst = stepUnifier.finalizeAndLoadAssrtSubst();
+                        return true;
+                    }
+                    if ((assrtSubst = stepUnifier.unifyAndMergeHypsSorted(
+                        assrt.getSortedLogHypArray(),
+                        derivStepHypArray)) != null)
+                        return true;
+                }
+            } catch (final VerifyException verifyException) {
+                throw new IllegalArgumentException(
+                    " A work var problem: alloc more via RunParms? "
+                        + verifyException.getMessage());
+            }
+            return false;
         }
-        else {
-            formula = assrt.getFormula();
-            for (int i1 = 0; i1 < assrtNbrLogHyps; i1++)
-                aformula[i1] = assrtLogHypArray[i1].getFormula();
 
+        private boolean unifyStepFormulaWithWorkVars() throws VerifyException {
+            assrt.getExprParseTree().getRoot();
+            ParseNode parseNode = null;
+            if (derivStep.formulaParseTree != null)
+                parseNode = derivStep.formulaParseTree.getRoot();
+            return stepUnifier.unifyAndMergeStepFormula(false, assrt,
+                parseNode);
         }
-        if (assrtNbrLogHyps == 0) {
-            if (s1.length() > 0) {
-                selection[k++] = s + assrt.getLabel() + " " + s1;
-                selection[k++] = SearchConstants.SEARCH_OUTPUT_SEARCH_FORMULA_INDENT
-                    + SearchConstants.SEARCH_OUTPUT_FORMULA_LABEL_SEPARATOR
-                    + formula.toString();
+
+        private int computeScore() {
+            if (stepSearchMode && !compiledSearchArgs.derivStepHypWildcards) {
+                stats.statsNbrCompletedSearchResults++;
+                return 100;
             }
             else
-                selection[k++] = s + assrt.getLabel()
-                    + SearchConstants.SEARCH_OUTPUT_FORMULA_LABEL_SEPARATOR
-                    + formula.toString();
+                return 50;
         }
-        else {
-            String s3;
-            if (s1.length() > 0) {
-                selection[k++] = s + assrt.getLabel() + " " + s1;
-                s3 = SearchConstants.SEARCH_OUTPUT_SEARCH_FORMULA_INDENT;
+
+        private boolean addAssrtToStore(final SearchOutputStore store,
+            final int score)
+        {
+            String s;
+            if (score == 100)
+                s = SearchConstants.COMPLETED_ITEM_OUTPUT_LITERAL;
+            else
+                s = "";
+            String s1 = "";
+            int j;
+            if (compiledSearchArgs.searchComments) {
+                s1 = assrt.getDescription();
+                j = 2 + assrtNbrLogHyps;
             }
             else
-                s3 = s + assrt.getLabel();
-            selection[k++] = s3
-                + SearchConstants.SEARCH_OUTPUT_FORMULA_LABEL_SEPARATOR
-                + aformula[0].toString();
-            for (int j1 = 1; j1 < assrtNbrLogHyps; j1++)
-                selection[k++] = SearchConstants.SEARCH_OUTPUT_SEARCH_FORMULA_INDENT
-                    + SearchConstants.SEARCH_OUTPUT_FORMULA_LOG_HYP_SEPARATOR
-                    + aformula[j1].toString();
+                j = 1 + assrtNbrLogHyps;
+            final String[] selection = new String[j];
+            int k = 0;
+            final Formula[] aformula = new Formula[assrtNbrLogHyps];
+            Formula formula;
+            if (stepSearchMode && substitutions) {
+                formula = buildSearchSelectionSubstFormula(
+                    assrt.getExprParseTree());
+                for (int l = 0; l < assrtNbrLogHyps; l++)
+                    aformula[l] = buildSearchSelectionSubstFormula(
+                        assrtLogHypArray[l].getExprParseTree());
+
+            }
+            else {
+                formula = assrt.getFormula();
+                for (int i1 = 0; i1 < assrtNbrLogHyps; i1++)
+                    aformula[i1] = assrtLogHypArray[i1].getFormula();
 
-            selection[k++] = SearchConstants.SEARCH_OUTPUT_SEARCH_FORMULA_INDENT
-                + SearchConstants.SEARCH_OUTPUT_FORMULA_YIELDS_SEPARATOR
-                + formula.toString();
+            }
+            if (assrtNbrLogHyps == 0) {
+                if (s1.length() > 0) {
+                    selection[k++] = s + assrt.getLabel() + " " + s1;
+                    selection[k++] = SearchConstants.SEARCH_OUTPUT_SEARCH_FORMULA_INDENT
+                        + SearchConstants.SEARCH_OUTPUT_FORMULA_LABEL_SEPARATOR
+                        + formula.toString();
+                }
+                else
+                    selection[k++] = s + assrt.getLabel()
+                        + SearchConstants.SEARCH_OUTPUT_FORMULA_LABEL_SEPARATOR
+                        + formula.toString();
+            }
+            else {
+                String s3;
+                if (s1.length() > 0) {
+                    selection[k++] = s + assrt.getLabel() + " " + s1;
+                    s3 = SearchConstants.SEARCH_OUTPUT_SEARCH_FORMULA_INDENT;
+                }
+                else
+                    s3 = s + assrt.getLabel();
+                selection[k++] = s3
+                    + SearchConstants.SEARCH_OUTPUT_FORMULA_LABEL_SEPARATOR
+                    + aformula[0].toString();
+                for (int j1 = 1; j1 < assrtNbrLogHyps; j1++)
+                    selection[k++] = SearchConstants.SEARCH_OUTPUT_SEARCH_FORMULA_INDENT
+                        + SearchConstants.SEARCH_OUTPUT_FORMULA_LOG_HYP_SEPARATOR
+                        + aformula[j1].toString();
+
+                selection[k++] = SearchConstants.SEARCH_OUTPUT_SEARCH_FORMULA_INDENT
+                    + SearchConstants.SEARCH_OUTPUT_FORMULA_YIELDS_SEPARATOR
+                    + formula.toString();
+            }
+            return store.add(assrt, selection, score);
         }
-        return store.add(assrt, selection, score);
-    }
-    private Formula buildSearchSelectionSubstFormula(
-        final ParseTree parseTree)
-    {
-        final ParseTree parseTree1 = parseTree
-            .deepCloneApplyingAssrtSubst(assrtHypArray, assrtSubst);
-        final Formula formula = verifyProofs.convertRPNToFormula(
-            parseTree1.convertToRPN(),
-            SearchConstants.DOT_STEP_CAPTION + derivStep.getStep());
-        formula.setTyp(provableLogicStmtTyp);
-        return formula;
-    }
 
-    private void checkForInterrupt() throws InterruptedException {
-        if (Thread.interrupted())
-            throw new InterruptedException();
-        else
-            return;
+        private Formula buildSearchSelectionSubstFormula(
+            final ParseTree parseTree)
+        {
+            final ParseTree parseTree1 = parseTree
+                .deepCloneApplyingAssrtSubst(assrtHypArray, assrtSubst);
+            final Formula formula = verifyProofs.convertRPNToFormula(
+                parseTree1.convertToRPN(),
+                SearchConstants.DOT_STEP_CAPTION + derivStep.getStep());
+            formula.setTyp(provableLogicStmtTyp);
+            return formula;
+        }
     }
 }
@@ -16,8 +16,11 @@
 package mmj.search;
 
 import java.awt.Dimension;
+import java.awt.EventQueue;
 import java.awt.Font;
+import java.awt.GraphicsEnvironment;
 import java.util.List;
+import java.util.function.Consumer;
 
 import javax.swing.JOptionPane;
 
@@ -70,6 +73,11 @@ public class SearchMgr {
     private SearchOutput searchOutput = new SearchOutput("");
     private SearchEngine searchEngine = null;
     private final SearchUnifier searchUnifier = new SearchUnifier();
+    private AssrtTextIndex assrtTextIndex = null;
+    private AssrtTrigramIndex assrtTrigramIndex = null;
+    private AssrtSubtreeIndex assrtSubtreeIndex = null;
+    private final AssrtRenderingCache assrtRenderingCache =
+        new AssrtRenderingCache();
 
     public SearchMgr(final ProofAsstPreferences proofAsstPreferences) {
         this.proofAsstPreferences = proofAsstPreferences;
@@ -99,10 +107,79 @@ public class SearchMgr {
         bookManager = logicalSystem.bookManager;
         provableLogicStmtTyp = grammar.getProvableLogicStmtTypArray()[0];
         searchArgs.sortedAssrtSearchList = proofAsst.getSortedAssrtSearchList();
+        assrtTextIndex = null;
+        assrtTrigramIndex = null;
+        assrtSubtreeIndex = null;
+        assrtRenderingCache.clear();
         searchEngine = new SearchEngine(this, proofAsst, proofAsstPreferences,
             bookManager, verifyProofs, provableLogicStmtTyp);
     }
 
+    /**
+     * Returns the index of the words of the assertions, which is built by the
+     * first search using it.
+     *
+     * @return the AssrtTextIndex of the assertions of the ProofAsst.
+     */
+    public synchronized AssrtTextIndex getAssrtTextIndex() {
+        if (assrtTextIndex == null)
+            assrtTextIndex = new AssrtTextIndex(
+                proofAsst.getSortedAssrtSearchList());
+        return assrtTextIndex;
+    }
+
+    /**
+     * Returns the trigram index of the assertions, which is built by the first
+     * search using it.
+     *
+     * @return the AssrtTrigramIndex of the assertions of the ProofAsst.
+     */
+    public synchronized AssrtTrigramIndex getAssrtTrigramIndex() {
+        if (assrtTrigramIndex == null)
+            assrtTrigramIndex = new AssrtTrigramIndex(
+                proofAsst.getSortedAssrtSearchList());
+        return assrtTrigramIndex;
+    }
+
+    /**
+     * Returns the index of the subexpressions of the assertions, which is
+     * built by the first search using it.
+     *
+     * @return the AssrtSubtreeIndex of the assertions of the ProofAsst.
+     */
+    public synchronized AssrtSubtreeIndex getAssrtSubtreeIndex() {
+        if (assrtSubtreeIndex == null)
+            assrtSubtreeIndex = new AssrtSubtreeIndex(
+                proofAsst.getSortedAssrtSearchList());
+        return assrtSubtreeIndex;
+    }
+
+    /**
+     * Returns the strings of the assertions rendered by the previous searches.
+     *
+     * @return the AssrtRenderingCache of the assertions of the ProofAsst.
+     */
+    public AssrtRenderingCache getAssrtRenderingCache() {
+        return assrtRenderingCache;
+    }
+
+    /**
+     * Adds the theorems added by the TheoremLoader to the AssrtTextIndex, the
+     * AssrtTrigramIndex and the AssrtSubtreeIndex, if they are already built.
+     *
+     * @param listOfAssrtAdds the added theorems.
+     */
+    public synchronized void commit(
+        final List<? extends Assrt> listOfAssrtAdds)
+    {
+        if (assrtTextIndex != null)
+            assrtTextIndex.add(listOfAssrtAdds);
+        if (assrtTrigramIndex != null)
+            assrtTrigramIndex.add(listOfAssrtAdds);
+        if (assrtSubtreeIndex != null)
+            assrtSubtreeIndex.add(listOfAssrtAdds);
+    }
+
     public void execSearchOptionsNewGeneralSearch(final Stmt stmt) {
         searchArgs.loadSearchKeys(stmt, logicalSystem);
         execShowSearchOptions();
@@ -118,7 +195,7 @@ public class SearchMgr {
         searchOutput = new SearchOutput(getSearchOptionsFrame().getTitle());
         getSearchOptionsFrame().uploadFromScrnMap(searchArgs);
         searchArgs.sortedAssrtSearchList = proofAsst.getSortedAssrtSearchList();
-        return searchEngine.execSearch();
+        return runSearch();
     }
 
     public String execCancelRequestAction() {
@@ -136,11 +213,67 @@ public class SearchMgr {
         searchOutput = new SearchOutput(getSearchOptionsFrame().getTitle());
         searchArgs.sortedAssrtSearchList = arraylist;
         if (arraylist.size() > 0)
-            return searchEngine.execSearch();
+            return runSearch();
         else
             return searchOutput;
     }
 
+    /**
+     * Runs the search of the current SearchOutput. If the search throws, the
+     * streaming of its partial results is ended, so that the Search Results
+     * window does not keep the partial results of the failed search.
+     *
+     * @return the SearchOutput
+     */
+    private SearchOutput runSearch() {
+        final SearchOutput target = searchOutput;
+        boolean completed = false;
+        try {
+            final SearchOutput output = searchEngine.execSearch();
+            completed = true;
+            return output;
+        } finally {
+            if (!completed)
+                endStreaming(target);
+        }
+    }
+
+    private void endStreaming(final SearchOutput target) {
+        synchronized (target) {
+            target.resultsComplete = true;
+        }
+        final SearchResultsFrame frame = searchResultsFrame;
+        if (frame != null)
+            EventQueue.invokeLater(frame::endStreaming);
+    }
+
+    /**
+     * Returns the listener of the partial results of a General Search run
+     * from the Proof Assistant GUI, which shows them on the Search Results
+     * window until the search ends.
+     *
+     * @param target the SearchOutput of the search
+     * @return the listener, or null if the results are not streamed
+     */
+    public Consumer<SearchOutput> getPartialResultsListener(
+        final SearchOutput target)
+    {
+        if (getStepSearchMode()
+            || !proofAsstPreferences.searchStreamResults.get()
+            || proofAsst == null || proofAsst.getProofAsstGUI() == null
+            || GraphicsEnvironment.isHeadless())
+            return null;
+        return partial -> EventQueue.invokeLater(() -> {
+            synchronized (target) {
+                if (target.resultsComplete)
+                    return;
+                target.loadResults(partial);
+            }
+            if (target == searchOutput)
+                getSearchResultsFrame().showPartialSearchResults();
+        });
+    }
+
     public void execShowSearchResults() {
         if (searchOutput.searchReturnCode == 0)
             getSearchResultsFrame().showSearchResults();
@@ -189,9 +322,13 @@ public class SearchMgr {
                 SearchConstants.ERRMSG_CANT_APPLY_OLD_SEARCH_RESULTS);
         final Assrt assrt = i == -1 ? null
             : searchOutput.sortedAssrtResultsList.get(i);
-        getProofAsst().getProofAsstGUI().unifyWithStepSelectorChoice(
-            new StepRequest(StepRequestType.SelectorChoice,
-                searchArgs.stepSearchStmt.getStep(), assrt));
+        final StepRequest stepRequest = new StepRequest(
+            StepRequestType.SelectorChoice, searchArgs.stepSearchStmt.getStep(),
+            assrt);
+        if (i != -1)
+            stepRequest.hypField = searchOutput.sortedAssrtHypFieldArray[i];
+        getProofAsst().getProofAsstGUI()
+            .unifyWithStepSelectorChoice(stepRequest);
     }
 
     public void execReshowProofAsstGUI() {
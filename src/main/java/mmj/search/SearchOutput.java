@@ -29,7 +29,10 @@ public class SearchOutput {
     List<Assrt> sortedAssrtResultsList = new ArrayList<>(
         Arrays.asList((Assrt)null));
     int[] sortedAssrtScoreArray = new int[]{0};
+    String[] sortedAssrtHypFieldArray = new String[]{null};
     String[] selectionArray = new String[]{SearchResultsConstants.SELECTION_NO_SEARCH_RUN_YET_LITERAL};
+    /** Set when the results of the search are loaded, partial or not */
+    boolean resultsComplete = false;
     long startTimeMillis = 0;
     long endTimeMillis = 0;
     long elapsedMillis = 0;
@@ -51,6 +54,40 @@ public class SearchOutput {
         this.searchTitle = searchTitle;
     }
 
+    /**
+     * Copies the results of another SearchOutput, such as the partial results
+     * published during the search.
+     *
+     * @param that the other SearchOutput
+     */
+    public void loadResults(final SearchOutput that) {
+        sortedAssrtResultsList = that.sortedAssrtResultsList;
+        sortedAssrtScoreArray = that.sortedAssrtScoreArray;
+        sortedAssrtHypFieldArray = that.sortedAssrtHypFieldArray;
+        selectionArray = that.selectionArray;
+        step = that.step;
+    }
+
+    /**
+     * Adds the statistics of the assertions scanned by another thread of a
+     * parallel search.
+     *
+     * @param that the statistics of the other thread
+     */
+    public void addStats(final SearchOutput that) {
+        statsNbrInputAssrtGets += that.statsNbrInputAssrtGets;
+        statsNbrSelected += that.statsNbrSelected;
+        statsNbrCompletedSearchResults += that.statsNbrCompletedSearchResults;
+        statsNbrRejectGEMaxSeq += that.statsNbrRejectGEMaxSeq;
+        statsNbrRejectGTHypIndex += that.statsNbrRejectGTHypIndex;
+        statsNbrRejectLTMinProofRefs += that.statsNbrRejectLTMinProofRefs;
+        statsNbrRejectLEMinSeq += that.statsNbrRejectLEMinSeq;
+        statsNbrRejectOtherExclCriteria += that.statsNbrRejectOtherExclCriteria;
+        statsNbrRejectExclLabels += that.statsNbrRejectExclLabels;
+        statsNbrRejectFailUnify += that.statsNbrRejectFailUnify;
+        statsNbrRejectFailSearchData += that.statsNbrRejectFailSearchData;
+    }
+
     public void finalize(final CompiledSearchArgs csa,
         final BookManager bookManager, final Messages messages)
     {
@@ -16,6 +16,7 @@
 package mmj.search;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 import mmj.lang.Assrt;
 
@@ -26,6 +27,13 @@ public class SearchOutputStore {
     private final int outputSortNbr;
     private final List<SearchSelectionItem> storeList = new LinkedList<>();
 
+    /** The listener of the partial results, or null */
+    private Consumer<SearchOutput> partialResultsListener = null;
+    private String partialResultsStep;
+    private long publishIntervalNanos;
+    private long lastPublishNanos;
+    private int cntPublishedResults = 0;
+
     public SearchOutputStore(final int maxResults, final int outputSortNbr) {
         this.maxResults = maxResults;
         this.outputSortNbr = outputSortNbr;
@@ -40,17 +48,46 @@ public class SearchOutputStore {
         else
             selection[0] = SearchConstants.SEARCH_OUTPUT_LIST_END_LITERAL;
         add(null, selection, -1);
+        sort();
+        synchronized (searchOutput) {
+            load(searchOutput, storeList, step);
+            searchOutput.resultsComplete = true;
+        }
+    }
+
+    /**
+     * Loads the results stored so far into a SearchOutput, sorted, followed by
+     * a trailer. The store is not changed, and the scan may go on.
+     *
+     * @param searchOutput the SearchOutput
+     * @param step the step of a step search, or ""
+     * @param trailer the text of the trailer, such as
+     *            {@link SearchConstants#SEARCH_OUTPUT_LIST_SEARCHING_LITERAL}
+     */
+    public void loadPartialSearchOutput(final SearchOutput searchOutput,
+        final String step, final String trailer)
+    {
+        final List<SearchSelectionItem> list = new ArrayList<>(storeList);
+        list.add(new SearchSelectionItem(null, new String[]{trailer},
+            SearchConstants.SEARCH_SCORE_TRAILER_ITEM));
         final Comparator<SearchSelectionItem> sort = SearchSelectionItem.OUTPUT_SORTS[outputSortNbr];
         if (sort != null)
-            Collections.sort(storeList, sort);
-        searchOutput.sortedAssrtResultsList = new ArrayList<>(
-            storeList.size());
-        searchOutput.sortedAssrtScoreArray = new int[storeList.size()];
-        searchOutput.selectionArray = new String[storeList.size()];
+            list.sort(sort);
+        load(searchOutput, list, step);
+    }
+
+    private static void load(final SearchOutput searchOutput,
+        final List<SearchSelectionItem> list, final String step)
+    {
+        searchOutput.sortedAssrtResultsList = new ArrayList<>(list.size());
+        searchOutput.sortedAssrtScoreArray = new int[list.size()];
+        searchOutput.sortedAssrtHypFieldArray = new String[list.size()];
+        searchOutput.selectionArray = new String[list.size()];
         int j = 0;
-        for (final SearchSelectionItem item : storeList) {
+        for (final SearchSelectionItem item : list) {
             searchOutput.sortedAssrtResultsList.add(item.assrt);
             searchOutput.sortedAssrtScoreArray[j] = item.score;
+            searchOutput.sortedAssrtHypFieldArray[j] = item.hypField;
             final StringBuilder sb = new StringBuilder("<html>");
             String delim = "";
             for (final String element : item.selection) {
@@ -64,6 +101,59 @@ public class SearchOutputStore {
 
         searchOutput.step = step;
     }
+
+    /**
+     * Sets the listener of the partial results of the scan (see
+     * {@link #publishPartialResults()}).
+     *
+     * @param listener the listener, called by the thread of the scan
+     * @param step the step of a step search, or ""
+     * @param intervalMillis the minimum time between two publications
+     */
+    public void setPartialResultsListener(
+        final Consumer<SearchOutput> listener, final String step,
+        final long intervalMillis)
+    {
+        partialResultsListener = listener;
+        partialResultsStep = step;
+        publishIntervalNanos = intervalMillis * 1000000L;
+        lastPublishNanos = System.nanoTime();
+    }
+
+    /**
+     * Publishes the results stored so far to the partial results listener, in
+     * a new SearchOutput (see {@link #loadPartialSearchOutput}). Nothing is
+     * done if there is no listener, if no result was added since the last
+     * publication or if the publication interval has not elapsed. The scan
+     * calls this method often, so it must be cheap.
+     */
+    public void publishPartialResults() {
+        if (partialResultsListener == null
+            || cntResults == cntPublishedResults)
+            return;
+        final long now = System.nanoTime();
+        if (now - lastPublishNanos < publishIntervalNanos)
+            return;
+        lastPublishNanos = now;
+        cntPublishedResults = cntResults;
+        final SearchOutput partial = new SearchOutput("");
+        loadPartialSearchOutput(partial, partialResultsStep,
+            SearchConstants.SEARCH_OUTPUT_LIST_SEARCHING_LITERAL);
+        partialResultsListener.accept(partial);
+    }
+
+    /** Sorts the items in the OutputSort order. The sort is stable. */
+    public void sort() {
+        final Comparator<SearchSelectionItem> sort = SearchSelectionItem.OUTPUT_SORTS[outputSortNbr];
+        if (sort != null)
+            Collections.sort(storeList, sort);
+    }
+
+    /** @return the items, in the order they were added or sorted */
+    List<SearchSelectionItem> getItems() {
+        return storeList;
+    }
+
     public boolean add(final Assrt assrt, final String[] selection,
         final int score)
     {
@@ -75,4 +165,8 @@ public class SearchOutputStore {
     public boolean isFull() {
         return cntResults >= maxResults;
     }
+
+    public int size() {
+        return cntResults;
+    }
 }
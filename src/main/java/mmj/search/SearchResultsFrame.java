@@ -30,6 +30,8 @@ public class SearchResultsFrame extends JFrame implements
     private SearchResultsScrnMap searchResultsScrnMap;
     private Box frameBox;
     private boolean shown;
+    /** True while the results of a search are streamed to the frame */
+    private boolean streaming = false;
 
     public SearchResultsFrame(final SearchMgr searchMgr) {
         shown = false;
@@ -153,9 +155,36 @@ public class SearchResultsFrame extends JFrame implements
             return SearchOptionsConstants.DEFAULT_TITLE;
     }
 
+    /**
+     * Shows the partial results of a search which is still running. The
+     * window is shown by the first update, and the next updates, and the
+     * final results, update its list in place.
+     */
+    public void showPartialSearchResults() {
+        if (streaming && isVisible()) {
+            searchResultsScrnMap.reloadScrnMap();
+            return;
+        }
+        showSearchResults();
+        streaming = true;
+    }
+
+    /**
+     * Ends the streaming of the results of a search which did not complete,
+     * so that the results of the next search are shown in full.
+     */
+    public void endStreaming() {
+        streaming = false;
+    }
+
     public void showSearchResults() {
         setTitle(buildTitle());
-        searchResultsScrnMap.downloadToScrnMap(searchMgr);
+        if (streaming) {
+            streaming = false;
+            searchResultsScrnMap.reloadScrnMap();
+        }
+        else
+            searchResultsScrnMap.downloadToScrnMap(searchMgr);
         searchResultsScrnMap.setStepSearchFieldsEnabled(searchMgr
             .getStepSearchMode());
         searchResultsScrnMap.setSearchResultsFont(searchMgr
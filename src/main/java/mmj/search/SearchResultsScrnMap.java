@@ -46,6 +46,11 @@ public class SearchResultsScrnMap {
         searchSelectionBox.add(searchSelectionScrnMap);
     }
 
+    /** Updates the selections in place, with the current SearchOutput. */
+    public void reloadScrnMap() {
+        searchSelectionScrnMap.reloadListData();
+    }
+
     public void setSearchResultsFont(final Font font) {
         searchResultsFont = font;
         for (final SearchResultsScrnMapField element : scrnMapField)
@@ -30,6 +30,9 @@ public class SearchSelectionItem {
     int mObjSeq = 0;
     String label = "";
 
+    /** The Hyp field completed by the Extended Search, or null */
+    String hypField = null;
+
     public SearchSelectionItem(final Assrt assrt, final String[] selection,
         final int score)
     {
@@ -40,6 +40,19 @@ public class SearchSelectionJList extends JList<String> {
         });
     }
 
+    /**
+     * Reloads the selections of the current SearchOutput, keeping the selected
+     * item.
+     */
+    public void reloadListData() {
+        final int i = getSelectedIndex();
+        final String[] selectionArray = searchMgr
+            .getSearchOutput().selectionArray;
+        setListData(selectionArray);
+        if (i != -1 && i < selectionArray.length)
+            setSelectedIndex(i);
+    }
+
     private void doubleClicked() {
         searchMgr.execApplySearchSelection(getSelectedIndex());
     }
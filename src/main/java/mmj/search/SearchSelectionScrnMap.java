@@ -49,6 +49,10 @@ public class SearchSelectionScrnMap extends JScrollPane implements
         searchSelectionJList.setFont(font);
     }
 
+    public void reloadListData() {
+        searchSelectionJList.reloadListData();
+    }
+
     public int getSelectedIndex() {
         return searchSelectionJList.getSelectedIndex();
     }
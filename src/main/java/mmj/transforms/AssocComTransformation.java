@@ -23,7 +23,7 @@ public class AssocComTransformation extends Transformation {
         final ParseNode originalNode, final AssocTree structure,
         final GeneralizedStmt genStmt)
     {
-        super(trManager, originalNode);
+        super(trManager, originalNode, TransformationProfile.Kind.ASSOC_COM);
         this.genStmt = genStmt;
         this.structure = structure;
 
@@ -50,697 +50,320 @@ public class AssocComTransformation extends Transformation {
         return res;
     }
 
-    private static class LeafIndex {
-        private final int num;
-
-        public LeafIndex(final int num) {
-            super();
-            this.num = num;
-        }
-
-        @Override
-        public int hashCode() {
-            return num;
-        }
-
-        @Override
-        public boolean equals(final Object obj) {
-            if (!(obj instanceof LeafIndex))
-                return false;
-            return num == ((LeafIndex)obj).num;
-        }
-
-        @Override
-        public String toString() {
-            return "IDX." + num;
-        }
-    }
-
-    /** Associative-commutative tree */
+    /**
+     * An operand tree of the associative-commutative operation. The structure
+     * of a tree is never modified: each transformation step creates the new
+     * nodes it needs.
+     */
     private class ACTree {
-        private ParseNode node;
-        private boolean validParseNode = true;
-        private ACTree parent;
+        private final ParseNode node;
+        /** The operands, or null if this tree is an operand */
         private final ACTree[] children;
-        private final LeafIndex[] leafs;
-        private int height;
+        private final int size;
 
-        // Not leaf constructor
-        public ACTree(final ParseNode node, final int from, final ACTree left,
-            final ACTree right)
-        {
-            this.node = node;
-            children = from == 0 ? new ACTree[]{left, right} : new ACTree[]{
-                    right, left};
-            children[0].parent = this;
-            children[1].parent = this;
-
-            leafs = new LeafIndex[children[0].leafs.length
-                + children[1].leafs.length];
-
-            int k = 0;
-            for (int n = 0; n < 2; n++)
-                for (int i = 0; i < children[n].leafs.length; i++)
-                    leafs[k++] = children[n].leafs[i];
-            Arrays.sort(leafs, new Comparator<LeafIndex>() {
-                public int compare(final LeafIndex o1, final LeafIndex o2) {
-                    return Integer.compare(o1.num, o2.num);
-                }
-            });
-
-            updateHeight();
-        }
+        /** The equivalence class of the canonical form of the operand */
+        private final int index;
 
-        // Leaf constructor
-        public ACTree(final ParseNode node, final LeafIndex index) {
-            super();
+        /**
+         * True if the operand should be moved to the first side by
+         * {@link AssocComTransformation#partition}
+         */
+        private boolean in;
+        /** The number of operands to move to the first side */
+        private int inCount;
+
+        // Operand constructor
+        public ACTree(final ParseNode node, final int index) {
             this.node = node;
             children = null;
-            parent = null;
-            height = 1;
-            leafs = new LeafIndex[]{index};
+            size = 1;
+            this.index = index;
         }
 
-        public void changeChild(final ACTree prevChild, final ACTree newChild) {
-            validParseNode = false;
-            assert prevChild.parent == this;
-            children[prevChild.getParentChildNum()] = newChild;
-            newChild.parent = this;
-            updateHeight();
-        }
-
-        public void swapChildren() {
-            validParseNode = false;
-            final ACTree x = children[0];
-            children[0] = children[1];
-            children[1] = x;
-        }
-
-        public void replaceNode(final ParseNode newNode) {
-            assert validParseNode == false : "We should replace something "
-                + "when we already know that this node is invalid!";
-            node = newNode;
-            validParseNode = true;
-            if (parent != null)
-                parent.validParseNode = false;
-        }
-
-        public void updateHeight() {
-            height = 1 + Math.max(children[0].height, children[1].height);
-            if (parent != null)
-                parent.updateHeight();
-        }
-
-        public int leafsLength() {
-            return leafs.length;
-        }
-
-        public LeafIndex leafIndex() {
-            assert leafs.length == 1;
-            return leafs[0];
-        }
-
-        public int getParentChildNum() {
-            assert !isRoot();
-            if (parent.children[0] == this)
-                return 0;
-            assert parent.children[1] == this;
-            return 1;
-        }
-
-        public ACTree getBrother() {
-            return parent.children[(getParentChildNum() + 1) % 2];
-        }
-
-        public boolean isSideChild() {
-            assert hasGrandParant();
-            return getParentChildNum() == parent.getParentChildNum();
-        }
-
-        public boolean isTopLvlGrandChild() {
-            return parent != null && parent.parent != null
-                && parent.parent.parent == null;
+        // Not operand constructor
+        public ACTree(final ParseNode node, final ACTree first,
+            final ACTree second)
+        {
+            this.node = node;
+            children = new ACTree[]{first, second};
+            size = first.size + second.size;
+            index = -1;
+            inCount = first.inCount + second.inCount;
         }
 
-        public boolean hasGrandParant() {
-            return parent != null && parent.parent != null;
+        // Not operand constructor, creating the node
+        public ACTree(final ACTree first, final ACTree second) {
+            this(TrUtil.createGenBinaryNode(genStmt, first.node, second.node),
+                first, second);
         }
 
-        public boolean isRoot() {
-            return parent == null;
+        public boolean isOperand() {
+            return children == null;
         }
 
-        public ACTree getRoot() {
-            if (parent != null)
-                return parent.getRoot();
-            else
-                return this;
+        public boolean isPureIn() {
+            return inCount == size;
         }
 
-        public boolean checkValidity(final GeneralizedStmt genStmt) {
-            if (!validParseNode)
-                return false;
-
-            if (children == null)
-                return true;
-
-            for (int i = 0; i < 2; i++)
-                if (children[i].node != node.child[genStmt.varIndexes[i]])
-                    return false;
-
-            return true;
+        public boolean isPureOut() {
+            return inCount == 0;
         }
 
         @Override
         public String toString() {
-            String res = "[" + hashCode();
-            res += ", " + (validParseNode ? "v" : "i");
-            res += ", '" + trManager.getFormula(node).toString() + "'";
-            if (parent != null)
-                res += ", p" + parent.hashCode();
-            if (children != null)
-                res += ", <" + children[0].hashCode() + ":"
-                    + children[1].hashCode() + ">";
-
-            res += ", {";
-
-            for (int i = 0; i < leafs.length; i++) {
-                final LeafIndex leaf = leafs[i];
-                if (i != 0)
-                    res += ",";
-                res += leaf.num;
-            }
-            res += "}";
-
-            res += ", h" + height + "]";
-
-            return res;
+            return trManager.getFormula(node).toString();
         }
     }
 
-    private GenProofStepStmt performAssociativeTransformation(
-        final ACTree what, final WorksheetInfo info)
-    {
-        // @formatter:off
-        // 'what' - it is 'a' node or 'd' node
-        //         |g                  |r                +
-        //        / \                 / \                +
-        //       /   \               /   \               +
-        //     e|     |f           a|     |t             +
-        //     / \          ==>          / \             +
-        //    /   \                     /   \            +
-        //  a|     |d                 d|     |f          +
-        // @formatter:on
-        final boolean isSideWhat = what.isSideChild();
-
-        final ACTree aTree = isSideWhat ? what : what.getBrother();
-        final ACTree dTree = isSideWhat ? what.getBrother() : what;
-        final ACTree eTree = what.parent;
-        final ACTree fTree = eTree.getBrother();
-        final ACTree gTree = eTree.parent;
-
-        final ACTree gParent = gTree.parent;
-
-        final ParseNode gNode = gTree.node;
-        final ParseNode dNode = dTree.node;
-        final ParseNode aNode = aTree.node;
-        final ParseNode fNode = fTree.node;
-
-        // At the picture 'from' = 0. But 'd' number is 1. So 'from' should be
-        // the reverse of 'd' number
-        final int from = (dTree.getParentChildNum() + 1) % 2;
-
-        final ParseNode tNode = TrUtil.createAssocBinaryNode(from, genStmt,
-            dNode, fNode);
-        final ParseNode rNode = TrUtil.createAssocBinaryNode(from, genStmt,
-            aNode, tNode);
-
-        final ACTree tTree = new ACTree(tNode, from, dTree, fTree);
-        final ACTree rTree = new ACTree(rNode, from, aTree, tTree);
-        if (gParent != null)
-            gParent.changeChild(gTree, rTree);
-
-        final GenProofStepStmt assocStep = assocInfo.createAssociativeStep(
-            info, genStmt, from, gNode, rNode);
-        return assocStep;
-    }
-
-    private GenProofStepStmt createCommutativeStep(final ACTree what,
-        final WorksheetInfo info)
-    {
-        // @formatter:off
-        // Swap 'd = what' and 'a' nodes:
-        //     e|                    e'|                 +
-        //     / \          ==>       / \                +
-        //    /   \                  /   \               +
-        //  a|     |d              a|     |d             +
-        // @formatter:on
-
-        final ACTree dTree = what;
-        final ACTree aTree = dTree.getBrother();
-        final ACTree eTree = dTree.parent;
-
-        final int from = dTree.getParentChildNum();
-
-        final ParseNode dNode = dTree.node;
-        final ParseNode aNode = aTree.node;
-        final ParseNode eNode = eTree.node;
-        final ParseNode newENode = TrUtil.createAssocBinaryNode(from, genStmt,
-            aNode, dNode);
-
-        eTree.swapChildren();
-
-        final GenProofStepStmt comStep = comInfo.createCommutativeStep(info,
-            genStmt, eNode, newENode);
-
-        eTree.replaceNode(newENode);
-
-        return comStep;
-    }
-
-    private GenProofStepStmt performCommutativeTransformation(
-        final ACTree what, final WorksheetInfo info)
-    {
-        // @formatter:off
-        // Swap 'd = what' and 'a' nodes:
-        //      |g                     |g'               +
-        //      |                      |                 +
-        //      |                      |                 +
-        //     e|                    e'|                 +
-        //     / \          ==>       / \                +
-        //    /   \                  /   \               +
-        //  a|     |d              a|     |d             +
-        // @formatter:on
-
-        final ACTree dTree = what;
-        final ACTree eTree = dTree.parent;
-        final ACTree gTree = eTree.parent;
-
-        final ParseNode gNode = gTree.node;
-
-        final GenProofStepStmt comStep = createCommutativeStep(what, info);
-
-        final ParseNode newENode = getRightPart(comStep);
-
-        final GenProofStepStmt replStep = replInfo.createReplaceStep(info,
-            gNode, genStmt.varIndexes[eTree.getParentChildNum()], newENode,
-            comStep);
-
-        final ParseNode newGNode = getRightPart(replStep);
-        gTree.replaceNode(newGNode);
-
-        return replStep;
-    }
-
-    private static ParseNode getRightPart(final GenProofStepStmt step) {
-        ParseNode r = step.getCore();
-        assert r.child.length == 2;
-        ParseNode r1 = step.getCore();
-        return r1.child[1];
-    }
-
-    private GenProofStepStmt move(final ACTree what, final WorksheetInfo info) {
-        GenProofStepStmt result = null;
-        while (true) {
-            assert what != null;
-            assert what.parent != null;
-            assert what.parent.parent != null;
-            assert what.validParseNode;
-            assert what.parent.validParseNode;
-            assert what.parent.parent.validParseNode;
-
-            if (what.isTopLvlGrandChild()) {
-                if (what.isSideChild()) {
-                    // @formatter:off
-                    // Swap 'd = what' and 'a' nodes
-                    //         |g                     |g'            +
-                    //        / \                    / \             +
-                    //       /   \                  /   \            +
-                    //     e|     |f             e'|     |f          +
-                    //     / \          ==>       / \                +
-                    //    /   \                  /   \               +
-                    //  d|     |a              a|     |d             +
-                    // @formatter:on
-                    final GenProofStepStmt replStep = performCommutativeTransformation(
-                        what, info);
-                    result = eqInfo.getTransitiveStep(info, result, replStep);
-                }
-
-                // @formatter:off
-                // Move 'd = what' node to the other side
-                //         |g                  |r                +
-                //        / \                 / \                +
-                //       /   \               /   \               +
-                //     e|     |f           a|     |t             +
-                //     / \          ==>          / \             +
-                //    /   \                     /   \            +
-                //  a|     |d                 d|     |f          +
-                // @formatter:on
-                final GenProofStepStmt assocStep = performAssociativeTransformation(
-                    what, info);
-
-                result = eqInfo.getTransitiveStep(info, result, assocStep);
-                return result;
+    /**
+     * The sequence of transformation steps from some node to the current
+     * {@link #tree}.
+     */
+    private class StepChain {
+        private final WorksheetInfo info;
+        /** The proof of "original node = tree.node", or null */
+        private GenProofStepStmt result;
+        private ACTree tree;
+
+        public StepChain(final WorksheetInfo info, final ACTree tree) {
+            this.info = info;
+            this.tree = tree;
+        }
+
+        private void add(final GenProofStepStmt step, final ACTree newTree) {
+            result = eqInfo.getTransitiveStep(info, result, step);
+            tree = newTree;
+        }
+
+        /**
+         * f(f(a, b), c) = f(a, f(b, c)) if from is 0, f(a, f(b, c)) = f(f(a,
+         * b), c) if from is 1.
+         *
+         * @param from the associative form
+         */
+        public void associate(final int from) {
+            final ACTree[] c = tree.children;
+            final ACTree newTree;
+            if (from == 0) {
+                final ACTree[] c0 = c[0].children;
+                newTree = new ACTree(c0[0], new ACTree(c0[1], c[1]));
             }
             else {
-                final ACTree gTree = what.parent.parent;
-                final ACTree pTree = what.parent.parent.parent;
-                final int rgNumber = gTree.getParentChildNum();
-                final ParseNode pNode = what.parent.parent.parent.node;
-                if (!what.isSideChild()) {
-                    // @formatter:off
-                    // Level up the equivalence
-                    //         |g                     |g'            +
-                    //        / \                    / \             +
-                    //       /   \                  /   \            +
-                    //     e|     |f             e'|     |f          +
-                    //     / \          ==>       / \                +
-                    //    /   \                  /   \               +
-                    //  a|     |d              d|     |a             +
-                    // @formatter:on
-                    final GenProofStepStmt replStep = performCommutativeTransformation(
-                        what, info);
-                    result = eqInfo.getTransitiveStep(info, result, replStep);
-                }
-
-                // @formatter:off
-                // Up 'd = what' node
-                //         |p                  |p'               +
-                //         |                   |                 +
-                //         |g                  |r                +
-                //        / \                 / \                +
-                //       /   \               /   \               +
-                //     e|     |f           d|     |t             +
-                //     / \          ==>          / \             +
-                //    /   \                     /   \            +
-                //  d|     |a                 a|     |f          +
-                // @formatter:on
-
-                GenProofStepStmt assocStep = performAssociativeTransformation(
-                    what, info);
-
-                assocStep = eqInfo.getTransitiveStep(info, result, assocStep);
-
-                assert !pTree.validParseNode;
-
-                final ParseNode newGNode = getRightPart(assocStep);
-                final GenProofStepStmt replGNode = replInfo.createReplaceStep(
-                    info, pNode, genStmt.varIndexes[rgNumber], newGNode,
-                    assocStep);
-
-                final ParseNode newPNode = getRightPart(replGNode);
-                pTree.replaceNode(newPNode);
-
-                // what = what.parent;
-                result = replGNode;
+                final ACTree[] c1 = c[1].children;
+                newTree = new ACTree(new ACTree(c[0], c1[0]), c1[1]);
             }
+            add(assocInfo.createAssociativeStep(info, genStmt, from, tree.node,
+                newTree.node), newTree);
+        }
+
+        /** f(a, b) = f(b, a) */
+        public void commute() {
+            final ACTree newTree = new ACTree(tree.children[1],
+                tree.children[0]);
+            add(comInfo.createCommutativeStep(info, genStmt, tree.node,
+                newTree.node), newTree);
+        }
+
+        /**
+         * Replaces an operand of the current tree for the result of a chain
+         * started on it.
+         *
+         * @param side the operand side (0 or 1)
+         * @param sub the chain started on the operand
+         */
+        public void replace(final int side, final StepChain sub) {
+            assert sub.info == info;
+            if (sub.result == null)
+                return;
+            final ACTree[] c = tree.children;
+            final ACTree newTree = side == 0 ? new ACTree(sub.tree, c[1])
+                : new ACTree(c[0], sub.tree);
+            add(replInfo.createReplaceStep(info, tree.node,
+                genStmt.varIndexes[side], sub.tree.node, sub.result), newTree);
         }
     }
 
-    private void getLvl(final ACTree input, final int height,
-        final List<ACTree> res)
+    /**
+     * Creates the operand tree for the associative structure of the node.
+     *
+     * @param curNode the input node
+     * @param assocTree the associative structure of the node
+     * @param classes the equivalence classes of the canonical forms
+     * @param info the work sheet info
+     * @return the operand tree
+     */
+    private ACTree constructTree(final ParseNode curNode,
+        final AssocTree assocTree,
+        final Map<CanonicalFormCache.NodeKey, Integer> classes,
+        final WorksheetInfo info)
     {
-        if (input.height == height) {
-            res.add(input);
-            return;
-        }
-
-        for (final ACTree child : input.children)
-            getLvl(child, height, res);
+        if (assocTree.size == 1) {
+            final CanonicalFormCache.NodeKey key = new CanonicalFormCache.NodeKey(
+                trManager.getCanonicalForm(curNode, info));
+            Integer index = classes.get(key);
+            if (index == null) {
+                index = classes.size();
+                classes.put(key, index);
+            }
+            return new ACTree(curNode, index);
+        }
+        final ACTree first = constructTree(
+            curNode.child[genStmt.varIndexes[0]], assocTree.subTrees[0],
+            classes, info);
+        final ACTree second = constructTree(
+            curNode.child[genStmt.varIndexes[1]], assocTree.subTrees[1],
+            classes, info);
+        return new ACTree(curNode, first, second);
     }
 
-    private List<ACTree> getLvl(final ACTree input, final int height) {
-        final List<ACTree> res = new ArrayList<>();
-        getLvl(input, height, res);
-        return res;
+    private static void countOperands(final ACTree tree, final int[] counts) {
+        if (tree.isOperand())
+            counts[tree.index]++;
+        else
+            for (final ACTree child : tree.children)
+                countOperands(child, counts);
     }
 
-    private int commonElements(final ACTree t1, final ACTree t2) {
-        int i1 = 0;
-        int i2 = 0;
-
-        int common = 0;
-
-        while (true) {
-            while (t1.leafs[i1].num < t2.leafs[i2].num) {
-                i1++;
-                if (i1 >= t1.leafs.length)
-                    return common;
-            }
-            while (t2.leafs[i2].num < t1.leafs[i1].num) {
-                i2++;
-                if (i2 >= t2.leafs.length)
-                    return common;
-            }
-
-            while (t1.leafs[i1].num == t2.leafs[i2].num) {
-                common++;
-                i1++;
-                if (i1 >= t1.leafs.length)
-                    return common;
-                i2++;
-                if (i2 >= t2.leafs.length)
-                    return common;
-            }
+    /**
+     * Marks the first operands of each class as moved to the first side.
+     *
+     * @param tree the operand tree
+     * @param counts the number of operands to mark in each class
+     */
+    private static void markIn(final ACTree tree, final int[] counts) {
+        if (tree.isOperand()) {
+            tree.in = counts[tree.index] > 0;
+            if (tree.in)
+                counts[tree.index]--;
+            tree.inCount = tree.in ? 1 : 0;
+        }
+        else {
+            markIn(tree.children[0], counts);
+            markIn(tree.children[1], counts);
+            tree.inCount = tree.children[0].inCount
+                + tree.children[1].inCount;
         }
     }
 
-    private class CanonicalInfo {
-        ParseNode node;
-        ParseNode canonical;
-        LeafIndex index;
-
-        CanonicalInfo next; // for auxiliary information
-
-        public CanonicalInfo(final ParseNode node, final ParseNode canonical) {
-            super();
-            this.node = node;
-            this.canonical = canonical;
-        }
-
-        @Override
-        public String toString() {
-            final String idxStr = index != null ? " : " + index.toString() : "";
-            String nextStr = "";
-
-            if (next != null)
-                if (next.index != null)
-                    nextStr = ", next " + next.index.toString();
-                else
-                    nextStr = ", next ...";
+    /**
+     * Transforms the tree of the chain to the form f(in, out), where "in" has
+     * the operands marked by {@link #markIn} and "out" has the others. Only
+     * the subtrees with both kinds of operands are transformed, with a bounded
+     * number of steps for each of them.
+     *
+     * @param chain the chain, its tree should have both kinds of operands
+     */
+    private void partition(final StepChain chain) {
+        final WorksheetInfo info = chain.info;
+        final ACTree a = chain.tree.children[0];
+        final ACTree b = chain.tree.children[1];
+        assert !chain.tree.isPureIn() && !chain.tree.isPureOut();
+
+        if (a.isPureIn() && b.isPureOut())
+            return;
 
-            return "{" + trManager.getFormula(node) + " : "
-                + trManager.getFormula(canonical) + idxStr + nextStr + "}";
+        if (a.isPureOut() && b.isPureIn()) {
+            chain.commute();
+            return;
         }
-    }
 
-    private void constructCanonicalInfoList(final WorksheetInfo info,
-        final AssocTree assocTree, final ParseNode curNode,
-        final List<CanonicalInfo> resList)
-    {
-        final CanonicalInfo last = resList.isEmpty() ? null : resList
-            .get(resList.size() - 1);
-
-        if (assocTree.size == 1) {
-            final ParseNode canonical = trManager.getCanonicalForm(curNode,
-                info);
-            final CanonicalInfo add = new CanonicalInfo(curNode, canonical);
-            if (last != null)
-                last.next = add;
-            resList.add(add);
+        if (!a.isPureIn() && !a.isPureOut()) {
+            final StepChain sub = new StepChain(info, a);
+            partition(sub);
+            chain.replace(0, sub);
         }
-        else
-            for (int i = 0; i < 2; i++) {
-                final ParseNode child = curNode.child[genStmt.varIndexes[i]];
-                constructCanonicalInfoList(info, assocTree.subTrees[i], child,
-                    resList);
-            }
-    }
-
-    private class TreeConstructor {
-        CanonicalInfo curInfo;
-
-        public TreeConstructor(final CanonicalInfo curInfo) {
-            this.curInfo = curInfo;
+        if (!b.isPureIn() && !b.isPureOut()) {
+            final StepChain sub = new StepChain(info, b);
+            partition(sub);
+            chain.replace(1, sub);
         }
 
-        public ACTree constructTree(final AssocTree assocTree,
-            final ParseNode curNode)
-        {
-            if (assocTree.size == 1) {
-                assert curInfo.node == curNode;
-                final ACTree res = new ACTree(curNode, curInfo.index);
-                curInfo = curInfo.next;
-                return res;
-            }
-            final ACTree left = constructTree(assocTree.subTrees[0],
-                curNode.child[genStmt.varIndexes[0]]);
-            final ACTree right = constructTree(assocTree.subTrees[1],
-                curNode.child[genStmt.varIndexes[1]]);
-
-            return new ACTree(curNode, 0, left, right);
+        // @formatter:off
+        // Now a = f(ai, ao) or b = f(bi, bo) (or both) and the other is
+        // pure:
+        //   f(a, f(bi, bo))            => f(f(a, bi), bo)
+        //   f(a, f(bi, bo))            => f(bi, f(bo, a))
+        //   f(f(ai, ao), b)            => f(ai, f(ao, b))
+        //   f(f(ai, ao), b)            => f(f(b, ai), ao)
+        //   f(f(ai, ao), f(bi, bo))    => f(f(ai, bi), f(bo, ao))
+        // @formatter:on
+        if (a.isPureIn())
+            chain.associate(1);
+        else if (a.isPureOut()) {
+            chain.commute();
+            chain.associate(0);
+        }
+        else if (b.isPureOut())
+            chain.associate(0);
+        else if (b.isPureIn()) {
+            chain.commute();
+            chain.associate(1);
+        }
+        else {
+            chain.associate(0);
+            final StepChain sub = new StepChain(info, chain.tree.children[1]);
+            sub.commute();
+            sub.associate(0);
+            chain.replace(1, sub);
+            chain.associate(1);
         }
     }
 
-    private ACTree constructTree(final WorksheetInfo info,
-        final ParseNode topNode, final AssocTree assocTree)
+    /**
+     * Transforms the tree of the chain to the target tree: the operands are
+     * split as in the target (see {@link #partition}), then both sides are
+     * transformed recursively and the operands are transformed to the target
+     * operands.
+     *
+     * @param chain the chain
+     * @param tgtTree the target tree, with the same operand classes
+     * @param classNum the number of operand classes
+     */
+    private void transformTree(final StepChain chain, final ACTree tgtTree,
+        final int classNum)
     {
-
-        final List<CanonicalInfo> resList = new ArrayList<>(
-            assocTree.size);
-        constructCanonicalInfoList(info, assocTree, topNode, resList);
-
-        final CanonicalInfo first = resList.get(0);
-
-        Collections.sort(resList, new Comparator<CanonicalInfo>() {
-            public int compare(final CanonicalInfo o1, final CanonicalInfo o2) {
-                return CommutativeInfo.compareNodes(o1.canonical, o2.canonical);
-            }
-        });
-
-        int curIdx = 0;
-        for (int i = 0; i < resList.size(); i++) {
-            final CanonicalInfo cur = resList.get(i);
-            final CanonicalInfo next = i < resList.size() - 1 ? resList
-                .get(i + 1) : null;
-
-            cur.index = new LeafIndex(curIdx);
-
-            if (next != null && !cur.canonical.isDeepDup(next.canonical))
-                curIdx++;
+        assert chain.tree.size == tgtTree.size;
+        final WorksheetInfo info = chain.info;
+
+        if (tgtTree.isOperand()) {
+            final GenProofStepStmt step = trManager
+                .createTransformation(chain.tree.node, info)
+                .transformMeToTarget(
+                    trManager.createTransformation(tgtTree.node, info), info);
+            if (step != null)
+                chain.add(step, tgtTree);
+            return;
         }
 
-        return new TreeConstructor(first).constructTree(assocTree, topNode);
-    }
-
-    private GenProofStepStmt performSimpleTransformation(
-        final WorksheetInfo info, final ACTree myTree, final ACTree tgtTree)
-    {
-        GenProofStepStmt result = null;
-
-        if (tgtTree.leafsLength() == 2)
-            if (!myTree.children[0].leafIndex().equals(
-                tgtTree.children[0].leafIndex()))
-                result = createCommutativeStep(myTree.children[0], info);
-
-        final Transformation replaceMe = new ReplaceTransformation(trManager,
-            myTree.node);
-        final Transformation replaceTarget = new ReplaceTransformation(
-            trManager, tgtTree.node);
+        final int[] counts = new int[classNum];
+        countOperands(tgtTree.children[0], counts);
+        markIn(chain.tree, counts);
+        partition(chain);
 
-        final GenProofStepStmt replTrStep = replaceMe.transformMeToTarget(
-            replaceTarget, info);
-
-        if (replTrStep != null)
-            result = eqInfo.getTransitiveStep(info, result, replTrStep);
-
-        return result;
-    }
-
-    private GenProofStepStmt performTreeTransformation(
-        final WorksheetInfo info, ACTree myTree, final ACTree tgtTree)
-    {
-        // The number of leafs should be equal
-        assert tgtTree.leafsLength() == myTree.leafsLength();
-        // And the leafs themselves also should be equal
-        assert commonElements(myTree, tgtTree) == myTree.leafsLength();
-
-        // end of recursion:
-        if (tgtTree.leafsLength() < 3)
-            return performSimpleTransformation(info, myTree, tgtTree);
-
-        // Choose the biggest target side first!
-        // So we will move nodes from big side to the small side
-        final int startSide;
-        if (tgtTree.children[0].leafsLength() >= tgtTree.children[1]
-            .leafsLength())
-            startSide = 0;
-        else
-            startSide = 1;
-
-        GenProofStepStmt result = null;
-        for (int sideI = 0; sideI < 2; sideI++) {
-            final int side = (startSide + sideI) % 2;
-            final ACTree tgtSide = tgtTree.children[side];
-            ACTree mySide = myTree.children[side];
-
-            int nElems = commonElements(mySide, tgtSide);
-
-            // +1 because of integer arithmetic properties
-            if (nElems < (tgtSide.leafsLength() + 1) / 2) {
-                final GenProofStepStmt swap = createCommutativeStep(mySide,
-                    info);
-                myTree = mySide.getRoot();
-                mySide = mySide.getBrother();
-
-                result = eqInfo.getTransitiveStep(info, result, swap);
-
-                nElems = commonElements(mySide, tgtSide);
-            }
-
-            if (nElems == mySide.leafsLength())
-                continue;
-
-            // The list of leafs which we should move to the other side
-            // Initialize it as all leafs and then remove inappropriate
-            final List<ACTree> sideLeafs = getLvl(mySide, 1);
-
-            // We could do the search more efficiently!
-            // Calculate which leafs we should move to the other side!
-            for (final LeafIndex leafIdx : tgtSide.leafs)
-                for (int i = 0; i < sideLeafs.size(); i++)
-                    if (sideLeafs.get(i) != null)
-                        if (leafIdx.num == sideLeafs.get(i).leafIndex().num) {
-                            sideLeafs.set(i, null);
-                            break;
-                        }
-
-            // Move leafs to the other side!
-            for (final ACTree leaf : sideLeafs)
-                if (leaf != null) {
-                    // The result statement says that the previous 'tree' is
-                    // equal to the current 'tree':
-                    final GenProofStepStmt stmt = move(leaf, info);
-                    result = eqInfo.getTransitiveStep(info, result, stmt);
-
-                    myTree = leaf.getRoot();
-                    assert myTree.checkValidity(genStmt);
-                }
-        }
-
-        ParseNode node = myTree.node;
         for (int i = 0; i < 2; i++) {
-            myTree.children[i].parent = null;
-            tgtTree.children[i].parent = null;
-            final GenProofStepStmt childResult = performTreeTransformation(
-                info, myTree.children[i], tgtTree.children[i]);
-
-            if (childResult == null)
-                continue; // all nodes already at the right place!
-
-            final ParseNode newChild = getRightPart(childResult);
-            final GenProofStepStmt replChildStep = replInfo.createReplaceStep(
-                info, node, genStmt.varIndexes[i], newChild, childResult);
-            node = getRightPart(replChildStep);
-            result = eqInfo.getTransitiveStep(info, result, replChildStep);
+            final StepChain sub = new StepChain(info, chain.tree.children[i]);
+            transformTree(sub, tgtTree.children[i], classNum);
+            chain.replace(i, sub);
         }
-        return result;
     }
 
     @Override
-    public GenProofStepStmt transformMeToTarget(final Transformation target,
-        final WorksheetInfo info)
+    protected GenProofStepStmt transformMeToTargetCore(
+        final Transformation target, final WorksheetInfo info)
     {
         assert target instanceof AssocComTransformation;
         final AssocComTransformation tgt = (AssocComTransformation)target;
 
-        final ACTree myTree = constructTree(info, originalNode, structure);
-        final ACTree tgtTree = constructTree(info, tgt.originalNode,
-            tgt.structure);
-        assert myTree.leafs != null;
-        assert myTree.leafsLength() == structure.size;
-
-        return performTreeTransformation(info, myTree, tgtTree);
+        final Map<CanonicalFormCache.NodeKey, Integer> classes = new HashMap<>();
+        final ACTree myTree = constructTree(originalNode, structure, classes,
+            info);
+        final ACTree tgtTree = constructTree(tgt.originalNode, tgt.structure,
+            classes, info);
+        assert myTree.size == structure.size;
+        assert tgtTree.size == myTree.size;
+
+        final StepChain chain = new StepChain(info, myTree);
+        transformTree(chain, tgtTree, classes.size());
+        return chain.result;
     }
-
 }
@@ -6,10 +6,9 @@
 //*****************************************************************************/
 package mmj.transforms;
 
-import java.util.List;
-
 import mmj.lang.*;
 import mmj.transforms.ClosureInfo.ResultClosureInfo;
+import mmj.transforms.RuleCandidates.Pass;
 
 /**
  * The information about associative operations.
@@ -69,14 +68,15 @@ public class AssociativeInfo extends DBInfo {
 
     public AssociativeInfo(final EquivalenceInfo eqInfo,
         final ClosureInfo clInfo, final ReplaceInfo replInfo,
-        final List<Assrt> assrtList, final TrOutput output, final boolean dbg)
+        final RuleCandidates candidates, final TrOutput output,
+        final boolean dbg)
     {
         super(output, dbg);
         this.eqInfo = eqInfo;
         this.clInfo = clInfo;
         this.replInfo = replInfo;
 
-        for (final Assrt assrt : assrtList) {
+        for (final Assrt assrt : candidates.get(Pass.ASSOC)) {
             findAssociativeRules(assrt);
             findImplAssociativeRules(assrt);
         }
@@ -208,6 +208,7 @@ public class AssociativeInfo extends DBInfo {
 
             output.dbgMessage(dbg, TrConstants.ERRMSG_ASSOC_ASSRTS, i, assrt,
                 assrt.getFormula());
+            foundRule(assrt);
             assoc[i] = assrt;
             return;
         }
@@ -20,7 +20,7 @@ class AssociativeTransformation extends Transformation {
         final ParseNode originalNode, final AssocTree structure,
         final GeneralizedStmt assocProp)
     {
-        super(trManager, originalNode);
+        super(trManager, originalNode, TransformationProfile.Kind.ASSOCIATIVE);
         this.structure = structure;
         genStmt = assocProp;
 
@@ -29,8 +29,8 @@ class AssociativeTransformation extends Transformation {
     }
 
     @Override
-    public GenProofStepStmt transformMeToTarget(final Transformation target,
-        final WorksheetInfo info)
+    protected GenProofStepStmt transformMeToTargetCore(
+        final Transformation target, final WorksheetInfo info)
     {
         assert target instanceof AssociativeTransformation;
         final AssociativeTransformation trgt = (AssociativeTransformation)target;
@@ -0,0 +1,323 @@
+package mmj.transforms;
+
+import java.util.*;
+import java.util.function.Function;
+
+import mmj.lang.ParseNode;
+import mmj.lang.Stmt;
+import mmj.pa.ProofStepStmt;
+import mmj.pa.ProofWorkStmt;
+import mmj.pa.ProofWorksheet;
+
+/**
+ * The canonical forms computed by a {@link TransformationManager}, kept across
+ * derivation steps and unifications.
+ * <p>
+ * The canonical form of a node depends on the node, on the implication prefix
+ * of the derivation step and on the closure steps found in the worksheet
+ * before the derivation step (see
+ * {@link ClosureInfo#getClosurePossibility}). So a canonical form is stored
+ * under its node and implication prefix, with the worksheet lookups it made,
+ * and it is reused only if these lookups still give the same answers.
+ * <p>
+ * The canonical forms of the steps of the current worksheet are also indexed
+ * by canonical form (see {@link StepIndex}), so that the earlier step with the
+ * canonical form of a derivation step is found by a hash lookup.
+ * <p>
+ * This class has local package visibility, and it is not thread safe: like the
+ * provers, it belongs to a single TransformationManager.
+ */
+/*local*/class CanonicalFormCache {
+
+    /** A worksheet lookup made while computing a canonical form */
+    public static class Lookup {
+        public final NodeKey root;
+        public final boolean found;
+
+        public Lookup(final NodeKey root, final boolean found) {
+            this.root = root;
+            this.found = found;
+        }
+    }
+
+    /**
+     * A node compared by value. Unlike {@link ParseNodeHashElem}, the hash
+     * code depends on the order of the children, since the nodes compared here
+     * are often permutations of the same operands. The hash of each node is
+     * mixed before it is combined into the hash of its parent, so that the
+     * operands of a chain are not simply added up.
+     */
+    public static class NodeKey {
+        /** node could be null */
+        public final ParseNode node;
+
+        private final int hash;
+
+        public NodeKey(final ParseNode node) {
+            this.node = node;
+            hash = node == null ? 0 : hash(node);
+        }
+
+        private static int hash(final ParseNode node) {
+            int hash = node.stmt.hashCode();
+            for (final ParseNode child : node.child)
+                hash = hash * 31 + hash(child);
+            return mix(hash);
+        }
+
+        /**
+         * The finalizer of MurmurHash3: each bit of the input changes about
+         * half of the bits of the result.
+         *
+         * @param hash the hash to mix
+         * @return the mixed hash
+         */
+        private static int mix(int hash) {
+            hash ^= hash >>> 16;
+            hash *= 0x85ebca6b;
+            hash ^= hash >>> 13;
+            hash *= 0xc2b2ae35;
+            hash ^= hash >>> 16;
+            return hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof NodeKey))
+                return false;
+            final NodeKey that = (NodeKey)obj;
+            if (node == that.node)
+                return true;
+            return hash == that.hash && node != null && that.node != null
+                && node.isDeepDup(that.node);
+        }
+    }
+
+    /** A computed canonical form */
+    public static class Entry {
+        public final NodeKey canonical;
+
+        public final Lookup[] lookups;
+
+        public Entry(final ParseNode canonical, final Lookup[] lookups) {
+            this.canonical = new NodeKey(canonical);
+            this.lookups = lookups;
+        }
+
+        /**
+         * @param info the work sheet info
+         * @return true if the worksheet lookups made by the computation give
+         *         the same answers in this work sheet info.
+         */
+        public boolean isValid(final WorksheetInfo info) {
+            for (final Lookup lookup : lookups)
+                if (info.hasProofStepStmt(lookup.root) != lookup.found)
+                    return false;
+            return true;
+        }
+
+        /**
+         * @param that the other canonical form
+         * @return true if both canonical forms are equal
+         */
+        public boolean isDeepDup(final Entry that) {
+            return canonical.equals(that.canonical);
+        }
+    }
+
+    private static class Key {
+        private final NodeKey node;
+        private final NodeKey implPrefix;
+        private final Stmt implStatement;
+
+        Key(final ParseNode node, final WorksheetInfo info) {
+            this.node = new NodeKey(node);
+            implPrefix = new NodeKey(info.implPrefix);
+            implStatement = info.implStatement;
+        }
+
+        @Override
+        public int hashCode() {
+            return node.hashCode() * 31 + implPrefix.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            final Key that = (Key)obj;
+            return implStatement == that.implStatement
+                && node.equals(that.node) && implPrefix.equals(that.implPrefix);
+        }
+    }
+
+    /**
+     * The steps of a worksheet by canonical form, for one implication prefix.
+     * The index is updated each time a derivation step is transformed: the
+     * steps already indexed keep their canonical form while their formula is
+     * the same and their worksheet lookups give the same answers, so only the
+     * new and changed steps are canonicalized.
+     */
+    public static class StepIndex {
+        private static class IndexedStep {
+            final ParseNode root;
+            final Entry entry;
+            final ProofStepStmt step;
+            /** the position of the step in the last update */
+            int position;
+            /** the last update which found the step */
+            int update;
+
+            IndexedStep(final ProofStepStmt step, final ParseNode root,
+                final Entry entry)
+            {
+                this.step = step;
+                this.root = root;
+                this.entry = entry;
+            }
+        }
+
+        private final ProofWorksheet proofWorksheet;
+        private final NodeKey implPrefix;
+        private final Stmt implStatement;
+
+        private final Map<ProofStepStmt, IndexedStep> steps = new IdentityHashMap<>();
+
+        /** The indexed steps of each canonical form, in the order indexed */
+        private final Map<NodeKey, List<IndexedStep>> stepsByCanonical = new HashMap<>();
+
+        private int update = 0;
+
+        StepIndex(final WorksheetInfo info) {
+            proofWorksheet = info.proofWorksheet;
+            implPrefix = new NodeKey(info.implPrefix);
+            implStatement = info.implStatement;
+        }
+
+        boolean isFor(final WorksheetInfo info) {
+            return proofWorksheet == info.proofWorksheet
+                && implStatement == info.implStatement
+                && implPrefix.equals(new NodeKey(info.implPrefix));
+        }
+
+        /**
+         * Indexes the steps before the derivation step of the work sheet info.
+         *
+         * @param info the work sheet info
+         * @param reuse true if the canonical forms of the indexed steps may be
+         *            reused
+         * @param canonicalizer computes the canonical form of a step
+         */
+        public void update(final WorksheetInfo info, final boolean reuse,
+            final Function<ProofStepStmt, Entry> canonicalizer)
+        {
+            update++;
+            int position = 0;
+            for (final ProofWorkStmt stmt : proofWorksheet
+                .getProofWorkStmtList())
+            {
+                if (stmt == info.derivStep)
+                    break;
+                position++;
+                if (!(stmt instanceof ProofStepStmt)
+                    || ((ProofStepStmt)stmt).formulaParseTree == null)
+                    continue;
+                final ProofStepStmt step = (ProofStepStmt)stmt;
+                final ParseNode root = step.formulaParseTree.getRoot();
+
+                IndexedStep indexed = steps.get(step);
+                if (indexed != null && reuse && indexed.root == root
+                    && indexed.entry.isValid(info))
+                    info.addLookups(indexed.entry.lookups);
+                else {
+                    if (indexed != null)
+                        stepsByCanonical.get(indexed.entry.canonical)
+                            .remove(indexed);
+                    indexed = new IndexedStep(step, root,
+                        canonicalizer.apply(step));
+                    steps.put(step, indexed);
+                    stepsByCanonical.computeIfAbsent(indexed.entry.canonical,
+                        k -> new ArrayList<>()).add(indexed);
+                }
+                indexed.position = position;
+                indexed.update = update;
+            }
+        }
+
+        /**
+         * @param canonical the canonical form
+         * @return the first step with this canonical form found by the last
+         *         {@link #update}, or null
+         */
+        public ProofStepStmt getFirstStep(final NodeKey canonical) {
+            final List<IndexedStep> list = stepsByCanonical.get(canonical);
+            if (list == null)
+                return null;
+            IndexedStep first = null;
+            for (final IndexedStep indexed : list)
+                if (indexed.update == update
+                    && (first == null || indexed.position < first.position))
+                    first = indexed;
+            return first == null ? null : first.step;
+        }
+    }
+
+    /** The step indexes of the current worksheet */
+    private final List<StepIndex> stepIndexes = new ArrayList<>();
+
+    private final Map<Key, Entry> map = new LinkedHashMap<Key, Entry>(16,
+        0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Entry> e) {
+            return size() > TrConstants.CANONICAL_FORM_CACHE_MAX_SIZE;
+        }
+    };
+
+    /**
+     * @param node the input node
+     * @param info the work sheet info
+     * @return the stored canonical form of the node, if it is still valid in
+     *         this work sheet info, or null
+     */
+    public Entry get(final ParseNode node, final WorksheetInfo info) {
+        final Entry entry = map.get(new Key(node, info));
+        if (entry == null || !entry.isValid(info))
+            return null;
+        return entry;
+    }
+
+    /**
+     * @param node the input node
+     * @param info the work sheet info in which the canonical form was computed
+     * @param entry the canonical form
+     */
+    public void put(final ParseNode node, final WorksheetInfo info,
+        final Entry entry)
+    {
+        map.put(new Key(node, info), entry);
+    }
+
+    /**
+     * @param info the work sheet info
+     * @return the step index of the worksheet and implication prefix of the
+     *         work sheet info. The indexes of the previous worksheet are
+     *         dropped.
+     */
+    public StepIndex getStepIndex(final WorksheetInfo info) {
+        for (final StepIndex index : stepIndexes)
+            if (index.isFor(info))
+                return index;
+        if (!stepIndexes.isEmpty()
+            && stepIndexes.get(0).proofWorksheet != info.proofWorksheet)
+            stepIndexes.clear();
+        final StepIndex index = new StepIndex(info);
+        stepIndexes.add(index);
+        return index;
+    }
+}
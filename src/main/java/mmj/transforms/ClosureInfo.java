@@ -10,8 +10,8 @@ import java.util.*;
 
 import mmj.lang.*;
 import mmj.pa.ProofStepStmt;
-import mmj.transforms.ComplexRuleMap.ComplexRuleVisitor;
 import mmj.transforms.ImplicationInfo.ExtractImplResult;
+import mmj.transforms.RuleCandidates.Pass;
 
 public class ClosureInfo extends DBInfo {
 
@@ -19,7 +19,65 @@ public class ClosureInfo extends DBInfo {
 
     private final ConjunctionInfo conjInfo;
 
-    private static class ClosureComplexRuleMap extends ComplexRuleMap<Assrt> {}
+    /** A closure rule for some operation and property */
+    private static class ClosureRule {
+        final ConstSubst constSubst;
+        final Assrt assrt;
+
+        ClosureRule(final ConstSubst constSubst, final Assrt assrt) {
+            this.constSubst = constSubst;
+            this.assrt = assrt;
+        }
+    }
+
+    private static class ClosureComplexRuleMap extends ComplexRuleMap<Assrt> {
+        /**
+         * The rules by operation and property, in the order of
+         * {@link #visitGenStmts}. It is built by {@link #buildIndex()} once all
+         * rules are added.
+         */
+        private final Map<Stmt, Map<PropertyTemplate, ClosureRule[]>> index = new HashMap<>();
+
+        void buildIndex() {
+            for (final Map.Entry<Stmt, Map<ConstSubst, Map<PropertyTemplate, Assrt>>> stmtElem : map
+                .entrySet())
+            {
+                final Map<PropertyTemplate, List<ClosureRule>> rules = new HashMap<>();
+                for (final Map.Entry<ConstSubst, Map<PropertyTemplate, Assrt>> substElem : stmtElem
+                    .getValue().entrySet())
+                    for (final Map.Entry<PropertyTemplate, Assrt> propElem : substElem
+                        .getValue().entrySet())
+                        rules
+                            .computeIfAbsent(propElem.getKey(),
+                                k -> new ArrayList<>())
+                            .add(new ClosureRule(substElem.getKey(),
+                                propElem.getValue()));
+
+                final Map<PropertyTemplate, ClosureRule[]> propMap = new HashMap<>();
+                for (final Map.Entry<PropertyTemplate, List<ClosureRule>> elem : rules
+                    .entrySet())
+                    propMap.put(elem.getKey(), elem.getValue()
+                        .toArray(new ClosureRule[elem.getValue().size()]));
+                index.put(stmtElem.getKey(), propMap);
+            }
+        }
+
+        /**
+         * @param stmt the operation
+         * @param template the property
+         * @return the closure rules for the operation and the property, or
+         *         null
+         */
+        ClosureRule[] getRules(final Stmt stmt,
+            final PropertyTemplate template)
+        {
+            final Map<PropertyTemplate, ClosureRule[]> propMap = index
+                .get(stmt);
+            if (propMap == null)
+                return null;
+            return propMap.get(template);
+        }
+    }
 
     /**
      * The list of closure lows: A e. CC & B e. CC => (A + B) e. CC
@@ -54,7 +112,7 @@ public class ClosureInfo extends DBInfo {
     // ------------------------------------------------------------------------
 
     public ClosureInfo(final ImplicationInfo implInfo,
-        final ConjunctionInfo conjInfo, final List<Assrt> assrtList,
+        final ConjunctionInfo conjInfo, final RuleCandidates candidates,
         final TrOutput output, final boolean dbg)
     {
         super(output, dbg);
@@ -62,15 +120,18 @@ public class ClosureInfo extends DBInfo {
         this.conjInfo = conjInfo;
         constInfo = new HashMap<>();
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.CLOSURE))
             findClosureRules(assrt);
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.IMPL_CLOSURE))
             findImplClosureRules(assrt);
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.CONST_CLOSURE))
             findClosureRulesForConsts(assrt);
 
+        closureRuleMap.buildIndex();
+        implClosureRuleMap.buildIndex();
+
         // debug output
         if (dbg)
             for (final PropertyTemplate template : possibleProperties)
@@ -401,6 +462,7 @@ public class ClosureInfo extends DBInfo {
         if (addRes != assrt)
             return;
 
+        foundRule(assrt);
         possibleProperties.add(template);
 
         output.dbgMessage(dbg, TrConstants.ERRMSG_TRANS_TO_RESULT,
@@ -439,6 +501,7 @@ public class ClosureInfo extends DBInfo {
                 if (cMap.containsKey(key))
                     continue;
 
+                foundRule(assrt);
                 cMap.put(key, assrt);
 
                 output.dbgMessage(dbg, TrConstants.ERRMSG_TRANS_TO_CONST, core,
@@ -511,6 +574,20 @@ public class ClosureInfo extends DBInfo {
     public GenProofStepStmt closureProperty(final WorksheetInfo info,
         final PropertyTemplate template, final ParseNode node,
         final boolean finishStatement, final boolean searchWithPrefix)
+    {
+        final TransformationProfile profile = info.trManager.getProfile();
+        profile.start(TransformationProfile.Kind.CLOSURE);
+        try {
+            return closurePropertyCore(info, template, node, finishStatement,
+                searchWithPrefix);
+        } finally {
+            profile.end();
+        }
+    }
+
+    private GenProofStepStmt closurePropertyCore(final WorksheetInfo info,
+        final PropertyTemplate template, final ParseNode node,
+        final boolean finishStatement, final boolean searchWithPrefix)
     {
         final ParseNode stepNode = template.subst(node);
 
@@ -707,47 +784,46 @@ public class ClosureInfo extends DBInfo {
         final PropertyTemplate template, final ParseNode node,
         final CreateClosureVisitor visitor, final boolean searchWithPrefix)
     {
-        final GenProofStepStmt res = visitor.getMap().visitGenStmts(node, info,
-            new ComplexRuleVisitor<Assrt, GenProofStepStmt>()
-        {
-                public GenProofStepStmt visit(final ParseNode node,
-                    final WorksheetInfo info, final ConstSubst constSubst,
-                    final int[] varIndexes,
-                    final Map<PropertyTemplate, Assrt> propertyMap)
-            {
-                    final Assrt assrt = propertyMap.get(template);
-                    if (assrt == null)
-                        return null;
-                    final GenProofStepStmt[] hyps = new GenProofStepStmt[varIndexes.length];
-                    for (int i = 0; i < varIndexes.length; i++) {
-                        final int n = varIndexes[i];
-                        // Variable position
-                        final ParseNode child = node.child[n];
-                        assert child != null;
-
-                        if (!getClosurePossibility(info, child, template,
-                            searchWithPrefix).hasClosure)
-                            return null;
-
-                        final GenProofStepStmt childRes = closureProperty(info,
-                            template, child, false, searchWithPrefix);
-                        if (childRes == null)
-                            return null;
-
-                        hyps[i] = childRes;
-                    }
-                    final GenProofStepStmt r = visitor.createClosureStep(hyps,
-                        assrt);
-                    return r;
-                }
+        final ClosureRule[] rules = visitor.getMap().getRules(node.stmt,
+            template);
+        if (rules == null) {
+            assert false;
+            return null;
+        }
 
-                public GenProofStepStmt failValue() {
-                    return null;
-                }
-            });
+        final ParseNode[] constMap = TrUtil.collectConstSubst(node);
+        rules: for (final ClosureRule rule : rules) {
+            final int[] varIndexes = TrUtil
+                .checkConstSubstAndGetVarPositions(rule.constSubst, constMap);
+            if (varIndexes == null)
+                continue;
 
-        assert res != null;
-        return res;
+            final GenProofStepStmt[] hyps = new GenProofStepStmt[varIndexes.length];
+            for (int i = 0; i < varIndexes.length; i++) {
+                final int n = varIndexes[i];
+                // Variable position
+                final ParseNode child = node.child[n];
+                assert child != null;
+
+                if (!getClosurePossibility(info, child, template,
+                    searchWithPrefix).hasClosure)
+                    continue rules;
+
+                final GenProofStepStmt childRes = closureProperty(info,
+                    template, child, false, searchWithPrefix);
+                if (childRes == null)
+                    continue rules;
+
+                hyps[i] = childRes;
+            }
+            final GenProofStepStmt res = visitor.createClosureStep(hyps,
+                rule.assrt);
+            if (res != null)
+                return res;
+        }
+
+        assert false;
+        return null;
     }
 
     // -------------
@@ -787,41 +863,72 @@ public class ClosureInfo extends DBInfo {
         final PropertyTemplate template, final ClosureComplexRuleMap map,
         final boolean searchWithPrefix, final ClosureResult simpleRes)
     {
-        final ClosureResult res = map.visitGenStmts(node, info,
-            new ComplexRuleVisitor<Assrt, ClosureResult>()
-        {
-                public ClosureResult visit(final ParseNode node,
-                    final WorksheetInfo info, final ConstSubst constSubst,
-                    final int[] varIndexes,
-                    final Map<PropertyTemplate, Assrt> propertyMap)
-            {
-                    if (!propertyMap.containsKey(template))
-                        return ClosureResult.NO_CLOSURE_RULE;
-
-                    ClosureResult childResMerge = simpleRes;
-                    for (int i = 0; i < node.child.length; i++)
-                        if (constSubst.constMap[i] == null) {
-                            // Variable position
-                            final ParseNode child = node.child[i];
-                            final ClosureResult propRes = getClosurePossibility(
-                                info, child, template, searchWithPrefix);
-                            if (!propRes.hasClosure)
-                                return ClosureResult.NO_CLOSURE_RULE;
-                            childResMerge = mergeSearchResults(childResMerge,
-                                propRes);
-                        }
+        final ClosureRule[] rules = map.getRules(node.stmt, template);
+        if (rules == null)
+            return ClosureResult.NO_CLOSURE_RULE;
+
+        final ParseNode[] constMap = TrUtil.collectConstSubst(node);
+        rules: for (final ClosureRule rule : rules) {
+            final int[] varIndexes = TrUtil
+                .checkConstSubstAndGetVarPositions(rule.constSubst, constMap);
+            if (varIndexes == null)
+                continue;
 
-                    return childResMerge;
-                }
+            ClosureResult childResMerge = simpleRes;
+            for (final int n : varIndexes) {
+                // Variable position
+                final ClosureResult propRes = getClosurePossibility(info,
+                    node.child[n], template, searchWithPrefix);
+                if (!propRes.hasClosure)
+                    continue rules;
+                childResMerge = mergeSearchResults(childResMerge, propRes);
+            }
+            return childResMerge;
+        }
+        return ClosureResult.NO_CLOSURE_RULE;
+    }
 
-                public ClosureResult failValue() {
-                    return ClosureResult.NO_CLOSURE_RULE;
-                }
-            });
+    /**
+     * Checks whether the closure property of the node could be proved. The
+     * results are stored in the work sheet info (see
+     * {@link WorksheetInfo#getClosureResult}), so that the subtrees are not
+     * checked again while the steps they depend on do not change.
+     *
+     * @param info the work sheet info
+     * @param node the input node ("( sin ` A )" for example)
+     * @param template template (" _ e. CC" for example)
+     * @param searchWithPrefix true if we could search closure rules with
+     *            implication prefix
+     * @return the kind of closure rule which could be used
+     */
+    public ClosureResult getClosurePossibility(final WorksheetInfo info,
+        final ParseNode node, final PropertyTemplate template,
+        final boolean searchWithPrefix)
+    {
+        final ClosureResult stored = info.getClosureResult(node, template,
+            searchWithPrefix);
+        if (stored != null)
+            return stored;
+
+        final TransformationProfile profile = info.trManager.getProfile();
+        profile.start(TransformationProfile.Kind.CLOSURE);
+        final int mark = info.startLookupRecording();
+        ClosureResult res = null;
+        try {
+            res = getClosurePossibilityCore(info, node, template,
+                searchWithPrefix);
+        } finally {
+            final CanonicalFormCache.Lookup[] lookups = info
+                .endLookupRecording(mark);
+            profile.end();
+            if (res != null)
+                info.putClosureResult(node, template, searchWithPrefix, res,
+                    lookups);
+        }
         return res;
     }
 
-    public ClosureResult getClosurePossibility(final WorksheetInfo info,
+    private ClosureResult getClosurePossibilityCore(final WorksheetInfo info,
         final ParseNode node, final PropertyTemplate template,
         final boolean searchWithPrefix)
     {
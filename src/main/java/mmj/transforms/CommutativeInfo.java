@@ -6,10 +6,9 @@
 //*****************************************************************************/
 package mmj.transforms;
 
-import java.util.List;
-
 import mmj.lang.*;
 import mmj.transforms.ClosureInfo.ResultClosureInfo;
+import mmj.transforms.RuleCandidates.Pass;
 
 /**
  * The information about commutative operations.
@@ -66,14 +65,14 @@ public class CommutativeInfo extends DBInfo {
     // ------------------------------------------------------------------------
 
     public CommutativeInfo(final EquivalenceInfo eqInfo,
-        final ClosureInfo clInfo, final List<Assrt> assrtList,
+        final ClosureInfo clInfo, final RuleCandidates candidates,
         final TrOutput output, final boolean dbg)
     {
         super(output, dbg);
         this.eqInfo = eqInfo;
         this.clInfo = clInfo;
 
-        for (final Assrt assrt : assrtList) {
+        for (final Assrt assrt : candidates.get(Pass.COMM)) {
             findCommutativeRules(assrt);
             findImplCommutativeRules(assrt);
         }
@@ -173,6 +172,7 @@ public class CommutativeInfo extends DBInfo {
         if (com != assrt)
             return;
 
+        foundRule(assrt);
         output.dbgMessage(dbg, TrConstants.ERRMSG_COMM_ASSRTS, assrt,
             assrt.getFormula());
         // propertyMap.put(template, assrt);
@@ -17,7 +17,7 @@ public class CommutativeTransformation extends Transformation {
     public CommutativeTransformation(final TransformationManager trManager,
         final ParseNode originalNode, final GeneralizedStmt comProp)
     {
-        super(trManager, originalNode);
+        super(trManager, originalNode, TransformationProfile.Kind.COMMUTATIVE);
         genStmt = comProp;
         comInfo = trManager.comInfo;
     }
@@ -44,8 +44,8 @@ public class CommutativeTransformation extends Transformation {
     }
 
     @Override
-    public GenProofStepStmt transformMeToTarget(final Transformation target,
-        final WorksheetInfo info)
+    protected GenProofStepStmt transformMeToTargetCore(
+        final Transformation target, final WorksheetInfo info)
     {
         assert target instanceof CommutativeTransformation;
 
@@ -11,6 +11,7 @@ import java.util.Map.Entry;
 
 import mmj.lang.*;
 import mmj.pa.ProofStepStmt;
+import mmj.transforms.RuleCandidates.Pass;
 
 public class ConjunctionInfo extends DBInfo {
 
@@ -35,18 +36,19 @@ public class ConjunctionInfo extends DBInfo {
     private final Map<Stmt, Assrt[]> andPart = new HashMap<>();
 
     public ConjunctionInfo(final ImplicationInfo implInfo,
-        final List<Assrt> assrtList, final TrOutput output, final boolean dbg)
+        final RuleCandidates candidates, final TrOutput output,
+        final boolean dbg)
     {
         super(output, dbg);
         this.implInfo = implInfo;
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.GATHERING))
             findGatheringRules(assrt);
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.PART))
             findPartRules(assrt);
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.IMPL_GATHERING))
             findGatheringImplRules(assrt);
 
         filterAndOperations();
@@ -121,6 +123,7 @@ public class ConjunctionInfo extends DBInfo {
         output.dbgMessage(dbg, TrConstants.ERRMSG_IMPL_GATHER_ASSRTS, assrt,
             assrt.getFormula());
 
+        foundRule(assrt);
         gathMap.put(stmt, assrt);
     }
 
@@ -160,6 +163,7 @@ public class ConjunctionInfo extends DBInfo {
         output.dbgMessage(dbg, TrConstants.ERRMSG_GATHER_ASSRTS, assrt,
             assrt.getFormula());
 
+        foundRule(assrt);
         gatheringOp.put(stmt, assrt);
     }
 
@@ -209,6 +213,7 @@ public class ConjunctionInfo extends DBInfo {
         output.dbgMessage(dbg, TrConstants.ERRMSG_GATHER_PART, num, assrt,
             assrt.getFormula());
 
+        foundRule(assrt);
         rules[num] = assrt;
     }
 
@@ -6,6 +6,11 @@
 //*****************************************************************************/
 package mmj.transforms;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import mmj.lang.Assrt;
+
 public abstract class DBInfo {
     protected boolean dbg;
 
@@ -15,6 +20,9 @@ public abstract class DBInfo {
     /** For the debug and error output */
     protected TrOutput output;
 
+    /** The assertions stored in the tables of this object */
+    private final Set<Assrt> ruleAssrts = new HashSet<>();
+
     protected DBInfo(final TrOutput output, final boolean dbg) {
         this.output = output;
         this.dbg = dbg;
@@ -24,4 +32,24 @@ public abstract class DBInfo {
     public boolean isInit() {
         return isInit;
     }
+
+    /**
+     * Records an assertion stored in the tables of this object. It must be
+     * called for every change of the tables by an assertion, since the other
+     * assertions are not searched again when the tables are rebuilt from a
+     * saved {@link TransformationSnapshot}.
+     *
+     * @param assrt the assertion
+     */
+    protected void foundRule(final Assrt assrt) {
+        ruleAssrts.add(assrt);
+    }
+
+    /**
+     * @param assrt the assertion
+     * @return true if the assertion is stored in the tables of this object
+     */
+    public boolean isRule(final Assrt assrt) {
+        return ruleAssrts.contains(assrt);
+    }
 }
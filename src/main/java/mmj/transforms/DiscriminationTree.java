@@ -0,0 +1,102 @@
+package mmj.transforms;
+
+import java.util.*;
+
+import mmj.lang.*;
+
+/**
+ * A discrimination tree: an index of pattern parse trees which, given a
+ * subject parse tree, retrieves the patterns that may match it.
+ * <p>
+ * A pattern is stored as the preorder sequence of its nodes, each a syntax
+ * statement except the variables, which are stored as a wildcard for their
+ * type and match any subtree of that type. This is the matching done by
+ * {@link ParseNode#unifyWithSubtree(ParseNode, VarHyp[], Deque, Deque)} when
+ * every VarHyp of the pattern is a variable, except that a variable occurring
+ * twice in a pattern is not required to match the same subtree twice, so the
+ * patterns retrieved must still be unified with the subject.
+ *
+ * @param <T> the type of the values stored with the patterns
+ */
+public class DiscriminationTree<T> {
+
+    private static class Node<T> {
+        /** Children by syntax statement. */
+        final Map<Stmt, Node<T>> exact = new HashMap<>();
+        /** Children by variable type. */
+        final Map<Cnst, Node<T>> wildcard = new HashMap<>();
+        /** Values of the patterns ending here. */
+        final List<T> values = new ArrayList<>();
+    }
+
+    /** Subject subtrees still to be matched, as an immutable stack. */
+    private static class Pending {
+        final ParseNode node;
+        final Pending next;
+
+        Pending(final ParseNode node, final Pending next) {
+            this.node = node;
+            this.next = next;
+        }
+    }
+
+    private final Node<T> root = new Node<>();
+
+    /**
+     * Adds a pattern.
+     *
+     * @param pattern the root of the pattern parse tree.
+     * @param value the value returned by {@link #retrieve} for this pattern.
+     */
+    public void insert(final ParseNode pattern, final T value) {
+        Node<T> node = root;
+        final Deque<ParseNode> stack = new ArrayDeque<>();
+        stack.push(pattern);
+        while (!stack.isEmpty()) {
+            final ParseNode p = stack.pop();
+            if (p.stmt instanceof VarHyp)
+                node = node.wildcard.computeIfAbsent(p.stmt.getTyp(),
+                    k -> new Node<>());
+            else {
+                node = node.exact.computeIfAbsent(p.stmt, k -> new Node<>());
+                for (int i = p.child.length - 1; i >= 0; i--)
+                    stack.push(p.child[i]);
+            }
+        }
+        node.values.add(value);
+    }
+
+    /**
+     * Retrieves the values of the patterns which may match a subject.
+     *
+     * @param subject the root of the subject parse tree.
+     * @return the values, in no particular order.
+     */
+    public List<T> retrieve(final ParseNode subject) {
+        final List<T> out = new ArrayList<>();
+        retrieve(root, new Pending(subject, null), out);
+        return out;
+    }
+
+    private void retrieve(final Node<T> node, final Pending pending,
+        final List<T> out)
+    {
+        if (pending == null) {
+            out.addAll(node.values);
+            return;
+        }
+        final ParseNode s = pending.node;
+
+        final Node<T> w = node.wildcard.get(s.stmt.getTyp());
+        if (w != null)
+            retrieve(w, pending.next, out);
+
+        final Node<T> e = node.exact.get(s.stmt);
+        if (e != null) {
+            Pending next = pending.next;
+            for (int i = s.child.length - 1; i >= 0; i--)
+                next = new Pending(s.child[i], next);
+            retrieve(e, next, out);
+        }
+    }
+}
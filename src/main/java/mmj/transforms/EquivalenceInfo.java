@@ -10,6 +10,7 @@ import java.util.*;
 
 import mmj.lang.*;
 import mmj.pa.ProofStepStmt;
+import mmj.transforms.RuleCandidates.Pass;
 
 /**
  * This class is used for equivalence transformations.
@@ -57,21 +58,21 @@ public class EquivalenceInfo extends DBInfo {
     // ------------------------Initialization----------------------------------
     // ------------------------------------------------------------------------
 
-    public EquivalenceInfo(final List<Assrt> assrtList, final TrOutput output,
-        final boolean dbg)
+    public EquivalenceInfo(final RuleCandidates candidates,
+        final TrOutput output, final boolean dbg)
     {
         super(output, dbg);
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.EQUIV_COMM))
             findEquivalenceCommutativeRules(assrt);
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.EQUIV_TRANS))
             findEquivalenceTransitiveRules(assrt);
 
         filterOnlyEqRules();
     }
 
-    public void fillDeductRules(final List<Assrt> assrtList,
+    public void fillDeductRules(final RuleCandidates candidates,
         final ImplicationInfo implInfo)
     {
         assert !fillDeductRules;
@@ -83,10 +84,10 @@ public class EquivalenceInfo extends DBInfo {
             eqDeductTrans.put(op, new HashMap<>());
         }
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.EQUIV_COMM_DEDUCT))
             findEquivalenceCommutativeDeductionRules(assrt, implInfo);
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.EQUIV_TRANS_DEDUCT))
             findEquivalenceTransitiveDeductionRules(assrt, implInfo);
 
         for (final Stmt op : implOps) {
@@ -153,6 +154,7 @@ public class EquivalenceInfo extends DBInfo {
         output.dbgMessage(dbg, TrConstants.ERRMSG_EQUIV_COMM_ASSRTS, assrt,
             assrt.getFormula());
 
+        foundRule(assrt);
         eqCommutatives.put(stmt, assrt);
     }
 
@@ -243,6 +245,7 @@ public class EquivalenceInfo extends DBInfo {
         output.dbgMessage(dbg, TrConstants.ERRMSG_EQUIV_TRANS_DED_ASSRTS, assrt,
             assrt.getFormula());
 
+        foundRule(assrt);
         eqTransMap.put(stmt, assrt);
     }
 
@@ -305,6 +308,7 @@ public class EquivalenceInfo extends DBInfo {
         output.dbgMessage(dbg, TrConstants.ERRMSG_EQUIV_TRANS_ASSRTS, assrt,
             assrt.getFormula());
 
+        foundRule(assrt);
         eqTransitivies.put(stmt, assrt);
     }
 
@@ -432,6 +436,7 @@ public class EquivalenceInfo extends DBInfo {
         output.dbgMessage(dbg, TrConstants.ERRMSG_EQUIV_COMM_DED_ASSRTS, assrt,
             assrt.getFormula());
 
+        foundRule(assrt);
         eqComMap.put(stmt, assrt);
     }
 
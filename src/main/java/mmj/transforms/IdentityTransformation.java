@@ -14,7 +14,7 @@ class IdentityTransformation extends Transformation {
     public IdentityTransformation(final TransformationManager trManager,
         final ParseNode originalNode)
     {
-        super(trManager, originalNode);
+        super(trManager, originalNode, TransformationProfile.Kind.IDENTITY);
     }
 
     @Override
@@ -23,8 +23,8 @@ class IdentityTransformation extends Transformation {
     }
 
     @Override
-    public GenProofStepStmt transformMeToTarget(final Transformation target,
-        final WorksheetInfo info)
+    protected GenProofStepStmt transformMeToTargetCore(
+        final Transformation target, final WorksheetInfo info)
     {
         assert target.originalNode.isDeepDup(originalNode);
         return null; // nothing to do
@@ -11,6 +11,7 @@ import java.util.Map.Entry;
 
 import mmj.lang.*;
 import mmj.pa.ProofStepStmt;
+import mmj.transforms.RuleCandidates.Pass;
 import mmj.transforms.WorksheetInfo.SubstParam;
 
 /**
@@ -48,15 +49,16 @@ public class ImplicationInfo extends DBInfo {
     private final Map<Stmt, Assrt> distrRules = new HashMap<>();
 
     public ImplicationInfo(final EquivalenceInfo eqInfo,
-        final List<Assrt> assrtList, final TrOutput output, final boolean dbg)
+        final RuleCandidates candidates, final TrOutput output,
+        final boolean dbg)
     {
         super(output, dbg);
         this.eqInfo = eqInfo;
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.IMPL))
             findImplicationRules(assrt);
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.ADD_PREFIX))
             findAddPrefixRules(assrt);
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.IMPL_TRANS))
             findTransitiveRules(assrt);
 
         for (final Stmt stmt : implOp.keySet())
@@ -66,7 +68,7 @@ public class ImplicationInfo extends DBInfo {
                         TrConstants.ERRMSG_MISSING_IMPL_TRIV_RULE, stmt,
                         implOp.get(stmt));
 
-        for (final Assrt assrt : assrtList)
+        for (final Assrt assrt : candidates.get(Pass.DISTR))
             findDistributiveRules(assrt);
     }
 
@@ -131,6 +133,7 @@ public class ImplicationInfo extends DBInfo {
         output.dbgMessage(dbg, TrConstants.ERRMSG_IMPL_DISTR_ASSRTS, assrt,
             assrt.getFormula());
 
+        foundRule(assrt);
         distrRules.put(implStmt, assrt);
     }
 
@@ -192,6 +195,7 @@ public class ImplicationInfo extends DBInfo {
         output.dbgMessage(dbg, TrConstants.ERRMSG_IMPL_TRANS_ASSRTS, assrt,
             assrt.getFormula());
 
+        foundRule(assrt);
         implTrans.put(implStmt, assrt);
     }
     /**
@@ -255,6 +259,7 @@ public class ImplicationInfo extends DBInfo {
 
         output.dbgMessage(dbg, TrConstants.ERRMSG_IMPL_ASSRTS, assrt,
             assrt.getFormula());
+        foundRule(assrt);
         implOp.put(stmt, assrt);
 
         if (!eqInfo.isEquivalence(stmt))
@@ -307,6 +312,7 @@ public class ImplicationInfo extends DBInfo {
         output.dbgMessage(dbg, TrConstants.ERRMSG_IMPL_TRIV_ASSRTS, assrt,
             assrt.getFormula());
 
+        foundRule(assrt);
         addPrefixRules.put(implStmt, assrt);
     }
     // ------------------------------------------------------------------------
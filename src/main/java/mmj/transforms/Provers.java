@@ -13,9 +13,6 @@ import mmj.transforms.Prover.HypProver;
 import mmj.transforms.Prover.HypProverResult;
 
 public class Provers {
-    private final static Deque<ParseNode> unifyNodeStack = new ArrayDeque<>();
-    private final static Deque<ParseNode> compareNodeStack = new ArrayDeque<>();
-
     private Provers() {}
 
     /**
@@ -33,6 +30,8 @@ public class Provers {
     public static class UseWhenPossible extends HypProver {
         protected VarHyp[] varHypArray;
         private final UseWhenPossibleListener uwpListener;
+        private final Deque<ParseNode> unifyNodeStack = new ArrayDeque<>();
+        private final Deque<ParseNode> compareNodeStack = new ArrayDeque<>();
 
         public UseWhenPossible(final Assrt assrt) {
             super(assrt);
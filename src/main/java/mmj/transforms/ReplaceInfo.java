@@ -11,6 +11,7 @@ import java.util.Map.Entry;
 
 import mmj.lang.*;
 import mmj.pa.ProofStepStmt;
+import mmj.transforms.RuleCandidates.Pass;
 
 public class ReplaceInfo extends DBInfo {
     /** The information about equivalence rules */
@@ -35,14 +36,14 @@ public class ReplaceInfo extends DBInfo {
     // ------------------------------------------------------------------------
 
     public ReplaceInfo(final EquivalenceInfo eqInfo,
-        final ImplicationInfo implInfo, final List<Assrt> assrtList,
+        final ImplicationInfo implInfo, final RuleCandidates candidates,
         final TrOutput output, final boolean dbg)
     {
         super(output, dbg);
         this.eqInfo = eqInfo;
         this.implInfo = implInfo;
 
-        for (final Assrt assrt : assrtList) {
+        for (final Assrt assrt : candidates.get(Pass.REPLACE)) {
             findReplaceRules(assrt);
             findImplReplaceRules(assrt);
         }
@@ -192,6 +193,7 @@ public class ReplaceInfo extends DBInfo {
         if (repl[replPos] != null)
             return;
 
+        foundRule(assrt);
         repl[replPos] = assrt;
 
         output.dbgMessage(dbg, TrConstants.ERRMSG_REPL_ASSRTS, stmt, replPos,
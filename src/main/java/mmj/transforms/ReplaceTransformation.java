@@ -19,13 +19,13 @@ public class ReplaceTransformation extends Transformation {
     public ReplaceTransformation(final TransformationManager trManager,
         final ParseNode originalNode)
     {
-        super(trManager, originalNode);
+        super(trManager, originalNode, TransformationProfile.Kind.REPLACE);
         replInfo = trManager.replInfo;
     }
 
     @Override
-    public GenProofStepStmt transformMeToTarget(final Transformation target,
-        final WorksheetInfo info)
+    protected GenProofStepStmt transformMeToTargetCore(
+        final Transformation target, final WorksheetInfo info)
     {
         assert target instanceof ReplaceTransformation;
         final ReplaceTransformation trgt = (ReplaceTransformation)target;
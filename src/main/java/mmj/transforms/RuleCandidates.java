@@ -0,0 +1,172 @@
+package mmj.transforms;
+
+import java.util.*;
+
+import mmj.lang.*;
+import mmj.util.OrderedParallelScan;
+import mmj.util.OrderedParallelScan.Scanner;
+import mmj.verify.VerifyException;
+
+/**
+ * The candidate assertions of each pass of the search for transformation
+ * rules.
+ * <p>
+ * Each pass of the search (see {@link Pass}) calls a find method of an Info
+ * class on the assertions, in order, and most assertions are rejected by the
+ * first checks of the method, which only look at the shape of the assertion:
+ * its numbers of logical hypotheses and of variables, the depth of its
+ * formula and of its hypotheses and the kind of their roots. These checks are
+ * made for every assertion by a single {@link OrderedParallelScan}, and each
+ * pass only calls its find method on its candidates, in the order of the
+ * assertions. A candidate may still be rejected by the find method, but an
+ * assertion which is not a candidate would have been rejected by the checks,
+ * so the rules found are the same.
+ */
+public class RuleCandidates {
+
+    /** A pass of the search for transformation rules */
+    public enum Pass {
+        /** {@link EquivalenceInfo}, commutative rules */
+        EQUIV_COMM,
+        /** {@link EquivalenceInfo}, transitive rules */
+        EQUIV_TRANS,
+        /** {@link EquivalenceInfo}, commutative deduction rules */
+        EQUIV_COMM_DEDUCT,
+        /** {@link EquivalenceInfo}, transitive deduction rules */
+        EQUIV_TRANS_DEDUCT,
+        /** {@link ImplicationInfo}, implication rules */
+        IMPL,
+        /** {@link ImplicationInfo}, add prefix rules */
+        ADD_PREFIX,
+        /** {@link ImplicationInfo}, transitive rules */
+        IMPL_TRANS,
+        /** {@link ImplicationInfo}, distributive rules */
+        DISTR,
+        /** {@link ConjunctionInfo}, gathering rules */
+        GATHERING,
+        /** {@link ConjunctionInfo}, part rules */
+        PART,
+        /** {@link ConjunctionInfo}, gathering rules in implication form */
+        IMPL_GATHERING,
+        /** {@link ClosureInfo}, closure rules */
+        CLOSURE,
+        /** {@link ClosureInfo}, closure rules in implication form */
+        IMPL_CLOSURE,
+        /** {@link ClosureInfo}, closure rules for constants */
+        CONST_CLOSURE,
+        /** {@link ReplaceInfo}, both forms */
+        REPLACE,
+        /** {@link AssociativeInfo}, both forms */
+        ASSOC,
+        /** {@link CommutativeInfo}, both forms */
+        COMM
+    }
+
+    private final Map<Pass, List<Assrt>> candidates = new EnumMap<>(
+        Pass.class);
+
+    /**
+     * Classifies the assertions.
+     *
+     * @param assrtList the list of library assrts
+     * @throws IllegalStateException if the scan is interrupted
+     */
+    RuleCandidates(final List<Assrt> assrtList) {
+        for (final Pass pass : Pass.values())
+            candidates.put(pass, new ArrayList<>());
+
+        final Iterator<Assrt> iterator = assrtList.iterator();
+        final OrderedParallelScan<Set<Pass>, RuntimeException> scan = new OrderedParallelScan<>(
+            assrtList.size(), TrConstants.RULE_CANDIDATES_SCAN_CHUNK_SIZE,
+            passes -> {
+                final Assrt assrt = iterator.next();
+                for (final Pass pass : passes)
+                    candidates.get(pass).add(assrt);
+                return false;
+            });
+        final Scanner<Set<Pass>, RuntimeException> scanner = (from, to) -> {
+            final List<Set<Pass>> passes = new ArrayList<>(to - from);
+            for (final Assrt assrt : assrtList.subList(from, to))
+                passes.add(classify(assrt));
+            return passes;
+        };
+        try {
+            // the scanner has no state, so it is shared by the helpers
+            scan.run(scanner,
+                Collections.nCopies(scan.getNbrHelpers(), scanner));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(new VerifyException(
+                TrConstants.ERRMSG_TRANSFORMATIONS_INTERRUPTED));
+        }
+    }
+
+    /**
+     * @param pass the pass
+     * @return the candidates of the pass, in the order of the assertions
+     */
+    public List<Assrt> get(final Pass pass) {
+        return candidates.get(pass);
+    }
+
+    /**
+     * Makes the first checks of each find method.
+     *
+     * @param assrt the assertion
+     * @return the passes of which the assertion is a candidate
+     */
+    private static Set<Pass> classify(final Assrt assrt) {
+        final LogHyp[] logHyps = assrt.getLogHypArray();
+        final int nbrLogHyps = logHyps.length;
+        final int nbrVars = assrt.getMandVarHypArray().length;
+        final ParseTree assrtTree = assrt.getExprParseTree();
+        final int depth = assrtTree.getMaxDepth();
+        final ParseNode root = assrtTree.getRoot();
+
+        final EnumSet<Pass> passes = EnumSet.noneOf(Pass.class);
+        if (nbrLogHyps == 1) {
+            final ParseTree hypTree = logHyps[0].getExprParseTree();
+            if (nbrVars == 2 && depth == 2 && hypTree.getMaxDepth() == 2)
+                passes.add(Pass.EQUIV_COMM);
+            if (nbrVars == 3 && depth == 3 && hypTree.getMaxDepth() == 3)
+                passes.add(Pass.EQUIV_COMM_DEDUCT);
+            if (TrUtil.isVarNode(hypTree.getRoot()))
+                passes.add(Pass.ADD_PREFIX);
+            passes.add(Pass.DISTR);
+            if (TrUtil.isVarNode(root))
+                passes.add(Pass.PART);
+            if (depth == 3)
+                passes.add(Pass.REPLACE);
+        }
+        if (nbrLogHyps == 2) {
+            final int hyp1Depth = logHyps[0].getExprParseTree().getMaxDepth();
+            final int hyp2Depth = logHyps[1].getExprParseTree().getMaxDepth();
+            if (nbrVars == 2 && depth == 2 && hyp1Depth == 2 && hyp2Depth == 2)
+                passes.add(Pass.EQUIV_TRANS);
+            if (nbrVars == 3 && depth == 3 && hyp1Depth == 3 && hyp2Depth == 3)
+                passes.add(Pass.EQUIV_TRANS_DEDUCT);
+            if (depth == 1)
+                passes.add(Pass.IMPL);
+            passes.add(Pass.IMPL_TRANS);
+        }
+        if (nbrLogHyps >= 2) {
+            passes.add(Pass.GATHERING);
+            passes.add(Pass.IMPL_GATHERING);
+        }
+        if (nbrLogHyps != 0 && nbrLogHyps == nbrVars)
+            passes.add(Pass.CLOSURE);
+        if (depth == 4)
+            passes.add(Pass.IMPL_CLOSURE);
+        if (nbrLogHyps == 0) {
+            if (TrUtil.isConstNode(root))
+                passes.add(Pass.CONST_CLOSURE);
+            if (depth == 4)
+                passes.add(Pass.REPLACE);
+        }
+        if (nbrVars == 3)
+            passes.add(Pass.ASSOC);
+        if (nbrVars == 2)
+            passes.add(Pass.COMM);
+        return passes;
+    }
+}
@@ -59,6 +59,44 @@ public class TrConstants {
     // This class should have no objects.
     private TrConstants() {}
 
+    // ----------------------------------------------------------
+    // Parameters
+    // ----------------------------------------------------------
+
+    /**
+     * The maximum number of canonical forms kept by a TransformationManager
+     * (see CanonicalFormCache). The least recently used are dropped.
+     */
+    public static final int CANONICAL_FORM_CACHE_MAX_SIZE = 20000;
+
+    /**
+     * The number of provers unified by a thread at a time, when the provers
+     * which subsume each other are searched (see
+     * {@link TransformationManager#buildUWPProvers}).
+     */
+    public static final int SUBSUMES_SCAN_CHUNK_SIZE = 16;
+
+    /**
+     * The number of assertions classified by a thread at a time, when the
+     * candidates of the rules are searched (see RuleCandidates).
+     */
+    public static final int RULE_CANDIDATES_SCAN_CHUNK_SIZE = 512;
+
+    /** The start of the name of a saved TransformationSnapshot */
+    public static final String TRANSFORMATION_SNAPSHOT_FILE_PREFIX = "transformations-";
+
+    /** The end of the name of a saved TransformationSnapshot */
+    public static final String TRANSFORMATION_SNAPSHOT_FILE_SUFFIX = ".txt";
+
+    /** The first line of a saved TransformationSnapshot */
+    public static final String TRANSFORMATION_SNAPSHOT_HEADER = "mmj2 transformation snapshot 1";
+
+    /** The line before the labels of the rules in a saved snapshot */
+    public static final String TRANSFORMATION_SNAPSHOT_RULES = "rules";
+
+    /** The line before the labels of the provers in a saved snapshot */
+    public static final String TRANSFORMATION_SNAPSHOT_PROVERS = "provers";
+
     // ----------------------------------------------------------
     // Messages
     // ----------------------------------------------------------
@@ -68,6 +106,9 @@ public class TrConstants {
     public static final ErrorCode ERRMSG_ILLEGAL_STATE_IN_CREATE_TRANSFORMATION = of(
         "A-TR-0003 Error in createTransformation() algorithm");
 
+    public static final ErrorCode ERRMSG_TRANSFORMATIONS_INTERRUPTED = of(
+        "A-TR-0006 The set up of the automatic transformations was interrupted");
+
     public static final ErrorCode ERRMSG_CANONICAL_FORM = of(
         "D-TR-0004 Step %s has canonical form: %s");
 
@@ -100,6 +141,13 @@ public class TrConstants {
             + "badAssrtList in macros/transformations.js, skipping the preferred\n"
             + "simplification rule if desired. Offending $p and $a rules:\n%s");
 
+    public static final ErrorCode ERRMSG_SNAPSHOT_NOT_READ = of(
+        "W-TR-0202 The saved transformation tables %s could not be read,"
+            + " they are built again: %s");
+
+    public static final ErrorCode ERRMSG_SNAPSHOT_NOT_WRITTEN = of(
+        "W-TR-0203 The transformation tables could not be saved to %s: %s");
+
     public static final ErrorCode ERRMSG_ASSOC_REPLACE_FAIL = of(
         "D-TR-0301 found associative assrts "
             + "but it has problems with replace: %s: %s");
@@ -22,12 +22,17 @@ public abstract class Transformation {
     // it is only the copy of the pointer
     protected final EquivalenceInfo eqInfo;
 
+    /** The kind of this transformation in the profile of the trManager */
+    private final TransformationProfile.Kind profileKind;
+
     public Transformation(final TransformationManager trManager,
-        final ParseNode originalNode)
+        final ParseNode originalNode,
+        final TransformationProfile.Kind profileKind)
     {
         this.originalNode = originalNode;
         this.trManager = trManager;
         eqInfo = trManager.eqInfo;
+        this.profileKind = profileKind;
     }
 
     /**
@@ -48,7 +53,30 @@ public abstract class Transformation {
      *         {@link Transformation#originalNode}. Could returns null it this
      *         and target are equal.
      */
-    public abstract GenProofStepStmt transformMeToTarget(
+    public final GenProofStepStmt transformMeToTarget(
+        final Transformation target, final WorksheetInfo info)
+    {
+        final TransformationProfile profile = trManager.getProfile();
+        profile.start(profileKind);
+        try {
+            return transformMeToTargetCore(target, info);
+        } finally {
+            profile.end();
+        }
+    }
+
+    /**
+     * The implementation of {@link #transformMeToTarget}, which measures it in
+     * the profile of the trManager.
+     *
+     * @param target the target transformation
+     * @param info the information about work sheet
+     * @return the proof step which confirms that this
+     *         {@link Transformation#originalNode} is equal to target
+     *         {@link Transformation#originalNode}. Could returns null it this
+     *         and target are equal.
+     */
+    protected abstract GenProofStepStmt transformMeToTargetCore(
         final Transformation target, final WorksheetInfo info);
 
     /**
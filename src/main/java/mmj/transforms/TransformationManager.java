@@ -6,6 +6,8 @@
 //*****************************************************************************/
 package mmj.transforms;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.function.Predicate;
 
@@ -16,6 +18,8 @@ import mmj.transforms.ImplicationInfo.ExtractImplResult;
 import mmj.transforms.Prover.AssrtProver;
 import mmj.transforms.Prover.ProverResult;
 import mmj.transforms.Provers.UseWhenPossible;
+import mmj.util.OrderedParallelScan;
+import mmj.util.OrderedParallelScan.Scanner;
 import mmj.util.TopologicalSorter;
 import mmj.verify.VerifyException;
 import mmj.verify.VerifyProofs;
@@ -72,6 +76,15 @@ public class TransformationManager {
 
     public final ProofAsst proofAsst;
 
+    /** The tables of this TransformationManager, or null if not reusable. */
+    private TransformationSnapshot snapshot;
+
+    /** The canonical forms computed so far, unused with debug output */
+    private final CanonicalFormCache canonicalCache = new CanonicalFormCache();
+
+    /** The work done by this TransformationManager */
+    private final TransformationProfile profile = new TransformationProfile();
+
     /**
      * Note: Here will be performed a lot of work during the construction of
      * this class!
@@ -91,6 +104,34 @@ public class TransformationManager {
         final List<Assrt> assrtList, final Cnst provableLogicStmtTyp,
         final Messages messages, final VerifyProofs verifyProofs,
         final boolean supportPrefix, final boolean debugOutput)
+    {
+        this(proofAsst, assrtList, provableLogicStmtTyp, messages,
+            verifyProofs, supportPrefix, debugOutput, null);
+    }
+
+    /**
+     * Constructor reusing, if possible, the tables of a previous
+     * TransformationManager (see {@link #getSnapshot()}). The tables are built
+     * as usual if the snapshot is null or was built from other assertions, and
+     * always with debug output.
+     *
+     * @param assrtList the list all library asserts
+     * @param provableLogicStmtTyp this constant indicates "provable logic
+     *            statement type"
+     * @param messages the message manager
+     * @param verifyProofs the proof verification is needed for some actions
+     * @param proofAsst The proof asst
+     * @param supportPrefix when it is true auto-transformation component will
+     *            try to use implication prefix in transformations
+     * @param debugOutput when it is true auto-transformation component will
+     *            produce a lot of debug output
+     * @param reuse the snapshot of a previous TransformationManager, or null
+     */
+    public TransformationManager(final ProofAsst proofAsst,
+        final List<Assrt> assrtList, final Cnst provableLogicStmtTyp,
+        final Messages messages, final VerifyProofs verifyProofs,
+        final boolean supportPrefix, final boolean debugOutput,
+        final TransformationSnapshot reuse)
     {
         this.proofAsst = proofAsst;
         output = new TrOutput(messages);
@@ -99,26 +140,99 @@ public class TransformationManager {
         dbg = debugOutput;
         supportImplicationPrefix = supportPrefix;
 
-        eqInfo = new EquivalenceInfo(assrtList, output, dbg);
+        provers = new ArrayList<>();
+
+        if (!dbg && reuse != null
+            && reuse.matches(assrtList, provableLogicStmtTyp))
+        {
+            eqInfo = reuse.eqInfo;
+            implInfo = reuse.implInfo;
+            conjInfo = reuse.conjInfo;
+            clInfo = reuse.clInfo;
+            replInfo = reuse.replInfo;
+            assocInfo = reuse.assocInfo;
+            comInfo = reuse.comInfo;
+
+            if (reuse.proverAssrts != null && proofAsst.macroManager == null)
+            {
+                for (final Assrt assrt : reuse.proverAssrts)
+                    provers.add(new Provers.UseWhenPossible(assrt));
+                snapshot = reuse;
+            }
+            else {
+                setUpProvers(assrtList);
+                snapshot = new TransformationSnapshot(assrtList,
+                    provableLogicStmtTyp, this, getProverAssrts(),
+                    reuse.ruleAssrts);
+            }
+            return;
+        }
+
+        final File snapshotFolder = dbg ? null
+            : proofAsst.getPreferences().transformationSnapshotFolder.get();
+        final File snapshotFile = snapshotFolder == null ? null
+            : TransformationSnapshot.getFile(snapshotFolder, assrtList,
+                provableLogicStmtTyp);
+        TransformationSnapshot.Saved saved = null;
+        if (snapshotFile != null)
+            try {
+                saved = TransformationSnapshot.read(snapshotFile,
+                    proofAsst.getLogicalSystem().getStmtTbl());
+            } catch (final IOException e) {
+                output.errorMessage(TrConstants.ERRMSG_SNAPSHOT_NOT_READ,
+                    snapshotFile, e.getMessage());
+            }
+
+        // A saved snapshot gives the assertions which are rules, and the
+        // other assertions are not searched again.
+        final RuleCandidates candidates = new RuleCandidates(
+            saved == null ? assrtList : saved.ruleAssrts);
 
-        implInfo = new ImplicationInfo(eqInfo, assrtList, output, dbg);
+        eqInfo = new EquivalenceInfo(candidates, output, dbg);
 
-        eqInfo.fillDeductRules(assrtList, implInfo);
+        implInfo = new ImplicationInfo(eqInfo, candidates, output, dbg);
 
-        conjInfo = new ConjunctionInfo(implInfo, assrtList, output, dbg);
+        eqInfo.fillDeductRules(candidates, implInfo);
 
-        clInfo = new ClosureInfo(implInfo, conjInfo, assrtList, output, dbg);
+        conjInfo = new ConjunctionInfo(implInfo, candidates, output, dbg);
 
-        replInfo = new ReplaceInfo(eqInfo, implInfo, assrtList, output, dbg);
+        clInfo = new ClosureInfo(implInfo, conjInfo, candidates, output, dbg);
 
-        assocInfo = new AssociativeInfo(eqInfo, clInfo, replInfo, assrtList,
+        replInfo = new ReplaceInfo(eqInfo, implInfo, candidates, output, dbg);
+
+        assocInfo = new AssociativeInfo(eqInfo, clInfo, replInfo, candidates,
             output, dbg);
 
-        comInfo = new CommutativeInfo(eqInfo, clInfo, assrtList, output, dbg);
+        comInfo = new CommutativeInfo(eqInfo, clInfo, candidates, output, dbg);
 
-        provers = new ArrayList<>();
+        if (saved != null && saved.proverAssrts != null
+            && proofAsst.macroManager == null)
+            for (final Assrt assrt : saved.proverAssrts)
+                provers.add(new Provers.UseWhenPossible(assrt));
+        else
+            setUpProvers(assrtList);
+
+        if (dbg)
+            return;
+        snapshot = new TransformationSnapshot(assrtList, provableLogicStmtTyp,
+            this, getProverAssrts(), getRuleAssrts(assrtList));
+        if (snapshotFile != null && (saved == null
+            || saved.proverAssrts == null && snapshot.proverAssrts != null))
+            try {
+                snapshot.write(snapshotFile);
+            } catch (final IOException e) {
+                output.errorMessage(TrConstants.ERRMSG_SNAPSHOT_NOT_WRITTEN,
+                    snapshotFile, e.getMessage());
+            }
+    }
 
-        setUpProvers(assrtList);
+    /**
+     * @return the tables of this TransformationManager, to be passed to a
+     *         later TransformationManager for the same assertions, or null if
+     *         they were built with debug output.
+     */
+    public TransformationSnapshot getSnapshot() {
+        return snapshot;
     }
 
     private void setUpProvers(final List<Assrt> assrtList) {
@@ -132,6 +246,36 @@ public class TransformationManager {
             buildUWPProvers(assrtList, (assrt) -> true);
     }
 
+    /**
+     * @return the assrts of the provers, in prover order, or null if the
+     *         provers were set up by a macro.
+     */
+    private List<Assrt> getProverAssrts() {
+        if (proofAsst.macroManager != null)
+            return null;
+        final List<Assrt> proverAssrts = new ArrayList<>(provers.size());
+        for (final Prover p : provers)
+            proverAssrts.add(((AssrtProver)p).assrt);
+        return proverAssrts;
+    }
+
+    /**
+     * @param assrtList the list of library assrts
+     * @return the assrts stored in the tables, in the order of the list
+     */
+    private List<Assrt> getRuleAssrts(final List<Assrt> assrtList) {
+        final DBInfo[] infos = {eqInfo, implInfo, conjInfo, clInfo, replInfo,
+                assocInfo, comInfo};
+        final List<Assrt> ruleAssrts = new ArrayList<>();
+        for (final Assrt assrt : assrtList)
+            for (final DBInfo info : infos)
+                if (info.isRule(assrt)) {
+                    ruleAssrts.add(assrt);
+                    break;
+                }
+        return ruleAssrts;
+    }
+
     /**
      * Create {@link UseWhenPossible} provers for eligible assrts in the
      * database.
@@ -161,13 +305,8 @@ public class TransformationManager {
                         continue assrtLoop;
                 extraProvers.add(new Provers.UseWhenPossible(assrt));
             }
-        final Map<Assrt, List<AssrtProver>> map = new HashMap<>();
-        for (final AssrtProver p : extraProvers)
-            for (final AssrtProver p2 : extraProvers)
-                if (p2 != p && p.prove(null,
-                    p2.assrt.getExprParseTree().getRoot()) != null)
-                    map.computeIfAbsent(p.assrt, k -> new ArrayList<>())
-                        .add(p2);
+        final Map<Assrt, List<AssrtProver>> map = buildSubsumesMap(
+            extraProvers);
 
         final TopologicalSorter<AssrtProver> sorter = new TopologicalSorter<>(
             extraProvers,
@@ -186,6 +325,74 @@ public class TransformationManager {
                 provers.add(p);
     }
 
+    /**
+     * Finds, for every prover p, the provers p2 whose conclusion p proves.
+     * <p>
+     * Only the pairs retrieved by a {@link DiscriminationTree} of the
+     * conclusions are unified, and the provers are unified by an
+     * {@link OrderedParallelScan} (each prover by a single thread, since a
+     * prover is not thread safe). The result is the same as that of unifying
+     * every ordered pair.
+     *
+     * @param extraProvers the provers
+     * @return for each prover's assrt, the provers it subsumes, in
+     *         {@code extraProvers} order
+     */
+    private static Map<Assrt, List<AssrtProver>> buildSubsumesMap(
+        final List<AssrtProver> extraProvers)
+    {
+        final DiscriminationTree<Integer> index = new DiscriminationTree<>();
+        for (int i = 0; i < extraProvers.size(); i++)
+            index.insert(extraProvers.get(i).assrt.getExprParseTree().getRoot(),
+                i);
+
+        final List<List<AssrtProver>> candidates = new ArrayList<>();
+        for (int i = 0; i < extraProvers.size(); i++)
+            candidates.add(new ArrayList<>());
+        for (final AssrtProver p2 : extraProvers)
+            for (final int i : index
+                .retrieve(p2.assrt.getExprParseTree().getRoot()))
+                if (extraProvers.get(i) != p2)
+                    candidates.get(i).add(p2);
+
+        final List<List<AssrtProver>> subsumed = new ArrayList<>();
+        final OrderedParallelScan<List<AssrtProver>, RuntimeException> scan = new OrderedParallelScan<>(
+            extraProvers.size(), TrConstants.SUBSUMES_SCAN_CHUNK_SIZE,
+            list -> {
+                subsumed.add(list);
+                return false;
+            });
+        final Scanner<List<AssrtProver>, RuntimeException> scanner = (from,
+            to) -> {
+            final List<List<AssrtProver>> lists = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                final AssrtProver p = extraProvers.get(i);
+                final List<AssrtProver> list = new ArrayList<>();
+                for (final AssrtProver p2 : candidates.get(i))
+                    if (p.prove(null,
+                        p2.assrt.getExprParseTree().getRoot()) != null)
+                        list.add(p2);
+                lists.add(list);
+            }
+            return lists;
+        };
+        try {
+            // the scanner has no state, so it is shared by the helpers
+            scan.run(scanner,
+                Collections.nCopies(scan.getNbrHelpers(), scanner));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(new VerifyException(
+                TrConstants.ERRMSG_TRANSFORMATIONS_INTERRUPTED));
+        }
+
+        final Map<Assrt, List<AssrtProver>> map = new HashMap<>();
+        for (int i = 0; i < extraProvers.size(); i++)
+            if (!subsumed.get(i).isEmpty())
+                map.put(extraProvers.get(i).assrt, subsumed.get(i));
+        return map;
+    }
+
     // ----------------------------
 
     // ------------------------------------------------------------------------
@@ -245,7 +452,47 @@ public class TransformationManager {
     public ParseNode getCanonicalForm(final ParseNode originalNode,
         final WorksheetInfo info)
     {
-        return createTransformation(originalNode, info).getCanonicalNode(info);
+        return getCanonicalEntry(originalNode, info).canonical.node;
+    }
+
+    /**
+     * Returns the canonical form of a node, reusing the one computed for an
+     * equal node, in this or a previous worksheet, if it is still valid (see
+     * {@link CanonicalFormCache}).
+     *
+     * @param originalNode the input node
+     * @param info the work sheet info
+     * @return the canonical form
+     */
+    private CanonicalFormCache.Entry getCanonicalEntry(
+        final ParseNode originalNode, final WorksheetInfo info)
+    {
+        if (!dbg) {
+            final CanonicalFormCache.Entry cached = canonicalCache
+                .get(originalNode, info);
+            if (cached != null) {
+                info.addLookups(cached.lookups);
+                return cached;
+            }
+        }
+
+        final int mark = info.startLookupRecording();
+        final ParseNode canonical;
+        final CanonicalFormCache.Lookup[] lookups;
+        profile.start(TransformationProfile.Kind.CANONICAL);
+        try {
+            canonical = createTransformation(originalNode, info)
+                .getCanonicalNode(info);
+        } finally {
+            profile.end();
+            lookups = info.endLookupRecording(mark);
+        }
+
+        final CanonicalFormCache.Entry entry = new CanonicalFormCache.Entry(
+            canonical, lookups);
+        if (!dbg)
+            canonicalCache.put(originalNode, info, entry);
+        return entry;
     }
 
     // ------------------------------------------------------------------------
@@ -310,46 +557,38 @@ public class TransformationManager {
         if (implAssrt == null)
             return null;
 
-        final Transformation dsTr = createTransformation(derivRoot, info);
         // Get canonical form for destination statement
-        final ParseNode dsCanonicalForm = dsTr.getCanonicalNode(info);
-
-        output.dbgMessage(dbg, TrConstants.ERRMSG_CANONICAL_FORM,
-            info.derivStep, getFormula(dsCanonicalForm));
-
-        for (final ProofWorkStmt proofWorkStmtObject : info.proofWorksheet
-            .getProofWorkStmtList())
-        {
-            if (proofWorkStmtObject == info.derivStep)
-                break;
-
-            if (!(proofWorkStmtObject instanceof ProofStepStmt))
-                continue;
-
-            final ProofStepStmt candidate = (ProofStepStmt)proofWorkStmtObject;
-
-            if (candidate.formulaParseTree == null)
-                continue;
-
-            final ParseNode candCanon = getCanonicalForm(
-                candidate.formulaParseTree.getRoot(), info);
-            output.dbgMessage(dbg, TrConstants.ERRMSG_CANONICAL_FORM, candidate,
-                getFormula(candCanon));
-
-            // Compare canonical forms for destination and for candidate
-            if (dsCanonicalForm.isDeepDup(candCanon)) {
-                output.dbgMessage(dbg,
-                    TrConstants.ERRMSG_CANONICAL_CORRESPONDENCE, candidate,
-                    info.derivStep);
-                performTransformation(info, candidate, implAssrt);
+        final CanonicalFormCache.Entry dsCanonicalForm = getCanonicalEntry(
+            derivRoot, info);
+
+        if (dbg)
+            output.dbgMessage(dbg, TrConstants.ERRMSG_CANONICAL_FORM,
+                info.derivStep, getFormula(dsCanonicalForm.canonical.node));
+
+        // Compare canonical forms for destination and for the earlier steps
+        final CanonicalFormCache.StepIndex stepIndex = canonicalCache
+            .getStepIndex(info);
+        stepIndex.update(info, !dbg, step -> {
+            final CanonicalFormCache.Entry candCanon = getCanonicalEntry(
+                step.formulaParseTree.getRoot(), info);
+            if (dbg)
+                output.dbgMessage(dbg, TrConstants.ERRMSG_CANONICAL_FORM, step,
+                    getFormula(candCanon.canonical.node));
+            return candCanon;
+        });
+        final ProofStepStmt candidate = stepIndex
+            .getFirstStep(dsCanonicalForm.canonical);
+        if (candidate != null) {
+            output.dbgMessage(dbg, TrConstants.ERRMSG_CANONICAL_CORRESPONDENCE,
+                candidate, info.derivStep);
+            performTransformation(info, candidate, implAssrt);
 
-                return info.newSteps;
-            }
+            return info.newSteps;
         }
 
         // Maybe it is closure assertion? Then we could automatically prove it!
-        // TODO: Now the used algorithm could consume a lot of time for the
-        // search!
+        // The closure rules are indexed and the closure possibilities of the
+        // subtrees are stored in the info, see the CLOSURE profile kind.
         if (clInfo.performClosureTransformation(info))
             return info.newSteps;
 
@@ -358,6 +597,17 @@ public class TransformationManager {
 
     public ProofStepStmt findReverseTransformations(final WorksheetInfo info,
         final ParseNode root, final boolean finish)
+    {
+        profile.start(TransformationProfile.Kind.REVERSE);
+        try {
+            return findReverseTransformationsCore(info, root, finish);
+        } finally {
+            profile.end();
+        }
+    }
+
+    private ProofStepStmt findReverseTransformationsCore(
+        final WorksheetInfo info, final ParseNode root, final boolean finish)
     {
         final ProofStepStmt stmt = info.getProofStepStmt(root);
         if (stmt != null) {
@@ -409,6 +659,15 @@ public class TransformationManager {
             this);
         return tryToFindTransformationsCore(info, true);
     }
+
+    /**
+     * @return the work done by this TransformationManager so far, for each kind
+     *         of transformation.
+     */
+    public TransformationProfile getProfile() {
+        return profile;
+    }
+
     // ------------------------------------------------------------------------
     // ------------------------Debug functions---------------------------------
     // ------------------------------------------------------------------------
@@ -0,0 +1,179 @@
+package mmj.transforms;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The counters and timers of the work done by a {@link TransformationManager}
+ * for each kind of transformation.
+ * <p>
+ * The work is measured in sections (see {@link #start} and {@link #end}),
+ * which may be nested: a replace transformation transforms the children of
+ * its node, a closure search may be done while computing a canonical form and
+ * so on. The time of a section is its own time, without the time of the
+ * sections nested in it, so the times of all kinds add up to the time spent
+ * in the sections. The count of a kind is its number of sections.
+ * <p>
+ * The sections are always measured: this costs two calls of
+ * {@link System#nanoTime()} per section, which is small compared to the work
+ * of a transformation. A profile is not thread safe: like the provers, it
+ * belongs to a single TransformationManager.
+ */
+public class TransformationProfile {
+
+    /** The kinds of work measured */
+    public enum Kind {
+        /** {@link IdentityTransformation} */
+        IDENTITY("identity"),
+        /** {@link ReplaceTransformation} */
+        REPLACE("replace"),
+        /** {@link AssociativeTransformation} */
+        ASSOCIATIVE("assoc"),
+        /** {@link CommutativeTransformation} */
+        COMMUTATIVE("com"),
+        /** {@link AssocComTransformation} */
+        ASSOC_COM("assocCom"),
+        /** Computation of the canonical forms not found in the cache */
+        CANONICAL("canonical"),
+        /** Closure searches and creation of the closure steps */
+        CLOSURE("closure"),
+        /**
+         * Reverse transformations
+         * (see {@link TransformationManager#findReverseTransformations})
+         */
+        REVERSE("reverse");
+
+        /** The label of the kind in the messages and reports */
+        public final String label;
+
+        Kind(final String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final long[] counts = new long[KINDS.length];
+
+    private final long[] nanos = new long[KINDS.length];
+
+    /** The kinds of the sections in progress, innermost last */
+    private Kind[] sections = new Kind[16];
+
+    /** The number of sections in progress */
+    private int depth;
+
+    /** The start of the innermost section, or of its last part */
+    private long markNanos;
+
+    /**
+     * Starts a section. It must be ended by {@link #end()}, even if an
+     * exception is thrown.
+     *
+     * @param kind the kind of the section
+     */
+    public void start(final Kind kind) {
+        final long now = System.nanoTime();
+        if (depth != 0)
+            nanos[sections[depth - 1].ordinal()] += now - markNanos;
+        if (depth == sections.length)
+            sections = Arrays.copyOf(sections, depth * 2);
+        sections[depth++] = kind;
+        counts[kind.ordinal()]++;
+        markNanos = now;
+    }
+
+    /** Ends the innermost section. */
+    public void end() {
+        final long now = System.nanoTime();
+        nanos[sections[--depth].ordinal()] += now - markNanos;
+        markNanos = now;
+    }
+
+    /**
+     * @param kind the kind
+     * @return the number of sections of this kind
+     */
+    public long getCount(final Kind kind) {
+        return counts[kind.ordinal()];
+    }
+
+    /**
+     * @param kind the kind
+     * @return the own time of the sections of this kind, in nanoseconds
+     */
+    public long getNanos(final Kind kind) {
+        return nanos[kind.ordinal()];
+    }
+
+    /** @return true if no section was measured */
+    public boolean isEmpty() {
+        for (final long count : counts)
+            if (count != 0)
+                return false;
+        return true;
+    }
+
+    /** Sets all the counters and timers to zero. */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(nanos, 0);
+    }
+
+    /**
+     * @return a copy of the counters and timers. The sections in progress are
+     *         not copied, and their current parts are not counted.
+     */
+    public TransformationProfile copy() {
+        final TransformationProfile copy = new TransformationProfile();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * Adds the counters and timers of another profile.
+     *
+     * @param that the other profile
+     */
+    public void add(final TransformationProfile that) {
+        for (int i = 0; i < KINDS.length; i++) {
+            counts[i] += that.counts[i];
+            nanos[i] += that.nanos[i];
+        }
+    }
+
+    /**
+     * Adds the work measured by a profile between two of its copies.
+     *
+     * @param end the later copy
+     * @param start the earlier copy
+     */
+    public void addDifference(final TransformationProfile end,
+        final TransformationProfile start)
+    {
+        for (int i = 0; i < KINDS.length; i++) {
+            counts[i] += end.counts[i] - start.counts[i];
+            nanos[i] += end.nanos[i] - start.nanos[i];
+        }
+    }
+
+    /**
+     * @return the kinds which were measured, with their counts and times, as
+     *         "label count/time ms", separated by commas, or "none".
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (final Kind kind : KINDS) {
+            if (counts[kind.ordinal()] == 0)
+                continue;
+            if (sb.length() != 0)
+                sb.append(", ");
+            sb.append(kind.label).append(' ').append(counts[kind.ordinal()])
+                .append('/').append(String.format(Locale.ROOT, "%.3f",
+                    nanos[kind.ordinal()] / 1e6))
+                .append(" ms");
+        }
+        return sb.length() == 0 ? "none" : sb.toString();
+    }
+}
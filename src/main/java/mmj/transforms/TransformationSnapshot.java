@@ -0,0 +1,231 @@
+package mmj.transforms;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import mmj.lang.*;
+
+/**
+ * The knowledge tables of a {@link TransformationManager} (the equivalence,
+ * implication, conjunction, closure, replace, associative and commutative
+ * rules) and the order of its UseWhenPossible provers, kept so that a later
+ * TransformationManager for the same database can reuse them instead of
+ * scanning the assertions again.
+ * <p>
+ * A snapshot is keyed by the assertions it was built from: it may only be
+ * reused for the same provable logic statement type and the same assertions,
+ * in the same order (see {@link #matches}). After a change to the database,
+ * such as the addition of theorems by the Theorem Loader, the tables are
+ * rebuilt.
+ * <p>
+ * A snapshot may also be saved to a file named after the hash of the
+ * database (see {@link #getFile}), to be read by the TransformationManagers of
+ * later sessions. Only the labels of the assertions stored in the tables and
+ * of the provers are saved, so the tables are rebuilt from these few
+ * assertions, and they are the same as those built from all of them, since
+ * the other assertions did not change the tables.
+ * <p>
+ * The tables are not modified after construction, so a snapshot may be shared
+ * by TransformationManagers used on different threads. Snapshots are only
+ * made without debug output, since the tables write their debug messages to
+ * the Messages of the TransformationManager which built them.
+ */
+public class TransformationSnapshot {
+    private final Assrt[] assrts;
+    private final ParseTree[] assrtTrees;
+    private final LogHyp[][] assrtLogHyps;
+    private final Cnst provableLogicStmtTyp;
+
+    final EquivalenceInfo eqInfo;
+    final ImplicationInfo implInfo;
+    final ConjunctionInfo conjInfo;
+    final ClosureInfo clInfo;
+    final ReplaceInfo replInfo;
+    final AssociativeInfo assocInfo;
+    final CommutativeInfo comInfo;
+
+    /**
+     * The assrts of the UseWhenPossible provers, in prover order, or null if
+     * the provers were set up by a macro.
+     */
+    final List<Assrt> proverAssrts;
+
+    /** The assrts stored in the tables, in the order of the assrts */
+    final List<Assrt> ruleAssrts;
+
+    /** The labels of the assrts read from a saved snapshot */
+    public static class Saved {
+        /** The assrts stored in the tables, in the order of the assrts */
+        public final List<Assrt> ruleAssrts;
+
+        /** The assrts of the provers, in prover order, or null */
+        public final List<Assrt> proverAssrts;
+
+        Saved(final List<Assrt> ruleAssrts, final List<Assrt> proverAssrts) {
+            this.ruleAssrts = ruleAssrts;
+            this.proverAssrts = proverAssrts;
+        }
+    }
+
+    TransformationSnapshot(final List<Assrt> assrtList,
+        final Cnst provableLogicStmtTyp, final TransformationManager trManager,
+        final List<Assrt> proverAssrts, final List<Assrt> ruleAssrts)
+    {
+        assrts = assrtList.toArray(new Assrt[assrtList.size()]);
+        assrtTrees = new ParseTree[assrts.length];
+        assrtLogHyps = new LogHyp[assrts.length][];
+        for (int i = 0; i < assrts.length; i++) {
+            assrtTrees[i] = assrts[i].getExprParseTree();
+            assrtLogHyps[i] = assrts[i].getLogHypArray();
+        }
+        this.provableLogicStmtTyp = provableLogicStmtTyp;
+        eqInfo = trManager.eqInfo;
+        implInfo = trManager.implInfo;
+        conjInfo = trManager.conjInfo;
+        clInfo = trManager.clInfo;
+        replInfo = trManager.replInfo;
+        assocInfo = trManager.assocInfo;
+        comInfo = trManager.comInfo;
+        this.proverAssrts = proverAssrts;
+        this.ruleAssrts = ruleAssrts;
+    }
+
+    /**
+     * @param assrtList the list of library assrts
+     * @param provableLogicStmtTyp the "provable logic statement type"
+     * @return true if this snapshot was built from the same assrts, with the
+     *         same formulas and hypotheses, so it may be reused for them.
+     */
+    public boolean matches(final List<Assrt> assrtList,
+        final Cnst provableLogicStmtTyp)
+    {
+        if (provableLogicStmtTyp != this.provableLogicStmtTyp
+            || assrtList.size() != assrts.length)
+            return false;
+        int i = 0;
+        for (final Assrt assrt : assrtList) {
+            if (assrt != assrts[i] || assrt.getExprParseTree() != assrtTrees[i]
+                || assrt.getLogHypArray() != assrtLogHyps[i])
+                return false;
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * @param folder the folder of the saved snapshots
+     * @param assrtList the list of library assrts
+     * @param provableLogicStmtTyp the "provable logic statement type"
+     * @return the file of the snapshot of these assrts, named after the
+     *         SHA-256 hash of the provable logic statement type and of the
+     *         labels, parse trees and variable hypotheses of the assrts, in
+     *         order.
+     */
+    public static File getFile(final File folder, final List<Assrt> assrtList,
+        final Cnst provableLogicStmtTyp)
+    {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, provableLogicStmtTyp.getId());
+        for (final Assrt assrt : assrtList) {
+            update(digest, assrt.getLabel());
+            update(digest, assrt.getExprParseTree().getRoot());
+            for (final LogHyp logHyp : assrt.getLogHypArray())
+                update(digest, logHyp.getExprParseTree().getRoot());
+            for (final VarHyp varHyp : assrt.getMandVarHypArray())
+                update(digest, varHyp.getLabel());
+            update(digest, ";");
+        }
+        final StringBuilder name = new StringBuilder(
+            TrConstants.TRANSFORMATION_SNAPSHOT_FILE_PREFIX);
+        for (final byte b : digest.digest())
+            name.append(String.format("%02x", b));
+        name.append(TrConstants.TRANSFORMATION_SNAPSHOT_FILE_SUFFIX);
+        return new File(folder, name.toString());
+    }
+
+    private static void update(final MessageDigest digest,
+        final ParseNode node)
+    {
+        update(digest, node.stmt.getLabel());
+        for (final ParseNode child : node.child)
+            update(digest, child);
+    }
+
+    private static void update(final MessageDigest digest,
+        final String label)
+    {
+        digest.update(label.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte)' ');
+    }
+
+    /**
+     * Saves the labels of this snapshot. The file is written under another
+     * name first, so that a session never reads a partial file.
+     *
+     * @param file the file of the snapshot (see {@link #getFile})
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final File file) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        lines.add(TrConstants.TRANSFORMATION_SNAPSHOT_HEADER);
+        lines.add(TrConstants.TRANSFORMATION_SNAPSHOT_RULES);
+        for (final Assrt assrt : ruleAssrts)
+            lines.add(assrt.getLabel());
+        if (proverAssrts != null) {
+            lines.add(TrConstants.TRANSFORMATION_SNAPSHOT_PROVERS);
+            for (final Assrt assrt : proverAssrts)
+                lines.add(assrt.getLabel());
+        }
+        final File temp = new File(file.getPath() + ".tmp");
+        Files.write(temp.toPath(), lines, StandardCharsets.UTF_8);
+        Files.move(temp.toPath(), file.toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the labels of a saved snapshot.
+     *
+     * @param file the file of the snapshot (see {@link #getFile})
+     * @param stmtTbl the statements of the database by label
+     * @return the assrts of the snapshot, or null if there is no such file
+     * @throws IOException if the file cannot be read or is not a snapshot of
+     *             the database
+     */
+    public static Saved read(final File file, final Map<String, Stmt> stmtTbl)
+        throws IOException
+    {
+        if (!file.exists())
+            return null;
+        final List<String> lines = Files.readAllLines(file.toPath(),
+            StandardCharsets.UTF_8);
+        if (lines.size() < 2
+            || !lines.get(0).equals(TrConstants.TRANSFORMATION_SNAPSHOT_HEADER)
+            || !lines.get(1).equals(TrConstants.TRANSFORMATION_SNAPSHOT_RULES))
+            throw new IOException(file.getPath());
+
+        final List<Assrt> ruleAssrts = new ArrayList<>();
+        List<Assrt> proverAssrts = null;
+        List<Assrt> assrts = ruleAssrts;
+        for (final String label : lines.subList(2, lines.size()))
+            if (label.equals(TrConstants.TRANSFORMATION_SNAPSHOT_PROVERS)
+                && proverAssrts == null)
+                assrts = proverAssrts = new ArrayList<>();
+            else {
+                final Stmt stmt = stmtTbl.get(label);
+                if (!(stmt instanceof Assrt))
+                    throw new IOException(file.getPath() + ": " + label);
+                assrts.add((Assrt)stmt);
+            }
+        return new Saved(ruleAssrts, proverAssrts);
+    }
+}
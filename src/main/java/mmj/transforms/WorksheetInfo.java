@@ -42,6 +42,80 @@ import mmj.verify.VerifyProofs;
     private final VerifyProofs verifyProofs;
     private final Cnst provableLogicStmtTyp;
 
+    /**
+     * The worksheet lookups made since {@link #startLookupRecording()}, or null
+     * if they are not recorded.
+     */
+    private List<CanonicalFormCache.Lookup> lookups = null;
+    private int lookupRecordingDepth = 0;
+
+    /**
+     * The results of the worksheet lookups (null if not found) when the
+     * worksheet had {@link #lookupResultsStmtCnt} statements. The steps created
+     * by the transformations are added just before the derivation step, so a
+     * step found stays the first matching step, and a step not found is found
+     * only once a step with the same formula is created (see
+     * {@link #stepAdded}).
+     */
+    private final Map<CanonicalFormCache.NodeKey, ProofStepStmt> lookupResults = new HashMap<>();
+    private int lookupResultsStmtCnt = -1;
+
+    /**
+     * Incremented each time a lookup which was not found could now be found,
+     * so that the results depending on lookups are only checked again after
+     * such a change.
+     */
+    private int lookupGeneration = 0;
+
+    /** A closure possibility computed in this work sheet info */
+    private static class ClosureEntry {
+        final ClosureInfo.ClosureResult result;
+        final CanonicalFormCache.Lookup[] lookups;
+        int generation;
+
+        ClosureEntry(final ClosureInfo.ClosureResult result,
+            final CanonicalFormCache.Lookup[] lookups, final int generation)
+        {
+            this.result = result;
+            this.lookups = lookups;
+            this.generation = generation;
+        }
+    }
+
+    private static class ClosureKey {
+        final CanonicalFormCache.NodeKey node;
+        final PropertyTemplate template;
+        final boolean searchWithPrefix;
+
+        ClosureKey(final ParseNode node, final PropertyTemplate template,
+            final boolean searchWithPrefix)
+        {
+            this.node = new CanonicalFormCache.NodeKey(node);
+            this.template = template;
+            this.searchWithPrefix = searchWithPrefix;
+        }
+
+        @Override
+        public int hashCode() {
+            return node.hashCode() * 2 + (searchWithPrefix ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof ClosureKey))
+                return false;
+            final ClosureKey that = (ClosureKey)obj;
+            return searchWithPrefix == that.searchWithPrefix
+                && template.equals(that.template) && node.equals(that.node);
+        }
+    }
+
+    /**
+     * The closure possibilities computed for the current implication prefix
+     * (see {@link ClosureInfo#getClosurePossibility}).
+     */
+    private final Map<ClosureKey, ClosureEntry> closureResults = new HashMap<>();
+
     public WorksheetInfo(final ProofWorksheet proofWorksheet,
         final DerivationStep derivStep, final TransformationManager trManager)
     {
@@ -91,15 +165,14 @@ import mmj.verify.VerifyProofs;
         final ProofStepStmt[] hyps, final Assrt assrt, final boolean get)
     {
         assert !finished;
-        final ParseTree tree = new ParseTree(root);
-        final Formula generatedFormula = verifyProofs
-            .convertRPNToFormula(tree.convertToRPN(), "tree"); // TODO: use
-                                                               // constant
-        generatedFormula.setTyp(provableLogicStmtTyp);
-
         if (get) {
-            final ProofStepStmt findMatchingStepFormula = proofWorksheet
-                .findMatchingStepFormula(generatedFormula, derivStep);
+            final CanonicalFormCache.NodeKey key = new CanonicalFormCache.NodeKey(
+                root);
+            final ProofStepStmt findMatchingStepFormula = findMatchingStep(key);
+
+            if (lookups != null)
+                lookups.add(new CanonicalFormCache.Lookup(key,
+                    findMatchingStepFormula != null));
 
             if (findMatchingStepFormula != null)
                 return findMatchingStepFormula;
@@ -108,6 +181,9 @@ import mmj.verify.VerifyProofs;
         if (hyps == null || assrt == null)
             return null;
 
+        final ParseTree tree = new ParseTree(root);
+        final Formula generatedFormula = generateFormula(tree);
+
         assert assrt.getLogHypArray().length == hyps.length;
 
         final String[] steps = new String[hyps.length];
@@ -119,6 +195,7 @@ import mmj.verify.VerifyProofs;
             Collections.<WorkVar> emptyList());
         d.setRef(assrt);
         newSteps.add(d);
+        stepAdded(root, d);
 
         if (dbg) {
             final String str = getDebugString(d, hyps);
@@ -144,18 +221,172 @@ import mmj.verify.VerifyProofs;
             false);
     }
 
-    public DerivationStep giveUpProofStepStmt(final ParseNode root) {
-        final ParseTree tree = new ParseTree(root);
+    /**
+     * Like {@link #getProofStepStmt(ParseNode)}, but the lookup is not
+     * recorded.
+     *
+     * @param root searched expression
+     * @return true if there is an existed step with root equals to "root"
+     */
+    public boolean hasProofStepStmt(final CanonicalFormCache.NodeKey root) {
+        return findMatchingStep(root) != null;
+    }
+
+    private ProofStepStmt findMatchingStep(
+        final CanonicalFormCache.NodeKey key)
+    {
+        checkLookupResults();
+
+        if (lookupResults.containsKey(key))
+            return lookupResults.get(key);
+
+        final ProofStepStmt res = proofWorksheet.findMatchingStepFormula(
+            generateFormula(new ParseTree(key.node)), derivStep);
+        lookupResults.put(key, res);
+        return res;
+    }
+
+    /**
+     * Forgets the lookups not found if the worksheet was changed other than by
+     * {@link #stepAdded}.
+     */
+    private void checkLookupResults() {
+        final int stmtCnt = proofWorksheet.getProofWorkStmtListCnt();
+        if (stmtCnt != lookupResultsStmtCnt) {
+            if (lookupResults.values().removeIf(Objects::isNull))
+                lookupGeneration++;
+            lookupResultsStmtCnt = stmtCnt;
+        }
+    }
+
+    /**
+     * Updates the lookup results after the creation of a step just before the
+     * derivation step.
+     *
+     * @param root the root of the step formula
+     * @param step the created step
+     */
+    private void stepAdded(final ParseNode root, final ProofStepStmt step) {
+        if (lookupResultsStmtCnt != proofWorksheet.getProofWorkStmtListCnt()
+            - 1)
+        {
+            checkLookupResults();
+            return;
+        }
+        lookupResultsStmtCnt++;
+
+        final CanonicalFormCache.NodeKey key = new CanonicalFormCache.NodeKey(
+            root);
+        if (lookupResults.containsKey(key) && lookupResults.get(key) == null) {
+            lookupResults.put(key, step);
+            lookupGeneration++;
+        }
+    }
+
+    /**
+     * @param node the input node
+     * @param template the property template
+     * @param searchWithPrefix true if the search uses the implication prefix
+     * @return the stored closure possibility of the node, if its lookups still
+     *         give the same answers, or null
+     */
+    public ClosureInfo.ClosureResult getClosureResult(final ParseNode node,
+        final PropertyTemplate template, final boolean searchWithPrefix)
+    {
+        final ClosureEntry entry = closureResults
+            .get(new ClosureKey(node, template, searchWithPrefix));
+        if (entry == null)
+            return null;
+
+        checkLookupResults();
+        if (entry.generation != lookupGeneration) {
+            for (final CanonicalFormCache.Lookup lookup : entry.lookups)
+                if (hasProofStepStmt(lookup.root) != lookup.found)
+                    return null;
+            entry.generation = lookupGeneration;
+        }
+
+        addLookups(entry.lookups);
+        return entry.result;
+    }
+
+    /**
+     * @param node the input node
+     * @param template the property template
+     * @param searchWithPrefix true if the search uses the implication prefix
+     * @param result the computed closure possibility
+     * @param lookups the worksheet lookups made by the computation
+     */
+    public void putClosureResult(final ParseNode node,
+        final PropertyTemplate template, final boolean searchWithPrefix,
+        final ClosureInfo.ClosureResult result,
+        final CanonicalFormCache.Lookup[] lookups)
+    {
+        checkLookupResults();
+        closureResults.put(new ClosureKey(node, template, searchWithPrefix),
+            new ClosureEntry(result, lookups, lookupGeneration));
+    }
+
+    private Formula generateFormula(final ParseTree tree) {
         final Formula generatedFormula = verifyProofs
             .convertRPNToFormula(tree.convertToRPN(), "tree"); // TODO: use
                                                                // constant
         generatedFormula.setTyp(provableLogicStmtTyp);
+        return generatedFormula;
+    }
+
+    /**
+     * Starts recording the worksheet lookups, for a canonical form computation.
+     * The recordings may be nested.
+     *
+     * @return the mark to pass to {@link #endLookupRecording(int)}
+     */
+    public int startLookupRecording() {
+        if (lookups == null)
+            lookups = new ArrayList<>();
+        lookupRecordingDepth++;
+        return lookups.size();
+    }
+
+    /**
+     * @param mark the value returned by the matching
+     *            {@link #startLookupRecording()}
+     * @return the worksheet lookups made since the matching
+     *         {@link #startLookupRecording()}
+     */
+    public CanonicalFormCache.Lookup[] endLookupRecording(final int mark) {
+        // the same lookup is often made for several operands
+        final Map<CanonicalFormCache.NodeKey, CanonicalFormCache.Lookup> made = new LinkedHashMap<>();
+        for (final CanonicalFormCache.Lookup lookup : lookups.subList(mark,
+            lookups.size()))
+            made.putIfAbsent(lookup.root, lookup);
+        final CanonicalFormCache.Lookup[] res = made.values()
+            .toArray(new CanonicalFormCache.Lookup[made.size()]);
+        if (--lookupRecordingDepth == 0)
+            lookups = null;
+        return res;
+    }
+
+    /**
+     * Adds the lookups of a reused canonical form to the recording, if any.
+     *
+     * @param reused the lookups made by the reused canonical form
+     */
+    public void addLookups(final CanonicalFormCache.Lookup[] reused) {
+        if (lookups != null)
+            lookups.addAll(Arrays.asList(reused));
+    }
+
+    public DerivationStep giveUpProofStepStmt(final ParseNode root) {
+        final ParseTree tree = new ParseTree(root);
+        final Formula generatedFormula = generateFormula(tree);
 
         final ProofStepStmt[] hyps = new ProofStepStmt[0];
         final DerivationStep d = proofWorksheet.addDerivStep(derivStep, hyps,
             new String[0], null, generatedFormula, tree,
             Collections.<WorkVar> emptyList());
         newSteps.add(d);
+        stepAdded(root, d);
 
         if (dbg) {
             final String str = getDebugString(d, hyps);
@@ -229,5 +460,6 @@ import mmj.verify.VerifyProofs;
     {
         this.implPrefix = implPrefix;
         this.implStatement = implStatement;
+        closureResults.clear();
     }
 }
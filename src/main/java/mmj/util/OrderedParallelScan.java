@@ -0,0 +1,186 @@
+package mmj.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+/**
+ * A scan of a list in chunks by several threads, whose results are those of a
+ * sequential scan.
+ * <p>
+ * The chunks are claimed in order by the calling thread and by helper tasks
+ * run by the {@link SharedExecutor}, each one with its own {@link Scanner}.
+ * The items found in the chunks at the start of the list are merged in order
+ * as the chunks complete, and the scan stops as soon as the merge is complete,
+ * or when a Scanner fails. No item is merged once the scan is stopped.
+ * <p>
+ * The calling thread only waits for the chunks claimed by running threads, so
+ * a task of the {@code SharedExecutor} may run a scan.
+ *
+ * @param <T> the type of the items found
+ * @param <E> the type of the exception of the Scanners
+ */
+public class OrderedParallelScan<T, E extends Exception> {
+
+    /**
+     * The scan of chunks by one thread.
+     *
+     * @param <T> the type of the items found
+     * @param <E> the type of the exception of the Scanner
+     */
+    public interface Scanner<T, E extends Exception> {
+        /**
+         * Scans a chunk.
+         *
+         * @param from the index of the first element of the chunk
+         * @param to the index after the last element of the chunk
+         * @return the items found, in order
+         * @throws E if the scan fails
+         * @throws InterruptedException if the scan is cancelled
+         */
+        List<T> scan(int from, int to) throws E, InterruptedException;
+    }
+
+    private final int size;
+    private final int chunkSize;
+    private final Predicate<T> merge;
+    private final List<T>[] chunkItems;
+    private int nextChunk = 0;
+    private int nbrCompletedChunks = 0;
+    private int prefixEnd = 0;
+    private boolean stopped = false;
+    private Throwable failure = null;
+
+    /**
+     * @param size the size of the list
+     * @param chunkSize the size of a chunk
+     * @param merge merges an item found, returns true if the merge is
+     *            complete. It is called by one thread at a time.
+     */
+    @SuppressWarnings("unchecked")
+    public OrderedParallelScan(final int size, final int chunkSize,
+        final Predicate<T> merge)
+    {
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.merge = merge;
+        chunkItems = new List[(size + chunkSize - 1) / chunkSize];
+    }
+
+    /**
+     * @return the number of helper tasks useful to the scan
+     */
+    public int getNbrHelpers() {
+        return Math.max(0,
+            Math.min(SharedExecutor.getNbrThreads(), chunkItems.length) - 1);
+    }
+
+    /**
+     * Runs the scan on the calling thread and on helper tasks, and waits for
+     * the end of the chunks claimed. On return, no Scanner is used any more.
+     * If the scan is interrupted, the helpers may still be scanning a chunk.
+     *
+     * @param scanner the Scanner of the calling thread
+     * @param helperScanners the Scanners of the helper tasks, one per task
+     * @throws E if a Scanner failed
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public void run(final Scanner<T, E> scanner,
+        final List<? extends Scanner<T, E>> helperScanners)
+            throws E, InterruptedException
+    {
+        final List<Future<?>> helpers = new ArrayList<>();
+        try {
+            for (final Scanner<T, E> helperScanner : helperScanners)
+                helpers.add(
+                    SharedExecutor.get().submit(() -> help(helperScanner)));
+            scan(scanner);
+            awaitChunks();
+        } finally {
+            stop();
+            for (final Future<?> helper : helpers)
+                helper.cancel(true);
+        }
+    }
+
+    private synchronized int claimChunk() {
+        if (stopped || nextChunk == chunkItems.length)
+            return -1;
+        return nextChunk++;
+    }
+
+    private synchronized void completeChunk(final int chunk,
+        final List<T> items)
+    {
+        chunkItems[chunk] = items;
+        nbrCompletedChunks++;
+        while (!stopped && prefixEnd < chunkItems.length
+            && chunkItems[prefixEnd] != null)
+        {
+            for (final T item : chunkItems[prefixEnd])
+                if (merge.test(item)) {
+                    stopped = true;
+                    break;
+                }
+            chunkItems[prefixEnd++] = null;
+        }
+        notifyAll();
+    }
+
+    private synchronized void fail(final Throwable e) {
+        if (failure == null)
+            failure = e;
+        stopped = true;
+        notifyAll();
+    }
+
+    private synchronized void stop() {
+        stopped = true;
+    }
+
+    private void scan(final Scanner<T, E> scanner)
+        throws E, InterruptedException
+    {
+        int chunk;
+        while ((chunk = claimChunk()) != -1) {
+            final int from = chunk * chunkSize;
+            completeChunk(chunk,
+                scanner.scan(from, Math.min(from + chunkSize, size)));
+        }
+    }
+
+    /**
+     * The helper task: scans chunks with its own Scanner.
+     *
+     * @param scanner the Scanner of the helper task
+     */
+    private void help(final Scanner<T, E> scanner) {
+        try {
+            scan(scanner);
+        } catch (final InterruptedException | CancellationException e) {
+            stop();
+        } catch (final Exception | Error e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Waits for the end of the claimed chunks, after which no chunk is
+     * claimed.
+     *
+     * @throws E if a Scanner failed
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized void awaitChunks() throws E, InterruptedException {
+        while (failure == null && nbrCompletedChunks < nextChunk)
+            wait();
+        stopped = true;
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException)failure;
+        if (failure instanceof Error)
+            throw (Error)failure;
+        if (failure != null)
+            throw (E)failure; // the only checked exception of a Scanner
+    }
+}
@@ -227,6 +227,9 @@ public class ProofAsstBoss extends Boss {
         putCommand(RUNPARM_PROOF_ASST_PROOF_FOLDER,
             this::editProofAsstProofFolder);
 
+        putCommand(RUNPARM_PROOF_ASST_TRANSFORMATION_SNAPSHOT_FOLDER,
+            this::editProofAsstTransformationSnapshotFolder);
+
         putCommand(RUNPARM_RECHECK_PROOF_ASST_USING_PROOF_VERIFIER,
             this::editRecheckProofAsstUsingProofVerifier);
 
@@ -241,6 +244,9 @@ public class ProofAsstBoss extends Boss {
 
         putCommand(RUNPARM_PROOF_ASST_BATCH_TEST, this::doProofAsstBatchTest);
 
+        putCommand(RUNPARM_PROOF_ASST_BATCH_TEST_COMPARE,
+            this::doProofAsstBatchTestCompare);
+
         putCommand(RUNPARM_PROOF_ASST_OPTIMIZE_THEOREM_SEARCH,
             this::doProofAsstTheoremSearchOptimization);
 
@@ -250,9 +256,15 @@ public class ProofAsstBoss extends Boss {
         putCommand(RUNPARM_PROOF_ASST_USE_AUTOTRANSFORMATIONS,
             this::doProofAsstUseAutotransformations);
 
+        putCommand(RUNPARM_PROOF_ASST_TRANSFORMATION_PROFILE,
+            this::doProofAsstTransformationProfile);
+
         putCommand(RUNPARM_PROOF_ASST_DERIVE_AUTOCOMPLETE,
             this::doProofAsstDeriveAutocomplete);
 
+        putCommand(RUNPARM_PROOF_ASST_PROOF_SEARCH,
+            this::doProofAsstProofSearch);
+
         putCommand(RUNPARM_STEP_SELECTOR_BATCH_TEST,
             this::doStepSelectorBatchTest);
 
@@ -577,6 +589,14 @@ public class ProofAsstBoss extends Boss {
             .set(getExistingFolder(batchFramework.paths.getMMJ2Path(), 1));
     }
 
+    /**
+     * Validate Proof Assistant Transformation Snapshot Folder Runparm.
+     */
+    protected void editProofAsstTransformationSnapshotFolder() {
+        getProofAsstPreferences().transformationSnapshotFolder
+            .set(getExistingFolder(batchFramework.paths.getMMJ2Path(), 1));
+    }
+
     /**
      * Validate Proof Assistant Startup Proof Worksheet Runparm.
      */
@@ -714,6 +734,10 @@ public class ProofAsstBoss extends Boss {
 
         final boolean asciiRetest = getAsciiRetest(9);
 
+        final int nbrThreads = opt(10) == null
+            ? PaConstants.PROOF_ASST_BATCH_TEST_THREADS_DEFAULT
+            : getPosInt(10);
+
         final int selectorCount = getSelectorCount(1);
 
         Theorem selectorTheorem = null;
@@ -722,14 +746,21 @@ public class ProofAsstBoss extends Boss {
                 .getStmtTbl())) == null)
             throw error(ERRMSG_SELECTOR_MISSING, 1);
 
-        try (Reader importReader = getImportFile(2)) {
+        try (Reader importReader = getImportFile(2);
+            VolumeTestReport report = getVolumeTestReport(11))
+        {
 
             if (importReader == null)
                 proofAsst.importFromMemoryAndUnify(messages, selectorCount,
-                    selectorTheorem, outputBoss, asciiRetest);
+                    selectorTheorem, outputBoss, asciiRetest, nbrThreads,
+                    report);
             else
                 proofAsst.importFromFileAndUnify(importReader, messages,
-                    selectorCount, selectorTheorem, outputBoss, asciiRetest);
+                    selectorCount, selectorTheorem, outputBoss, asciiRetest,
+                    report);
+
+            if (report != null && report.checkError())
+                throw error(ERRMSG_MISC_IO_ERROR, opt(11));
         } catch (final IOException e) {
             throw error(e, ERRMSG_MISC_IO_ERROR, e.getMessage());
         }
@@ -737,6 +768,75 @@ public class ProofAsstBoss extends Boss {
         batchFramework.outputBoss.printAndClearMessages();
     }
 
+    /**
+     * Compares two ProofAsstBatchTest reports, flagging the theorems whose
+     * unification time regressed.
+     */
+    public void doProofAsstBatchTestCompare() {
+
+        final Messages messages = batchFramework.outputBoss.getMessages();
+
+        require(2);
+
+        final Map<String, VolumeTestReport.Entry> oldEntries = readVolumeTestReport(
+            1);
+        final Map<String, VolumeTestReport.Entry> newEntries = readVolumeTestReport(
+            2);
+
+        final int thresholdPct = opt(3) == null
+            ? PaConstants.PROOF_ASST_BATCH_TEST_COMPARE_PCT_DEFAULT
+            : getNonnegInt(3);
+        final int minMillis = opt(4) == null
+            ? PaConstants.PROOF_ASST_BATCH_TEST_COMPARE_MS_DEFAULT
+            : getNonnegInt(4);
+
+        VolumeTestReport.compare(oldEntries, newEntries, thresholdPct,
+            minMillis, messages);
+
+        batchFramework.outputBoss.printAndClearMessages();
+    }
+
+    /**
+     * Validate the optional ProofAsstBatchTest report file name and starts the
+     * report.
+     *
+     * @param valueFieldNbr number of field in RunParm line.
+     * @return the report, or null if no file name input.
+     * @throws IllegalArgumentException if an error occurred
+     */
+    protected VolumeTestReport getVolumeTestReport(final int valueFieldNbr) {
+        final String fileNameParm = opt(valueFieldNbr);
+        if (fileNameParm == null)
+            return null;
+        return new VolumeTestReport(
+            buildBufferedFileWriter(fileNameParm,
+                RUNPARM_OPTION_FILE_OUT_UPDATE,
+                getProofAsstPreferences().proofFolder.get()),
+            fileNameParm);
+    }
+
+    /**
+     * Validate a ProofAsstBatchTest report file name and reads the report.
+     *
+     * @param valueFieldNbr number of field in RunParm line.
+     * @return the theorems of the report by label.
+     * @throws IllegalArgumentException if an error occurred
+     */
+    protected Map<String, VolumeTestReport.Entry> readVolumeTestReport(
+        final int valueFieldNbr)
+    {
+        final String fileNameParm = getFileName(valueFieldNbr);
+        try (Reader reader = buildBufferedFileReader(fileNameParm,
+            getProofAsstPreferences().proofFolder.get()))
+        {
+            return VolumeTestReport.read(reader, fileNameParm);
+        } catch (final ProofAsstException e) {
+            throw error(e);
+        } catch (final IOException e) {
+            throw error(e, ERRMSG_MISC_IO_ERROR, e.getMessage());
+        }
+    }
+
     /**
      * Perform the optimizations for theorem search during "parallel"
      * unification
@@ -761,6 +861,26 @@ public class ProofAsstBoss extends Boss {
             getYesNo(3));
     }
 
+    /**
+     * Sets the output of the auto-transformation profile of each unification
+     * and prints the profile of all unifications so far, if requested.
+     */
+    public void doProofAsstTransformationProfile() {
+        final ProofAsst proofAsst = getProofAsst();
+        if (proofAsst == null)
+            return;
+
+        require(1);
+        proofAsst.setTransformationProfileMessages(getYesNo(1));
+
+        if (getPrintParm(2)) {
+            batchFramework.outputBoss.getMessages().accumMessage(
+                PaConstants.ERRMSG_PA_TRANSFORMATION_PROFILE_TOTALS,
+                proofAsst.getTransformationProfile());
+            batchFramework.outputBoss.printAndClearMessages();
+        }
+    }
+
     /**
      * If this option is set then the proof assistant will support autocomplete
      * derivation steps
@@ -777,6 +897,57 @@ public class ProofAsstBoss extends Boss {
         getProofAsstPreferences().deriveAutocomplete.set(getYesNo(1));
     }
 
+    /**
+     * Runs a bounded proof search for the unproved steps of the Proof
+     * Worksheets in a file.
+     */
+    public void doProofAsstProofSearch() {
+
+        // ensures that file loaded and grammar validated
+        // successfully, prints error message if not.
+        final ProofAsst proofAsst = getProofAsst();
+        if (proofAsst == null)
+            return;
+
+        final OutputBoss outputBoss = batchFramework.outputBoss;
+        final Messages messages = outputBoss.getMessages();
+
+        require(1);
+
+        final int maxDepth = opt(2) == null
+            ? PaConstants.PROOF_SEARCH_MAX_DEPTH_DEFAULT : getPosInt(2);
+        final int maxNodes = opt(3) == null
+            ? PaConstants.PROOF_SEARCH_MAX_NODES_DEFAULT : getPosInt(3);
+        final int maxSeconds = opt(4) == null
+            ? PaConstants.PROOF_SEARCH_MAX_SECONDS_DEFAULT : getPosInt(4);
+        final int nbrThreads = opt(5) == null
+            ? Runtime.getRuntime().availableProcessors() : getPosInt(5);
+        final ProofSearch.Strategy strategy = getEnum(6,
+            PaConstants.PROOF_SEARCH_STRATEGY_DEFAULT,
+            new MMJException(ERRMSG_PROOF_SEARCH_STRATEGY_UNRECOG, 6,
+                ProofSearch.Strategy.BestFirst,
+                ProofSearch.Strategy.BreadthFirst, opt(6)));
+
+        final ProofSearch proofSearch;
+        try {
+            proofSearch = proofAsst.getProofSearch(maxDepth, maxNodes,
+                maxSeconds * 1000L, nbrThreads, strategy);
+        } catch (final VerifyException e) {
+            messages.accumException(e);
+            outputBoss.printAndClearMessages();
+            return;
+        }
+
+        try (Reader importReader = getImportFile(1)) {
+            proofAsst.proofSearchFromFile(importReader, messages, outputBoss,
+                proofSearch);
+        } catch (final IOException e) {
+            throw error(e, ERRMSG_MISC_IO_ERROR, e.getMessage());
+        }
+
+        outputBoss.printAndClearMessages();
+    }
+
     /**
      * Exercises the StepSelectorSearch code.
      */
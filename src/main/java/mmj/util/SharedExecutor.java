@@ -0,0 +1,62 @@
+package mmj.util;
+
+import java.util.concurrent.*;
+
+/**
+ * The threads shared by the background and parallel tasks of mmj2.
+ * <p>
+ * The pool has one daemon thread per processor, so it never keeps mmj2
+ * running, and its idle threads are stopped. A task waiting for other tasks
+ * of the pool must not wait for tasks which are not started (see
+ * {@link OrderedParallelScan}), since they may be queued behind it.
+ */
+public class SharedExecutor {
+
+    private static ExecutorService executor = null;
+
+    private static volatile int nbrThreads = Runtime.getRuntime()
+        .availableProcessors();
+
+    private SharedExecutor() {}
+
+    /**
+     * @return the executor, created by the first call.
+     */
+    public static synchronized ExecutorService get() {
+        if (executor == null) {
+            final int nbrThreads = Runtime.getRuntime().availableProcessors();
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(nbrThreads,
+                nbrThreads, UtilConstants.SHARED_EXECUTOR_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable,
+                        UtilConstants.SHARED_EXECUTOR_THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    /**
+     * @return the number of threads used by a parallel task, the calling
+     *         thread included.
+     */
+    public static int getNbrThreads() {
+        return nbrThreads;
+    }
+
+    /**
+     * Sets the number of threads used by the parallel tasks started from now
+     * on, at most one per processor. With one thread, they run on the calling
+     * thread, like a sequential task.
+     *
+     * @param nbr the number of threads
+     */
+    public static void setNbrThreads(final int nbr) {
+        nbrThreads = Math.max(1,
+            Math.min(nbr, Runtime.getRuntime().availableProcessors()));
+    }
+}
@@ -221,6 +221,7 @@ import mmj.verify.*;
  *      PrintBookManagerSectionDetails
  *      ProofAsstExportToFile
  *      ProofAsstBatchTest
+ *      ProofAsstProofSearch
  *      StepSelectorBatchTest
  *      PreprocessRequestBatchTest
  *      RunProofAsstGUI
@@ -395,6 +396,7 @@ import mmj.verify.*;
  *      ProofAsstUnifySearchExclude,biigb,xxxid
  *      ProofAsstExportToFile,*,c:\my\export.mmp,new,un-unified,Randomized,Print
  *      ProofAsstBatchTest,*,c:\my\export.mmp,un-unified,NotRandomized,NoPrint
+ *      ProofAsstProofSearch,c:\my\proofs.mmp,3,100000,10,4,BestFirst
  *      StepSelectorBatchTest,c:\my\export.mmp,50,0
  *      PreprocessRequestBatchTest,c:\my\export.mmp,EraseAndRederiveFormulas
  *
@@ -1317,6 +1319,19 @@ public class UtilConstants {
             + " the folder is remembered for the duration of the\n"
             + " session.\n" + " </code>\n" + "\n");
 
+    public static final BatchCommand RUNPARM_PROOF_ASST_TRANSFORMATION_SNAPSHOT_FOLDER = new BatchCommand(
+        "ProofAsstTransformationSnapshotFolder",
+        " ProofAsstTransformationSnapshotFolder\n" + " <p>\n" + " <code>\n"
+            + " \"ProofAsstTransformationSnapshotFolder\": directory name,\n"
+            + "                      no \"\\\" at end of name. Must exist.\n"
+            + " <p>\n"
+            + " Optional. If this RunParm is provided, the tables of the\n"
+            + " auto-transformations are saved in this folder, in a file\n"
+            + " named after the hash of the database, and later sessions\n"
+            + " on the same database read them instead of searching all\n"
+            + " the assertions again. It must precede the initialization\n"
+            + " of the Proof Assistant.\n" + " </code>\n" + "\n");
+
     public static final BatchCommand RUNPARM_PROOF_ASST_STARTUP_PROOF_WORKSHEET = new BatchCommand(
         "ProofAsstStartupProofWorksheet",
         " ProofAsstStartupProofWorksheet\n" + " <p>\n" + " <code>\n"
@@ -1422,6 +1437,27 @@ public class UtilConstants {
             + "    value2 = Yes/No (use debug output or do not use it)\n"
             + "    value3 = Yes/No (support implication prefix)\n" + "\n");
 
+    public static final BatchCommand RUNPARM_PROOF_ASST_TRANSFORMATION_PROFILE = new BatchCommand(
+        "ProofAsstTransformationProfile",
+        " ProofAsstTransformationProfile\n" + " <p>\n" + " \n" + " <pre>\n"
+            + " \"ProofAsstTransformationProfile\":\n" + " \n"
+            + "                value1 = Yes/No: write the profile of\n"
+            + "                         each unification which used\n"
+            + "                         auto-transformations as an\n"
+            + "                         info message.\n" + " \n"
+            + "                value2 = Print or NoPrint (default):\n"
+            + "                         Print writes the profile of\n"
+            + "                         all unifications so far.\n"
+            + " </pre>\n" + " <p>\n"
+            + " The profile gives, for each kind of auto-transformation\n"
+            + " (identity, replace, associative, commutative,\n"
+            + " associative-commutative, canonical form computation,\n"
+            + " closure search and reverse transformation), the number of\n"
+            + " times it was done and its own time, without the time of the\n"
+            + " other kinds done within it. It is always measured, and also\n"
+            + " written by ProofAsstBatchTest to its report (value11).\n"
+            + "\n");
+
     public static final BatchCommand RUNPARM_PROOF_ASST_BATCH_TEST = new BatchCommand(
         "ProofAsstBatchTest", // options
         " ProofAsstBatchTest\n" + " <p>\n" + " \n" + " <pre>\n"
@@ -1476,7 +1512,32 @@ public class UtilConstants {
             + "                         (default) or \"\".\n" + " \n"
             + "                          See mmj2\\data\\runparm\\windows\n"
             + "                          \\AnnotatedRunParms.txt for more\n"
-            + "                          info.\n" + " </pre>\n" + " <p>\n"
+            + "                          info.\n" + " \n"
+            + "                value9 = \"AsciiRetest\" or \"NoAsciiRetest\"\n"
+            + "                         (default) or \"\".\n" + " \n"
+            + "                value10 = number of threads, default 1.\n"
+            + "                         More than 1 unifies several\n"
+            + "                         theorems at once (no input file\n"
+            + "                         only). The report is the same,\n"
+            + "                         in the same order, as that of\n"
+            + "                         the sequential test. Ignored\n"
+            + "                         with AsciiRetest or UpdateDJs.\n"
+            + " \n"
+            + "                value11 = Optional: a report file name,\n"
+            + "                         relative to the\n"
+            + "                         ProofAsstProofFolder if not\n"
+            + "                         absolute.\n"
+            + "                         Each theorem tested is written\n"
+            + "                         to it with its step count,\n"
+            + "                         parse, unify and transformation\n"
+            + "                         times, the time of each kind\n"
+            + "                         of transformation (see\n"
+            + "                         ProofAsstTransformationProfile),\n"
+            + "                         assertions scanned and\n"
+            + "                         outcome: as CSV if the name ends\n"
+            + "                         with \".csv\", else as JSON Lines.\n"
+            + "                         See ProofAsstBatchTestCompare.\n"
+            + " </pre>\n" + " <p>\n"
             + " This RunParm is provided for use in high-volume testing.\n"
             + " <p>\n"
             + " RunParm option value2 is input to specify an input file containing proofs\n"
@@ -1504,6 +1565,56 @@ public class UtilConstants {
     // optional
     // file
     // name.
+    public static final BatchCommand RUNPARM_PROOF_ASST_BATCH_TEST_COMPARE = new BatchCommand(
+        "ProofAsstBatchTestCompare", // two report files
+        " ProofAsstBatchTestCompare\n" + " <p>\n" + " \n" + " <pre>\n"
+            + " \"ProofAsstBatchTestCompare\":\n" + " \n"
+            + "                value1 = Mandatory: the reference\n"
+            + "                         report file name (see\n"
+            + "                         ProofAsstBatchTest value11).\n"
+            + " \n"
+            + "                value2 = Mandatory: the report file\n"
+            + "                         name to check.\n" + " \n"
+            + "                value3 = tolerated slowdown in percent,\n"
+            + "                         default 25.\n" + " \n"
+            + "                value4 = tolerated slowdown in\n"
+            + "                         milliseconds, default 5.\n"
+            + " </pre>\n" + " <p>\n"
+            + " Compares two ProofAsstBatchTest reports theorem by theorem. A\n"
+            + " message is written for every theorem whose parse plus unify time\n"
+            + " grew by more than both tolerances, and for every theorem whose\n"
+            + " outcome changed, followed by the totals. Relative file names are\n"
+            + " relative to the ProofAsstProofFolder, if present.\n" + "\n");
+
+    public static final BatchCommand RUNPARM_PROOF_ASST_PROOF_SEARCH = new BatchCommand(
+        "ProofAsstProofSearch", // file and search budgets
+        " ProofAsstProofSearch\n" + " <p>\n" + " \n" + " <pre>\n"
+            + " \"ProofAsstProofSearch\":\n" + " \n"
+            + "                value1 = Mandatory: \n"
+            + "                         a file name, either absolute\n"
+            + "                         or relative (to the current\n"
+            + "                         directory, or if provided\n"
+            + "                         the ProofAsstProofFolder,\n"
+            + "                         which is input via RunParm\n"
+            + "                         and also during use of\n"
+            + "                         ProofAsstGUI<.)\n" + " \n"
+            + "                value2 = maximum proof depth, default 3.\n"
+            + " \n"
+            + "                value3 = maximum number of goal expansions\n"
+            + "                         per step, default 100000.\n" + " \n"
+            + "                value4 = maximum seconds per step, default 10.\n"
+            + " \n"
+            + "                value5 = number of threads, default the\n"
+            + "                         number of processors.\n" + " \n"
+            + "                value6 = \"BestFirst\" (default) or\n"
+            + "                         \"BreadthFirst\".\n" + " </pre>\n"
+            + " <p>\n"
+            + " Unifies each Proof Worksheet in the file, then searches proofs for\n"
+            + " the derivation steps still unproved (no Ref) by chaining assertions\n"
+            + " backward until every leaf is a preceding step or hypothesis. The\n"
+            + " steps found are added to the worksheet, which is unified again and\n"
+            + " printed, along with a message for each step searched.\n" + "\n");
+
     public static final BatchCommand RUNPARM_STEP_SELECTOR_BATCH_TEST = new BatchCommand(
         "StepSelectorBatchTest", // all
         " StepSelectorBatchTest\n" + " <p>\n" + " \n" + " <pre>\n"
@@ -2852,6 +2963,10 @@ public class UtilConstants {
     public static final ErrorCode ERRMSG_RUNPARM_PA_STYLE_UNKNOWN = of(
         "A-UT-0060 ProofAsstErrorMessageColumns RunParm must be one of %s");
 
+    public static final ErrorCode ERRMSG_PROOF_SEARCH_STRATEGY_UNRECOG = of(
+        "A-UT-0061",
+        "Value field number %d must equal '%s' or '%s'. Value input was '%s'.");
+
     // ----------------------------------------------------------
     // Messages from TMFFBoss.java
     // ----------------------------------------------------------
@@ -3165,6 +3280,14 @@ public class UtilConstants {
 
     public static final String DUMP_THE_GRAMMAR_IS_EMPTY = "The Grammar is empty?!?";
 
+    /* stuff for SharedExecutor */
+
+    /** The name of the threads of the SharedExecutor */
+    public static final String SHARED_EXECUTOR_THREAD_NAME = "mmj2 worker";
+
+    /** The time after which an idle thread of the SharedExecutor stops */
+    public static final long SHARED_EXECUTOR_KEEP_ALIVE_SECONDS = 60;
+
     /* stuff for dumping BookManager info */
 
     public static final String DUMP_BM_CNST = "Cnst ";
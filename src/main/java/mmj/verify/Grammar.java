@@ -758,6 +758,10 @@ public class Grammar implements SyntaxVerifier {
      * theory this could cause a problem if a non-syntax error comes out and is
      * taken as a syntax error by the user. However, with the current parser
      * that should not be a problem (as seen in the following method).
+     * <p>
+     * The grammatical parser keeps its work areas in instance (and Cnst)
+     * fields, so calls are serialized: the parallel volume test in
+     * mmj.pa.ProofAsst parses Proof Worksheets on several threads at once.
      *
      * @param formula formula to be parsed.
      * @param hypArray Hyp's for Formula's Var's.
@@ -773,9 +777,12 @@ public class Grammar implements SyntaxVerifier {
         final ParseTree[] parseTreeArray = new ParseTree[1];
         int parseTreeCnt;
         try {
-            parseTreeCnt = grammaticalParser.parseExpr(parseTreeArray,
-                formula.getTyp(), formula.getParseNodeHolderExpr(hypArray),
-                highestSeq);
+            final ParseNodeHolder[] parseNodeHolderExpr = formula
+                .getParseNodeHolderExpr(hypArray);
+            synchronized (grammaticalParser) {
+                parseTreeCnt = grammaticalParser.parseExpr(parseTreeArray,
+                    formula.getTyp(), parseNodeHolderExpr, highestSeq);
+            }
             if (parseTreeCnt > 0)
                 exprParseTree = parseTreeArray[0];
         } catch (final VerifyException e) {}
@@ -0,0 +1,103 @@
+package mmj.gmff;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GMFFExportBufferTest {
+
+    private static final int SIZE = GMFFConstants.EXPORT_BUFFER_DEFAULT_SIZE;
+
+    /** Records the length of each write */
+    private static class RecordingWriter extends StringWriter {
+        final List<Integer> writes = new ArrayList<>();
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            writes.add(len);
+            super.write(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str) {
+            writes.add(str.length());
+            super.write(str);
+        }
+    }
+
+    private static String text(char c, int length) {
+        return String.valueOf(c).repeat(length);
+    }
+
+    @Test
+    public void growsInMemory() {
+        var exportBuffer = new GMFFExportBuffer();
+        String text = text('a', SIZE - 1) + text('b', SIZE + 1);
+        exportBuffer.append(text.substring(0, SIZE - 1));
+        exportBuffer.append(text.substring(SIZE - 1).toCharArray());
+        exportBuffer.flush();
+        assertEquals(text, exportBuffer.toString());
+    }
+
+    @Test
+    public void writesTheBufferWhenFull() {
+        var writer = new RecordingWriter();
+        var exportBuffer = new GMFFExportBuffer(writer);
+        exportBuffer.append(text('a', SIZE - 1));
+        exportBuffer.append("bc".toCharArray());
+        exportBuffer.append("d");
+        assertEquals(List.of(SIZE - 1), writer.writes);
+        assertEquals("bcd", exportBuffer.toString());
+
+        exportBuffer.flush();
+        assertEquals(List.of(SIZE - 1, 3), writer.writes);
+        assertEquals(text('a', SIZE - 1) + "bcd", writer.toString());
+        assertEquals("", exportBuffer.toString());
+        exportBuffer.flush();
+        assertEquals(2, writer.writes.size());
+    }
+
+    @Test
+    public void writesTheLongTextsDirectly() {
+        var writer = new RecordingWriter();
+        var exportBuffer = new GMFFExportBuffer(writer);
+        exportBuffer.append("a");
+        exportBuffer.append(text('b', SIZE + 1));
+        exportBuffer.append(text('c', SIZE + 1).toCharArray());
+        exportBuffer.append("d");
+        exportBuffer.flush();
+        assertEquals(List.of(1, SIZE + 1, SIZE + 1, 1), writer.writes);
+        assertEquals("a" + text('b', SIZE + 1) + text('c', SIZE + 1) + "d",
+                writer.toString());
+    }
+
+    @Test
+    public void keepsTheFirstIOException() {
+        var exception = new IOException("disk full");
+        var exportBuffer = new GMFFExportBuffer(new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                throw exception;
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        });
+        exportBuffer.append("a");
+        assertNull(exportBuffer.getIOException());
+        exportBuffer.flush();
+        assertSame(exception, exportBuffer.getIOException());
+        exportBuffer.append(text('b', SIZE + 1));
+        exportBuffer.flush();
+        assertSame(exception, exportBuffer.getIOException());
+    }
+}
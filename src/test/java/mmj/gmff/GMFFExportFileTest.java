@@ -0,0 +1,103 @@
+package mmj.gmff;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class GMFFExportFileTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private GMFFFolder exportFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        exportFolder = new GMFFFolder(null,
+                tempFolder.getRoot().getAbsolutePath(), "html");
+        Files.write(exportFile().toPath(), "old".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private File exportFile() {
+        return new File(tempFolder.getRoot(), "ax-1.html");
+    }
+
+    private String contents() throws Exception {
+        return new String(Files.readAllBytes(exportFile().toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+    private List<String> fileNames() {
+        return Arrays.stream(tempFolder.getRoot().list()).sorted()
+                .collect(Collectors.toList());
+    }
+
+    private GMFFExportFile newExportFile(boolean append) throws Exception {
+        return new GMFFExportFile(exportFolder, "ax-1.html", "UTF-8", "html",
+                append);
+    }
+
+    @Test
+    public void writesTheStagedContentsLater() throws Exception {
+        var staged = newExportFile(false)
+                .stageFileContents(b -> b.append("new"));
+        assertEquals("old", contents());
+        assertEquals(2, fileNames().size());
+
+        String hash = newExportFile(false).writeStagedContents(staged);
+        assertEquals("new", contents());
+        assertEquals(GMFFExportManifest.hash(
+                "new".getBytes(StandardCharsets.UTF_8)), hash);
+        assertEquals(List.of("ax-1.html"), fileNames());
+    }
+
+    @Test
+    public void appendsTheStagedContents() throws Exception {
+        var staged = newExportFile(true)
+                .stageFileContents(b -> b.append("new"));
+        assertNull(newExportFile(true).writeStagedContents(staged));
+        assertEquals("oldnew", contents());
+        assertEquals(List.of("ax-1.html"), fileNames());
+    }
+
+    @Test
+    public void discardsTheStagedContents() throws Exception {
+        newExportFile(false).stageFileContents(b -> b.append("new")).discard();
+        assertEquals("old", contents());
+        assertEquals(List.of("ax-1.html"), fileNames());
+    }
+
+    @Test
+    public void deletesTheStagedFileOfAFailedExport() throws Exception {
+        try {
+            newExportFile(false).stageFileContents(b -> {
+                b.append("new");
+                throw new GMFFException(GMFFConstants.ERRMSG_GMFF_FOLDER_NAME_BLANK);
+            });
+            fail();
+        } catch (GMFFException e) {
+            assertEquals("old", contents());
+            assertEquals(List.of("ax-1.html"), fileNames());
+        }
+    }
+
+    @Test
+    public void writesTheContentsThroughATemporaryFile() throws Exception {
+        String hash = newExportFile(false)
+                .writeFileContents(b -> b.append("new"));
+        assertEquals("new", contents());
+        assertEquals(GMFFExportManifest.hash(
+                "new".getBytes(StandardCharsets.UTF_8)), hash);
+        assertEquals(List.of("ax-1.html"), fileNames());
+    }
+}
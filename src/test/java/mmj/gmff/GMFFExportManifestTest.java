@@ -0,0 +1,109 @@
+package mmj.gmff;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GMFFExportManifestTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private GMFFFolder exportFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        exportFolder = new GMFFFolder(null,
+                tempFolder.getRoot().getAbsolutePath(), "html");
+    }
+
+    private String writeExportFile(String name, String contents) throws Exception {
+        byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+        Files.write(new File(tempFolder.getRoot(), name).toPath(), bytes);
+        return GMFFExportManifest.hash(bytes);
+    }
+
+    private List<String> manifestLines() throws Exception {
+        return Files.readAllLines(new File(tempFolder.getRoot(),
+                GMFFConstants.EXPORT_MANIFEST_FILE_NAME).toPath());
+    }
+
+    @Test
+    public void isUnchangedWithTheSameKeyAndContents() throws Exception {
+        var manifest = new GMFFExportManifest(exportFolder);
+        manifest.record("ax-1.html", "key1", writeExportFile("ax-1.html", "a"));
+        assertTrue(manifest.isUnchanged("ax-1.html", "key1"));
+    }
+
+    @Test
+    public void isChangedWithAnotherKey() throws Exception {
+        var manifest = new GMFFExportManifest(exportFolder);
+        manifest.record("ax-1.html", "key1", writeExportFile("ax-1.html", "a"));
+        assertFalse(manifest.isUnchanged("ax-1.html", "key2"));
+        assertFalse(manifest.isUnchanged("ax-2.html", "key1"));
+    }
+
+    @Test
+    public void isChangedWhenTheExportFileIsEditedOrDeleted() throws Exception {
+        var manifest = new GMFFExportManifest(exportFolder);
+        manifest.record("ax-1.html", "key1", writeExportFile("ax-1.html", "a"));
+        writeExportFile("ax-1.html", "b");
+        assertFalse(manifest.isUnchanged("ax-1.html", "key1"));
+
+        manifest.record("ax-1.html", "key1", writeExportFile("ax-1.html", "a"));
+        assertTrue(new File(tempFolder.getRoot(), "ax-1.html").delete());
+        assertFalse(manifest.isUnchanged("ax-1.html", "key1"));
+    }
+
+    @Test
+    public void loadsTheLastLineOfEachFileFromTheJournal() throws Exception {
+        var manifest = new GMFFExportManifest(exportFolder);
+        manifest.record("ax-1.html", "key1", writeExportFile("ax-1.html", "a"));
+        manifest.record("ax-2.html", "key2", writeExportFile("ax-2.html", "b"));
+        manifest.record("ax-1.html", "key3", writeExportFile("ax-1.html", "c"));
+        assertEquals(3, manifestLines().size());
+
+        var reloaded = new GMFFExportManifest(exportFolder);
+        assertFalse(reloaded.isUnchanged("ax-1.html", "key1"));
+        assertTrue(reloaded.isUnchanged("ax-1.html", "key3"));
+        assertTrue(reloaded.isUnchanged("ax-2.html", "key2"));
+    }
+
+    @Test
+    public void compactsTheJournalOfMostlyObsoleteLines() throws Exception {
+        var manifest = new GMFFExportManifest(exportFolder);
+        String hash = null;
+        int nbrLines = GMFFConstants.EXPORT_MANIFEST_COMPACT_RATIO + 1;
+        for (int i = 0; i < nbrLines; i++)
+            hash = writeExportFile("ax-1.html", "a" + i);
+        for (int i = 0; i < nbrLines; i++)
+            manifest.record("ax-1.html", "key" + i, hash);
+        assertEquals(nbrLines, manifestLines().size());
+
+        var reloaded = new GMFFExportManifest(exportFolder);
+        assertTrue(reloaded.isUnchanged("ax-1.html", "key" + (nbrLines - 1)));
+        assertEquals(List.of("ax-1.html\tkey" + (nbrLines - 1) + "\t" + hash),
+                manifestLines());
+        assertFalse(GMFFExportManifest.getTempFile(new File(
+                tempFolder.getRoot(), GMFFConstants.EXPORT_MANIFEST_FILE_NAME))
+                .exists());
+    }
+
+    @Test
+    public void ignoresMalformedLines() throws Exception {
+        String hash = writeExportFile("ax-1.html", "a");
+        Files.write(new File(tempFolder.getRoot(),
+                GMFFConstants.EXPORT_MANIFEST_FILE_NAME).toPath(),
+                List.of("garbage", "ax-1.html\tkey1\t" + hash));
+        assertTrue(new GMFFExportManifest(exportFolder)
+                .isUnchanged("ax-1.html", "key1"));
+    }
+}
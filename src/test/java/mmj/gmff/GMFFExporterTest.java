@@ -0,0 +1,81 @@
+package mmj.gmff;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import mmj.lang.Messages;
+import mmj.lang.TestLogicalSystem;
+
+import static org.junit.Assert.*;
+
+public class GMFFExporterTest {
+
+    private Messages messages;
+    private GMFFExporter exporter;
+
+    @Before
+    public void setUp() throws Exception {
+        var system = new TestLogicalSystem();
+        messages = new Messages();
+        var gmffManager = new GMFFManager(null, messages);
+        gmffManager.setSymTbl(system.logicalSystem.getSymTbl());
+        exporter = new ModelAExporter(gmffManager,
+                new GMFFExportParms("html", "ON", "htmldef", "html", ".html",
+                        "models", GMFFConstants.MODEL_A, "ISO-8859-1", null),
+                new GMFFUserTextEscapes("html", new EscapePair[] {
+                        new EscapePair('>', "&gt;") }));
+        exporter.gmffExporterTypesetDefs = new GMFFExporterTypesetDefs(
+                "htmldef", 10);
+        exporter.gmffExporterTypesetDefs.typesetDefMap.put("ph",
+                "<IMG SRC='_varphi.gif'>");
+    }
+
+    private String typeset(GMFFExporter exporter, String... tokens) {
+        var exportBuffer = new GMFFExportBuffer();
+        for (String token : tokens)
+            exporter.typesetAndAppendToken(exportBuffer, token, "thm");
+        return exportBuffer.toString();
+    }
+
+    @Test
+    public void typesetsTheTokensWithADefinition() {
+        assertEquals("<IMG SRC='_varphi.gif'><IMG SRC='_varphi.gif'>",
+                typeset(exporter, "ph", "ph"));
+        assertEquals(0, messages.getInfoMessageCnt());
+    }
+
+    @Test
+    public void escapesTheTokensWithoutDefinition() {
+        assertEquals(" -&gt; ", typeset(exporter, "->"));
+        assertEquals(" &gt;foo ", typeset(exporter, ">foo"));
+    }
+
+    @Test
+    public void reportsEachOccurrenceOfASymbolWithoutDefinition() {
+        typeset(exporter, "->", "ph", "->");
+        assertEquals(2, messages.getInfoMessageCnt());
+        typeset(exporter, "foo");
+        assertEquals(2, messages.getInfoMessageCnt());
+    }
+
+    @Test
+    public void rendersEachTokenOnce() {
+        typeset(exporter, "ph", "->");
+        exporter.gmffExporterTypesetDefs.typesetDefMap.put("ph", "phi");
+        exporter.gmffExporterTypesetDefs.typesetDefMap.put("->", "implies");
+        assertEquals("<IMG SRC='_varphi.gif'> -&gt; ",
+                typeset(exporter, "ph", "->"));
+    }
+
+    @Test
+    public void sharesTheRenderingsWithTheWorkerCopies() {
+        typeset(exporter, "ph");
+        exporter.gmffExporterTypesetDefs.typesetDefMap.put("ph", "phi");
+        var workerMessages = new Messages();
+        var worker = exporter.copyForWorker(workerMessages);
+        assertEquals("<IMG SRC='_varphi.gif'>", typeset(worker, "ph"));
+        typeset(worker, "->");
+        assertEquals(1, workerMessages.getInfoMessageCnt());
+        assertEquals(0, messages.getInfoMessageCnt());
+    }
+}
@@ -0,0 +1,171 @@
+package mmj.gmff;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import mmj.lang.Messages;
+import mmj.lang.TestLogicalSystem;
+import mmj.util.SharedExecutor;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class GMFFManagerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Messages messages;
+    private GMFFManager gmffManager;
+
+    @Before
+    public void setUp() throws Exception {
+        for (String directory : new String[] {
+                GMFFConstants.DEFAULT_GMFF_HTML_DIRECTORY,
+                GMFFConstants.DEFAULT_GMFF_ALTHTML_DIRECTORY,
+                GMFFConstants.DEFAULT_GMFF_MODELS_HTML_DIRECTORY,
+                GMFFConstants.DEFAULT_GMFF_MODELS_ALTHTML_DIRECTORY })
+            assertTrue(new File(tempFolder.getRoot(), directory).mkdirs());
+        messages = new Messages();
+        gmffManager = new GMFFManager(tempFolder.getRoot(), messages);
+    }
+
+    private String infoMessages() {
+        String s = String.join("\n", Arrays.copyOf(
+                messages.getInfoMessageArray(), messages.getInfoMessageCnt()));
+        messages.clearMessages();
+        return s;
+    }
+
+    @Test
+    public void loadsTheDefinitionsOfEachKeyword() throws Exception {
+        gmffManager.cacheTypesettingCommentForGMFF(
+                "$t htmldef \"ph\" as \"phi-html\";"
+                        + " althtmldef \"ph\" as \"phi-althtml\"; ");
+        gmffManager.cacheTypesettingCommentForGMFF(
+                "$t htmldef \"ps\" as \"psi-html\"; ");
+        gmffManager.gmffInitialize(true);
+        String report = infoMessages();
+        assertTrue(report, report.contains("phi-html"));
+        assertTrue(report, report.contains("phi-althtml"));
+        assertTrue(report, report.contains("psi-html"));
+        assertEquals(0, messages.getErrorMessageCnt());
+    }
+
+    @Test
+    public void loadsTheCommentsCachedAfterAnInitialization() throws Exception {
+        gmffManager.cacheTypesettingCommentForGMFF(
+                "$t htmldef \"ph\" as \"phi-html\"; ");
+        gmffManager.gmffInitialize(false);
+        assertFalse(infoMessages().contains("psi-html"));
+
+        gmffManager.cacheTypesettingCommentForGMFF(
+                "$t htmldef \"ps\" as \"psi-html\"; ");
+        gmffManager.gmffInitialize(true);
+        String report = infoMessages();
+        assertTrue(report, report.contains("phi-html"));
+        assertTrue(report, report.contains("psi-html"));
+    }
+
+    @Test
+    public void reportsAnInvalidCommentAtEachInitialization() throws Exception {
+        gmffManager.cacheTypesettingCommentForGMFF(
+                "$t htmldef \"ph\" as \"phi-html\"; htmldef \"ps\" ");
+        for (int i = 0; i < 2; i++)
+            try {
+                gmffManager.gmffInitialize(false);
+                fail();
+            } catch (GMFFException e) {
+                assertFalse(gmffManager.isGMFFInitialized());
+            }
+    }
+
+    /** The theorems, in the order of their file names */
+    private static final String[] THEOREMS = { "a1i", "a2i", "con3", "id",
+            "idd", "mp2", "notnot", "syl" };
+
+    /**
+     * Sets up the exports of Proof Worksheets: the models of the
+     * documentation, the typesetting definitions and a folder of worksheets.
+     */
+    private void setUpExports() throws Exception {
+        Path models = Paths.get("doc", "GMFFDoc", "mmj2jar", "gmff", "models");
+        for (String directory : new String[] {
+                GMFFConstants.DEFAULT_GMFF_MODELS_HTML_DIRECTORY,
+                GMFFConstants.DEFAULT_GMFF_MODELS_ALTHTML_DIRECTORY }) {
+            Path from = models.resolve(new File(directory).getName());
+            try (var files = Files.list(from)) {
+                for (Path model : (Iterable<Path>)files::iterator)
+                    Files.copy(model, tempFolder.getRoot().toPath()
+                            .resolve(directory).resolve(model.getFileName()));
+            }
+        }
+        gmffManager.setSymTbl(new TestLogicalSystem().logicalSystem.getSymTbl());
+        gmffManager.cacheTypesettingCommentForGMFF(
+                "$t htmldef \"ph\" as \"phi-html\";"
+                        + " althtmldef \"ph\" as \"phi-althtml\"; ");
+        gmffManager.gmffInitialize(false);
+
+        File proofs = tempFolder.newFolder("proofs");
+        for (String theorem : THEOREMS)
+            Files.write(new File(proofs, theorem + ".mmp").toPath(),
+                    Arrays.asList("$( <MM> <PROOF_ASST> THEOREM=" + theorem
+                            + " LOC_AFTER=?", "",
+                            "* The theorem " + theorem + ".", "",
+                            "h1::" + theorem + ".1 |- ph",
+                            "qed:1:ax-mp |- ( ph -> ph )", "$)"),
+                    StandardCharsets.ISO_8859_1);
+    }
+
+    private String export(String appendFileName) throws Exception {
+        return new String(Files.readAllBytes(new File(tempFolder.getRoot(),
+                GMFFConstants.DEFAULT_GMFF_HTML_DIRECTORY + File.separator
+                        + appendFileName + ".html").toPath()),
+                StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void exportsTheWorksheetsOfAFolderInOrder() throws Exception {
+        setUpExports();
+        for (String theorem : THEOREMS)
+            gmffManager.exportFromFolder("proofs", theorem, ".mmp", "1",
+                    "one-by-one");
+        gmffManager.exportFromFolder("proofs", "*", ".mmp", "99", "all");
+        assertEquals(0, messages.getErrorMessageCnt());
+
+        String all = export("all");
+        assertEquals(export("one-by-one"), all);
+        int position = 0;
+        for (String theorem : THEOREMS) {
+            int next = all.indexOf("theorem&nbsp;" + theorem + ".", position);
+            assertTrue(theorem, next > position);
+            position = next;
+        }
+    }
+
+    @Test
+    public void reportsAnInterruptedExport() throws Exception {
+        // a sequential export is not interrupted
+        assumeTrue(SharedExecutor.getNbrThreads() > 1);
+        setUpExports();
+        Thread.currentThread().interrupt();
+        try {
+            gmffManager.exportFromFolder("proofs", "*", ".mmp", "99", "all");
+            fail();
+        } catch (GMFFException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("E-GM-0117"));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package mmj.lang;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mmj.gmff.GMFFManager;
+import mmj.mmio.Systemizer;
+import mmj.pa.ProofAsst;
+import mmj.pa.ProofAsstPreferences;
+import mmj.verify.Grammar;
+import mmj.verify.VerifyProofs;
+
+import static org.junit.Assert.*;
+
+/**
+ * A small propositional calculus, loaded and parsed for the tests.
+ */
+public class TestLogicalSystem {
+
+    public static final String PROP_CALC = String.join("\n",
+            "$c ( ) -> -. wff |- $.",
+            "$v ph ps ch $.",
+            "wph $f wff ph $.",
+            "wps $f wff ps $.",
+            "wch $f wff ch $.",
+            "$( Negation. $)",
+            "wn $a wff -. ph $.",
+            "$( Implication. $)",
+            "wi $a wff ( ph -> ps ) $.",
+            "$( Axiom Simp. $)",
+            "ax-1 $a |- ( ph -> ( ps -> ph ) ) $.",
+            "$( Axiom Frege. $)",
+            "ax-2 $a |- ( ( ph -> ( ps -> ch ) ) -> ( ( ph -> ps ) -> ( ph -> ch ) ) ) $.",
+            "$( Axiom Transp. $)",
+            "ax-3 $a |- ( ( -. ph -> -. ps ) -> ( ps -> ph ) ) $.",
+            "${",
+            "  min $e |- ph $.",
+            "  maj $e |- ( ph -> ps ) $.",
+            "  $( Rule of Modus Ponens. $)",
+            "  ax-mp $a |- ps $.",
+            "$}",
+            "$( Double negation. $)",
+            "notnot $p |- ( ph -> -. -. ph ) $= ? $.",
+            "");
+
+    /**
+     * A propositional calculus with the equivalence, implication, replace,
+     * associative and commutative rules of the auto-transformations, for
+     * conjunctions of up to 12 wff variables.
+     */
+    public static final String AC_CALC = String.join("\n",
+            "$c ( ) -> <-> /\\ -. wff |- $.",
+            "$v ph ps ch th ta et ze si rh mu la ka $.",
+            "wph $f wff ph $.",
+            "wps $f wff ps $.",
+            "wch $f wff ch $.",
+            "wth $f wff th $.",
+            "wta $f wff ta $.",
+            "wet $f wff et $.",
+            "wze $f wff ze $.",
+            "wsi $f wff si $.",
+            "wrh $f wff rh $.",
+            "wmu $f wff mu $.",
+            "wla $f wff la $.",
+            "wka $f wff ka $.",
+            "wn $a wff -. ph $.",
+            "wi $a wff ( ph -> ps ) $.",
+            "wb $a wff ( ph <-> ps ) $.",
+            "wa $a wff ( ph /\\ ps ) $.",
+            "${ min $e |- ph $. maj $e |- ( ph -> ps ) $. ax-mp $a |- ps $. $}",
+            "${ a1i.1 $e |- ph $. a1i $a |- ( ps -> ph ) $. $}",
+            "${ syl.1 $e |- ( ph -> ps ) $. syl.2 $e |- ( ps -> ch ) $.",
+            "   syl $a |- ( ph -> ch ) $. $}",
+            "${ mpbi.1 $e |- ph $. mpbi.2 $e |- ( ph <-> ps ) $. mpbi $a |- ps $. $}",
+            "${ bicomi.1 $e |- ( ph <-> ps ) $. bicomi $a |- ( ps <-> ph ) $. $}",
+            "${ bitri.1 $e |- ( ph <-> ps ) $. bitri.2 $e |- ( ps <-> ch ) $.",
+            "   bitri $a |- ( ph <-> ch ) $. $}",
+            "${ bicomd.1 $e |- ( ph -> ( ps <-> ch ) ) $.",
+            "   bicomd $a |- ( ph -> ( ch <-> ps ) ) $. $}",
+            "${ bitrd.1 $e |- ( ph -> ( ps <-> ch ) ) $.",
+            "   bitrd.2 $e |- ( ph -> ( ch <-> th ) ) $.",
+            "   bitrd $a |- ( ph -> ( ps <-> th ) ) $. $}",
+            "${ imbi2i.1 $e |- ( ph <-> ps ) $.",
+            "   imbi2i $a |- ( ( ch -> ph ) <-> ( ch -> ps ) ) $.",
+            "   imbi1i $a |- ( ( ph -> ch ) <-> ( ps -> ch ) ) $.",
+            "   anbi2i $a |- ( ( ch /\\ ph ) <-> ( ch /\\ ps ) ) $.",
+            "   anbi1i $a |- ( ( ph /\\ ch ) <-> ( ps /\\ ch ) ) $.",
+            "   bibi2i $a |- ( ( ch <-> ph ) <-> ( ch <-> ps ) ) $.",
+            "   bibi1i $a |- ( ( ph <-> ch ) <-> ( ps <-> ch ) ) $.",
+            "   notbii $a |- ( -. ph <-> -. ps ) $. $}",
+            "${ pm3.2i.1 $e |- ph $. pm3.2i.2 $e |- ps $.",
+            "   pm3.2i $a |- ( ph /\\ ps ) $. $}",
+            "${ simpli.1 $e |- ( ph /\\ ps ) $. simpli $a |- ph $.",
+            "   simpri $a |- ps $. $}",
+            "${ jca.1 $e |- ( ph -> ps ) $. jca.2 $e |- ( ph -> ch ) $.",
+            "   jca $a |- ( ph -> ( ps /\\ ch ) ) $. $}",
+            "ancom $a |- ( ( ph /\\ ps ) <-> ( ps /\\ ph ) ) $.",
+            "anass $a |- ( ( ( ph /\\ ps ) /\\ ch ) <-> ( ph /\\ ( ps /\\ ch ) ) ) $.",
+            "");
+
+    public final LogicalSystem logicalSystem;
+    public final Grammar grammar;
+    public final Messages messages = new Messages();
+
+    public TestLogicalSystem() throws Exception {
+        this(PROP_CALC);
+    }
+
+    public TestLogicalSystem(String mm) throws Exception {
+        logicalSystem = new LogicalSystem("|-", "wff",
+                new GMFFManager(null, messages), new BookManager(false, "|-"),
+                new SeqAssigner(), 100, 100, null, null);
+        var systemizer = new Systemizer();
+        systemizer.init(messages, logicalSystem, 0, null, true, false);
+        systemizer.load(null, new StringReader(mm), "test");
+        grammar = new Grammar(new String[] { "|-" }, new String[] { "wff" });
+        grammar.parseAllFormulas(messages, logicalSystem.getSymTbl(),
+                logicalSystem.getStmtTbl());
+        assertEquals(Arrays.toString(messages.getErrorMessageArray()), 0,
+                messages.getErrorMessageCnt());
+    }
+
+    /** @return an initialized Proof Assistant, with its Work Variables */
+    public ProofAsst proofAsst() throws Exception {
+        var workVarManager = new WorkVarManager(grammar);
+        workVarManager.declareWorkVars(grammar, logicalSystem);
+        var preferences = new ProofAsstPreferences();
+        preferences.setWorkVarManager(workVarManager);
+        var proofAsst = new ProofAsst(preferences, logicalSystem, grammar,
+                new VerifyProofs(), null, null);
+        assertTrue(proofAsst.initializeLookupTables(messages));
+        return proofAsst;
+    }
+
+    public Stmt stmt(String label) {
+        return logicalSystem.getStmtTbl().get(label);
+    }
+
+    public Assrt assrt(String label) {
+        return (Assrt)stmt(label);
+    }
+
+    /** @return the logical assertions, in the order of the database */
+    public List<Assrt> logicAssrts() {
+        List<Assrt> assrts = new ArrayList<>();
+        for (Stmt stmt : logicalSystem.getStmtTbl().values())
+            if (stmt instanceof Assrt && stmt.getTyp().getId().equals("|-"))
+                assrts.add((Assrt)stmt);
+        assrts.sort((a, b) -> Integer.compare(a.getSeq(), b.getSeq()));
+        return assrts;
+    }
+
+    /**
+     * Parses a formula of wff variables ph, ps and ch.
+     *
+     * @param formula the symbols of the formula, after its type code
+     * @return the parse tree of the formula
+     */
+    public ParseTree parse(String formula) {
+        var symTbl = logicalSystem.getSymTbl();
+        String[] symbols = ("|- " + formula).split(" ");
+        Sym[] syms = new Sym[symbols.length];
+        for (int i = 0; i < symbols.length; i++)
+            syms[i] = symTbl.get(symbols[i]);
+        VarHyp[] varHyps = { (VarHyp)stmt("wph"), (VarHyp)stmt("wps"),
+                (VarHyp)stmt("wch") };
+        var tree = grammar.parseFormula(messages, symTbl,
+                logicalSystem.getStmtTbl(), new Formula(syms.length, syms), varHyps,
+                Integer.MAX_VALUE, null);
+        assertNotNull(formula, tree);
+        return tree;
+    }
+}
@@ -0,0 +1,119 @@
+package mmj.pa;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import mmj.lang.Messages;
+import mmj.lang.TestLogicalSystem;
+
+import static org.junit.Assert.*;
+
+public class ProofSearchTest {
+
+    private static final String THEOREMS = String.join("\n",
+            "${",
+            "  chain.1 $e |- ph $.",
+            "  chain.2 $e |- ( ph -> ps ) $.",
+            "  chain.3 $e |- ( ps -> ch ) $.",
+            "  chain $p |- ch $= ? $.",
+            "$}",
+            "id $p |- ( ph -> ph ) $= ? $.",
+            "");
+
+    private TestLogicalSystem system;
+    private ProofAsst proofAsst;
+    private Messages messages;
+
+    @Before
+    public void setUp() throws Exception {
+        system = new TestLogicalSystem(TestLogicalSystem.PROP_CALC + THEOREMS);
+        proofAsst = system.proofAsst();
+        messages = system.messages;
+    }
+
+    private static String worksheet(String theorem, String... steps) {
+        return "$( <MM> <PROOF_ASST> THEOREM=" + theorem + " LOC_AFTER=?\n\n"
+                + String.join("\n", steps) + "\n\n$)\n";
+    }
+
+    private ProofWorksheet unify(String text) {
+        return proofAsst.unify(false, false, text, null, null, null, -1, true);
+    }
+
+    @Test
+    public void provesAStepThroughAnIntermediateStep() throws Exception {
+        ProofWorksheet w = unify(worksheet("chain",
+                "h1::chain.1 |- ph",
+                "h2::chain.2 |- ( ph -> ps )",
+                "h3::chain.3 |- ( ps -> ch )",
+                "qed:: |- ch"));
+        assertNull(w.getQedStepProofRPN());
+
+        ProofSearch proofSearch = proofAsst.getProofSearch(3, 10000, 10000, 2,
+                ProofSearch.Strategy.BestFirst);
+        assertEquals(1, proofSearch.searchProofWorksheet(w, messages));
+        assertEquals(1, proofSearch.getNbrStepsAdded());
+        String text = w.getOutputProofText();
+        assertTrue(text, text.contains("|- ps"));
+
+        w = unify(text);
+        assertNotNull(text, w.getQedStepProofRPN());
+    }
+
+    private ProofWorksheet search(ProofWorksheet w, int maxDepth,
+            int nbrThreads, int expected) throws Exception
+    {
+        ProofSearch proofSearch = proofAsst.getProofSearch(maxDepth, 100000,
+                10000, nbrThreads, ProofSearch.Strategy.BestFirst);
+        assertEquals(expected, proofSearch.searchProofWorksheet(w, messages));
+        return w;
+    }
+
+    @Test
+    public void chainsThroughModusPonensWithWorkVariables() throws Exception {
+        // the antecedents of ax-mp are not in the worksheet: they are
+        // found as work variables, which the later subgoals assign
+        String text = search(unify(worksheet("id", "qed:: |- ( ph -> ph )")),
+                3, 2, 1).getOutputProofText();
+        assertTrue(text, text.contains(":ax-2 "));
+        assertTrue(text, text.contains(":ax-1 "));
+
+        ProofWorksheet w = unify(text);
+        assertNotNull(text, w.getQedStepProofRPN());
+    }
+
+    @Test
+    public void findsTheSameProofWithEachNumberOfThreads() throws Exception {
+        String text = search(unify(worksheet("id", "qed:: |- ( ph -> ph )")),
+                3, 1, 1).getOutputProofText();
+        for (int nbrThreads = 2; nbrThreads <= 4; nbrThreads++)
+            assertEquals(text, search(unify(worksheet("id",
+                    "qed:: |- ( ph -> ph )")), 3, nbrThreads, 1)
+                            .getOutputProofText());
+    }
+
+    @Test
+    public void failsBeyondTheMaximumDepth() throws Exception {
+        ProofWorksheet w = search(unify(worksheet("id",
+                "qed:: |- ( ph -> ph )")), 2, 2, 0);
+        assertNull(w.getQedStepProofRPN());
+        assertFalse(w.getOutputProofText().contains("ax-2"));
+    }
+
+    @Test
+    public void stopsWhenInterrupted() throws Exception {
+        ProofWorksheet w = unify(worksheet("id", "qed:: |- ( ph -> ph )"));
+        Thread.currentThread().interrupt();
+        try {
+            search(w, 3, 2, 0);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        String report = String.join("\n", Arrays.copyOf(
+                messages.getInfoMessageArray(), messages.getInfoMessageCnt()));
+        assertTrue(report, report.contains("I-PA-0141"));
+    }
+}
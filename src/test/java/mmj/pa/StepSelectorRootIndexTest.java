@@ -0,0 +1,88 @@
+package mmj.pa;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import mmj.lang.Assrt;
+import mmj.lang.Stmt;
+import mmj.lang.TestLogicalSystem;
+
+import static org.junit.Assert.*;
+
+public class StepSelectorRootIndexTest {
+
+    private static final String MORE_AXIOMS = String.join("\n",
+            "${",
+            "  a1i.1 $e |- ph $.",
+            "  a1i $a |- ( ps -> ph ) $.",
+            "$}",
+            "ax-n $a |- -. ( ph -> ph ) $.",
+            "ax-v $a |- ph $.",
+            "");
+
+    private TestLogicalSystem system;
+    private List<Assrt> assrts;
+
+    @Before
+    public void setUp() throws Exception {
+        system = new TestLogicalSystem(TestLogicalSystem.PROP_CALC + MORE_AXIOMS);
+        assrts = system.logicAssrts();
+        assrts.sort(Assrt.NBR_LOG_HYP_SEQ);
+    }
+
+    private static List<String> labels(List<Assrt> assrts) {
+        return assrts.stream().map(Assrt::getLabel).collect(Collectors.toList());
+    }
+
+    private List<String> candidates(StepSelectorRootIndex index, int minHyps,
+            int maxHyps, int maxSeq, String root) {
+        return labels(index.getCandidates(minHyps, maxHyps, maxSeq,
+                root == null ? null : system.stmt(root)));
+    }
+
+    @Test
+    public void findsTheAssertionsOfTheRootAndTheBareVariables() {
+        var index = new StepSelectorRootIndex(assrts);
+        assertEquals(List.of("ax-1", "ax-2", "ax-3", "notnot", "ax-v"),
+                candidates(index, 0, 0, Integer.MAX_VALUE, "wi"));
+        assertEquals(List.of("ax-n", "ax-v"),
+                candidates(index, 0, 0, Integer.MAX_VALUE, "wn"));
+        assertEquals(List.of("ax-v"),
+                candidates(index, 0, 0, Integer.MAX_VALUE, null));
+    }
+
+    @Test
+    public void findsTheAssertionsOfTheNumbersOfHypotheses() {
+        var index = new StepSelectorRootIndex(assrts);
+        assertEquals(List.of("ax-1", "ax-2", "ax-3", "notnot", "ax-v", "a1i",
+                "ax-mp"), candidates(index, 0, 2, Integer.MAX_VALUE, "wi"));
+        assertEquals(List.of("ax-mp"),
+                candidates(index, 2, 5, Integer.MAX_VALUE, "wn"));
+        assertEquals(List.of(), candidates(index, 2, 1, Integer.MAX_VALUE, "wi"));
+    }
+
+    @Test
+    public void findsTheAssertionsPrecedingTheProofWorksheet() {
+        var index = new StepSelectorRootIndex(assrts);
+        Stmt notnot = system.stmt("notnot");
+        assertEquals(List.of("ax-1", "ax-2", "ax-3", "ax-mp"),
+                candidates(index, 0, 2, notnot.getSeq(), "wi"));
+        assertEquals(List.of(), candidates(index, 0, 2, 0, "wi"));
+    }
+
+    @Test
+    public void addsAssertionsAfterASearch() {
+        var index = new StepSelectorRootIndex(assrts.stream()
+                .filter(a -> !a.getLabel().startsWith("ax-"))
+                .collect(Collectors.toList()));
+        assertEquals(List.of("notnot"),
+                candidates(index, 0, 0, Integer.MAX_VALUE, "wi"));
+        index.add(assrts.stream().filter(a -> a.getLabel().startsWith("ax-"))
+                .collect(Collectors.toList()));
+        assertEquals(List.of("ax-1", "ax-2", "ax-3", "notnot", "ax-v"),
+                candidates(index, 0, 0, Integer.MAX_VALUE, "wi"));
+    }
+}
@@ -0,0 +1,102 @@
+package mmj.pa;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import mmj.lang.TestLogicalSystem;
+import mmj.pa.StepRequest.StepRequestType;
+import mmj.util.SharedExecutor;
+
+import static org.junit.Assert.*;
+
+public class StepSelectorSearchTest {
+
+    /** Enough assertions for a parallel scan */
+    private static final int NBR_GENERATED = 2500;
+
+    private static TestLogicalSystem generatedSystem() throws Exception {
+        StringBuilder mm = new StringBuilder(TestLogicalSystem.PROP_CALC);
+        for (int i = 0; i < NBR_GENERATED; i++)
+            mm.append("gen").append(i).append(" $a |- ( ph -> ")
+                    .append(i % 3 == 0 ? "ps" : "-. ch").append(" ) $.\n");
+        mm.append("thm $p |- ( ph -> ps ) $= ? $.\n");
+        return new TestLogicalSystem(mm.toString());
+    }
+
+    private final int nbrThreads = SharedExecutor.getNbrThreads();
+    private TestLogicalSystem system;
+    private ProofAsst proofAsst;
+
+    @Before
+    public void setUp() throws Exception {
+        system = generatedSystem();
+        proofAsst = system.proofAsst();
+    }
+
+    @After
+    public void tearDown() {
+        SharedExecutor.setNbrThreads(nbrThreads);
+    }
+
+    /**
+     * Runs a StepSelector search on the first step of a worksheet.
+     *
+     * @param threads the number of threads of the search
+     * @param formula the formula of the step
+     * @return the results of the search
+     */
+    private StepSelectorResults search(int threads, String formula) {
+        SharedExecutor.setNbrThreads(threads);
+        String text = "$( <MM> <PROOF_ASST> THEOREM=thm LOC_AFTER=?\n\n"
+                + "1:: |- " + formula + "\nqed:: |- ( ph -> ps )\n\n$)\n";
+        ProofWorksheet w = proofAsst.unify(false, false, text, null,
+                new StepRequest(StepRequestType.SelectorSearch), null,
+                text.indexOf("|-"), true);
+        assertNotNull(String.join("\n", Arrays.copyOf(
+                system.messages.getErrorMessageArray(),
+                system.messages.getErrorMessageCnt())),
+                w.stepSelectorResults);
+        return w.stepSelectorResults;
+    }
+
+    private static void assertSameResults(StepSelectorResults expected,
+            StepSelectorResults actual)
+    {
+        assertEquals(expected.step, actual.step);
+        assertEquals(Arrays.asList(expected.refArray),
+                Arrays.asList(actual.refArray));
+        assertEquals(Arrays.asList(expected.selectionArray),
+                Arrays.asList(actual.selectionArray));
+    }
+
+    @Test
+    public void findsTheResultsOfTheSequentialScan() {
+        proofAsst.getPreferences().stepSelectorMaxResults.set(9999);
+        StepSelectorResults sequential = search(1, "( ph -> ps )");
+        // the unifiable assertions, then the trailer
+        assertEquals((NBR_GENERATED + 2) / 3 + 1, sequential.refArray.length);
+        assertEquals("gen0", sequential.refArray[0].getLabel());
+        assertNull(sequential.refArray[sequential.refArray.length - 1]);
+        for (int threads = 2; threads <= 4; threads++)
+            assertSameResults(sequential, search(threads, "( ph -> ps )"));
+    }
+
+    @Test
+    public void stopsAtTheSameResults() {
+        proofAsst.getPreferences().stepSelectorMaxResults.set(100);
+        // every generated axiom unifies with the step
+        StepSelectorResults sequential = search(1, "( ph -> -. ch )");
+        StepSelectorResults parallel = search(4, "( ph -> -. ch )");
+        assertSameResults(sequential, parallel);
+        assertEquals(101, parallel.refArray.length);
+        assertEquals("gen0", parallel.refArray[0].getLabel());
+        assertEquals("gen99", parallel.refArray[99].getLabel());
+        assertTrue(parallel.selectionArray[100],
+                parallel.selectionArray[100].contains(
+                        PaConstants.STEP_SELECTOR_LIST_MORE_LITERAL
+                                .replace("<", "&lt;").replace(">", "&gt;")));
+    }
+}
@@ -0,0 +1,73 @@
+package mmj.search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import mmj.lang.Assrt;
+import mmj.lang.ParseTree.RPNStep;
+import mmj.lang.TestLogicalSystem;
+import mmj.lang.Theorem;
+import mmj.search.AssrtRenderingCache.Rendering;
+
+import static org.junit.Assert.*;
+
+public class AssrtRenderingCacheTest {
+
+    private TestLogicalSystem system;
+    private AssrtRenderingCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        system = new TestLogicalSystem();
+        cache = new AssrtRenderingCache();
+    }
+
+    @Test
+    public void rendersTheStringsOfAnAssertion() {
+        Rendering rendering = cache.get(system.assrt("ax-mp"));
+        assertEquals("|- ps ", rendering.formulaString);
+        assertArrayEquals(new String[] { "|- ph", "|- ( ph -> ps )" },
+                rendering.logHypFormulaStrings);
+        assertEquals(" rule of modus ponens. ", rendering.commentString);
+    }
+
+    @Test
+    public void keepsTheRenderingForTheNextSearches() {
+        Assrt ax1 = system.assrt("ax-1");
+        Rendering rendering = cache.get(ax1);
+        assertSame(rendering, cache.get(ax1));
+        cache.get(system.assrt("ax-2"));
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNotSame(rendering, cache.get(ax1));
+    }
+
+    @Test
+    public void rendersAgainAChangedAssertion() {
+        Assrt axmp = system.assrt("ax-mp");
+        Rendering rendering = cache.get(axmp);
+        axmp.setDescription("Modus Ponens.");
+        Rendering changed = cache.get(axmp);
+        assertNotSame(rendering, changed);
+        assertEquals("modus ponens.", changed.commentString);
+
+        axmp.setLogHypArray(axmp.getLogHypArray().clone());
+        assertNotSame(changed, cache.get(axmp));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void rendersAgainAChangedProof() {
+        Theorem notnot = (Theorem)system.assrt("notnot");
+        Rendering rendering = cache.get(notnot);
+        notnot.proofUpdates(new RPNStep[] { new RPNStep(system.stmt("wph")),
+                new RPNStep(system.stmt("ax-1")) }, null, null);
+        assertEquals("wph ax-1", rendering.getLabelRPNString(notnot));
+        notnot.proofUpdates(new RPNStep[] { new RPNStep(system.stmt("wps")) },
+                null, null);
+        assertSame(rendering, cache.get(notnot));
+        assertEquals("wps", rendering.getLabelRPNString(notnot));
+    }
+}
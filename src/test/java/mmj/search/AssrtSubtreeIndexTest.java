@@ -0,0 +1,85 @@
+package mmj.search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import mmj.lang.Assrt;
+import mmj.lang.TestLogicalSystem;
+
+import static mmj.search.SearchOptionsConstants.*;
+import static org.junit.Assert.*;
+
+public class AssrtSubtreeIndexTest {
+
+    private TestLogicalSystem system;
+    private AssrtSubtreeIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        system = new TestLogicalSystem();
+        index = new AssrtSubtreeIndex(system.logicAssrts());
+    }
+
+    private List<String> candidates(int oper, String formula) {
+        BitSet candidates = index.getCandidates(oper, system.parse(formula));
+        assertNotNull(candidates);
+        return system.logicAssrts().stream()
+                .filter(a -> index.isCandidate(candidates, a))
+                .map(Assrt::getLabel).collect(Collectors.toList());
+    }
+
+    @Test
+    public void findsTheAssertionsContainingTheShapesOfTheTerm() {
+        assertEquals(List.of("ax-3", "notnot"),
+                candidates(OPER_VALUE_GE_ID, "-. ph"));
+        assertEquals(List.of("notnot"),
+                candidates(OPER_VALUE_GE_ID, "-. -. ph"));
+        assertEquals(List.of("ax-3"),
+                candidates(OPER_VALUE_EQ_ID, "( -. ph -> -. ps )"));
+    }
+
+    @Test
+    public void indexesTheLogicalHypotheses() {
+        assertEquals(List.of("ax-1", "ax-2", "ax-3", "ax-mp", "notnot"),
+                candidates(OPER_VALUE_GT_ID, "( ph -> ps )"));
+    }
+
+    @Test
+    public void findsNoCandidateForAnUnknownShape() {
+        assertEquals(List.of(), candidates(OPER_VALUE_EQ_EQ_ID,
+                "( ( ph -> ps ) -> -. ( ph -> ch ) )"));
+    }
+
+    @Test
+    public void everyAssertionIsACandidateOfTheOtherOperators() {
+        assertNull(index.getCandidates(OPER_VALUE_LE_ID,
+                system.parse("-. -. ph")));
+        assertNull(index.getCandidates(OPER_VALUE_LT_GT_ID,
+                system.parse("-. -. ph")));
+    }
+
+    @Test
+    public void everyAssertionIsACandidateOfAVariable() {
+        assertNull(index.getCandidates(OPER_VALUE_GE_ID, system.parse("ph")));
+    }
+
+    @Test
+    public void assertionsNotIndexedAreCandidates() {
+        Assrt ax3 = system.assrt("ax-3");
+        var partial = new AssrtSubtreeIndex(List.of(system.assrt("ax-1")));
+        BitSet candidates = partial.getCandidates(OPER_VALUE_GE_ID,
+                system.parse("( ph -> ps )"));
+        assertTrue(partial.isCandidate(candidates, system.assrt("ax-1")));
+        assertTrue(partial.isCandidate(candidates, ax3));
+
+        assertTrue(partial.getCandidates(OPER_VALUE_GE_ID,
+                system.parse("-. ph")).isEmpty());
+        partial.add(List.of(ax3));
+        assertTrue(partial.isCandidate(partial.getCandidates(OPER_VALUE_GE_ID,
+                system.parse("-. ph")), ax3));
+    }
+}
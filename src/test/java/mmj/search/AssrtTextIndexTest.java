@@ -0,0 +1,119 @@
+package mmj.search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import mmj.lang.Assrt;
+import mmj.lang.TestLogicalSystem;
+
+import static mmj.search.SearchOptionsConstants.*;
+import static org.junit.Assert.*;
+
+public class AssrtTextIndexTest {
+
+    private TestLogicalSystem system;
+    private AssrtTextIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        system = new TestLogicalSystem();
+        index = new AssrtTextIndex(system.logicAssrts());
+    }
+
+    private List<String> candidates(int part, String text) {
+        BitSet candidates = index.getCandidates(part, text);
+        assertNotNull(candidates);
+        return system.logicAssrts().stream()
+                .filter(a -> index.isCandidate(candidates, a))
+                .map(Assrt::getLabel).collect(Collectors.toList());
+    }
+
+    @Test
+    public void findsTheWholeWordsBetweenSpaces() {
+        assertEquals(List.of("ax-3", "notnot"),
+                candidates(PART_FORMULAS_ID, "ph -> -. "));
+        // a superset: the order of the words is not indexed
+        assertEquals(List.of("ax-3", "notnot"),
+                candidates(PART_FORMULAS_ID, " -. -. "));
+        assertEquals(List.of(), candidates(PART_FORMULAS_ID, " -> wff "));
+    }
+
+    @Test
+    public void findsThePartialWordsAtTheEnds() {
+        // a word ending with "-." and a word starting with "p"
+        assertEquals(List.of("ax-3", "notnot"),
+                candidates(PART_FORMULAS_ID, "-. p"));
+        assertEquals(List.of("ax-3", "notnot"), candidates(PART_FORMULAS_ID, "."));
+    }
+
+    @Test
+    public void findsTheWordsByPrefixAndSuffix() {
+        var vocabulary = new AssrtTextIndex.Vocabulary();
+        List<String> words = List.of("ph", "phi", "alpha", "ps", "-.", "->");
+        for (int id = 0; id < words.size(); id++)
+            vocabulary.add(words.get(id), id);
+        for (String part : List.of("p", "ph", "h", "a", "-", ".", "x", "")) {
+            BitSet expected = new BitSet();
+            BitSet prefixed = new BitSet();
+            BitSet suffixed = new BitSet();
+            for (int id = 0; id < words.size(); id++)
+                if (words.get(id).startsWith(part))
+                    expected.set(id);
+            vocabulary.addPrefixed(part, prefixed);
+            assertEquals(part, expected, prefixed);
+            expected.clear();
+            for (int id = 0; id < words.size(); id++)
+                if (words.get(id).endsWith(part))
+                    expected.set(id);
+            vocabulary.addSuffixed(part, suffixed);
+            assertEquals(part, expected, suffixed);
+        }
+    }
+
+    @Test
+    public void looksTheInnerWordsUp() {
+        // "ps" is a whole word, so the prefix of "ps" in a word is not found
+        assertEquals(List.of("ax-1", "ax-2", "ax-3", "ax-mp"),
+                candidates(PART_FORMULAS_ID, "( ps -> "));
+        assertEquals(List.of(), candidates(PART_FORMULAS_ID, "( p -> "));
+    }
+
+    @Test
+    public void indexesTheLogicalHypotheses() {
+        assertEquals(List.of("ax-mp"), candidates(PART_LABELS_ID, "maj"));
+        assertEquals(List.of("ax-1", "ax-2", "ax-3", "ax-mp"),
+                candidates(PART_FORMULAS_ID, " ps "));
+    }
+
+    @Test
+    public void findsTheLabels() {
+        assertEquals(List.of("ax-1"), candidates(PART_LABELS_ID, "ax-1"));
+        assertEquals(List.of(), candidates(PART_LABELS_ID, "ax-"));
+    }
+
+    @Test
+    public void findsTheLowercaseComments() {
+        assertEquals(List.of("ax-1", "ax-2", "ax-3"),
+                candidates(PART_COMMENTS_ID, "axiom"));
+        assertEquals(List.of("ax-mp"),
+                candidates(PART_COMMENTS_ID, "modus ponens"));
+        assertEquals(List.of(), candidates(PART_COMMENTS_ID, "Axiom"));
+    }
+
+    @Test
+    public void everyAssertionIsACandidateOfTheOtherParts() {
+        assertNull(index.getCandidates(PART_LABELS_RPN_ID, "ax-1"));
+    }
+
+    @Test
+    public void assertionsNotIndexedAreCandidates() {
+        var partial = new AssrtTextIndex(List.of(system.assrt("ax-1")));
+        BitSet candidates = partial.getCandidates(PART_LABELS_ID, "ax-2");
+        assertFalse(partial.isCandidate(candidates, system.assrt("ax-1")));
+        assertTrue(partial.isCandidate(candidates, system.assrt("ax-2")));
+    }
+}
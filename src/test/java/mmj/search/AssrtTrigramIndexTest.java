@@ -0,0 +1,103 @@
+package mmj.search;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import mmj.lang.Assrt;
+import mmj.lang.TestLogicalSystem;
+import mmj.search.AssrtTrigramIndex.Query;
+import mmj.search.AssrtTrigramIndex.QueryParser;
+
+import static mmj.search.SearchOptionsConstants.*;
+import static org.junit.Assert.*;
+
+public class AssrtTrigramIndexTest {
+
+    private static Set<String> trigrams(String regex) {
+        Query query = new QueryParser(regex).parse();
+        assertNotNull(regex, query);
+        assertEquals(regex, List.of(), query.disjunctions);
+        return query.trigrams;
+    }
+
+    private static void assertAny(String regex) {
+        assertNull(regex, new QueryParser(regex).parse());
+    }
+
+    @Test
+    public void requiresTheTrigramsOfTheLiterals() {
+        assertEquals(Set.of("abc", "bcd"), trigrams("abcd"));
+        assertEquals(Set.of("abc", "def"), trigrams("abc.def"));
+        assertEquals(Set.of("a.b", ".bc"), trigrams("a\\.bc"));
+        assertEquals(Set.of("a.b"), trigrams("\\Qa.b\\E"));
+        assertEquals(Set.of("abc"), trigrams("^[xyz]abc\\d+$"));
+    }
+
+    @Test
+    public void handlesTheQuantifiers() {
+        assertEquals(Set.of("abc"), trigrams("abcd?"));
+        assertEquals(Set.of("abc"), trigrams("abcd*"));
+        assertEquals(Set.of("xab", "bcy"), trigrams("xab+cy"));
+        assertEquals(Set.of("abc"), trigrams("abcd{0,2}"));
+        assertEquals(Set.of("def"), trigrams("(abc)*def"));
+        assertEquals(Set.of("abc", "def"), trigrams("(abc)+def"));
+    }
+
+    @Test
+    public void handlesTheGroups() {
+        assertEquals(Set.of("abc", "def"), trigrams("(?:abc)def"));
+        assertEquals(Set.of("abc", "def"), trigrams("(?<name>abc)def"));
+        assertEquals(Set.of("def"), trigrams("(?=abc)def"));
+        assertEquals(Set.of("def"), trigrams("(?<!abc)def"));
+    }
+
+    @Test
+    public void requiresOneOfTheAlternatives() {
+        Query query = new QueryParser("abc|def").parse();
+        assertEquals(Set.of(), query.trigrams);
+        assertEquals(1, query.disjunctions.size());
+        assertEquals(List.of(Set.of("abc"), Set.of("def")),
+                query.disjunctions.get(0).stream().map(q -> q.trigrams)
+                        .collect(Collectors.toList()));
+        assertAny("abc|de");
+    }
+
+    @Test
+    public void anyTextMatchesTheUnsupportedRegularExpressions() {
+        assertAny("ab");
+        assertAny("a.b.c");
+        assertAny("(?i)abc");
+        assertAny("abc(def");
+        assertAny("*abc");
+        assertAny("abc\\");
+    }
+
+    private static List<String> candidates(TestLogicalSystem system,
+            AssrtTrigramIndex index, int part, String regex) {
+        BitSet candidates = index.getCandidates(part, regex);
+        assertNotNull(candidates);
+        return system.logicAssrts().stream()
+                .filter(a -> index.isCandidate(candidates, a))
+                .map(Assrt::getLabel).collect(Collectors.toList());
+    }
+
+    @Test
+    public void findsTheCandidates() throws Exception {
+        var system = new TestLogicalSystem();
+        var index = new AssrtTrigramIndex(system.logicAssrts());
+        assertEquals(List.of("notnot"),
+                candidates(system, index, PART_FORMULAS_ID, "-\\. -\\."));
+        assertEquals(List.of("ax-1", "ax-mp"),
+                candidates(system, index, PART_LABELS_ID, "ax-1|ax-mp"));
+        assertEquals(List.of("ax-mp"),
+                candidates(system, index, PART_LABELS_ID, "maj"));
+        assertEquals(List.of("ax-mp"),
+                candidates(system, index, PART_COMMENTS_ID, "modus ponens"));
+        assertNull(index.getCandidates(PART_LABELS_ID, "(?i)AX"));
+        assertNull(index.getCandidates(PART_LABELS_RPN_ID, "ax-1"));
+    }
+}
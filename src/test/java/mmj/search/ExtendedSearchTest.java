@@ -0,0 +1,179 @@
+package mmj.search;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mmj.lang.Cnst;
+import mmj.lang.TestLogicalSystem;
+import mmj.pa.DerivationStep;
+import mmj.pa.ProofAsst;
+import mmj.pa.ProofWorksheet;
+import mmj.pa.StepRequest;
+import mmj.pa.StepRequest.StepRequestType;
+import mmj.util.SharedExecutor;
+
+import static org.junit.Assert.*;
+
+public class ExtendedSearchTest {
+
+    private static final int NBR_GENERATED = 200;
+
+    /**
+     * The rules "ok" have a hypothesis which unifies with the hypothesis of
+     * the theorem, the rules "ko" one which does not.
+     */
+    private static TestLogicalSystem generatedSystem() throws Exception {
+        StringBuilder mm = new StringBuilder(TestLogicalSystem.PROP_CALC);
+        for (int i = 0; i < NBR_GENERATED; i++) {
+            String label = (i % 3 == 0 ? "ok" : "ko") + i;
+            mm.append("${ ").append(label).append(".1 $e |- ")
+                    .append(i % 3 == 0 ? "( ph -> ps )" : "-. ps")
+                    .append(" $.\n  $( Generated rule. $)\n  ").append(label)
+                    .append(" $a |- ps $. $}\n");
+        }
+        mm.append("${ thm.1 $e |- ( ps -> ch ) $. thm $p |- ch $= ? $. $}\n");
+        return new TestLogicalSystem(mm.toString());
+    }
+
+    private final int nbrThreads = SharedExecutor.getNbrThreads();
+    private TestLogicalSystem system;
+    private ProofAsst proofAsst;
+    private int resultsChecked;
+    private int maxExtResults;
+
+    /**
+     * Runs the Step Searches with the search arguments of the test instead of
+     * the ones of the Search Options window.
+     */
+    private class StepSearchMgr extends SearchMgr {
+        private SearchOutput searchOutput = new SearchOutput("");
+
+        StepSearchMgr() {
+            super(proofAsst.getPreferences());
+        }
+
+        @Override
+        public SearchOutput getSearchOutput() {
+            return searchOutput;
+        }
+
+        @Override
+        public SearchOutput execStepSearch(DerivationStep derivStep) {
+            searchOutput = new SearchOutput("");
+            SearchArgs searchArgs = getSearchArgs();
+            searchArgs.initSearchArgsToDefaults();
+            searchArgs.loadSearchKeys(derivStep.getProofWorksheet(),
+                    system.logicalSystem);
+            searchArgs.maxResults.set("9999");
+            searchArgs.resultsChecked.set(String.valueOf(resultsChecked));
+            searchArgs.maxExtResults.set(String.valueOf(maxExtResults));
+            searchArgs.maxIncompHyps.set("1");
+            searchArgs.prevStepsChecked.set("10");
+            searchArgs.stats.set("0");
+            searchArgs.sortedAssrtSearchList = proofAsst
+                    .getSortedAssrtSearchList();
+            return new SearchEngine(this, proofAsst, proofAsst.getPreferences(),
+                    system.logicalSystem.bookManager,
+                    proofAsst.getVerifyProofs(),
+                    (Cnst)system.logicalSystem.getSymTbl().get("|-"))
+                            .execSearch();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        system = generatedSystem();
+        proofAsst = system.proofAsst();
+        SearchMgr searchMgr = new StepSearchMgr();
+        searchMgr.initOtherEnvAreas(proofAsst, system.logicalSystem,
+                system.grammar, proofAsst.getVerifyProofs(), system.messages);
+        proofAsst.getPreferences().setSearchMgr(searchMgr);
+    }
+
+    @After
+    public void tearDown() {
+        SharedExecutor.setNbrThreads(nbrThreads);
+    }
+
+    /**
+     * Runs a Step Search on the qed step of the theorem, with an Extended
+     * Search.
+     *
+     * @param threads the number of threads of the search
+     * @param resultsChecked the number of results checked
+     * @param maxExtResults the maximum number of results completed
+     * @return the output of the search
+     */
+    private SearchOutput search(int threads, int resultsChecked,
+            int maxExtResults)
+    {
+        SharedExecutor.setNbrThreads(threads);
+        this.resultsChecked = resultsChecked;
+        this.maxExtResults = maxExtResults;
+        String text = "$( <MM> <PROOF_ASST> THEOREM=thm LOC_AFTER=?\n\n"
+                + "h1::thm.1 |- ( ps -> ch )\n" + "qed:?: |- ch\n\n$)\n";
+        ProofWorksheet w = proofAsst.unify(false, false, text, null,
+                new StepRequest(StepRequestType.StepSearch), null,
+                text.lastIndexOf("|-"), true);
+        SearchOutput searchOutput = w.searchOutput;
+        assertNotNull(w.getOutputProofText(), searchOutput);
+        assertEquals(String.valueOf(searchOutput.getFirstError()), 0,
+                searchOutput.searchReturnCode);
+        return searchOutput;
+    }
+
+    private static List<String> completed(SearchOutput searchOutput) {
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < searchOutput.sortedAssrtScoreArray.length; i++)
+            if (searchOutput.sortedAssrtScoreArray[i]
+                    == SearchConstants.SEARCH_SCORE_COMPLETED_ITEM)
+                labels.add(searchOutput.sortedAssrtResultsList.get(i)
+                        .getLabel());
+        return labels;
+    }
+
+    private static void assertSameOutput(SearchOutput expected,
+            SearchOutput actual)
+    {
+        assertEquals(expected.sortedAssrtResultsList,
+                actual.sortedAssrtResultsList);
+        assertEquals(Arrays.asList(expected.selectionArray),
+                Arrays.asList(actual.selectionArray));
+        assertEquals(expected.statsNbrCompletedSearchResults,
+                actual.statsNbrCompletedSearchResults);
+    }
+
+    @Test
+    public void completesTheResultsOfTheSequentialSearch() {
+        SearchOutput sequential = search(1, 9999, 9999);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < NBR_GENERATED; i += 3)
+            expected.add("ok" + i);
+        assertEquals(expected, completed(sequential));
+        for (int threads = 2; threads <= 4; threads++)
+            assertSameOutput(sequential, search(threads, 9999, 9999));
+    }
+
+    @Test
+    public void completesTheFirstResultsInOrder() {
+        SearchOutput sequential = search(1, 9999, 10);
+        assertEquals(List.of("ok0", "ok3", "ok6", "ok9", "ok12", "ok15",
+                "ok18", "ok21", "ok24", "ok27"), completed(sequential));
+        SearchOutput parallel = search(4, 9999, 10);
+        assertSameOutput(sequential, parallel);
+        assertEquals(10, parallel.statsNbrCompletedSearchResults);
+    }
+
+    @Test
+    public void checksTheFirstResults() {
+        // the first 30 results hold 10 rules which may be completed
+        SearchOutput sequential = search(1, 30, 9999);
+        assertEquals(10, completed(sequential).size());
+        assertSameOutput(sequential, search(4, 30, 9999));
+    }
+}
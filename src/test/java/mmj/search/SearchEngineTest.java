@@ -0,0 +1,140 @@
+package mmj.search;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import mmj.lang.Assrt;
+import mmj.lang.Cnst;
+import mmj.lang.Stmt;
+import mmj.lang.TestLogicalSystem;
+import mmj.pa.ProofAsst;
+import mmj.util.SharedExecutor;
+
+import static org.junit.Assert.*;
+
+public class SearchEngineTest {
+
+    /** Enough assertions for a parallel scan */
+    private static final int NBR_GENERATED = 2500;
+
+    private static TestLogicalSystem generatedSystem() throws Exception {
+        StringBuilder mm = new StringBuilder(TestLogicalSystem.PROP_CALC);
+        for (int i = 0; i < NBR_GENERATED; i++)
+            mm.append("$( Generated axiom ")
+                    .append(i % 2 == 0 ? "even" : "odd").append(". $)\n")
+                    .append("gen").append(i).append(" $a |- ( ph -> ")
+                    .append(i % 3 == 0 ? "ps" : "-. ch").append(" ) $.\n");
+        return new TestLogicalSystem(mm.toString());
+    }
+
+    private final int nbrThreads = SharedExecutor.getNbrThreads();
+    private TestLogicalSystem system;
+    private ProofAsst proofAsst;
+
+    @Before
+    public void setUp() throws Exception {
+        system = generatedSystem();
+        proofAsst = system.proofAsst();
+    }
+
+    @After
+    public void tearDown() {
+        SharedExecutor.setNbrThreads(nbrThreads);
+    }
+
+    /**
+     * Runs a general search with a search term.
+     *
+     * @param threads the number of threads of the search
+     * @param part the part of the assertions searched
+     * @param format the format of the search term
+     * @param forWhat the search term
+     * @param maxResults the maximum number of results
+     * @return the output of the search
+     */
+    private SearchOutput search(int threads, String part, String format,
+            String forWhat, String maxResults)
+    {
+        SharedExecutor.setNbrThreads(threads);
+        var searchMgr = proofAsst.getPreferences().getSearchMgr();
+        var searchArgs = searchMgr.getSearchArgs();
+        searchArgs.initSearchArgsToDefaults();
+        searchArgs.loadSearchKeys((Stmt)null, system.logicalSystem);
+        searchArgs.part[0].set(part);
+        searchArgs.format[0].set(format);
+        searchArgs.forWhat[0].set(forWhat);
+        searchArgs.maxResults.set(maxResults);
+        searchArgs.sortedAssrtSearchList = proofAsst
+                .getSortedAssrtSearchList();
+        var searchEngine = new SearchEngine(searchMgr, proofAsst,
+                proofAsst.getPreferences(), system.logicalSystem.bookManager,
+                proofAsst.getVerifyProofs(),
+                (Cnst)system.logicalSystem.getSymTbl().get("|-"));
+        SearchOutput searchOutput = searchEngine.execSearch();
+        assertEquals(String.valueOf(searchOutput.getFirstError()), 0,
+                searchOutput.searchReturnCode);
+        return searchOutput;
+    }
+
+    private static void assertSameOutput(SearchOutput expected,
+            SearchOutput actual)
+    {
+        assertEquals(expected.sortedAssrtResultsList,
+                actual.sortedAssrtResultsList);
+        assertEquals(Arrays.asList(expected.selectionArray),
+                Arrays.asList(actual.selectionArray));
+    }
+
+    private static void assertSameStats(SearchOutput expected,
+            SearchOutput actual)
+    {
+        assertEquals(expected.statsNbrInputAssrtGets,
+                actual.statsNbrInputAssrtGets);
+        assertEquals(expected.statsNbrSelected, actual.statsNbrSelected);
+        assertEquals(expected.statsNbrRejectFailSearchData,
+                actual.statsNbrRejectFailSearchData);
+    }
+
+    @Test
+    public void findsTheResultsOfTheSequentialScan() {
+        SearchOutput sequential = search(1, "Comments", "CharStr", "even",
+                "9999");
+        assertEquals(NBR_GENERATED / 2, sequential.statsNbrSelected);
+        for (int threads = 2; threads <= 4; threads++) {
+            SearchOutput parallel = search(threads, "Comments", "CharStr",
+                    "even", "9999");
+            assertSameOutput(sequential, parallel);
+            assertSameStats(sequential, parallel);
+        }
+    }
+
+    @Test
+    public void compilesTheSearchTermOfEachThread() {
+        SearchOutput sequential = search(1, "Formulas", "RegExpr",
+                "-> -\\. ch", "9999");
+        assertEquals(NBR_GENERATED - (NBR_GENERATED + 2) / 3,
+                sequential.statsNbrSelected);
+        SearchOutput parallel = search(4, "Formulas", "RegExpr", "-> -\\. ch",
+                "9999");
+        assertSameOutput(sequential, parallel);
+        assertSameStats(sequential, parallel);
+    }
+
+    @Test
+    public void stopsAtTheSameResults() {
+        SearchOutput sequential = search(1, "Comments", "CharStr", "even",
+                "100");
+        SearchOutput parallel = search(4, "Comments", "CharStr", "even",
+                "100");
+        assertSameOutput(sequential, parallel);
+        List<Assrt> results = parallel.sortedAssrtResultsList;
+        // the results, then the trailer
+        assertEquals(101, results.size());
+        assertEquals(system.assrt("gen0"), results.get(0));
+        assertEquals(system.assrt("gen198"), results.get(99));
+    }
+}
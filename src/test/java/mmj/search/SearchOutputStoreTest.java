@@ -0,0 +1,98 @@
+package mmj.search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mmj.lang.Assrt;
+import mmj.lang.TestLogicalSystem;
+
+import static org.junit.Assert.*;
+
+public class SearchOutputStoreTest {
+
+    private TestLogicalSystem system;
+    private final List<SearchOutput> published = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        system = new TestLogicalSystem();
+    }
+
+    /** @return a store without sort, publishing to the published list */
+    private SearchOutputStore store(int maxResults, long intervalMillis) {
+        var store = new SearchOutputStore(maxResults, 0);
+        store.setPartialResultsListener(published::add, "3", intervalMillis);
+        return store;
+    }
+
+    private boolean add(SearchOutputStore store, String label) {
+        return store.add(system.assrt(label), new String[] { label }, 0);
+    }
+
+    private List<Assrt> assrts(String... labels) {
+        List<Assrt> assrts = new ArrayList<>();
+        for (String label : labels)
+            assrts.add(label == null ? null : system.assrt(label));
+        return assrts;
+    }
+
+    @Test
+    public void publishesTheResultsFoundSoFar() {
+        var store = store(10, 0);
+        store.publishPartialResults();
+        assertEquals(0, published.size());
+
+        add(store, "ax-1");
+        store.publishPartialResults();
+        assertEquals(1, published.size());
+        SearchOutput partial = published.get(0);
+        assertEquals(assrts("ax-1", null), partial.sortedAssrtResultsList);
+        assertEquals("3", partial.step);
+        assertEquals("<html>" + SearchConstants.SEARCH_OUTPUT_LIST_SEARCHING_LITERAL
+                .replace("<", "&lt;").replace(">", "&gt;") + "</html>",
+                partial.selectionArray[1]);
+
+        // nothing new to publish
+        store.publishPartialResults();
+        assertEquals(1, published.size());
+
+        add(store, "ax-2");
+        add(store, "ax-mp");
+        store.publishPartialResults();
+        assertEquals(2, published.size());
+        assertEquals(assrts("ax-1", "ax-2", "ax-mp", null),
+                published.get(1).sortedAssrtResultsList);
+    }
+
+    @Test
+    public void waitsForThePublicationInterval() {
+        var store = store(10, 3600 * 1000);
+        add(store, "ax-1");
+        store.publishPartialResults();
+        assertEquals(0, published.size());
+    }
+
+    @Test
+    public void completesTheOutputWithTheFinalResults() {
+        var store = store(2, 0);
+        assertFalse(add(store, "ax-1"));
+        store.publishPartialResults();
+        assertTrue(add(store, "ax-2"));
+
+        var searchOutput = new SearchOutput("");
+        searchOutput.loadResults(published.get(0));
+        assertFalse(searchOutput.resultsComplete);
+        store.loadSearchOutput(searchOutput, "3", store.isFull());
+        assertTrue(searchOutput.resultsComplete);
+        assertEquals(assrts("ax-1", "ax-2", null),
+                searchOutput.sortedAssrtResultsList);
+        assertTrue(Arrays.toString(searchOutput.selectionArray),
+                searchOutput.selectionArray[2].contains(
+                        SearchConstants.SEARCH_OUTPUT_LIST_MORE_LITERAL
+                                .replace("<", "&lt;").replace(">", "&gt;")));
+    }
+}
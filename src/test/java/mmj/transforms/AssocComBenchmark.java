@@ -0,0 +1,81 @@
+package mmj.transforms;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import mmj.lang.TestLogicalSystem;
+import mmj.pa.ProofAsst;
+import mmj.pa.ProofWorksheet;
+import mmj.transforms.TransformationProfile.Kind;
+
+/**
+ * Measures the associative-commutative transformation of long conjunctions,
+ * on the worksheets of {@link AssocComTransformationTest}: the reversed chains
+ * and the random trees of 10 to {@value AssocComTransformationTest#MAX_OPERANDS}
+ * operands.
+ * <p>
+ * For each worksheet, it prints the number of logical steps of the proof, the
+ * time of the unification and the time of the associative-commutative
+ * transformations and of the canonical forms (see
+ * {@link TransformationProfile}), the best of several runs. Run it after
+ * {@code mvn test-compile}, with the jars of the dependencies of the pom:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:junit.jar:hamcrest-core.jar:json.jar:nashorn-core.jar \
+ *     mmj.transforms.AssocComBenchmark [runs]
+ * </pre>
+ */
+public class AssocComBenchmark {
+
+    private static final int[] SIZES = { 10, 25, 50, 100, 200 };
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length == 0 ? 5 : Integer.parseInt(args[0]);
+        ProofAsst proofAsst = new TestLogicalSystem(
+                AssocComTransformationTest.database()).proofAsst();
+        proofAsst.initAutotransformations(true, false, true);
+
+        System.out.printf("%-8s %8s %8s %12s %12s%n", "kind", "operands",
+                "steps", "unify ms", "assocCom ms");
+        for (int n : SIZES) {
+            List<String> operands = AssocComTransformationTest.operands(n);
+            run(proofAsst, runs, "chain", n,
+                    AssocComTransformationTest.leftChain(operands),
+                    AssocComTransformationTest.reversedRightChain(operands));
+
+            Random random = new Random(n);
+            List<String> permutation = AssocComTransformationTest.operands(n);
+            Collections.shuffle(permutation, random);
+            run(proofAsst, runs, "random", n,
+                    AssocComTransformationTest.randomTree(operands, random),
+                    AssocComTransformationTest.randomTree(permutation, random));
+        }
+    }
+
+    private static void run(ProofAsst proofAsst, int runs, String kind, int n,
+            String hyp, String qed)
+    {
+        String text = AssocComTransformationTest.worksheet(hyp, qed);
+        TransformationProfile profile = proofAsst.getTransformationProfile();
+        long bestUnify = Long.MAX_VALUE;
+        long bestAssocCom = Long.MAX_VALUE;
+        int steps = -1;
+        for (int run = 0; run < runs; run++) {
+            TransformationProfile start = profile.copy();
+            long startNanos = System.nanoTime();
+            ProofWorksheet w = proofAsst.unify(false, false, text, null, null,
+                    null, -1, true);
+            long unifyNanos = System.nanoTime() - startNanos;
+            TransformationProfile work = new TransformationProfile();
+            work.addDifference(profile, start);
+            bestUnify = Math.min(bestUnify, unifyNanos);
+            bestAssocCom = Math.min(bestAssocCom, work.getNanos(Kind.ASSOC_COM)
+                    + work.getNanos(Kind.CANONICAL));
+            steps = w.getQedStepProofRPN() == null ? -1
+                    : AssocComTransformationTest.logicalSteps(w).size();
+        }
+        System.out.printf("%-8s %8d %8d %12.1f %12.1f%n", kind, n, steps,
+                bestUnify / 1e6, bestAssocCom / 1e6);
+    }
+}
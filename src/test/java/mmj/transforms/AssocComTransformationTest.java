@@ -0,0 +1,148 @@
+package mmj.transforms;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import mmj.lang.ParseTree.RPNStep;
+import mmj.lang.TestLogicalSystem;
+import mmj.pa.DerivationStep;
+import mmj.pa.ProofAsst;
+import mmj.pa.ProofWorksheet;
+import mmj.verify.VerifyProofs;
+
+import static org.junit.Assert.*;
+
+public class AssocComTransformationTest {
+
+    static final int MAX_OPERANDS = 200;
+
+    /** @return AC_CALC with the variables x1 to x{@value #MAX_OPERANDS} */
+    static String database() {
+        StringBuilder mm = new StringBuilder(TestLogicalSystem.AC_CALC);
+        mm.append("$v");
+        for (int i = 1; i <= MAX_OPERANDS; i++)
+            mm.append(" x").append(i);
+        mm.append(" $.\n");
+        for (int i = 1; i <= MAX_OPERANDS; i++)
+            mm.append("wx").append(i).append(" $f wff x").append(i)
+                    .append(" $.\n");
+        return mm.toString();
+    }
+
+    static List<String> operands(int n) {
+        List<String> operands = new ArrayList<>();
+        for (int i = 1; i <= n; i++)
+            operands.add("x" + i);
+        return operands;
+    }
+
+    /** @return ( ( x1 /\ x2 ) /\ x3 ) and so on */
+    static String leftChain(List<String> operands) {
+        String formula = operands.get(0);
+        for (String operand : operands.subList(1, operands.size()))
+            formula = "( " + formula + " /\\ " + operand + " )";
+        return formula;
+    }
+
+    /** @return ( x3 /\ ( x2 /\ x1 ) ) and so on */
+    static String reversedRightChain(List<String> operands) {
+        String formula = operands.get(0);
+        for (String operand : operands.subList(1, operands.size()))
+            formula = "( " + operand + " /\\ " + formula + " )";
+        return formula;
+    }
+
+    /** @return the operands in order, randomly grouped */
+    static String randomTree(List<String> operands, Random random) {
+        if (operands.size() == 1)
+            return operands.get(0);
+        int k = 1 + random.nextInt(operands.size() - 1);
+        return "( " + randomTree(operands.subList(0, k), random) + " /\\ "
+                + randomTree(operands.subList(k, operands.size()), random)
+                + " )";
+    }
+
+    /**
+     * @param hyp a conjunction
+     * @param qed the same conjunction, regrouped and reordered
+     * @return a worksheet deriving -. qed from -. hyp, which only the
+     *         associative-commutative transformation of the conjunctions
+     *         proves
+     */
+    static String worksheet(String hyp, String qed) {
+        return "$( <MM> <PROOF_ASST> THEOREM=chain LOC_AFTER=?\n\n"
+                + "h1::chain.1 |- -. " + hyp + "\n" + "!qed:: |- -. " + qed
+                + "\n\n$)\n";
+    }
+
+    /**
+     * @param w the unified worksheet
+     * @return the labels of the logical steps of the proof of the qed step
+     */
+    static List<String> logicalSteps(ProofWorksheet w) {
+        List<String> labels = new ArrayList<>();
+        for (RPNStep step : w.getQedStepProofRPN())
+            if (step.stmt != null && step.stmt.getFormula().getTyp()
+                    .getId().equals("|-"))
+                labels.add(step.stmt.getLabel());
+        return labels;
+    }
+
+    private TestLogicalSystem system;
+    private ProofAsst proofAsst;
+
+    @Before
+    public void setUp() throws Exception {
+        system = new TestLogicalSystem(database());
+        proofAsst = system.proofAsst();
+        proofAsst.initAutotransformations(true, false, true);
+    }
+
+    /** @return the logical steps of the proof, after checking it */
+    private List<String> prove(String hyp, String qed) {
+        ProofWorksheet w = proofAsst.unify(false, false, worksheet(hyp, qed),
+                null, null, null, -1, true);
+        assertNotNull(w.getOutputProofText(), w.getQedStepProofRPN());
+        DerivationStep qedStep = w.getQedStep();
+        assertNull(new VerifyProofs().verifyDerivStepProof("chain",
+                qedStep.getFormula(), qedStep.getProofTree(),
+                w.getComboFrame()));
+        return logicalSteps(w);
+    }
+
+    @Test
+    public void provesTheReversedChainsLikeBefore() {
+        for (int n : new int[] { 10, 25, 40 }) {
+            // the proof of the previous implementation: the commutations
+            // of each level, then their replacements in the chain
+            List<String> expected = new ArrayList<>();
+            expected.add("chain.1");
+            expected.addAll(Collections.nCopies(n - 1, "ancom"));
+            for (int i = 0; i < n - 2; i++)
+                expected.addAll(List.of("anbi2i", "bitri"));
+            expected.addAll(List.of("notbii", "mpbi"));
+
+            List<String> operands = operands(n);
+            assertEquals(expected, prove(leftChain(operands),
+                    reversedRightChain(operands)));
+        }
+    }
+
+    @Test
+    public void provesTheRandomTreesAlwaysTheSameWay() {
+        for (int n : new int[] { 10, 25, 40 }) {
+            Random random = new Random(n);
+            List<String> permutation = operands(n);
+            Collections.shuffle(permutation, random);
+            String hyp = randomTree(operands(n), random);
+            String qed = randomTree(permutation, random);
+
+            assertEquals(prove(hyp, qed), prove(hyp, qed));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package mmj.transforms;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import mmj.lang.Cnst;
+import mmj.lang.ParseNode;
+import mmj.lang.TestLogicalSystem;
+import mmj.lang.VarHyp;
+import mmj.pa.ProofAsst;
+import mmj.pa.ProofAsstPreferences;
+import mmj.transforms.CanonicalFormCache.Entry;
+import mmj.transforms.CanonicalFormCache.Lookup;
+import mmj.transforms.CanonicalFormCache.NodeKey;
+import mmj.verify.VerifyProofs;
+
+import static org.junit.Assert.*;
+
+public class CanonicalFormCacheTest {
+
+    /** A work sheet info whose steps are a set of formulas */
+    private static class TestWorksheetInfo extends WorksheetInfo {
+        final Set<NodeKey> steps = new HashSet<>();
+
+        TestWorksheetInfo(TransformationManager trManager) {
+            super(null, null, trManager);
+        }
+
+        @Override
+        public boolean hasProofStepStmt(NodeKey root) {
+            return steps.contains(root);
+        }
+    }
+
+    private TestLogicalSystem system;
+    private TestWorksheetInfo info;
+    private CanonicalFormCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        system = new TestLogicalSystem();
+        var verifyProofs = new VerifyProofs();
+        var proofAsst = new ProofAsst(new ProofAsstPreferences(),
+                system.logicalSystem, system.grammar, verifyProofs, null, null);
+        var trManager = new TransformationManager(proofAsst,
+                system.logicAssrts(),
+                (Cnst)system.logicalSystem.getSymTbl().get("|-"),
+                system.messages, verifyProofs, true, false);
+        info = new TestWorksheetInfo(trManager);
+        cache = new CanonicalFormCache();
+    }
+
+    private ParseNode node(String formula) {
+        return system.parse(formula).getRoot();
+    }
+
+    @Test
+    public void comparesTheNodesByValue() {
+        assertEquals(new NodeKey(node("( ph -> -. ps )")),
+                new NodeKey(node("( ph -> -. ps )")));
+        assertEquals(new NodeKey(node("( ph -> -. ps )")).hashCode(),
+                new NodeKey(node("( ph -> -. ps )")).hashCode());
+        assertNotEquals(new NodeKey(node("( ph -> ps )")),
+                new NodeKey(node("( ps -> ph )")));
+        assertNotEquals(new NodeKey(node("ph")), new NodeKey(null));
+        assertEquals(new NodeKey(null), new NodeKey(null));
+    }
+
+    @Test
+    public void findsTheCanonicalFormOfAnEqualNode() {
+        Entry entry = new Entry(node("( ph -> ps )"), new Lookup[0]);
+        cache.put(node("( ps -> ph )"), info, entry);
+        assertSame(entry, cache.get(node("( ps -> ph )"), info));
+        assertNull(cache.get(node("( ph -> ps )"), info));
+        assertTrue(entry.isDeepDup(new Entry(node("( ph -> ps )"), null)));
+    }
+
+    @Test
+    public void keysTheCanonicalFormsByImplicationPrefix() {
+        Entry entry = new Entry(node("ps"), new Lookup[0]);
+        cache.put(node("ps"), info, entry);
+        info.setImplicationPrefix(node("ph"), system.stmt("wi"));
+        assertNull(cache.get(node("ps"), info));
+
+        Entry prefixed = new Entry(node("ph"), new Lookup[0]);
+        cache.put(node("ps"), info, prefixed);
+        assertSame(prefixed, cache.get(node("ps"), info));
+        info.setImplicationPrefix(null, null);
+        assertSame(entry, cache.get(node("ps"), info));
+    }
+
+    @Test
+    public void dropsTheCanonicalFormsWhoseLookupsChanged() {
+        NodeKey step = new NodeKey(node("-. ph"));
+        Entry entry = new Entry(node("ph"),
+                new Lookup[] { new Lookup(step, false) });
+        cache.put(node("-. -. ph"), info, entry);
+        assertSame(entry, cache.get(node("-. -. ph"), info));
+        info.steps.add(step);
+        assertNull(cache.get(node("-. -. ph"), info));
+        assertFalse(entry.isValid(info));
+    }
+
+    /** @return a distinct node for each number below 2^15 */
+    private ParseNode numberedNode(int n) {
+        ParseNode ph = new ParseNode((VarHyp)system.stmt("wph"));
+        ParseNode node = ph;
+        for (int bit = 0; bit < 15; bit++)
+            node = (n >> bit & 1) != 0 ? new ParseNode(system.stmt("wn"), node)
+                    : new ParseNode(system.stmt("wi"), ph, node);
+        return node;
+    }
+
+    @Test
+    public void hashesThePermutationsOfAChainApart() {
+        assertNotEquals(
+                new NodeKey(node("( ph -> ( ps -> ( ch -> ph ) ) )")).hashCode(),
+                new NodeKey(node("( ps -> ( ph -> ( ch -> ph ) ) )")).hashCode());
+        assertNotEquals(
+                new NodeKey(node("( ph -> ( ps -> ch ) )")).hashCode(),
+                new NodeKey(node("( ps -> ( ph -> ch ) )")).hashCode());
+    }
+
+    @Test
+    public void spreadsTheHashesOverTheBuckets() {
+        int nbrNodes = 4096;
+        int nbrBuckets = 4096;
+        Set<Integer> hashes = new HashSet<>();
+        Set<Integer> buckets = new HashSet<>();
+        for (int n = 0; n < nbrNodes; n++) {
+            int h = new NodeKey(numberedNode(n)).hashCode();
+            hashes.add(h);
+            // the bucket of a HashMap with nbrBuckets buckets
+            buckets.add((h ^ h >>> 16) & nbrBuckets - 1);
+        }
+        assertEquals(nbrNodes, hashes.size());
+        // random hashes use 63% of the buckets
+        assertTrue(buckets.toString(), buckets.size() > nbrBuckets / 2);
+    }
+
+    @Test
+    public void dropsTheLeastRecentlyUsedCanonicalForms() {
+        int max = TrConstants.CANONICAL_FORM_CACHE_MAX_SIZE;
+        for (int n = 0; n < max; n++)
+            cache.put(numberedNode(n), info, new Entry(null, new Lookup[0]));
+        assertNotNull(cache.get(numberedNode(0), info));
+        cache.put(numberedNode(max), info, new Entry(null, new Lookup[0]));
+        assertNotNull(cache.get(numberedNode(0), info));
+        assertNull(cache.get(numberedNode(1), info));
+        assertNotNull(cache.get(numberedNode(max), info));
+    }
+}
@@ -0,0 +1,155 @@
+package mmj.transforms;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mmj.lang.Assrt;
+import mmj.lang.Cnst;
+import mmj.lang.TestLogicalSystem;
+import mmj.pa.ProofAsst;
+import mmj.pa.ProofAsstPreferences;
+import mmj.pa.SessionStore;
+import mmj.transforms.RuleCandidates.Pass;
+import mmj.verify.VerifyProofs;
+
+import static org.junit.Assert.*;
+
+public class TransformationSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private TestLogicalSystem system;
+    private VerifyProofs verifyProofs;
+    private ProofAsst proofAsst;
+    private Cnst provable;
+
+    @Before
+    public void setUp() throws Exception {
+        system = new TestLogicalSystem(TestLogicalSystem.AC_CALC);
+        verifyProofs = new VerifyProofs();
+        File folder = temp.getRoot();
+        SessionStore store = new SessionStore();
+        store.setMMJ2Path(() -> folder);
+        ProofAsstPreferences preferences = new ProofAsstPreferences(store);
+        preferences.transformationSnapshotFolder.set(folder);
+        proofAsst = new ProofAsst(preferences, system.logicalSystem,
+                system.grammar, verifyProofs, null, null);
+        provable = (Cnst)system.logicalSystem.getSymTbl().get("|-");
+    }
+
+    private TransformationManager manager(boolean dbg) {
+        return new TransformationManager(proofAsst, system.logicAssrts(),
+                provable, system.messages, verifyProofs, true, dbg);
+    }
+
+    private File file() {
+        return TransformationSnapshot.getFile(temp.getRoot(),
+                system.logicAssrts(), provable);
+    }
+
+    private static List<String> labels(List<Assrt> assrts) {
+        List<String> labels = new ArrayList<>();
+        for (Assrt assrt : assrts)
+            labels.add(assrt.getLabel());
+        return labels;
+    }
+
+    private String messages() {
+        return String.join("\n", Arrays.copyOf(
+                system.messages.getErrorMessageArray(),
+                system.messages.getErrorMessageCnt()))
+                + String.join("\n", Arrays.copyOf(
+                        system.messages.getInfoMessageArray(),
+                        system.messages.getInfoMessageCnt()));
+    }
+
+    @Test
+    public void savesTheRulesAndTheProvers() throws Exception {
+        assertFalse(file().exists());
+        TransformationSnapshot snapshot = manager(false).getSnapshot();
+        assertTrue(file().exists());
+
+        List<String> rules = labels(snapshot.ruleAssrts);
+        assertTrue(rules.toString(), rules.containsAll(Arrays.asList("bicomi",
+                "bitri", "bicomd", "bitrd", "ancom", "anass", "imbi2i")));
+
+        TransformationSnapshot.Saved saved = TransformationSnapshot.read(
+                file(), system.logicalSystem.getStmtTbl());
+        assertEquals(rules, labels(saved.ruleAssrts));
+        assertEquals(labels(snapshot.proverAssrts),
+                labels(saved.proverAssrts));
+        assertEquals("", messages());
+    }
+
+    @Test
+    public void buildsTheSameTablesFromTheSavedRules() throws Exception {
+        TransformationSnapshot built = manager(false).getSnapshot();
+        long modified = file().lastModified();
+
+        TransformationSnapshot read = manager(false).getSnapshot();
+        assertNotSame(built, read);
+        assertEquals(labels(built.ruleAssrts), labels(read.ruleAssrts));
+        assertEquals(labels(built.proverAssrts), labels(read.proverAssrts));
+        assertEquals(modified, file().lastModified());
+        assertEquals("", messages());
+    }
+
+    @Test
+    public void rebuildsTheTablesFromACorruptFile() throws Exception {
+        List<String> rules = labels(manager(false).getSnapshot().ruleAssrts);
+        Files.write(file().toPath(), Arrays.asList(
+                TrConstants.TRANSFORMATION_SNAPSHOT_HEADER,
+                TrConstants.TRANSFORMATION_SNAPSHOT_RULES, "no-such-label"),
+                StandardCharsets.UTF_8);
+
+        assertEquals(rules, labels(manager(false).getSnapshot().ruleAssrts));
+        assertTrue(messages(), messages().contains("W-TR-0202"));
+        assertEquals(rules, labels(TransformationSnapshot.read(file(),
+                system.logicalSystem.getStmtTbl()).ruleAssrts));
+    }
+
+    @Test
+    public void namesTheFileAfterTheDatabase() throws Exception {
+        List<Assrt> assrts = system.logicAssrts();
+        assertEquals(file(), TransformationSnapshot.getFile(temp.getRoot(),
+                new ArrayList<>(assrts), provable));
+        assertNotEquals(file(), TransformationSnapshot.getFile(temp.getRoot(),
+                assrts.subList(1, assrts.size()), provable));
+        assertNull(TransformationSnapshot.read(
+                new File(temp.getRoot(), "missing"),
+                system.logicalSystem.getStmtTbl()));
+    }
+
+    @Test
+    public void savesNothingWithDebugOutput() {
+        assertNull(manager(true).getSnapshot());
+        assertFalse(file().exists());
+    }
+
+    @Test
+    public void classifiesTheAssertionsInOrder() {
+        List<Assrt> assrts = system.logicAssrts();
+        RuleCandidates candidates = new RuleCandidates(assrts);
+        assertTrue(labels(candidates.get(Pass.EQUIV_COMM)).contains("bicomi"));
+        assertFalse(labels(candidates.get(Pass.EQUIV_COMM)).contains("bitri"));
+        assertTrue(labels(candidates.get(Pass.EQUIV_TRANS)).contains("bitri"));
+        assertTrue(labels(candidates.get(Pass.COMM)).contains("ancom"));
+        assertTrue(labels(candidates.get(Pass.ASSOC)).contains("anass"));
+        for (Pass pass : Pass.values()) {
+            List<Assrt> list = candidates.get(pass);
+            for (int i = 1; i < list.size(); i++)
+                assertTrue(pass.toString(), assrts.indexOf(
+                        list.get(i - 1)) < assrts.indexOf(list.get(i)));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package mmj.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class OrderedParallelScanTest {
+
+    /** Finds the multiples of 3 of a chunk, slowly for the first chunks. */
+    private static class MultiplesScanner
+        implements OrderedParallelScan.Scanner<Integer, RuntimeException> {
+
+        @Override
+        public List<Integer> scan(int from, int to) throws InterruptedException {
+            if (from < 30)
+                Thread.sleep(5);
+            return IntStream.range(from, to).filter(i -> i % 3 == 0).boxed()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<MultiplesScanner> helpers(OrderedParallelScan<?, ?> scan) {
+        List<MultiplesScanner> helpers = new ArrayList<>();
+        for (int i = 0; i < scan.getNbrHelpers(); i++)
+            helpers.add(new MultiplesScanner());
+        return helpers;
+    }
+
+    @Test
+    public void mergesTheChunksInOrder() throws InterruptedException {
+        List<Integer> merged = new ArrayList<>();
+        var scan = new OrderedParallelScan<Integer, RuntimeException>(1000, 7,
+                i -> {
+                    merged.add(i);
+                    return false;
+                });
+        scan.run(new MultiplesScanner(), helpers(scan));
+        assertEquals(IntStream.range(0, 1000).filter(i -> i % 3 == 0).boxed()
+                .collect(Collectors.toList()), merged);
+    }
+
+    @Test
+    public void stopsWhenTheMergeIsComplete() throws InterruptedException {
+        List<Integer> merged = new ArrayList<>();
+        var scan = new OrderedParallelScan<Integer, RuntimeException>(1000, 7,
+                i -> merged.add(i) && merged.size() == 10);
+        scan.run(new MultiplesScanner(), helpers(scan));
+        assertEquals(IntStream.range(0, 30).filter(i -> i % 3 == 0).boxed()
+                .collect(Collectors.toList()), merged);
+    }
+
+    @Test
+    public void scansOnTheCallingThreadWithoutHelpers() throws InterruptedException {
+        List<Integer> merged = new ArrayList<>();
+        var scan = new OrderedParallelScan<Integer, RuntimeException>(10, 4,
+                i -> {
+                    merged.add(i);
+                    return false;
+                });
+        scan.run(new MultiplesScanner(), Collections.emptyList());
+        assertEquals(List.of(0, 3, 6, 9), merged);
+    }
+
+    @Test
+    public void rethrowsTheFailureOfAHelper() throws InterruptedException {
+        var scan = new OrderedParallelScan<Integer, Exception>(1000, 1,
+                i -> false);
+        List<OrderedParallelScan.Scanner<Integer, Exception>> helpers = new ArrayList<>();
+        for (int i = 0; i < scan.getNbrHelpers(); i++)
+            helpers.add((from, to) -> {
+                throw new Exception("helper " + from);
+            });
+        try {
+            // the calling thread fails too, if there is no helper
+            scan.run((from, to) -> {
+                if (helpers.isEmpty())
+                    throw new Exception("helper " + from);
+                Thread.sleep(1);
+                return Collections.emptyList();
+            }, helpers);
+            fail();
+        } catch (Exception e) {
+            assertTrue(e.getMessage().startsWith("helper "));
+        }
+    }
+
+    @Test
+    public void scansAnEmptyList() throws InterruptedException {
+        var scan = new OrderedParallelScan<Integer, RuntimeException>(0, 7,
+                i -> true);
+        assertEquals(0, scan.getNbrHelpers());
+        scan.run((from, to) -> {
+            throw new AssertionError();
+        }, Collections.emptyList());
+    }
+
+    @Test
+    public void hasNoHelperOnOneThread() throws InterruptedException {
+        int nbrThreads = SharedExecutor.getNbrThreads();
+        SharedExecutor.setNbrThreads(1);
+        try {
+            List<Integer> merged = new ArrayList<>();
+            var scan = new OrderedParallelScan<Integer, RuntimeException>(
+                    1000, 7, i -> {
+                        merged.add(i);
+                        return false;
+                    });
+            assertEquals(0, scan.getNbrHelpers());
+            scan.run(new MultiplesScanner(), helpers(scan));
+            assertEquals(334, merged.size());
+        } finally {
+            SharedExecutor.setNbrThreads(nbrThreads);
+        }
+    }
+}